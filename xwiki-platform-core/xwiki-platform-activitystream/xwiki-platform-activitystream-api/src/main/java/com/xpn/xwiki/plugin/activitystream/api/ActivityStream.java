@@ -344,6 +344,25 @@ List<ActivityEvent> getEventsForSpace(String streamName, String space, boolean f
     List<ActivityEvent> getEventsForUser(String streamName, String user, boolean filter, int nb, int start,
         XWikiContext context) throws ActivityStreamException;
 
+    /**
+     * Get the most recent events matching the passed filters which are older than the passed event. Unlike the methods
+     * taking an offset, the cost of getting a page of events does not depend on its depth: the next page is obtained by
+     * passing the last event of the current page.
+     *
+     * @param streamName name of the activity stream to retrieve the events from, null for all the streams
+     * @param space space to retrieve the events from (including its nested spaces), null for all the spaces
+     * @param user user to retrieve the events from, null for all the users
+     * @param filter true if the events should be filtered by priority
+     * @param nb number of events to retrieve
+     * @param lastEvent the last event of the previous page, null to get the first page
+     * @param context the XWiki context
+     * @return a list of events, most recent first
+     * @throws ActivityStreamException if the retrieval fails
+     * @since 8.2M1
+     */
+    List<ActivityEvent> getOlderEvents(String streamName, String space, String user, boolean filter, int nb,
+        ActivityEvent lastEvent, XWikiContext context) throws ActivityStreamException;
+
     /**
      * Get the feed entry for the given event.
      *
@@ -21,6 +21,7 @@
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +31,7 @@
 /**
  * @version $Id$
  */
-public class ActivityEventImpl implements ActivityEvent
+public class ActivityEventImpl implements ActivityEvent, Cloneable
 {
     /**
      * ID.
@@ -474,4 +475,25 @@ public void setHidden(Boolean hidden)
             this.hidden = hidden;
         }
     }
+
+    @Override
+    public ActivityEventImpl clone()
+    {
+        ActivityEventImpl event;
+        try {
+            event = (ActivityEventImpl) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // Should never happen
+            throw new RuntimeException("Failed to clone activity event", e);
+        }
+
+        if (this.date != null) {
+            event.date = (Date) this.date.clone();
+        }
+        if (this.parameters != null) {
+            event.parameters = new HashMap<String, String>(this.parameters);
+        }
+
+        return event;
+    }
 }
@@ -19,22 +19,24 @@
  */
 package com.xpn.xwiki.plugin.activitystream.impl;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
 
-import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
-import com.xpn.xwiki.plugin.activitystream.api.ActivityStreamException;
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
 import com.xpn.xwiki.plugin.scheduler.AbstractJob;
+import com.xpn.xwiki.web.Utils;
 
 /**
- * This job deletes all the events older than a configured number of days in the activitystream datastore.
+ * This job deletes all the events older than a configured number of days in the activitystream datastore. The actual
+ * deletion is done in small batches by {@link ActivityStreamCleaningJob}, whose progress can be followed with the job
+ * identifier {@link ActivityStreamCleaningJob#JOBID}.
  * 
  * @version $Id$
  */
@@ -43,21 +45,31 @@ public class ActivityStreamCleanerJob extends AbstractJob implements Job
     @Override
     protected void executeJob(JobExecutionContext jobContext) throws JobExecutionException
     {
-        ActivityStreamPlugin plugin = (ActivityStreamPlugin) getXWikiContext().getWiki()
-            .getPlugin(ActivityStreamPlugin.PLUGIN_NAME, getXWikiContext());
-        List<Object> parameters = new ArrayList<Object>();
-        int days = ActivityStreamCleaner.getNumberOfDaysToKeep(getXWikiContext());
+        XWikiContext context = getXWikiContext();
+        ActivityStreamPlugin plugin =
+            (ActivityStreamPlugin) context.getWiki().getPlugin(ActivityStreamPlugin.PLUGIN_NAME, context);
+        int days = ActivityStreamCleaner.getNumberOfDaysToKeep(context);
 
         if (days > 0) {
-            parameters.add(DateUtils.addDays(new Date(), days * -1));
+            ActivityStreamCleaningRequest request = new ActivityStreamCleaningRequest();
+            request.setId(ActivityStreamCleaningJob.JOBID);
+            request.setBefore(DateUtils.addDays(new Date(), days * -1));
+            request.setBatchSize(Integer.parseInt(plugin.getActivityStreamPreference("cleaner.batchsize", "1000",
+                context)));
+            request.setBatchDelay(Long.parseLong(plugin.getActivityStreamPreference("cleaner.batchdelay", "100",
+                context)));
+
             try {
-                List<ActivityEvent> events = plugin.getActivityStream().searchEvents("date < ?", false, true, 0, 0,
-                    parameters, getXWikiContext());
-                for (ActivityEvent event : events) {
-                    plugin.getActivityStream().deleteActivityEvent(event, getXWikiContext());
-                }
-            } catch (ActivityStreamException e) {
-                // TODO
+                org.xwiki.job.Job job =
+                    Utils.getComponent(JobExecutor.class).execute(ActivityStreamCleaningJob.JOBTYPE, request);
+
+                // Don't let the scheduler start another cleaning before this one is finished
+                job.join();
+            } catch (JobException e) {
+                throw new JobExecutionException("Failed to start the activity stream cleaning", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JobExecutionException("Interrupted while waiting for the activity stream cleaning", e);
             }
         }
     }
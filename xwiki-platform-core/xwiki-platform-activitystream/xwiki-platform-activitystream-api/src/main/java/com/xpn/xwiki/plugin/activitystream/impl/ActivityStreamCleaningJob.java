@@ -0,0 +1,202 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.Request;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+/**
+ * Delete the expired activity stream events of all the wikis, in small batches so that the events table is never
+ * locked for long and the writers are not blocked.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(ActivityStreamCleaningJob.JOBTYPE)
+public class ActivityStreamCleaningJob
+    extends AbstractJob<ActivityStreamCleaningRequest, DefaultJobStatus<ActivityStreamCleaningRequest>>
+{
+    /**
+     * The id of the job.
+     */
+    public static final String JOBTYPE = "activitystream.cleaner";
+
+    /**
+     * The identifier of the running job.
+     */
+    public static final List<String> JOBID = Arrays.asList("activitystream", "cleaner");
+
+    private static final String DATE = "date";
+
+    @Inject
+    private transient Provider<XWikiContext> xcontextProvider;
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected ActivityStreamCleaningRequest castRequest(Request request)
+    {
+        ActivityStreamCleaningRequest cleaningRequest;
+        if (request instanceof ActivityStreamCleaningRequest) {
+            cleaningRequest = (ActivityStreamCleaningRequest) request;
+        } else {
+            cleaningRequest = new ActivityStreamCleaningRequest(request);
+        }
+
+        return cleaningRequest;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        List<String> wikis = xcontext.getWiki().getVirtualWikisDatabaseNames(xcontext);
+
+        this.logger.info("Delete the activity stream events older than [{}].", getRequest().getBefore());
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        String currentWiki = xcontext.getWikiId();
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                xcontext.setWikiId(wiki);
+                try {
+                    clean(wiki, xcontext);
+                } catch (XWikiException e) {
+                    this.logger.error("Failed to delete the expired activity stream events of wiki [{}].", wiki, e);
+                }
+            }
+        } finally {
+            xcontext.setWikiId(currentWiki);
+
+            this.progressManager.popLevelProgress(this);
+        }
+
+        // Make sure the deleted events are not kept in memory
+        ActivityStreamPlugin plugin =
+            (ActivityStreamPlugin) xcontext.getWiki().getPlugin(ActivityStreamPlugin.PLUGIN_NAME, xcontext);
+        if (plugin != null && plugin.getActivityStream() instanceof ActivityStreamImpl) {
+            ((ActivityStreamImpl) plugin.getActivityStream()).clearRecentEvents();
+        }
+    }
+
+    private void clean(String wiki, XWikiContext xcontext) throws XWikiException, InterruptedException
+    {
+        XWikiHibernateStore store = xcontext.getWiki().getHibernateStore();
+
+        long count = store.executeRead(xcontext, new HibernateCallback<Long>()
+        {
+            @Override
+            public Long doInHibernate(Session session) throws HibernateException, XWikiException
+            {
+                return (Long) session
+                    .createQuery("select count(act.eventId) from ActivityEventImpl as act where act.date < :date")
+                    .setTimestamp(DATE, getRequest().getBefore()).uniqueResult();
+            }
+        });
+
+        if (count == 0) {
+            return;
+        }
+
+        final int batchSize = getRequest().getBatchSize();
+
+        this.logger.info("Deleting [{}] activity stream events from wiki [{}].", count, wiki);
+
+        this.progressManager.pushLevelProgress((int) ((count + batchSize - 1) / batchSize), this);
+
+        try {
+            long deleted = 0;
+            while (deleted < count) {
+                this.progressManager.startStep(this);
+
+                // The oldest events first, so that an interrupted cleaning leaves a consistent stream
+                final List<String> ids = store.executeRead(xcontext, new HibernateCallback<List<String>>()
+                {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List<String> doInHibernate(Session session) throws HibernateException, XWikiException
+                    {
+                        return session
+                            .createQuery("select act.eventId from ActivityEventImpl as act where act.date < :date"
+                                + " order by act.date")
+                            .setTimestamp(DATE, getRequest().getBefore()).setMaxResults(batchSize).list();
+                    }
+                });
+
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                // Delete by primary key to lock only the deleted rows
+                deleted += store.executeWrite(xcontext, new HibernateCallback<Integer>()
+                {
+                    @Override
+                    public Integer doInHibernate(Session session) throws HibernateException, XWikiException
+                    {
+                        return session.createQuery("delete from ActivityEventImpl where eventId in (:ids)")
+                            .setParameterList("ids", ids).executeUpdate();
+                    }
+                });
+
+                if (ids.size() < batchSize) {
+                    break;
+                }
+
+                // Leave some room to the other database users
+                if (getRequest().getBatchDelay() > 0) {
+                    Thread.sleep(getRequest().getBatchDelay());
+                }
+            }
+
+            this.logger.info("Deleted [{}] activity stream events from wiki [{}].", deleted, wiki);
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.Date;
+
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+
+/**
+ * The request used to configure {@link ActivityStreamCleaningJob}.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class ActivityStreamCleaningRequest extends AbstractRequest
+{
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @see #getBefore()
+     */
+    private Date before;
+
+    /**
+     * @see #getBatchSize()
+     */
+    private int batchSize = 1000;
+
+    /**
+     * @see #getBatchDelay()
+     */
+    private long batchDelay = 100;
+
+    /**
+     * The default constructor.
+     */
+    public ActivityStreamCleaningRequest()
+    {
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public ActivityStreamCleaningRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @return the events older than this date are deleted
+     */
+    public Date getBefore()
+    {
+        return this.before;
+    }
+
+    /**
+     * @param before the events older than this date are deleted
+     */
+    public void setBefore(Date before)
+    {
+        this.before = before;
+    }
+
+    /**
+     * @return the maximum number of events deleted in a single transaction
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of events deleted in a single transaction
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the time in milliseconds to wait between two batches, to leave some room to the other database users
+     */
+    public long getBatchDelay()
+    {
+        return this.batchDelay;
+    }
+
+    /**
+     * @param batchDelay the time in milliseconds to wait between two batches, to leave some room to the other
+     *            database users
+     */
+    public void setBatchDelay(long batchDelay)
+    {
+        this.batchDelay = batchDelay;
+    }
+}
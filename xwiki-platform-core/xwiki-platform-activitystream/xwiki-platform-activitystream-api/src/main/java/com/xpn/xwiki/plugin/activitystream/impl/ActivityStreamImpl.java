@@ -25,10 +25,14 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.slf4j.Logger;
@@ -45,8 +49,10 @@
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationContext;
 import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.ApplicationStoppedEvent;
 import org.xwiki.observation.event.BeginFoldEvent;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 
 import com.sun.syndication.feed.synd.SyndContentImpl;
@@ -104,6 +110,27 @@ public class ActivityStreamImpl implements ActivityStream, EventListener
      */
     private static final String NESTED_SPACE_FORMAT = "%s.%%";
 
+    /**
+     * Used to know if an event date has milliseconds.
+     */
+    private static final long MILLISECONDS_PER_SECOND = 1000;
+
+    /**
+     * Used to read back the dates of the stored events.
+     */
+    private static final String STORED_DATES_QUERY =
+        "select act.eventId, act.date from ActivityEventImpl as act where act.eventId in (:ids)";
+
+    /**
+     * The order of the events returned by the search methods.
+     */
+    private static final String ORDER_BY_DATE = "act.date desc";
+
+    /**
+     * The order of the events returned by {@link #getOlderEvents}, which needs to be a total order.
+     */
+    private static final String ORDER_BY_DATE_AND_ID = "act.date desc, act.eventId desc";
+
     /**
      * The events to match.
      */
@@ -122,9 +149,31 @@ public class ActivityStreamImpl implements ActivityStream, EventListener
             add(new AnnotationAddedEvent());
             add(new AnnotationDeletedEvent());
             add(new AnnotationUpdatedEvent());
+            add(new ApplicationStoppedEvent());
         }
     };
 
+    /**
+     * Used to store the events asynchronously, null when the events are stored synchronously.
+     */
+    private ActivityStreamStoreService storeService;
+
+    /**
+     * The most recent events of each wiki, created when the first page of events of the wiki is requested.
+     */
+    private final Map<String, RecentActivityEvents> recentEvents = new ConcurrentHashMap<>();
+
+    /**
+     * The number of recent events kept in memory for each wiki, 0 to not keep any.
+     */
+    private int recentEventsSize;
+
+    /**
+     * Indicate, for each wiki, if its database stores the event dates with their milliseconds. Unknown wikis are
+     * checked when their next events are stored.
+     */
+    private final Map<String, Boolean> exactStoredDates = new ConcurrentHashMap<>();
+
     /**
      * Set fields related to the document which fired the event in the given event object.
      *
@@ -240,6 +289,25 @@ public void init(XWikiContext context) throws XWikiException
         }
         // Init activitystream cleaner.
         ActivityStreamCleaner.getInstance().init(context);
+        // Start the asynchronous storage of the events.
+        if (this.storeService == null && ActivityStreamStoreService.isEnabled(context)) {
+            this.storeService = new ActivityStreamStoreService(this, context);
+            this.storeService.start();
+        }
+        // Keep the most recent events in memory, unless other cluster members store events too.
+        if (!Utils.getComponent(RemoteObservationManagerConfiguration.class).isEnabled()) {
+            this.recentEventsSize =
+                (int) context.getWiki().ParamAsLong("xwiki.plugin.activitystream.recentevents.size", 100);
+        }
+    }
+
+    /**
+     * @return the service storing the events asynchronously, or null if the events are stored synchronously
+     * @since 8.2M1
+     */
+    public ActivityStreamStoreService getStoreService()
+    {
+        return this.storeService;
     }
 
     @Override
@@ -306,20 +374,24 @@ public void addActivityEvent(ActivityEvent event, XWikiDocument doc, XWikiContex
     {
         prepareEvent(event, doc, context);
 
-        if (useLocalStore(context)) {
+        // The events stored asynchronously are added to the recent events once stored, see #addRecentEvents
+        if (useLocalStore(context) && !queueEvent(event, context.getWikiId())) {
             // store event in the local database
             XWikiHibernateStore localHibernateStore = context.getWiki().getHibernateStore();
             try {
                 localHibernateStore.beginTransaction(context);
                 Session session = localHibernateStore.getSession(context);
                 session.save(event);
+                Map<String, Date> storedDates =
+                    getStoredDates(Arrays.asList(event), session, context.getWikiId());
                 localHibernateStore.endTransaction(context, true);
+                addRecentEvent(event, context.getWikiId(), storedDates);
             } catch (XWikiException e) {
                 localHibernateStore.endTransaction(context, false);
             }
         }
 
-        if (useMainStore(context)) {
+        if (useMainStore(context) && !queueEvent(event, context.getMainXWiki())) {
             // store event in the main database
             String oriDatabase = context.getWikiId();
             context.setWikiId(context.getMainXWiki());
@@ -328,7 +400,10 @@ public void addActivityEvent(ActivityEvent event, XWikiDocument doc, XWikiContex
                 mainHibernateStore.beginTransaction(context);
                 Session session = mainHibernateStore.getSession(context);
                 session.save(event);
+                Map<String, Date> storedDates =
+                    getStoredDates(Arrays.asList(event), session, context.getMainXWiki());
                 mainHibernateStore.endTransaction(context, true);
+                addRecentEvent(event, context.getMainXWiki(), storedDates);
             } catch (XWikiException e) {
                 mainHibernateStore.endTransaction(context, false);
             } finally {
@@ -337,6 +412,152 @@ public void addActivityEvent(ActivityEvent event, XWikiDocument doc, XWikiContex
         }
     }
 
+    /**
+     * @param wiki the wiki where the events are stored
+     * @return the most recent events of the wiki, or null if they are not kept in memory
+     */
+    private RecentActivityEvents getRecentActivityEvents(String wiki)
+    {
+        if (this.recentEventsSize <= 0) {
+            return null;
+        }
+
+        RecentActivityEvents events = this.recentEvents.get(wiki);
+        if (events == null) {
+            events = new RecentActivityEvents(this.recentEventsSize);
+            RecentActivityEvents previous = this.recentEvents.putIfAbsent(wiki, events);
+            if (previous != null) {
+                events = previous;
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * Forget the recent events kept in memory, they are reloaded from the database when needed.
+     */
+    void clearRecentEvents()
+    {
+        this.recentEvents.clear();
+    }
+
+    /**
+     * Read back the dates of events saved in the current transaction, which are not always the dates of the saved
+     * events since some databases don't keep the milliseconds (e.g. MySQL DATETIME rounds them). The recent events kept
+     * in memory must be sorted and used to get the next page of events (see #getOlderEvents) with the stored dates.
+     * The dates are read back only when the recent events of the wiki are kept in memory and the database is not known
+     * to keep the milliseconds, to not add a query to every storing transaction.
+     *
+     * @param events the events saved in the current transaction
+     * @param session the session in which the events have been saved
+     * @param wiki the wiki where the events are saved
+     * @return the stored dates indexed by event identifier, or null if they have not been read back
+     */
+    Map<String, Date> getStoredDates(List<ActivityEvent> events, Session session, String wiki)
+    {
+        if (!this.recentEvents.containsKey(wiki) || Boolean.TRUE.equals(this.exactStoredDates.get(wiki))) {
+            return null;
+        }
+
+        List<String> eventIds = new ArrayList<>(events.size());
+        for (ActivityEvent event : events) {
+            eventIds.add(event.getEventId());
+        }
+
+        Map<String, Date> storedDates = new HashMap<>();
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = session.createQuery(STORED_DATES_QUERY).setParameterList("ids", eventIds).list();
+            for (Object[] result : results) {
+                storedDates.put((String) result[0], (Date) result[1]);
+            }
+        } catch (Exception e) {
+            // The recent events are not reliable anymore, they will be reloaded from the database
+            LOGGER.warn("Failed to read back the dates of the stored activity events: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+            this.recentEvents.remove(wiki);
+
+            return null;
+        }
+
+        // The dates of an event stored at an exact second don't tell anything about the stored precision
+        boolean checked = false;
+        for (ActivityEvent event : events) {
+            Date storedDate = storedDates.get(event.getEventId());
+            if (storedDate != null && event.getDate().getTime() % MILLISECONDS_PER_SECOND != 0) {
+                if (storedDate.getTime() != event.getDate().getTime()) {
+                    this.exactStoredDates.put(wiki, Boolean.FALSE);
+
+                    return storedDates;
+                }
+                checked = true;
+            }
+        }
+        if (checked) {
+            this.exactStoredDates.putIfAbsent(wiki, Boolean.TRUE);
+        }
+
+        return storedDates;
+    }
+
+    /**
+     * @param event the new event
+     * @param wiki the wiki where the event is stored
+     * @param storedDates the stored dates indexed by event identifier, null if they have not been read back
+     */
+    private void addRecentEvent(ActivityEvent event, String wiki, Map<String, Date> storedDates)
+    {
+        RecentActivityEvents events = this.recentEvents.get(wiki);
+        if (events == null) {
+            // The recent events of the wiki are not kept in memory (yet), they will be loaded from the database
+            return;
+        }
+
+        if (storedDates == null && !Boolean.TRUE.equals(this.exactStoredDates.get(wiki))) {
+            // The recent events have been created after the event was stored so its stored date is not known, reload
+            // them from the database
+            this.recentEvents.remove(wiki, events);
+
+            return;
+        }
+
+        if (event instanceof ActivityEventImpl) {
+            ActivityEventImpl recentEvent = (ActivityEventImpl) event;
+            Date storedDate = storedDates != null ? storedDates.get(event.getEventId()) : null;
+            if (storedDate != null && storedDate.getTime() != event.getDate().getTime()) {
+                recentEvent = recentEvent.clone();
+                recentEvent.setDate(new Date(storedDate.getTime()));
+            }
+            events.add(recentEvent);
+        }
+    }
+
+    /**
+     * Called once events have been stored asynchronously.
+     *
+     * @param events the stored events
+     * @param wiki the wiki where the events are stored
+     * @param storedDates the stored dates indexed by event identifier, see
+     *            {@link #getStoredDates(List, Session, String)}
+     */
+    void addRecentEvents(List<ActivityEvent> events, String wiki, Map<String, Date> storedDates)
+    {
+        for (ActivityEvent event : events) {
+            addRecentEvent(event, wiki, storedDates);
+        }
+    }
+
+    /**
+     * @param event the event to store
+     * @param wiki the wiki in which to store the event
+     * @return true if the event will be stored asynchronously, false if it should be stored synchronously
+     */
+    private boolean queueEvent(ActivityEvent event, String wiki)
+    {
+        return this.storeService != null && this.storeService.add(event, wiki);
+    }
+
     @Override
     public void addActivityEvent(String streamName, String type, String title, XWikiContext context)
         throws ActivityStreamException
@@ -490,6 +711,8 @@ private ActivityEventImpl loadActivityEvent(ActivityEvent event, boolean bTransa
     @Override
     public void deleteActivityEvent(ActivityEvent event, XWikiContext context) throws ActivityStreamException
     {
+        clearRecentEvents();
+
         boolean bTransaction = true;
         ActivityEventImpl evImpl = loadActivityEvent(event, true, context);
         String oriDatabase = context.getWikiId();
@@ -619,9 +842,7 @@ public List<ActivityEvent> searchEvents(String fromHql, String hql, boolean filt
      */
     private void addHiddenEventsFilter(StringBuffer query)
     {
-        ConfigurationSource source = Utils.getComponent(ConfigurationSource.class, "user");
-        Integer preference = source.getProperty("displayHiddenDocuments", Integer.class);
-        if (preference == null || preference != 1) {
+        if (!isDisplayHiddenEvents()) {
             if (!query.toString().contains(" where ")) {
                 query.append(" where ");
             }
@@ -629,6 +850,16 @@ private void addHiddenEventsFilter(StringBuffer query)
         }
     }
 
+    /**
+     * @return true if the user has specified that he wish to see hidden documents in his profile
+     */
+    private boolean isDisplayHiddenEvents()
+    {
+        ConfigurationSource source = Utils.getComponent(ConfigurationSource.class, "user");
+        Integer preference = source.getProperty("displayHiddenDocuments", Integer.class);
+        return preference != null && preference == 1;
+    }
+
     /**
      * This method will add the passed optional where clause to the given query if the optional clause is not an empty
      * string nor null. If the clause is added this method will also add a 'where' to the query if it is missing.
@@ -649,6 +880,12 @@ private void addOptionalEventsFilter(StringBuffer query, String optionalWhereCla
     @Override
     public List<ActivityEvent> searchEvents(String fromHql, String hql, boolean filter, boolean globalSearch, int nb,
         int start, List<Object> parameterValues, XWikiContext context) throws ActivityStreamException
+    {
+        return searchEvents(fromHql, hql, filter, globalSearch, nb, start, parameterValues, ORDER_BY_DATE, context);
+    }
+
+    private List<ActivityEvent> searchEvents(String fromHql, String hql, boolean filter, boolean globalSearch, int nb,
+        int start, List<Object> parameterValues, String orderBy, XWikiContext context) throws ActivityStreamException
     {
         StringBuffer searchHql = new StringBuffer();
         List<ActivityEvent> results;
@@ -659,14 +896,16 @@ public List<ActivityEvent> searchEvents(String fromHql, String hql, boolean filt
             searchHql.append(" where act.eventId=act2.eventId and ");
             addHiddenEventsFilter(searchHql);
             searchHql.append(hql);
-            searchHql.append(" group by act.requestId having (act.priority)=max(act2.priority) order by act.date desc");
+            searchHql.append(" group by act.requestId having (act.priority)=max(act2.priority) order by ");
+            searchHql.append(orderBy);
         } else {
             searchHql.append("select act from ActivityEventImpl as act ");
             searchHql.append(fromHql);
             searchHql.append(" where ");
             addHiddenEventsFilter(searchHql);
             searchHql.append(hql);
-            searchHql.append(" order by act.date desc");
+            searchHql.append(" order by ");
+            searchHql.append(orderBy);
         }
 
         if (globalSearch) {
@@ -742,6 +981,89 @@ public List<ActivityEvent> getEventsForUser(String stream, String user, boolean
         return searchEvents("act.stream=? AND act.user=?", filter, false, nb, start, parameterValues, context);
     }
 
+    @Override
+    public List<ActivityEvent> getOlderEvents(String streamName, String space, String user, boolean filter, int nb,
+        ActivityEvent lastEvent, XWikiContext context) throws ActivityStreamException
+    {
+        if (lastEvent == null && !filter && nb > 0) {
+            // The first page can often be answered from memory
+            List<ActivityEvent> events = getRecentEvents(streamName, space, user, nb, context);
+            if (events != null) {
+                return events;
+            }
+        }
+
+        StringBuilder hql = new StringBuilder("1=1");
+        List<Object> parameterValues = new ArrayList<Object>();
+        if (streamName != null) {
+            hql.append(" AND act.stream=?");
+            parameterValues.add(streamName);
+        }
+        if (space != null) {
+            hql.append(" AND (act.space=? OR act.space LIKE ?)");
+            parameterValues.add(space);
+            parameterValues.add(String.format(NESTED_SPACE_FORMAT, space));
+        }
+        if (user != null) {
+            hql.append(" AND act.user=?");
+            parameterValues.add(user);
+        }
+        if (lastEvent != null) {
+            // Seek the events following the last one in the (date, id) order instead of skipping the previous pages.
+            // The date of the last event is the stored date, including for the recent events kept in memory (see
+            // #getStoredDates).
+            hql.append(" AND (act.date<? OR (act.date=? AND act.eventId<?))");
+            parameterValues.add(lastEvent.getDate());
+            parameterValues.add(lastEvent.getDate());
+            parameterValues.add(lastEvent.getEventId());
+        }
+
+        return searchEvents("", hql.toString(), filter, false, nb, 0, parameterValues, ORDER_BY_DATE_AND_ID, context);
+    }
+
+    /**
+     * @return the most recent events matching the passed filters, or null if the events kept in memory are not enough
+     *         to know them
+     */
+    private List<ActivityEvent> getRecentEvents(String streamName, String space, String user, int nb,
+        XWikiContext context) throws ActivityStreamException
+    {
+        RecentActivityEvents recent = getRecentActivityEvents(context.getWikiId());
+        if (recent == null) {
+            return null;
+        }
+
+        if (!recent.isInitialized()) {
+            try {
+                List<ActivityEventImpl> storedEvents = context.getWiki().getStore().search(
+                    "select act from ActivityEventImpl as act order by " + ORDER_BY_DATE_AND_ID, this.recentEventsSize,
+                    0, context);
+                recent.initialize(storedEvents);
+            } catch (XWikiException e) {
+                throw new ActivityStreamException(e);
+            }
+        }
+
+        boolean displayHidden = isDisplayHiddenEvents();
+        String nestedSpacePrefix = space + '.';
+
+        List<ActivityEvent> events = new ArrayList<ActivityEvent>();
+        for (ActivityEventImpl event : recent.getEvents()) {
+            if ((streamName == null || streamName.equals(event.getStream()))
+                && (space == null || space.equals(event.getSpace())
+                    || StringUtils.startsWith(event.getSpace(), nestedSpacePrefix))
+                && (user == null || user.equals(event.getUser())) && (displayHidden || !event.isHidden())) {
+                events.add(event.clone());
+                if (events.size() >= nb) {
+                    return events;
+                }
+            }
+        }
+
+        // Older events which are not in memory might match too
+        return recent.isComplete() ? events : null;
+    }
+
     @Override
     public SyndEntry getFeedEntry(ActivityEvent event, XWikiContext context)
     {
@@ -868,6 +1190,15 @@ public boolean matches(Object otherEvent)
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        if (event instanceof ApplicationStoppedEvent) {
+            // Store the events waiting in the queue
+            if (this.storeService != null) {
+                this.storeService.stop();
+            }
+
+            return;
+        }
+
         // Do not record some ignored events
         ObservationContext observationContext = Utils.getComponent(ObservationContext.class);
         if (observationContext.isIn(IGNORED_EVENTS)) {
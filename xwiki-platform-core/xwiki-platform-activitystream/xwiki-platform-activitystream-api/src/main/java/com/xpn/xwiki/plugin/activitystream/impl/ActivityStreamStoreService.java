@@ -0,0 +1,395 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.context.ExecutionContext;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Store the activity events asynchronously so that the requests producing them don't wait for the database. The events
+ * received during the flush interval are stored in one transaction per wiki.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class ActivityStreamStoreService extends AbstractXWikiRunnable
+{
+    /**
+     * Logging tools.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActivityStreamStoreService.class);
+
+    /**
+     * The prefix of the configuration properties.
+     */
+    private static final String PREFERENCE_PREFIX = "xwiki.plugin.activitystream.";
+
+    /**
+     * The queue policy which drops new events when the queue is full instead of waiting for some space.
+     */
+    private static final String POLICY_DROP = "drop";
+
+    /**
+     * Put in the queue to stop the service.
+     */
+    private static final StoreItem STOP = new StoreItem(null, null);
+
+    /**
+     * An event waiting to be stored.
+     */
+    private static final class StoreItem
+    {
+        private final ActivityEvent event;
+
+        private final String wiki;
+
+        StoreItem(ActivityEvent event, String wiki)
+        {
+            this.event = event;
+            this.wiki = wiki;
+        }
+    }
+
+    /**
+     * The queue containing the events to store.
+     */
+    private final ArrayBlockingQueue<StoreItem> queue;
+
+    /**
+     * The maximum time in milliseconds during which events are accumulated before being stored.
+     */
+    private final long flushInterval;
+
+    /**
+     * The maximum number of events stored at once.
+     */
+    private final long flushSize;
+
+    /**
+     * True if new events are dropped when the queue is full, false to wait for some space in the queue.
+     */
+    private final boolean dropWhenFull;
+
+    /**
+     * The number of events dropped because the queue was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * The number of events which had to wait for some space in the queue.
+     */
+    private final AtomicLong delayedCount = new AtomicLong();
+
+    /**
+     * The context used to store the events.
+     */
+    private final XWikiContext storeContext;
+
+    /**
+     * Notified of the stored events.
+     */
+    private final ActivityStreamImpl activityStream;
+
+    /**
+     * The thread on which the storing service is running.
+     */
+    private Thread thread;
+
+    /**
+     * False once the service has been asked to stop.
+     */
+    private boolean running;
+
+    /**
+     * Held for reading while adding an event and for writing while stopping the service, so that no event is added to
+     * the queue after the stop order (it would never be stored).
+     */
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param activityStream the activity stream, notified of the stored events
+     * @param context the XWiki context
+     */
+    public ActivityStreamStoreService(ActivityStreamImpl activityStream, XWikiContext context)
+    {
+        this.activityStream = activityStream;
+        this.storeContext = context.clone();
+        long queueSize = context.getWiki().ParamAsLong(PREFERENCE_PREFIX + "queue.size", 1000);
+        this.queue = new ArrayBlockingQueue<StoreItem>((int) queueSize);
+        this.flushInterval = context.getWiki().ParamAsLong(PREFERENCE_PREFIX + "flush.interval", 1000);
+        this.flushSize = context.getWiki().ParamAsLong(PREFERENCE_PREFIX + "flush.size", 100);
+        this.dropWhenFull = POLICY_DROP.equals(context.getWiki().Param(PREFERENCE_PREFIX + "queue.policy"));
+    }
+
+    /**
+     * @param context the XWiki context
+     * @return true if the activity stream is configured to store the events asynchronously
+     */
+    public static boolean isEnabled(XWikiContext context)
+    {
+        return context.getWiki().ParamAsLong(PREFERENCE_PREFIX + "async", 0) == 1;
+    }
+
+    /**
+     * @return the number of events waiting in the queue to be stored
+     */
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full (when the queue policy is {@code drop})
+     */
+    public long getDroppedCount()
+    {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * @return the number of events which had to wait for some space in the queue (when the queue policy is
+     *         {@code block})
+     */
+    public long getDelayedCount()
+    {
+        return this.delayedCount.get();
+    }
+
+    @Override
+    protected void declareProperties(ExecutionContext executionContext)
+    {
+        this.storeContext.declareInExecutionContext(executionContext);
+    }
+
+    /**
+     * Start storing thread.
+     */
+    public synchronized void start()
+    {
+        if (this.thread == null) {
+            setRunning(true);
+            this.thread = new Thread(this, "Activity stream storing daemon");
+            // The JVM should be allowed to shutdown while this thread is running
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stop storing thread, after storing the events waiting in the queue.
+     */
+    public synchronized void stop()
+    {
+        if (this.thread != null) {
+            setRunning(false);
+            try {
+                this.queue.put(STOP);
+                this.thread.join();
+                this.thread = null;
+            } catch (InterruptedException e) {
+                LOGGER.warn("Thread join has been interrupted", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Add a new event to store.
+     *
+     * @param event the event to store
+     * @param wiki the wiki in which to store the event
+     * @return false if the service is stopped, in which case the event should be stored synchronously
+     */
+    public boolean add(ActivityEvent event, String wiki)
+    {
+        this.runningLock.readLock().lock();
+        try {
+            if (!this.running) {
+                return false;
+            }
+
+            StoreItem item = new StoreItem(event, wiki);
+            if (!this.queue.offer(item)) {
+                if (this.dropWhenFull) {
+                    this.droppedCount.incrementAndGet();
+                    LOGGER.debug("Activity stream queue is full, dropping event [{}]", event.getEventId());
+                } else {
+                    this.delayedCount.incrementAndGet();
+                    try {
+                        this.queue.put(item);
+                    } catch (InterruptedException e) {
+                        LOGGER.warn("Interrupted while waiting to store activity event [{}]", event.getEventId());
+                        Thread.currentThread().interrupt();
+
+                        // Let the caller store the event
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        } finally {
+            this.runningLock.readLock().unlock();
+        }
+    }
+
+    private void setRunning(boolean running)
+    {
+        // Wait for the events being added
+        this.runningLock.writeLock().lock();
+        try {
+            this.running = running;
+        } finally {
+            this.runningLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void runInternal()
+    {
+        try {
+            while (register()) {
+                // Continue until stopped
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Activity stream storing thread has been interrupted.", e);
+        }
+    }
+
+    /**
+     * Store the events in the queue, accumulating them during the flush interval.
+     *
+     * @return false if the service received stop order
+     * @throws InterruptedException thread has been interrupted
+     */
+    private boolean register() throws InterruptedException
+    {
+        StoreItem item = this.queue.take();
+
+        Map<String, List<ActivityEvent>> eventsByWiki = new LinkedHashMap<String, List<ActivityEvent>>();
+        int count = 0;
+
+        long flushTime = System.currentTimeMillis() + this.flushInterval;
+        boolean stop = false;
+
+        do {
+            if (item == STOP) {
+                stop = true;
+                break;
+            }
+
+            List<ActivityEvent> events = eventsByWiki.get(item.wiki);
+            if (events == null) {
+                events = new ArrayList<ActivityEvent>();
+                eventsByWiki.put(item.wiki, events);
+            }
+            events.add(item.event);
+
+            if (++count >= this.flushSize) {
+                break;
+            }
+
+            long timeout = flushTime - System.currentTimeMillis();
+            item = timeout > 0 ? this.queue.poll(timeout, TimeUnit.MILLISECONDS) : this.queue.poll();
+        } while (item != null);
+
+        LOGGER.debug("Storing [{}] activity events, [{}] events waiting in the queue, [{}] delayed and [{}] dropped"
+            + " so far", count, this.queue.size(), this.delayedCount.get(), this.droppedCount.get());
+
+        for (Map.Entry<String, List<ActivityEvent>> entry : eventsByWiki.entrySet()) {
+            if (!store(entry.getKey(), entry.getValue()) && entry.getValue().size() > 1) {
+                // Don't lose all the events because of a single one
+                for (ActivityEvent event : entry.getValue()) {
+                    store(entry.getKey(), Collections.singletonList(event));
+                }
+            }
+        }
+
+        return !stop;
+    }
+
+    /**
+     * Store the passed events in a single transaction.
+     *
+     * @param wiki the wiki in which to store the events
+     * @param events the events to store
+     * @return true if the events have been stored
+     */
+    private boolean store(String wiki, List<ActivityEvent> events)
+    {
+        String currentWiki = this.storeContext.getWikiId();
+        this.storeContext.setWikiId(wiki);
+
+        XWikiHibernateStore store = this.storeContext.getWiki().getHibernateStore();
+
+        boolean bTransaction = false;
+        try {
+            bTransaction = store.beginTransaction(this.storeContext);
+
+            Session session = store.getSession(this.storeContext);
+            for (ActivityEvent event : events) {
+                session.save(event);
+            }
+            Map<String, Date> storedDates = this.activityStream.getStoredDates(events, session, wiki);
+
+            if (bTransaction) {
+                bTransaction = false;
+                store.endTransaction(this.storeContext, true);
+            }
+
+            this.activityStream.addRecentEvents(events, wiki, storedDates);
+
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Failed to store [{}] activity events in wiki [{}]", events.size(), wiki, e);
+
+            return false;
+        } finally {
+            if (bTransaction) {
+                try {
+                    store.endTransaction(this.storeContext, false);
+                } catch (Exception e) {
+                    LOGGER.debug("Failed to rollback the activity stream transaction", e);
+                }
+            }
+
+            this.storeContext.setWikiId(currentWiki);
+        }
+    }
+}
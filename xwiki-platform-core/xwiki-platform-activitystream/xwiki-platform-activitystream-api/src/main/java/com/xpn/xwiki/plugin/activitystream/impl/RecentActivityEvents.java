@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The most recent events stored in a wiki, kept in memory to answer the requests for the first page of events without
+ * querying the database.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class RecentActivityEvents
+{
+    /**
+     * Sort the events from the most recent to the oldest, the same way as the database queries.
+     */
+    private static final Comparator<ActivityEventImpl> COMPARATOR = new Comparator<ActivityEventImpl>()
+    {
+        @Override
+        public int compare(ActivityEventImpl event1, ActivityEventImpl event2)
+        {
+            // Compare the times since Date#compareTo ignores the milliseconds of the Timestamps loaded from the database
+            int result = Long.compare(event2.getDate().getTime(), event1.getDate().getTime());
+            if (result == 0) {
+                result = event2.getEventId().compareTo(event1.getEventId());
+            }
+
+            return result;
+        }
+    };
+
+    private final int capacity;
+
+    /**
+     * The events, most recent first.
+     */
+    private final List<ActivityEventImpl> events = new ArrayList<ActivityEventImpl>();
+
+    private boolean initialized;
+
+    private boolean complete;
+
+    /**
+     * @param capacity the maximum number of events to keep
+     */
+    public RecentActivityEvents(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return true if the events stored before the creation of this object have been loaded
+     */
+    public synchronized boolean isInitialized()
+    {
+        return this.initialized;
+    }
+
+    /**
+     * @param storedEvents the most recent events found in the database, most recent first, at most the capacity
+     */
+    public synchronized void initialize(List<ActivityEventImpl> storedEvents)
+    {
+        // Events might have been added while loading the stored events
+        for (ActivityEventImpl event : storedEvents) {
+            insert(event);
+        }
+
+        this.initialized = true;
+        this.complete = storedEvents.size() < this.capacity;
+        trim();
+    }
+
+    /**
+     * @param event a new event
+     */
+    public synchronized void add(ActivityEventImpl event)
+    {
+        insert(event);
+        trim();
+    }
+
+    private void insert(ActivityEventImpl event)
+    {
+        // New events usually go at the beginning
+        int index = 0;
+        for (; index < this.events.size(); ++index) {
+            int comparison = COMPARATOR.compare(event, this.events.get(index));
+            if (comparison == 0) {
+                // Already there
+                return;
+            } else if (comparison <= 0) {
+                break;
+            }
+        }
+
+        // Keep a copy so that the events returned to the callers can be modified
+        this.events.add(index, event.clone());
+    }
+
+    private void trim()
+    {
+        while (this.events.size() > this.capacity) {
+            this.events.remove(this.events.size() - 1);
+            this.complete = false;
+        }
+    }
+
+    /**
+     * @return the events, most recent first (the callers must not modify them)
+     */
+    public synchronized List<ActivityEventImpl> getEvents()
+    {
+        return new ArrayList<ActivityEventImpl>(this.events);
+    }
+
+    /**
+     * @return true if the events are all the events of the wiki, false if older events have been left out
+     */
+    public synchronized boolean isComplete()
+    {
+        return this.complete;
+    }
+}
@@ -25,6 +25,7 @@
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.stability.Unstable;
 
 import com.sun.syndication.feed.synd.SyndEntry;
 import com.sun.syndication.feed.synd.SyndFeed;
@@ -34,6 +35,8 @@
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.plugin.activitystream.api.ActivityStream;
 import com.xpn.xwiki.plugin.activitystream.api.ActivityStreamException;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamImpl;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamStoreService;
 
 /**
  * API for {@link ActivityStreamPlugin}.
@@ -528,6 +531,83 @@ public List<ActivityEvent> getEventsForUser(String streamName, String user, bool
         }
     }
 
+    /**
+     * Return the most recent events matching the passed filters which are older than the passed event. The cost of
+     * getting a page does not depend on its depth, unlike the methods taking an offset.
+     *
+     * @param streamName the name of the stream to retrieve events for, null for all the streams
+     * @param space the space (including its nested spaces) to retrieve events for, null for all the spaces
+     * @param user context user at the time the events were fired, null for all the users
+     * @param filter if true, group the matched events by priority
+     * @param nb the number of events to retrieve
+     * @param lastEvent the last event of the previous page, null to get the first page
+     * @return the matching events, most recent first
+     * @throws ActivityStreamException if the search query fails
+     * @since 8.2M1
+     */
+    public List<ActivityEvent> getOlderEvents(String streamName, String space, String user, boolean filter, int nb,
+        ActivityEvent lastEvent) throws ActivityStreamException
+    {
+        if (hasProgrammingRights()) {
+            return wrapEvents(getActivityStream().getOlderEvents(streamName, space, user, filter, nb,
+                lastEvent != null ? lastEvent.getEvent() : null, this.context));
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be stored in the database, useful to check that the storing thread keeps
+     *         up with the activity, 0 when the events are stored synchronously
+     * @since 8.2M1
+     */
+    @Unstable
+    public int getStoreQueueSize()
+    {
+        ActivityStreamStoreService storeService = getStoreService();
+
+        return storeService != null ? storeService.getQueueSize() : 0;
+    }
+
+    /**
+     * @return the number of events lost because the storing queue was full, when the
+     *         {@code xwiki.plugin.activitystream.queue.policy} configuration is {@code drop}
+     * @since 8.2M1
+     */
+    @Unstable
+    public long getStoreDroppedCount()
+    {
+        ActivityStreamStoreService storeService = getStoreService();
+
+        return storeService != null ? storeService.getDroppedCount() : 0;
+    }
+
+    /**
+     * @return the number of events which had to wait for some space in the storing queue, when the
+     *         {@code xwiki.plugin.activitystream.queue.policy} configuration is {@code block}
+     * @since 8.2M1
+     */
+    @Unstable
+    public long getStoreDelayedCount()
+    {
+        ActivityStreamStoreService storeService = getStoreService();
+
+        return storeService != null ? storeService.getDelayedCount() : 0;
+    }
+
+    /**
+     * @return the service storing the events asynchronously, null when the events are stored synchronously
+     */
+    private ActivityStreamStoreService getStoreService()
+    {
+        ActivityStream activityStream = getActivityStream();
+        if (activityStream instanceof ActivityStreamImpl) {
+            return ((ActivityStreamImpl) activityStream).getStoreService();
+        }
+
+        return null;
+    }
+
     /**
      * Wrap a list of events.
      *
@@ -0,0 +1,134 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.Request;
+
+import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ActivityStreamCleanerJob}.
+ *
+ * @version $Id$
+ */
+public class ActivityStreamCleanerJobTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private ActivityStreamPlugin plugin;
+
+    private JobExecutor jobExecutor;
+
+    private JobExecutionContext jobContext;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+        this.jobExecutor = this.oldcore.getMocker().registerMockComponent(JobExecutor.class);
+
+        this.plugin = mock(ActivityStreamPlugin.class);
+        doReturn(this.plugin).when(this.oldcore.getSpyXWiki()).getPlugin(eq(ActivityStreamPlugin.PLUGIN_NAME),
+            anyXWikiContext());
+        when(this.plugin.getActivityStreamPreference(eq("cleaner.batchsize"), anyString(), anyXWikiContext()))
+            .thenReturn("50");
+        when(this.plugin.getActivityStreamPreference(eq("cleaner.batchdelay"), anyString(), anyXWikiContext()))
+            .thenReturn("10");
+
+        JobDataMap data = new JobDataMap();
+        data.put("context", this.oldcore.getXWikiContext());
+        JobDetail jobDetail = mock(JobDetail.class);
+        when(jobDetail.getJobDataMap()).thenReturn(data);
+        this.jobContext = mock(JobExecutionContext.class);
+        when(this.jobContext.getJobDetail()).thenReturn(jobDetail);
+    }
+
+    private void setDaysToKeep(String days)
+    {
+        when(this.plugin.getActivityStreamPreference(eq("daystokeepevents"), anyString(), anyXWikiContext()))
+            .thenReturn(days);
+    }
+
+    @Test
+    public void executeWaitsForTheCleaning() throws Exception
+    {
+        setDaysToKeep("30");
+        Job cleaningJob = mock(Job.class);
+        when(this.jobExecutor.execute(eq(ActivityStreamCleaningJob.JOBTYPE), any(Request.class)))
+            .thenReturn(cleaningJob);
+
+        Date minBefore = DateUtils.addDays(new Date(), -30);
+        new ActivityStreamCleanerJob().execute(this.jobContext);
+        Date maxBefore = DateUtils.addDays(new Date(), -30);
+
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        InOrder order = inOrder(this.jobExecutor, cleaningJob);
+        order.verify(this.jobExecutor).execute(eq(ActivityStreamCleaningJob.JOBTYPE), captor.capture());
+        // The scheduler doesn't start another cleaning before this one is finished
+        order.verify(cleaningJob).join();
+
+        ActivityStreamCleaningRequest request = (ActivityStreamCleaningRequest) captor.getValue();
+        assertEquals(ActivityStreamCleaningJob.JOBID, request.getId());
+        // Only the events older than the retention limit are deleted
+        assertFalse(request.getBefore().before(minBefore));
+        assertFalse(request.getBefore().after(maxBefore));
+        assertEquals(50, request.getBatchSize());
+        assertEquals(10, request.getBatchDelay());
+    }
+
+    @Test
+    public void executeWhenEventsAreKeptForever() throws Exception
+    {
+        setDaysToKeep("0");
+
+        new ActivityStreamCleanerJob().execute(this.jobContext);
+
+        verify(this.jobExecutor, never()).execute(anyString(), any(Request.class));
+    }
+}
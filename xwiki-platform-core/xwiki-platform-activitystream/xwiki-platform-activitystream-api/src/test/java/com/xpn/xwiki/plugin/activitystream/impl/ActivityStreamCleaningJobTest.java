@@ -0,0 +1,295 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Provider;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.job.Job;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ActivityStreamCleaningJob}.
+ *
+ * @version $Id$
+ */
+public class ActivityStreamCleaningJobTest
+{
+    @Rule
+    public MockitoComponentMockingRule<Job> mocker =
+        new MockitoComponentMockingRule<Job>(ActivityStreamCleaningJob.class);
+
+    /**
+     * The events stored in the database.
+     */
+    private final List<ActivityEventImpl> events = new ArrayList<>();
+
+    /**
+     * The identifiers of the events deleted in each batch.
+     */
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private Query idsQuery;
+
+    private ActivityStreamImpl activityStream;
+
+    /**
+     * The date passed to the last query.
+     */
+    private Date before;
+
+    private int maxResults;
+
+    private Collection<?> deletedIds;
+
+    @Before
+    public void before() throws Exception
+    {
+        XWikiContext xcontext = mock(XWikiContext.class);
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getVirtualWikisDatabaseNames(xcontext)).thenReturn(Arrays.asList("wiki"));
+
+        ActivityStreamPlugin plugin = mock(ActivityStreamPlugin.class);
+        this.activityStream = mock(ActivityStreamImpl.class);
+        when(xwiki.getPlugin(ActivityStreamPlugin.PLUGIN_NAME, xcontext)).thenReturn(plugin);
+        when(plugin.getActivityStream()).thenReturn(this.activityStream);
+
+        final Session session = mockSession();
+        XWikiHibernateStore store = mock(XWikiHibernateStore.class);
+        when(xwiki.getHibernateStore()).thenReturn(store);
+        Answer<Object> execute = new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                return invocation.getArgumentAt(1, HibernateCallback.class).doInHibernate(session);
+            }
+        };
+        when(store.executeRead(eq(xcontext), any(HibernateCallback.class))).thenAnswer(execute);
+        when(store.executeWrite(eq(xcontext), any(HibernateCallback.class))).thenAnswer(execute);
+    }
+
+    /**
+     * @return a session running the queries of the job on {@link #events}
+     */
+    private Session mockSession()
+    {
+        Session session = mock(Session.class);
+
+        Query countQuery = mockQuery();
+        when(session.createQuery(startsWith("select count("))).thenReturn(countQuery);
+        when(countQuery.uniqueResult()).thenAnswer(new Answer<Long>()
+        {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable
+            {
+                return (long) getExpiredEventIds(Integer.MAX_VALUE).size();
+            }
+        });
+
+        this.idsQuery = mockQuery();
+        when(session.createQuery(startsWith("select act.eventId "))).thenReturn(this.idsQuery);
+        when(this.idsQuery.list()).thenAnswer(new Answer<List<String>>()
+        {
+            @Override
+            public List<String> answer(InvocationOnMock invocation) throws Throwable
+            {
+                return getExpiredEventIds(maxResults);
+            }
+        });
+
+        Query deleteQuery = mockQuery();
+        when(session.createQuery(startsWith("delete "))).thenReturn(deleteQuery);
+        when(deleteQuery.executeUpdate()).thenAnswer(new Answer<Integer>()
+        {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable
+            {
+                List<String> batch = new ArrayList<>();
+                for (ActivityEventImpl event : new ArrayList<>(events)) {
+                    if (deletedIds.contains(event.getEventId())) {
+                        events.remove(event);
+                        batch.add(event.getEventId());
+                    }
+                }
+                batches.add(batch);
+
+                return batch.size();
+            }
+        });
+
+        return session;
+    }
+
+    private Query mockQuery()
+    {
+        final Query query = mock(Query.class);
+        when(query.setTimestamp(eq("date"), any(Date.class))).thenAnswer(new Answer<Query>()
+        {
+            @Override
+            public Query answer(InvocationOnMock invocation) throws Throwable
+            {
+                before = invocation.getArgumentAt(1, Date.class);
+
+                return query;
+            }
+        });
+        when(query.setMaxResults(anyInt())).thenAnswer(new Answer<Query>()
+        {
+            @Override
+            public Query answer(InvocationOnMock invocation) throws Throwable
+            {
+                maxResults = invocation.getArgumentAt(0, Integer.class);
+
+                return query;
+            }
+        });
+        when(query.setParameterList(anyString(), anyCollection())).thenAnswer(new Answer<Query>()
+        {
+            @Override
+            public Query answer(InvocationOnMock invocation) throws Throwable
+            {
+                deletedIds = invocation.getArgumentAt(1, Collection.class);
+
+                return query;
+            }
+        });
+
+        return query;
+    }
+
+    /**
+     * @return the identifiers of the events older than the date of the query, the oldest first
+     */
+    private List<String> getExpiredEventIds(int max)
+    {
+        // The events are created from the oldest to the most recent
+        List<String> ids = new ArrayList<>();
+        for (ActivityEventImpl event : this.events) {
+            if (event.getDate().before(this.before) && ids.size() < max) {
+                ids.add(event.getEventId());
+            }
+        }
+
+        return ids;
+    }
+
+    private void addEvents(String prefix, int count, long time)
+    {
+        for (int i = 0; i < count; ++i) {
+            ActivityEventImpl event = new ActivityEventImpl();
+            event.setEventId(prefix + i);
+            event.setDate(new Date(time + i));
+            this.events.add(event);
+        }
+    }
+
+    private void run(int batchSize) throws Exception
+    {
+        ActivityStreamCleaningRequest request = new ActivityStreamCleaningRequest();
+        request.setBefore(new Date(10000));
+        request.setBatchSize(batchSize);
+        request.setBatchDelay(0);
+
+        Job job = this.mocker.getComponentUnderTest();
+        job.initialize(request);
+        job.run();
+    }
+
+    @Test
+    public void deleteTheExpiredEventsInBatches() throws Exception
+    {
+        addEvents("old", 5, 1000);
+        addEvents("new", 2, 10000);
+
+        run(2);
+
+        assertEquals(Arrays.asList(Arrays.asList("old0", "old1"), Arrays.asList("old2", "old3"),
+            Arrays.asList("old4")), this.batches);
+        assertEquals(new Date(10000), this.before);
+
+        // Only the events older than the retention limit are deleted
+        assertEquals(2, this.events.size());
+        assertEquals("new0", this.events.get(0).getEventId());
+        assertEquals("new1", this.events.get(1).getEventId());
+
+        // The deleted events are not kept in memory anymore
+        verify(this.activityStream).clearRecentEvents();
+    }
+
+    @Test
+    public void deleteAMultipleOfTheBatchSize() throws Exception
+    {
+        addEvents("old", 4, 1000);
+        addEvents("new", 1, 10000);
+
+        run(2);
+
+        assertEquals(Arrays.asList(Arrays.asList("old0", "old1"), Arrays.asList("old2", "old3")), this.batches);
+        assertEquals(1, this.events.size());
+        // No query for an empty batch
+        verify(this.idsQuery, times(2)).list();
+    }
+
+    @Test
+    public void deleteWhenNoEventIsExpired() throws Exception
+    {
+        addEvents("new", 3, 10000);
+
+        run(2);
+
+        assertEquals(0, this.batches.size());
+        assertEquals(3, this.events.size());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.configuration.ConfigurationSource;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the recent events kept in memory and the pagination of {@link ActivityStreamImpl}.
+ *
+ * @version $Id$
+ */
+public class ActivityStreamImplTest
+{
+    private static final String LOAD_RECENT_EVENTS = "select act from ActivityEventImpl as act order by";
+
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private ActivityStreamImpl activityStream;
+
+    private XWikiStoreInterface store;
+
+    private XWikiContext context;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(ConfigurationSource.class, "user");
+
+        this.store = this.oldcore.getMockStore();
+        this.context = this.oldcore.getXWikiContext();
+
+        this.activityStream = new ActivityStreamImpl();
+        // Normally configured when the plugin is initialized
+        ReflectionUtils.setFieldValue(this.activityStream, "recentEventsSize", 3);
+    }
+
+    private static ActivityEventImpl event(String id, long time)
+    {
+        ActivityEventImpl event = new ActivityEventImpl();
+        event.setEventId(id);
+        event.setDate(new Date(time));
+
+        return event;
+    }
+
+    private Session mockSession(Object[]... storedDates)
+    {
+        Session session = mock(Session.class);
+        Query query = mock(Query.class);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.setParameterList(eq("ids"), anyCollection())).thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList(storedDates));
+
+        return session;
+    }
+
+    /**
+     * Request the first page of events, which creates the recent events kept in memory.
+     */
+    private List<ActivityEvent> getFirstPage(int nb, ActivityEventImpl... storedEvents) throws Exception
+    {
+        doReturn(Arrays.asList(storedEvents)).when(this.store).search(startsWith(LOAD_RECENT_EVENTS), eq(3), eq(0),
+            anyXWikiContext());
+
+        return this.activityStream.getOlderEvents(null, null, null, false, nb, null, this.context);
+    }
+
+    @Test
+    public void getOlderEventsWithSeveralEventsAtTheSameDate() throws Exception
+    {
+        List<ActivityEvent> events = getFirstPage(2, event("c", 1000), event("b", 1000), event("a", 1000));
+
+        // The first page is answered from memory
+        assertEquals(2, events.size());
+        assertEquals("c", events.get(0).getEventId());
+        assertEquals("b", events.get(1).getEventId());
+        verify(this.store, never()).search(anyString(), eq(2), eq(0), anyList(), anyXWikiContext());
+
+        ActivityEvent lastEvent = events.get(1);
+        doReturn(Arrays.asList(event("a", 1000))).when(this.store).search(anyString(), eq(2), eq(0), anyList(),
+            anyXWikiContext());
+
+        events = this.activityStream.getOlderEvents(null, null, null, false, 2, lastEvent, this.context);
+
+        assertEquals(1, events.size());
+        assertEquals("a", events.get(0).getEventId());
+
+        // The next page seeks the events following the last one, including the ones at the same date
+        ArgumentCaptor<String> hql = ArgumentCaptor.forClass(String.class);
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<List> parameters = ArgumentCaptor.forClass(List.class);
+        verify(this.store).search(hql.capture(), eq(2), eq(0), parameters.capture(), anyXWikiContext());
+        assertTrue(hql.getValue().contains("(act.date<? OR (act.date=? AND act.eventId<?))"));
+        assertTrue(hql.getValue().endsWith(" order by act.date desc, act.eventId desc"));
+        assertEquals(Arrays.<Object>asList(new Date(1000), new Date(1000), "b"), parameters.getValue());
+    }
+
+    @Test
+    public void getOlderEventsWhenOlderEventsHaveBeenEvicted() throws Exception
+    {
+        // As many stored events as kept in memory, older events might exist
+        getFirstPage(4, event("c", 3000), event("b", 2000), event("a", 1000));
+
+        // The page can't be answered from memory
+        verify(this.store).search(anyString(), eq(4), eq(0), anyList(), anyXWikiContext());
+    }
+
+    @Test
+    public void getStoredDatesWhenTheRecentEventsAreNotKept() throws Exception
+    {
+        Session session = mockSession();
+
+        assertNull(this.activityStream.getStoredDates(Arrays.<ActivityEvent>asList(event("e", 1500)), session,
+            "xwiki"));
+
+        // No query added to the storing transaction
+        verify(session, never()).createQuery(anyString());
+    }
+
+    @Test
+    public void getStoredDatesWhenTheDatabaseDropsTheMilliseconds() throws Exception
+    {
+        getFirstPage(1);
+        Session session = mockSession(new Object[] {"e", new Date(2000)});
+        List<ActivityEvent> events = Arrays.<ActivityEvent>asList(event("e", 1500));
+
+        Map<String, Date> storedDates = this.activityStream.getStoredDates(events, session, "xwiki");
+
+        assertEquals(Collections.singletonMap("e", new Date(2000)), storedDates);
+
+        // The kept event has the stored date, used by the cursor of the next page
+        this.activityStream.addRecentEvents(events, "xwiki", storedDates);
+        List<ActivityEvent> firstPage = this.activityStream.getOlderEvents(null, null, null, false, 1, null,
+            this.context);
+        assertEquals(2000, firstPage.get(0).getDate().getTime());
+
+        // The dates of the next events are read back too
+        this.activityStream.getStoredDates(events, session, "xwiki");
+        verify(session, times(2)).createQuery(anyString());
+    }
+
+    @Test
+    public void getStoredDatesWhenTheDatabaseKeepsTheMilliseconds() throws Exception
+    {
+        getFirstPage(1);
+        Session session = mockSession(new Object[] {"e", new Date(1500)});
+        List<ActivityEvent> events = Arrays.<ActivityEvent>asList(event("e", 1500));
+
+        assertEquals(Collections.singletonMap("e", new Date(1500)),
+            this.activityStream.getStoredDates(events, session, "xwiki"));
+
+        // Not needed anymore
+        assertNull(this.activityStream.getStoredDates(events, session, "xwiki"));
+        verify(session, times(1)).createQuery(anyString());
+    }
+
+    @Test
+    public void addRecentEventsWithUnknownStoredDates() throws Exception
+    {
+        getFirstPage(1);
+
+        // Stored before the recent events were kept in memory
+        this.activityStream.addRecentEvents(Arrays.<ActivityEvent>asList(event("e", 1500)), "xwiki", null);
+
+        // The recent events are reloaded from the database
+        getFirstPage(1);
+        verify(this.store, times(2)).search(startsWith(LOAD_RECENT_EVENTS), eq(3), eq(0), anyXWikiContext());
+    }
+}
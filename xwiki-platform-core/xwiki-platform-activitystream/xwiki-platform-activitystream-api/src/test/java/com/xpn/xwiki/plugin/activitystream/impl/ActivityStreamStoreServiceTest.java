@@ -0,0 +1,190 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.context.ExecutionContextManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ActivityStreamStoreService}.
+ *
+ * @version $Id$
+ */
+public class ActivityStreamStoreServiceTest
+{
+    private static final String PREFIX = "xwiki.plugin.activitystream.";
+
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private ActivityStreamStoreService service;
+
+    private Session session;
+
+    /**
+     * Released when the storing thread starts storing the first event.
+     */
+    private final CountDownLatch storing = new CountDownLatch(1);
+
+    /**
+     * Lets the storing thread store the events.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ActivityEvent event1 = mock(ActivityEvent.class, "event1");
+
+    private final ActivityEvent event2 = mock(ActivityEvent.class, "event2");
+
+    private final ActivityEvent event3 = mock(ActivityEvent.class, "event3");
+
+    @Before
+    public void before() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+
+        XWiki xwiki = this.oldcore.getSpyXWiki();
+        // A queue which can hold a single event, stored one by one
+        doReturn(1L).when(xwiki).ParamAsLong(PREFIX + "queue.size", 1000);
+        doReturn(0L).when(xwiki).ParamAsLong(PREFIX + "flush.interval", 1000);
+        doReturn(1L).when(xwiki).ParamAsLong(PREFIX + "flush.size", 100);
+
+        this.session = mock(Session.class);
+        XWikiHibernateStore store = (XWikiHibernateStore) this.oldcore.getMockStore();
+        when(store.getSession(anyXWikiContext())).thenReturn(this.session);
+        doAnswer(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable
+            {
+                // Keep the storing thread busy until the test fills the queue
+                storing.countDown();
+                release.await(10, TimeUnit.SECONDS);
+
+                return true;
+            }
+        }).when(store).beginTransaction(anyXWikiContext());
+    }
+
+    @After
+    public void after()
+    {
+        this.release.countDown();
+        if (this.service != null) {
+            this.service.stop();
+        }
+    }
+
+    private void startService(String policy) throws Exception
+    {
+        doReturn(policy).when(this.oldcore.getSpyXWiki()).Param(PREFIX + "queue.policy");
+
+        this.service = new ActivityStreamStoreService(mock(ActivityStreamImpl.class), this.oldcore.getXWikiContext());
+        this.service.start();
+
+        // The storing thread takes the first event and waits, the second event fills the queue
+        assertTrue(this.service.add(this.event1, "wiki"));
+        assertTrue(this.storing.await(10, TimeUnit.SECONDS));
+        assertTrue(this.service.add(this.event2, "wiki"));
+        assertEquals(1, this.service.getQueueSize());
+    }
+
+    @Test
+    public void addWhenQueueIsFullWithDropPolicy() throws Exception
+    {
+        startService("drop");
+
+        // Doesn't wait for the storing thread
+        assertTrue(this.service.add(this.event3, "wiki"));
+
+        assertEquals(1, this.service.getDroppedCount());
+        assertEquals(0, this.service.getDelayedCount());
+
+        this.release.countDown();
+        this.service.stop();
+        this.service = null;
+
+        verify(this.session).save(this.event1);
+        verify(this.session).save(this.event2);
+        verify(this.session, never()).save(this.event3);
+    }
+
+    @Test
+    public void addWhenQueueIsFullWithBlockPolicy() throws Exception
+    {
+        startService("block");
+
+        Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                service.add(event3, "wiki");
+            }
+        });
+        producer.start();
+
+        // Wait for the producer to find the queue full
+        for (int i = 0; i < 1000 && this.service.getDelayedCount() == 0; ++i) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, this.service.getDelayedCount());
+        assertEquals(0, this.service.getDroppedCount());
+        // The producer waits for some space in the queue
+        assertTrue(producer.isAlive());
+        verify(this.session, never()).save(this.event3);
+
+        this.release.countDown();
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+
+        this.service.stop();
+        this.service = null;
+
+        verify(this.session).save(this.event1);
+        verify(this.session).save(this.event2);
+        verify(this.session).save(this.event3);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link RecentActivityEvents}.
+ *
+ * @version $Id$
+ */
+public class RecentActivityEventsTest
+{
+    private static ActivityEventImpl event(String id, long time)
+    {
+        ActivityEventImpl event = new ActivityEventImpl();
+        event.setEventId(id);
+        event.setDate(new Date(time));
+
+        return event;
+    }
+
+    private static List<String> ids(RecentActivityEvents recent)
+    {
+        List<String> ids = new ArrayList<>();
+        for (ActivityEventImpl event : recent.getEvents()) {
+            ids.add(event.getEventId());
+        }
+
+        return ids;
+    }
+
+    @Test
+    public void addSortsTheMostRecentFirst()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(10);
+
+        recent.add(event("a", 1000));
+        recent.add(event("c", 3000));
+        recent.add(event("b", 2000));
+
+        assertEquals(Arrays.asList("c", "b", "a"), ids(recent));
+    }
+
+    @Test
+    public void addSortsTheEventsWithTheSameDateByIdentifier()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(10);
+
+        recent.add(event("b", 1000));
+        recent.add(event("a", 1000));
+        recent.add(event("c", 1000));
+        recent.add(event("d", 500));
+
+        // Same order as the database queries, which the cursor of the next pages relies on
+        assertEquals(Arrays.asList("c", "b", "a", "d"), ids(recent));
+    }
+
+    @Test
+    public void addIgnoresKnownEvents()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(10);
+
+        recent.add(event("a", 1000));
+        recent.add(event("a", 1000));
+
+        assertEquals(Arrays.asList("a"), ids(recent));
+    }
+
+    @Test
+    public void addEvictsTheOldestEvents()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(2);
+        recent.initialize(Arrays.asList(event("a", 1000)));
+
+        assertTrue(recent.isInitialized());
+        assertTrue(recent.isComplete());
+
+        recent.add(event("b", 2000));
+
+        assertEquals(Arrays.asList("b", "a"), ids(recent));
+        assertTrue(recent.isComplete());
+
+        recent.add(event("c", 3000));
+
+        assertEquals(Arrays.asList("c", "b"), ids(recent));
+        // The evicted event is not in memory anymore
+        assertFalse(recent.isComplete());
+
+        // An event older than all the kept events is evicted right away
+        recent.add(event("z", 500));
+
+        assertEquals(Arrays.asList("c", "b"), ids(recent));
+    }
+
+    @Test
+    public void initializeWithAsManyEventsAsTheCapacity()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(2);
+        // Added while the stored events were being loaded
+        recent.add(event("c", 3000));
+
+        recent.initialize(Arrays.asList(event("b", 2000), event("a", 1000)));
+
+        assertEquals(Arrays.asList("c", "b"), ids(recent));
+        // Older events might be stored
+        assertFalse(recent.isComplete());
+    }
+
+    @Test
+    public void addKeepsACopy()
+    {
+        RecentActivityEvents recent = new RecentActivityEvents(10);
+        ActivityEventImpl event = event("a", 1000);
+
+        recent.add(event);
+        event.setDate(new Date(2000));
+
+        assertEquals(1000, recent.getEvents().get(0).getDate().getTime());
+    }
+}
@@ -44,6 +44,7 @@
 import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.display.DisplayMacroParameters;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
 
 /**
  * @version $Id$
@@ -87,6 +88,12 @@ public class DisplayMacro extends AbstractMacro<DisplayMacroParameters>
     @Named("configured")
     private DocumentDisplayer documentDisplayer;
 
+    /**
+     * Used to reuse the result of a previous display of the same document in the same conditions.
+     */
+    @Inject
+    private MacroOutputCache macroOutputCache;
+
     /**
      * A stack of all currently executing include macros with context=new for catching recursive inclusion.
      */
@@ -141,6 +148,36 @@ public List<Block> execute(DisplayMacroParameters parameters, String content, Ma
                 + this.defaultEntityReferenceSerializer.serialize(includedReference) + "]");
         }
 
+        // The rights are checked before looking at the cache since they are not tracked as dependencies
+        List<Block> blocks = this.macroOutputCache.get(context);
+        if (blocks == null) {
+            try {
+                blocks = display(includedReference, parameters, context);
+            } finally {
+                if (blocks == null) {
+                    // The execution failed so there's nothing to cache
+                    this.macroOutputCache.cancel(context);
+                }
+            }
+
+            this.macroOutputCache.set(blocks, context);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Load and display the displayed document.
+     *
+     * @param includedReference the reference of the displayed document
+     * @param parameters the macro parameters
+     * @param context the macro execution context
+     * @return the blocks generated by the macro
+     * @throws MacroExecutionException if the document cannot be loaded or displayed
+     */
+    private List<Block> display(DocumentReference includedReference, DisplayMacroParameters parameters,
+        MacroTransformationContext context) throws MacroExecutionException
+    {
         // Step 2: Retrieve the included document.
         DocumentModelBridge documentBridge;
         try {
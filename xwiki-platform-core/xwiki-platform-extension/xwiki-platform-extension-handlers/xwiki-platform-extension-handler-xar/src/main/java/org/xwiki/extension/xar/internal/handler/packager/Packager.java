@@ -26,6 +26,11 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,10 +39,14 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
 import org.xwiki.filter.instance.internal.output.XWikiDocumentOutputFilterStream;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
@@ -93,6 +102,40 @@
     private static final TranslationMarker LOG_DELETEDDOCUMENT_FAILURE = new TranslationMarker(
         "extension.xar.log.delete.document.failure");
 
+    /**
+     * The maximum number of documents parsed in advance while the previous ones are being imported.
+     */
+    private static final int PARSED_DOCUMENTS_QUEUE_SIZE = 10;
+
+    /**
+     * A document parsed in the parser thread, or the failure to parse it.
+     *
+     * @version $Id$
+     */
+    private static final class ParsedEntry
+    {
+        /**
+         * Marks the end of the package.
+         */
+        static final ParsedEntry END = new ParsedEntry(null, null, false);
+
+        final XWikiDocument document;
+
+        final Throwable error;
+
+        /**
+         * True if the package cannot be read anymore.
+         */
+        final boolean fatal;
+
+        ParsedEntry(XWikiDocument document, Throwable error, boolean fatal)
+        {
+            this.document = document;
+            this.error = error;
+            this.fatal = fatal;
+        }
+    }
+
     @Inject
     private ComponentManager componentManager;
 
@@ -122,6 +165,12 @@
     @Named(XARFilterUtils.ROLEHINT_CURRENT)
     private InputFilterStreamFactory xarFilterStreamFactory;
 
+    @Inject
+    private ExecutionContextManager ecim;
+
+    @Inject
+    private Execution execution;
+
     public void importXAR(String comment, File xarFile, PackageConfiguration configuration) throws IOException,
         XWikiException, ComponentLookupException, FilterException
     {
@@ -160,26 +209,49 @@ private XarMergeResult importXARToWiki(String comment, InputStream xarInputStrea
         XWikiContext xcontext = this.xcontextProvider.get();
 
         String currentWiki = xcontext.getWikiId();
+
+        // The documents are parsed in a separated thread while the previous ones are merged and saved
+        BlockingQueue<ParsedEntry> parsedEntries = new ArrayBlockingQueue<>(PARSED_DOCUMENTS_QUEUE_SIZE);
+        ExecutorService parser = Executors.newSingleThreadExecutor(
+            new BasicThreadFactory.Builder().namingPattern("XAR parser").daemon(true).build());
+
         try {
             xcontext.setWikiId(wikiReference.getName());
 
             this.observation.notify(new XARImportingEvent(), null, xcontext);
 
-            for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-                if (!entry.isDirectory()) {
-                    // Only import what should be imported
-                    if (!entry.getName().equals(XarModel.PATH_PACKAGE)
-                        && (configuration.getEntriesToImport() == null || configuration.getEntriesToImport().contains(
-                            entry.getName()))) {
-                        XarEntryMergeResult entityMergeResult =
-                            importDocumentToWiki(comment, wikiReference, zis, configuration);
-                        if (entityMergeResult != null) {
-                            mergeResult.addMergeResult(entityMergeResult);
-                        }
+            XWikiContext parserContext = xcontext.clone();
+            // Make sure the parser thread does not share the current Hibernate session
+            parserContext.remove("hibsession");
+            parserContext.remove("hibtransaction");
+            parser.execute(() -> parseEntries(zis, wikiReference, configuration, parserContext, parsedEntries));
+
+            for (ParsedEntry parsedEntry = takeParsedEntry(parsedEntries); parsedEntry != ParsedEntry.END;
+                parsedEntry = takeParsedEntry(parsedEntries)) {
+                if (parsedEntry.document != null) {
+                    XarEntryMergeResult entityMergeResult =
+                        importDocumentToWiki(comment, parsedEntry.document, configuration);
+                    if (entityMergeResult != null) {
+                        mergeResult.addMergeResult(entityMergeResult);
+                    }
+                } else if (parsedEntry.fatal) {
+                    if (parsedEntry.error instanceof Error) {
+                        throw (Error) parsedEntry.error;
                     }
+                    throw new IOException("Failed to read the package", parsedEntry.error);
+                } else {
+                    this.logger.error("Failed to parse document", parsedEntry.error);
                 }
             }
         } finally {
+            // Make sure the parser is not using the stream anymore when it's closed
+            parser.shutdownNow();
+            try {
+                parser.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
             this.observation.notify(new XARImportedEvent(), null, xcontext);
 
             xcontext.setWikiId(currentWiki);
@@ -188,20 +260,74 @@ private XarMergeResult importXARToWiki(String comment, InputStream xarInputStrea
         return mergeResult;
     }
 
-    private XarEntryMergeResult importDocumentToWiki(String comment, WikiReference wikiReference,
-        InputStream inputStream, PackageConfiguration configuration) throws XWikiException, FilterException,
-        ComponentLookupException, IOException
+    private ParsedEntry takeParsedEntry(BlockingQueue<ParsedEntry> parsedEntries) throws IOException
     {
-        XWikiContext xcontext = this.xcontextProvider.get();
+        try {
+            return parsedEntries.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for the next document of the package", e);
+        }
+    }
 
-        XWikiDocument nextDocument;
+    /**
+     * Parse the documents of the package and put them in the passed queue, followed by {@link ParsedEntry#END} or by
+     * the failure which stopped the parsing. Executed in the parser thread.
+     */
+    private void parseEntries(ZipArchiveInputStream zis, WikiReference wikiReference,
+        PackageConfiguration configuration, XWikiContext parserContext, BlockingQueue<ParsedEntry> parsedEntries)
+    {
+        // The import thread waits for the end of the parsing, whatever happens (including an Error)
+        ParsedEntry end = ParsedEntry.END;
+        boolean stopped = false;
         try {
-            nextDocument = getXWikiDocument(inputStream, wikiReference);
-        } catch (Exception e) {
-            this.logger.error("Failed to parse document", e);
+            ExecutionContext econtext = new ExecutionContext();
+            parserContext.declareInExecutionContext(econtext);
+            this.ecim.initialize(econtext);
 
-            return null;
+            try {
+                for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    if (!entry.isDirectory()) {
+                        // Only import what should be imported
+                        if (!entry.getName().equals(XarModel.PATH_PACKAGE)
+                            && (configuration.getEntriesToImport() == null
+                                || configuration.getEntriesToImport().contains(entry.getName()))) {
+                            ParsedEntry parsedEntry;
+                            try {
+                                parsedEntry = new ParsedEntry(getXWikiDocument(zis, wikiReference), null, false);
+                            } catch (Exception e) {
+                                parsedEntry = new ParsedEntry(null, e, false);
+                            }
+                            parsedEntries.put(parsedEntry);
+                        }
+                    }
+                }
+            } finally {
+                this.execution.removeContext();
+            }
+        } catch (InterruptedException e) {
+            // The import has been stopped, nobody is waiting for the end of the parsing anymore
+            stopped = true;
+        } catch (Throwable e) {
+            // Errors are passed to and logged by the import thread (which is the one associated to the job log)
+            end = new ParsedEntry(null, e, true);
+        } finally {
+            if (!stopped) {
+                try {
+                    parsedEntries.put(end);
+                } catch (InterruptedException e) {
+                    // The import has been stopped
+                }
+            }
         }
+    }
+
+    private XarEntryMergeResult importDocumentToWiki(String comment, XWikiDocument nextDocument,
+        PackageConfiguration configuration) throws XWikiException, FilterException, ComponentLookupException,
+        IOException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
 
         DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
         XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
@@ -0,0 +1,242 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.handler.packager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.test.LogRule;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.xar.internal.model.XarModel;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the parsing of the package in a separated thread by {@link Packager}.
+ * 
+ * @version $Id$
+ */
+@AllComponents
+public class PackagerTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public LogRule logRule = new LogRule()
+    {
+        {
+            record(LogLevel.ERROR);
+            recordLoggingForType(Packager.class);
+        }
+    };
+
+    private DocumentMergeImporter importer;
+
+    private Packager packager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        // Get rid of wiki macro listener
+        this.oldcore.getMocker().<ObservationManager>getInstance(ObservationManager.class)
+            .removeListener("RegisterMacrosOnImportListener");
+
+        this.importer = this.oldcore.getMocker().registerMockComponent(DocumentMergeImporter.class);
+        this.packager = this.oldcore.getMocker().getInstance(Packager.class);
+    }
+
+    private PackageConfiguration newConfiguration()
+    {
+        PackageConfiguration configuration = new PackageConfiguration();
+        configuration.setWiki("wiki");
+
+        return configuration;
+    }
+
+    /**
+     * Create a package containing the passed entries, a {@code null} content meaning a valid document named after the
+     * entry.
+     */
+    private File createPackage(String... entries) throws IOException
+    {
+        File file = this.folder.newFile();
+
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+            zos.putNextEntry(new ZipEntry(XarModel.PATH_PACKAGE));
+            zos.write("<package></package>".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+
+            for (int i = 0; i < entries.length; i += 2) {
+                zos.putNextEntry(new ZipEntry(entries[i]));
+                String content = entries[i + 1];
+                if (content == null) {
+                    String name = entries[i].substring(entries[i].indexOf('/') + 1, entries[i].lastIndexOf('.'));
+                    content = "<xwikidoc><web>Space</web><name>" + name + "</name><language></language>"
+                        + "<content>content of " + name + "</content></xwikidoc>";
+                }
+                zos.write(content.getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+
+        return file;
+    }
+
+    private List<XWikiDocument> verifySavedDocuments(int count) throws Exception
+    {
+        ArgumentCaptor<XWikiDocument> nextDocuments = ArgumentCaptor.forClass(XWikiDocument.class);
+        verify(this.importer, times(count)).saveDocument(anyString(), any(XWikiDocument.class),
+            any(XWikiDocument.class), nextDocuments.capture(), any(PackageConfiguration.class));
+
+        return nextDocuments.getAllValues();
+    }
+
+    private void assertParserStopped()
+    {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse("The parser thread is still running", thread.getName().equals("XAR parser"));
+        }
+    }
+
+    @Test
+    public void importDocumentsInOrder() throws Exception
+    {
+        // More documents than the parsed documents queue can hold
+        int count = 25;
+        String[] entries = new String[count * 2];
+        for (int i = 0; i < count; ++i) {
+            entries[i * 2] = "Space/Page" + i + ".xml";
+        }
+
+        this.packager.importXAR("comment", createPackage(entries), newConfiguration());
+
+        List<XWikiDocument> documents = verifySavedDocuments(count);
+        for (int i = 0; i < count; ++i) {
+            XWikiDocument document = documents.get(i);
+            assertEquals(new DocumentReference("wiki", "Space", "Page" + i), document.getDocumentReference());
+            assertEquals("content of Page" + i, document.getContent());
+        }
+
+        assertEquals(0, this.logRule.size());
+        assertParserStopped();
+    }
+
+    @Test
+    public void importSkipsDocumentsWhichCannotBeParsed() throws Exception
+    {
+        File xarFile = createPackage("Space/Page1.xml", null, "Space/Invalid.xml", "<xwikidoc><web>Space</web>",
+            "Space/Page2.xml", null);
+
+        this.packager.importXAR("comment", xarFile, newConfiguration());
+
+        List<XWikiDocument> documents = verifySavedDocuments(2);
+        assertEquals(new DocumentReference("wiki", "Space", "Page1"), documents.get(0).getDocumentReference());
+        assertEquals(new DocumentReference("wiki", "Space", "Page2"), documents.get(1).getDocumentReference());
+
+        // The parser thread does not log, the error is logged by the import thread
+        assertEquals(1, this.logRule.size());
+        assertEquals("Failed to parse document", this.logRule.getMessage(0));
+        assertParserStopped();
+    }
+
+    @Test
+    public void importFailsWhenThePackageCannotBeRead() throws Exception
+    {
+        File xarFile = createPackage("Space/Page1.xml", null, "Space/Page2.xml", null, "Space/Page3.xml", null);
+
+        // Make the parser thread fail outside of the parsing of a document after the first one
+        RuntimeException failure = new RuntimeException("failure");
+        PackageConfiguration configuration = mock(PackageConfiguration.class);
+        when(configuration.getWiki()).thenReturn("wiki");
+        when(configuration.getEntriesToImport()).thenReturn(null).thenThrow(failure);
+
+        try {
+            this.packager.importXAR("comment", xarFile, configuration);
+
+            fail("Should have failed to read the package");
+        } catch (IOException e) {
+            assertEquals("Failed to read the package", e.getMessage());
+            assertSame(failure, e.getCause());
+        }
+
+        List<XWikiDocument> documents = verifySavedDocuments(1);
+        assertEquals(new DocumentReference("wiki", "Space", "Page1"), documents.get(0).getDocumentReference());
+
+        assertEquals(0, this.logRule.size());
+        assertParserStopped();
+    }
+
+    @Test(timeout = 60000)
+    public void importFailsWhenTheParserThrowsAnError() throws Exception
+    {
+        File xarFile = createPackage("Space/Page1.xml", null, "Space/Page2.xml", null);
+
+        // Make the parser thread fail with an Error (e.g. when running out of memory) after the first document
+        OutOfMemoryError failure = new OutOfMemoryError("failure");
+        PackageConfiguration configuration = mock(PackageConfiguration.class);
+        when(configuration.getWiki()).thenReturn("wiki");
+        when(configuration.getEntriesToImport()).thenReturn(null).thenThrow(failure);
+
+        try {
+            this.packager.importXAR("comment", xarFile, configuration);
+
+            fail("Should have failed to read the package");
+        } catch (OutOfMemoryError e) {
+            // The import doesn't wait forever for the end of the parsing
+            assertSame(failure, e);
+        }
+
+        List<XWikiDocument> documents = verifySavedDocuments(1);
+        assertEquals(new DocumentReference("wiki", "Space", "Page1"), documents.get(0).getDocumentReference());
+
+        assertParserStopped();
+    }
+}
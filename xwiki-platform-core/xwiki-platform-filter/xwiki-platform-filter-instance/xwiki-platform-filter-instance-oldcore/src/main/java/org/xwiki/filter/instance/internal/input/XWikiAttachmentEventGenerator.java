@@ -27,6 +27,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -64,11 +65,22 @@ public class XWikiAttachmentEventGenerator extends
     private Logger logger;
 
     @Override
-    public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilter attachmentFilter,
+    public void write(XWikiAttachment sourceAttachment, Object filter, XWikiAttachmentFilter attachmentFilter,
         DocumentInstanceInputProperties properties) throws FilterException
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        // The attachment might be shared (it usually comes from the document cache) so we load the content (and
+        // archive) we need to stream in a copy, which is garbage collected once the event has been sent
+        boolean withArchive = properties.isWithJRCSRevisions();
+        XWikiAttachment attachment;
+        if (sourceAttachment.getAttachment_content() == null
+            || (withArchive && sourceAttachment.getAttachment_archive() == null)) {
+            attachment = copyMetaData(sourceAttachment);
+        } else {
+            attachment = sourceAttachment;
+        }
+
         FilterEventParameters attachmentParameters = new FilterEventParameters();
 
         if (attachment.getAuthor() != null) {
@@ -82,7 +94,7 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
             attachmentParameters.put(WikiAttachmentFilter.PARAMETER_MIMETYPE, attachment.getMimeType());
         }
 
-        if (properties.isWithJRCSRevisions()) {
+        if (withArchive) {
             try {
                 // We need to make sure content is loaded
                 XWikiAttachmentArchive archive;
@@ -110,6 +122,35 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
 
         // WikiAttachment
 
-        attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        try {
+            attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        } finally {
+            IOUtils.closeQuietly(content);
+        }
+    }
+
+    /**
+     * Unlike {@link XWikiAttachment#clone()} the content and archive already loaded in the source attachment are reused
+     * as is instead of being copied.
+     */
+    private XWikiAttachment copyMetaData(XWikiAttachment sourceAttachment)
+    {
+        XWikiAttachment attachment = new XWikiAttachment();
+
+        attachment.setFilename(sourceAttachment.getFilename());
+        attachment.setAuthor(sourceAttachment.getAuthor());
+        attachment.setComment(sourceAttachment.getComment());
+        attachment.setDate(sourceAttachment.getDate());
+        attachment.setMimeType(sourceAttachment.getMimeType());
+        attachment.setFilesize(sourceAttachment.getFilesize());
+        attachment.setRCSVersion(sourceAttachment.getRCSVersion());
+        // Make sure the copy does not mark the (shared) document as modified
+        attachment.setMetaDataDirty(false);
+        attachment.setDoc(sourceAttachment.getDoc());
+
+        attachment.setAttachment_content(sourceAttachment.getAttachment_content());
+        attachment.setAttachment_archive(sourceAttachment.getAttachment_archive());
+
+        return attachment;
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.instance.internal.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.event.xwiki.XWikiWikiAttachmentFilter;
+import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
+import org.xwiki.filter.instance.input.EntityEventGenerator;
+import org.xwiki.filter.instance.internal.XWikiAttachmentFilter;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.AttachmentVersioningStore;
+import com.xpn.xwiki.store.XWikiAttachmentStoreInterface;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWikiAttachmentEventGenerator}.
+ * 
+ * @version $Id$
+ */
+@AllComponents
+public class XWikiAttachmentEventGeneratorTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private EntityEventGenerator<XWikiAttachment> generator;
+
+    private XWikiAttachmentStoreInterface attachmentStore;
+
+    private AttachmentVersioningStore attachmentVersioningStore;
+
+    private XWikiAttachment attachment;
+
+    private XWikiAttachmentFilter filter;
+
+    private List<String> sentContents = new ArrayList<>();
+
+    private List<FilterEventParameters> sentParameters = new ArrayList<>();
+
+    @Before
+    public void before() throws Exception
+    {
+        this.generator = this.oldcore.getMocker().getInstance(XWikiAttachmentEventGenerator.ROLE);
+
+        this.attachmentStore = mock(XWikiAttachmentStoreInterface.class);
+        doReturn(this.attachmentStore).when(this.oldcore.getSpyXWiki()).getAttachmentStore();
+        this.attachmentVersioningStore = mock(AttachmentVersioningStore.class);
+        doReturn(this.attachmentVersioningStore).when(this.oldcore.getSpyXWiki()).getAttachmentVersioningStore();
+
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        this.attachment = new XWikiAttachment(document, "file.txt");
+        this.attachment.setFilesize(7);
+        document.getAttachmentList().add(this.attachment);
+
+        this.filter = mock(XWikiAttachmentFilter.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                // The content stream is closed once the event has been sent
+                sentContents.add(IOUtils.toString((InputStream) invocation.getArguments()[1], "UTF-8"));
+                sentParameters.add((FilterEventParameters) invocation.getArguments()[3]);
+
+                return null;
+            }
+        }).when(this.filter).onWikiAttachment(eq("file.txt"), any(InputStream.class), anyLong(),
+            any(FilterEventParameters.class));
+    }
+
+    private XWikiAttachmentContent mockContent(String content) throws Exception
+    {
+        XWikiAttachmentContent attachmentContent = mock(XWikiAttachmentContent.class);
+        when(attachmentContent.getContentInputStream()).thenReturn(new ByteArrayInputStream(content.getBytes("UTF-8")));
+
+        return attachmentContent;
+    }
+
+    private void write(boolean withArchive) throws Exception
+    {
+        DocumentInstanceInputProperties properties = new DocumentInstanceInputProperties();
+        properties.setWithJRCSRevisions(withArchive);
+        properties.setVerbose(false);
+
+        this.generator.write(this.attachment, this.filter, properties);
+    }
+
+    @Test
+    public void writeLoadsTheContentInACopy() throws Exception
+    {
+        final XWikiAttachmentContent content = mockContent("content");
+        // The attachment is not stored yet so the content is loaded from the archive, which does not have it
+        when(this.attachmentVersioningStore.loadArchive(any(XWikiAttachment.class), anyXWikiContext(), eq(true)))
+            .thenReturn(mock(XWikiAttachmentArchive.class));
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                ((XWikiAttachment) invocation.getArguments()[0]).setAttachment_content(content);
+
+                return null;
+            }
+        }).when(this.attachmentStore).loadAttachmentContent(any(XWikiAttachment.class), anyXWikiContext(), eq(true));
+
+        write(false);
+
+        assertEquals("content", this.sentContents.get(0));
+
+        // The shared attachment is left as it was
+        assertNull(this.attachment.getAttachment_content());
+        assertNull(this.attachment.getAttachment_archive());
+    }
+
+    @Test
+    public void writeReusesTheLoadedContent() throws Exception
+    {
+        XWikiAttachmentContent content = mockContent("content");
+        this.attachment.setAttachment_content(content);
+
+        XWikiAttachmentArchive archive = mock(XWikiAttachmentArchive.class);
+        when(archive.getArchiveAsString()).thenReturn("archive");
+        when(this.attachmentVersioningStore.loadArchive(any(XWikiAttachment.class), anyXWikiContext(), eq(true)))
+            .thenReturn(archive);
+
+        write(true);
+
+        assertEquals("content", this.sentContents.get(0));
+        assertEquals("archive", this.sentParameters.get(0).get(XWikiWikiAttachmentFilter.PARAMETER_JRCSREVISIONS));
+
+        // The archive is loaded in a copy which uses the already loaded content as is
+        verify(content, never()).clone();
+        verify(this.attachmentStore, never()).loadAttachmentContent(any(XWikiAttachment.class), anyXWikiContext(),
+            eq(true));
+        assertSame(content, this.attachment.getAttachment_content());
+        assertNull(this.attachment.getAttachment_archive());
+    }
+
+    @Test
+    public void writeUsesTheSharedAttachmentWhenEverythingIsLoaded() throws Exception
+    {
+        XWikiAttachmentContent content = mockContent("content");
+        this.attachment.setAttachment_content(content);
+
+        write(false);
+
+        assertEquals("content", this.sentContents.get(0));
+        verify(this.attachmentVersioningStore, never()).loadArchive(any(XWikiAttachment.class), anyXWikiContext(),
+            eq(true));
+        verify(this.attachmentStore, never()).loadAttachmentContent(any(XWikiAttachment.class), anyXWikiContext(),
+            eq(true));
+    }
+}
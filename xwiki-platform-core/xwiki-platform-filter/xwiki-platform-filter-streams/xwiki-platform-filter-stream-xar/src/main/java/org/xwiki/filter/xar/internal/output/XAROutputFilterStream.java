@@ -31,6 +31,7 @@
 import javax.inject.Named;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -406,7 +407,9 @@ public void onWikiAttachment(String name, InputStream content, Long size, Filter
                 int readSize;
                 do {
                     try {
-                        readSize = content.read(buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
+                        // Make sure to fill the whole buffer (a stream can return less than what's available) to
+                        // not stop before the end and to not introduce padding between the chunks
+                        readSize = IOUtils.read(content, buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
                     } catch (IOException e) {
                         throw new FilterException("Failed to read content stream", e);
                     }
@@ -56,4 +56,13 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the CSS produced by the LESS compiler should be stored on the file system to survive restarts
+     * @since 8.2M1
+     */
+    public boolean isCompiledCSSStoreEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "store", true);
+    }
 }
@@ -23,6 +23,8 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -76,7 +78,7 @@
     @Inject
     private CacheKeyFactory cacheKeyFactory;
 
-    private Map<String, String> mutexList = new HashMap<>();
+    private ConcurrentMap<String, String> mutexList = new ConcurrentHashMap<>();
 
     @Override
     public T get(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme)
@@ -85,7 +87,7 @@ public T get(LESSResourceReference lessResourceReference, SkinReference skin, Co
     }
 
     @Override
-    public void set(LESSResourceReference lessResourceReference, SkinReference skin,
+    public synchronized void set(LESSResourceReference lessResourceReference, SkinReference skin,
         ColorThemeReference colorTheme, T content)
     {
         // Store the content in the cache
@@ -120,7 +122,7 @@ private void registerCacheKey(Map<Object, List<String>> cachedFilesKeysMap, Stri
     }
 
     @Override
-    public void clear()
+    public synchronized void clear()
     {
         cache.removeAll();
         cachedFilesKeysMapPerSkin.clear();
@@ -144,35 +146,31 @@ private void clearFromCriteria(Map<Object, List<String>> cachedFilesKeysMap, Obj
     }
 
     @Override
-    public void clearFromSkin(SkinReference skin)
+    public synchronized void clearFromSkin(SkinReference skin)
     {
         clearFromCriteria(cachedFilesKeysMapPerSkin, skin);
     }
 
     @Override
-    public void clearFromColorTheme(ColorThemeReference colorTheme)
+    public synchronized void clearFromColorTheme(ColorThemeReference colorTheme)
     {
         clearFromCriteria(cachedFilesKeysMapPerColorTheme, colorTheme);
     }
 
     @Override
-    public void clearFromLESSResource(LESSResourceReference lessResourceReference)
+    public synchronized void clearFromLESSResource(LESSResourceReference lessResourceReference)
     {
         clearFromCriteria(cachedFilesKeysMapPerLESSResource, lessResourceReference);
     }
     
     @Override
-    public synchronized Object getMutex(LESSResourceReference lessResourceReference, SkinReference skin, 
+    public Object getMutex(LESSResourceReference lessResourceReference, SkinReference skin,
         ColorThemeReference colorTheme)
     {
         // The mutex is a string (actually the cache key) to help debugging.
         String cacheKey = cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
-        String mutex = mutexList.get(cacheKey);
-        if (mutex == null) {
-            // the mutex is the key, so no extra memory is needed
-            mutex = cacheKey;
-            mutexList.put(cacheKey, mutex);
-        }
-        return mutex;
+        // the mutex is the key, so no extra memory is needed
+        String mutex = mutexList.putIfAbsent(cacheKey, cacheKey);
+        return mutex != null ? mutex : cacheKey;
     }
 }
@@ -110,25 +110,26 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
         ColorThemeReference colorThemeReference = colorThemeReferenceFactory.createReference(
                 currentColorThemeGetter.getCurrentColorTheme(true, "default"));
 
+        // Check if the result is in the cache. Cache hits don't need any lock.
+        if (!force) {
+            result = getCachedResult(lessResourceReference, includeSkinStyle, useVelocity, skin, skinReference,
+                colorThemeReference);
+            if (result != null) {
+                return result;
+            }
+        }
+
         // Only one computation is allowed in the same time per color theme, then the waiting threads will be able to
         // use the last result stored in the cache.
         Object mutex = cache.getMutex(lessResourceReference, skinReference, colorThemeReference);
         synchronized (mutex) {
 
-            // Check if the result is in the cache
+            // Check again if the result is in the cache since it could have been computed while we were waiting
             if (!force) {
-                result = cache.get(lessResourceReference, skinReference, colorThemeReference);
+                result = getCachedResult(lessResourceReference, includeSkinStyle, useVelocity, skin, skinReference,
+                    colorThemeReference);
                 if (result != null) {
-                    // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
-                    // exporter listens these calls to know which resources must be exported.
-                    // If we only use the cache, we would have a correct CSS file but some resources will be missing.
-                    // So we need to execute the velocity again, even if the LESS file is cached.
-                    // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
-                    // we only do the Velocity Execution step.
-                    if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
-                        compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
-                    }
-                    return cloneResult(result);
+                    return result;
                 }
             }
 
@@ -149,6 +150,27 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
         return cloneResult(result);
     }
 
+    private T getCachedResult(LESSResourceReference lessResourceReference, boolean includeSkinStyle,
+        boolean useVelocity, String skin, SkinReference skinReference, ColorThemeReference colorThemeReference)
+        throws LESSCompilerException
+    {
+        T result = cache.get(lessResourceReference, skinReference, colorThemeReference);
+        if (result != null) {
+            // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
+            // exporter listens these calls to know which resources must be exported.
+            // If we only use the cache, we would have a correct CSS file but some resources will be missing.
+            // So we need to execute the velocity again, even if the LESS file is cached.
+            // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
+            // we only do the Velocity Execution step.
+            if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
+                compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
+            }
+            return cloneResult(result);
+        }
+
+        return null;
+    }
+
     /**
      * Returns a clone of the result to avoid returning the instance stored in the cache. Need to be implemented by
      * subclasses.
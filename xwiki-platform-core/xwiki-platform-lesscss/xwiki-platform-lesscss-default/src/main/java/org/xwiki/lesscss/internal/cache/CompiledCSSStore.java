@@ -0,0 +1,292 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Stores the CSS produced by the LESS compiler on the file system, so that it survives restarts.
+ * <p>
+ * The LESS code is not enough to identify the produced CSS since it imports files from the skin, which can be
+ * modified and whose content can depend on the context (e.g. the color theme for the main skin style). So each entry
+ * is made of:
+ * <ul>
+ * <li>the list of the files imported by the LESS code, stored under the key computed from the LESS code with
+ * {@link #getKey(String, String, boolean)}</li>
+ * <li>the CSS, stored under the key computed from the previous key and the content of these imported files with
+ * {@link #getKey(String, Map)}</li>
+ * </ul>
+ * An entry never needs to be invalidated: when the LESS code or an imported file changes, the key changes. Entries
+ * which have not been used for a while are removed.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = CompiledCSSStore.class)
+@Singleton
+public class CompiledCSSStore implements Initializable
+{
+    /**
+     * The subdirectory in the permanent directory where we store the compiled CSS.
+     */
+    public static final String ROOT_DIRECTORY = "cache/lesscss";
+
+    private static final String EXTENSION = ".css";
+
+    private static final String IMPORTS_EXTENSION = ".imports";
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * Entries which have not been used for that long (in milliseconds) are removed.
+     */
+    private static final long MAX_UNUSED_TIME = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * The unused entries are removed at startup and then every time this number of entries have been stored.
+     */
+    private static final int PRUNE_INTERVAL = 1000;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    private File rootDirectory;
+
+    private final AtomicInteger storedCount = new AtomicInteger();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.rootDirectory = new File(this.environment.getPermanentDirectory(), ROOT_DIRECTORY);
+
+        if (isEnabled()) {
+            prune();
+        }
+    }
+
+    /**
+     * @return true if the store should be used
+     */
+    public boolean isEnabled()
+    {
+        return this.lessConfiguration.isCompiledCSSStoreEnabled();
+    }
+
+    /**
+     * Compute the key of the LESS code to compile, under which the list of imported files is stored.
+     *
+     * @param lessCode the LESS code to compile, after Velocity execution
+     * @param skin the skin used to resolve the LESS imports
+     * @param inlineSourceMaps whether the LESS compiler generates inline source maps
+     * @return the key of the LESS code
+     */
+    public String getKey(String lessCode, String skin, boolean inlineSourceMaps)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        return DigestUtils.sha1Hex(xcontext.getWiki().getVersion() + SEPARATOR + xcontext.getWikiId() + SEPARATOR
+            + skin + SEPARATOR + inlineSourceMaps + SEPARATOR + lessCode);
+    }
+
+    /**
+     * Compute the key under which the compiled CSS is stored.
+     *
+     * @param key the key of the LESS code, computed with {@link #getKey(String, String, boolean)}
+     * @param imports the content of the files imported by the LESS code, indexed by file name
+     * @return the key of the compiled CSS
+     */
+    public String getKey(String key, Map<String, String> imports)
+    {
+        StringBuilder builder = new StringBuilder(key);
+        for (Map.Entry<String, String> entry : imports.entrySet()) {
+            builder.append(SEPARATOR).append(DigestUtils.sha1Hex(entry.getKey())).append(SEPARATOR)
+                .append(DigestUtils.sha1Hex(entry.getValue()));
+        }
+
+        return DigestUtils.sha1Hex(builder.toString());
+    }
+
+    /**
+     * @param key the key of the LESS code, computed with {@link #getKey(String, String, boolean)}
+     * @return the names of the files imported by the LESS code when it was last compiled, or null if it's unknown
+     */
+    public List<String> getImports(String key)
+    {
+        String imports = read(getFile(key, IMPORTS_EXTENSION));
+        if (imports == null) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : imports.split(String.valueOf(SEPARATOR))) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * @param cssKey the key of the compiled CSS, computed with {@link #getKey(String, Map)}
+     * @return the stored CSS, or null if there's none
+     */
+    public String get(String cssKey)
+    {
+        return read(getFile(cssKey, EXTENSION));
+    }
+
+    /**
+     * Store a compiled CSS.
+     *
+     * @param key the key of the LESS code, computed with {@link #getKey(String, String, boolean)}
+     * @param imports the content of the files imported by the LESS code during the compilation, indexed by file name
+     * @param css the compiled CSS
+     */
+    public void set(String key, Map<String, String> imports, String css)
+    {
+        write(getFile(getKey(key, imports), EXTENSION), css);
+        write(getFile(key, IMPORTS_EXTENSION), join(imports.keySet()));
+
+        if (this.storedCount.incrementAndGet() % PRUNE_INTERVAL == 0) {
+            prune();
+        }
+    }
+
+    /**
+     * Remove all the stored CSS.
+     */
+    public void clear()
+    {
+        try {
+            FileUtils.deleteDirectory(this.rootDirectory);
+        } catch (IOException e) {
+            this.logger.warn("Failed to clear the compiled CSS stored in [{}]. Root cause: [{}]", this.rootDirectory,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    /**
+     * Remove the entries which have not been used for a while (see {@link #MAX_UNUSED_TIME}).
+     */
+    public void prune()
+    {
+        File[] directories = this.rootDirectory.listFiles();
+        if (directories == null) {
+            return;
+        }
+
+        long minLastModified = System.currentTimeMillis() - MAX_UNUSED_TIME;
+        for (File directory : directories) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.lastModified() < minLastModified && !file.delete()) {
+                        this.logger.debug("Failed to remove the unused compiled CSS file [{}]", file);
+                    }
+                }
+            }
+        }
+    }
+
+    private String read(File file)
+    {
+        if (file.exists()) {
+            try {
+                String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+                // Used entries are kept when pruning
+                file.setLastModified(System.currentTimeMillis());
+
+                return content;
+            } catch (IOException e) {
+                this.logger.warn("Failed to read compiled CSS from [{}]. Root cause: [{}]", file,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return null;
+    }
+
+    private void write(File file, String content)
+    {
+        try {
+            // Write to a temporary file first so that a concurrent or interrupted write never leaves a partial file
+            File temporaryFile =
+                new File(file.getParentFile(), file.getName() + ".tmp" + Thread.currentThread().getId());
+            FileUtils.writeStringToFile(temporaryFile, content, StandardCharsets.UTF_8);
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            this.logger.warn("Failed to store compiled CSS in [{}]. Root cause: [{}]", file,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    private String join(Collection<String> names)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String name : names) {
+            builder.append(name).append(SEPARATOR);
+        }
+
+        return builder.toString();
+    }
+
+    private File getFile(String key, String extension)
+    {
+        // Spread the files in sub directories to avoid too many files in the same directory
+        return new File(new File(this.rootDirectory, key.substring(0, 2)), key + extension);
+    }
+}
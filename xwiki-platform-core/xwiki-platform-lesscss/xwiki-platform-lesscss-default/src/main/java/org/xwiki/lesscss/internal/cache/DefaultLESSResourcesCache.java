@@ -30,6 +30,7 @@
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.lesscss.internal.skin.SkinReference;
 
 /**
  * Default implementation for {@link org.xwiki.lesscss.internal.cache.LESSResourcesCache}.
@@ -49,6 +50,9 @@ public class DefaultLESSResourcesCache extends AbstractCache<String> implements
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private CompiledCSSStore compiledCSSStore;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -61,4 +65,21 @@ public void initialize() throws InitializationException
                     String.format("Failed to initialize LESS skin files cache [%s].", LESS_FILES_CACHE_ID), e);
         }
     }
+
+    @Override
+    public synchronized void clear()
+    {
+        super.clear();
+
+        compiledCSSStore.clear();
+    }
+
+    @Override
+    public synchronized void clearFromSkin(SkinReference skin)
+    {
+        super.clearFromSkin(skin);
+
+        // The stored CSS is not indexed by skin
+        compiledCSSStore.clear();
+    }
 }
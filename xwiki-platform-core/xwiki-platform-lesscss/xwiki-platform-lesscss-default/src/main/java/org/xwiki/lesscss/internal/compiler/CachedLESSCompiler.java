@@ -20,6 +20,9 @@
 package org.xwiki.lesscss.internal.compiler;
 
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
@@ -31,7 +34,9 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.lesscss.internal.cache.CachedCompilerInterface;
+import org.xwiki.lesscss.internal.cache.CompiledCSSStore;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
@@ -67,6 +72,12 @@ public class CachedLESSCompiler implements CachedCompilerInterface<String>, Init
     @Inject
     private LESSConfiguration lessConfiguration;
 
+    @Inject
+    private CompiledCSSStore compiledCSSStore;
+
+    @Inject
+    private LESSContext lessContext;
+
     private Semaphore semaphore;
 
     @Override
@@ -105,7 +116,7 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
 
             // Compile the LESS code
             if (useLESS) {
-                return less4JCompiler.compile(lessCode, skin, lessConfiguration.isGenerateInlineSourceMaps());
+                return compileLESS(lessCode, skin);
             }
 
             // Otherwise return the raw LESS code
@@ -118,6 +129,38 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
         }
     }
 
+    private String compileLESS(String lessCode, String skin) throws Less4jException
+    {
+        boolean inlineSourceMaps = lessConfiguration.isGenerateInlineSourceMaps();
+
+        // The CSS might have already been compiled (maybe before a restart) from the exact same LESS code and imported
+        // files
+        boolean useStore = !lessContext.isCacheDisabled() && compiledCSSStore.isEnabled();
+        String key = null;
+        if (useStore) {
+            key = compiledCSSStore.getKey(lessCode, skin, inlineSourceMaps);
+            List<String> importNames = compiledCSSStore.getImports(key);
+            if (importNames != null) {
+                Map<String, String> imports = less4JCompiler.getImports(importNames, skin);
+                if (imports != null) {
+                    String css = compiledCSSStore.get(compiledCSSStore.getKey(key, imports));
+                    if (css != null) {
+                        return css;
+                    }
+                }
+            }
+        }
+
+        Map<String, String> imports = new LinkedHashMap<>();
+        String css = less4JCompiler.compile(lessCode, skin, inlineSourceMaps, imports);
+
+        if (useStore) {
+            compiledCSSStore.set(key, imports, css);
+        }
+
+        return css;
+    }
+
     private String executeVelocity(String source, String skin)
     {
         // Get the XWiki object
@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import org.xwiki.skin.Skin;
 import org.xwiki.template.TemplateManager;
 
@@ -40,7 +42,20 @@ public class CustomContentLESSSource extends AbstractLESSSource
      */
     public CustomContentLESSSource(String lessCode, TemplateManager templateManager, Skin skin)
     {
-        super(templateManager, skin, "less");
+        this(lessCode, templateManager, skin, null);
+    }
+
+    /**
+     * @param lessCode the LESS code to compile
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param imports the map in which to collect the content of the imported templates, indexed by template name
+     * @since 8.2M1
+     */
+    public CustomContentLESSSource(String lessCode, TemplateManager templateManager, Skin skin,
+        Map<String, String> imports)
+    {
+        super(templateManager, skin, "less", imports);
         this.lessCode = lessCode;
     }
 
@@ -19,10 +19,15 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.skin.Skin;
 import org.xwiki.skin.SkinManager;
 import org.xwiki.template.TemplateManager;
 
@@ -56,6 +61,23 @@
      * @throws Less4jException if problems occur
      */
     public String compile(String lessCode, String skin, boolean inlineSourceMap) throws Less4jException
+    {
+        return compile(lessCode, skin, inlineSourceMap, null);
+    }
+
+    /**
+     * Compile the LESS code and get the included files from the skin templates.
+     *
+     * @param lessCode code to compile
+     * @param skin skin holding the templates
+     * @param inlineSourceMap whether to create inline sourcemaps in the generated css
+     * @param imports the map in which to collect the content of the imported templates, indexed by template name
+     * @return the results of the LESS compilation
+     * @throws Less4jException if problems occur
+     * @since 8.2M1
+     */
+    public String compile(String lessCode, String skin, boolean inlineSourceMap, Map<String, String> imports)
+        throws Less4jException
     {
         LessCompiler lessCompiler = new DefaultLessCompiler();
         LessCompiler.Configuration options = new LessCompiler.Configuration();
@@ -63,8 +85,34 @@ public String compile(String lessCode, String skin, boolean inlineSourceMap) thr
         options.getSourceMapConfiguration().setInline(inlineSourceMap);
         options.getSourceMapConfiguration().setIncludeSourcesContent(true);
         LessSource lessSource = 
-            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin));
+            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin), imports);
         LessCompiler.CompilationResult lessResult = lessCompiler.compile(lessSource, options);
         return lessResult.getCss();
     }
+
+    /**
+     * Get the current content of templates imported by some LESS code, as they would be imported when compiling it.
+     *
+     * @param templateNames the names of the imported templates
+     * @param skin skin holding the templates
+     * @return the content of the templates indexed by template name, or null if one of them can't be read anymore
+     * @since 8.2M1
+     */
+    public Map<String, String> getImports(Collection<String> templateNames, String skin)
+    {
+        Skin skinObject = skinManager.getSkin(skin);
+        Map<String, String> imports = new LinkedHashMap<>();
+        try {
+            for (String templateName : templateNames) {
+                if (skinObject.getResource(templateName) == null) {
+                    return null;
+                }
+                new TemplateLESSSource(templateManager, skinObject, templateName, imports).getContent();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+
+        return imports;
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
 import org.xwiki.skin.Skin;
@@ -46,7 +48,20 @@ public class TemplateLESSSource extends AbstractLESSSource
      */
     public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName)
     {
-        super(templateManager, skin, getParentFolder(templateName));
+        this(templateManager, skin, templateName, null);
+    }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param templateName the name of the template
+     * @param imports the map in which to collect the content of the imported templates, indexed by template name
+     * @since 8.2M1
+     */
+    public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName,
+        Map<String, String> imports)
+    {
+        super(templateManager, skin, getParentFolder(templateName), imports);
         this.templateName = templateName;
     }
 
@@ -62,6 +77,16 @@ private static String getParentFolder(String templateName)
 
     @Override
     public String getContent() throws FileNotFound, CannotReadFile
+    {
+        String content = getTemplateContent();
+        if (imports != null) {
+            imports.put(templateName, content);
+        }
+
+        return content;
+    }
+
+    private String getTemplateContent() throws CannotReadFile
     {
         try {
             // We execute velocity on the main skin file only (which is included by SSX objects using LESS).
@@ -62,4 +62,11 @@ public void generateSourceMaps() throws Exception
         boolean b  = mocker.getComponentUnderTest().isGenerateInlineSourceMaps();
         assertTrue(b);
     }
+
+    @Test
+    public void compiledCSSStoreEnabled() throws Exception
+    {
+        when(xwikiPropertiesSource.getProperty("lesscss.store", true)).thenReturn(true);
+        assertTrue(mocker.getComponentUnderTest().isCompiledCSSStoreEnabled());
+    }
 }
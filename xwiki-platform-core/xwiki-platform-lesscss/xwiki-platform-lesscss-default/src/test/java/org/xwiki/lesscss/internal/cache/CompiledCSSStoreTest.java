@@ -0,0 +1,157 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CompiledCSSStore}.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class CompiledCSSStoreTest
+{
+    @Rule
+    public MockitoComponentMockingRule<CompiledCSSStore> mocker =
+        new MockitoComponentMockingRule<>(CompiledCSSStore.class);
+
+    private File permanentDirectory = new File("target/permanentDirectory");
+
+    private XWikiContext xcontext;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory(this.permanentDirectory);
+
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        Provider<XWikiContext> xcontextProvider = this.mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        this.xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getVersion()).thenReturn("8.2");
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+    }
+
+    @Test
+    public void setAndGet() throws Exception
+    {
+        CompiledCSSStore store = this.mocker.getComponentUnderTest();
+
+        String key = store.getKey("@import \"style.less\"; a {color: @a;}", "skin", false);
+        assertNull(store.getImports(key));
+
+        Map<String, String> imports = Collections.singletonMap("less/style.less", "@a: red;");
+        String cssKey = store.getKey(key, imports);
+        assertNull(store.get(cssKey));
+
+        store.set(key, imports, "a {color: red;}");
+        assertEquals(Arrays.asList("less/style.less"), store.getImports(key));
+        assertEquals("a {color: red;}", store.get(cssKey));
+
+        store.clear();
+        assertNull(store.getImports(key));
+        assertNull(store.get(cssKey));
+    }
+
+    @Test
+    public void getKeyWithImports() throws Exception
+    {
+        CompiledCSSStore store = this.mocker.getComponentUnderTest();
+
+        String key = store.getKey("code", "skin", false);
+        String cssKey = store.getKey(key, Collections.singletonMap("less/style.less", "@a: red;"));
+        assertEquals(cssKey, store.getKey(key, Collections.singletonMap("less/style.less", "@a: red;")));
+
+        // The stored CSS is not used anymore when an imported file is modified
+        assertNotEquals(cssKey, store.getKey(key, Collections.singletonMap("less/style.less", "@a: blue;")));
+        assertNotEquals(cssKey, store.getKey(key, Collections.singletonMap("less/other.less", "@a: red;")));
+        assertNotEquals(cssKey, store.getKey(key, Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void prune() throws Exception
+    {
+        CompiledCSSStore store = this.mocker.getComponentUnderTest();
+
+        String usedKey = store.getKey("used", "skin", false);
+        store.set(usedKey, Collections.<String, String>emptyMap(), "used");
+        String unusedKey = store.getKey("unused", "skin", false);
+        store.set(unusedKey, Collections.<String, String>emptyMap(), "unused");
+
+        // Make all the files look old
+        for (File file : FileUtils.listFiles(this.permanentDirectory, (String[]) null, true)) {
+            file.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(60));
+        }
+
+        // Using an entry keeps it
+        assertEquals(Collections.<String>emptyList(), store.getImports(usedKey));
+        assertEquals("used", store.get(store.getKey(usedKey, Collections.<String, String>emptyMap())));
+
+        store.prune();
+
+        assertNotNull(store.getImports(usedKey));
+        assertEquals("used", store.get(store.getKey(usedKey, Collections.<String, String>emptyMap())));
+        assertNull(store.getImports(unusedKey));
+        assertNull(store.get(store.getKey(unusedKey, Collections.<String, String>emptyMap())));
+    }
+
+    @Test
+    public void getKey() throws Exception
+    {
+        CompiledCSSStore store = this.mocker.getComponentUnderTest();
+
+        String key = store.getKey("code", "skin", false);
+        assertEquals(key, store.getKey("code", "skin", false));
+        assertNotEquals(key, store.getKey("other code", "skin", false));
+        assertNotEquals(key, store.getKey("code", "other skin", false));
+        assertNotEquals(key, store.getKey("code", "skin", true));
+
+        when(this.xcontext.getWikiId()).thenReturn("otherwiki");
+        assertNotEquals(key, store.getKey("code", "skin", false));
+    }
+}
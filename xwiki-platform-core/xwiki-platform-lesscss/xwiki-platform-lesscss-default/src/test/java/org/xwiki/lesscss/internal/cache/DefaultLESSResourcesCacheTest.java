@@ -113,6 +113,7 @@ public void clear() throws Exception
 
         // Verify
         verify(cache).removeAll();
+        verify(mocker.<CompiledCSSStore>getInstance(CompiledCSSStore.class)).clear();
     }
 
     @Test
@@ -147,6 +148,7 @@ public void clearFromSkin() throws Exception
         verify(cache, times(1)).remove("k1");
         verify(cache).remove("k4");
         verify(cache, never()).remove("k3");
+        verify(mocker.<CompiledCSSStore>getInstance(CompiledCSSStore.class)).clear();
     }
 
     @Test
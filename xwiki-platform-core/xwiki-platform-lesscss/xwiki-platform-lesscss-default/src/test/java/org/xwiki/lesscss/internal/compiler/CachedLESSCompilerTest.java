@@ -19,6 +19,11 @@
  */
 package org.xwiki.lesscss.internal.compiler;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Provider;
 
 import org.junit.Before;
@@ -26,6 +31,7 @@
 import org.junit.Test;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.cache.CompiledCSSStore;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
@@ -39,6 +45,8 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -101,7 +109,7 @@ public void computeSkinFile() throws Exception
         when(xwiki.evaluateVelocity(eq("Some LESS content"), eq("SomeContextDocument"))).
             thenReturn("Some Velocity-rendered LESS content");
         when(less4jCompiler.compile(eq("Some Velocity-rendered LESS content"), eq("skin2"),
-                eq(false)))
+                eq(false), anyMapOf(String.class, String.class)))
             .thenReturn("output");
 
         // Tests
@@ -112,6 +120,73 @@ public void computeSkinFile() throws Exception
         verify(xcontext, times(1)).put("skin", "skin");
     }
 
+    @Test
+    public void computeSkinFileWhenStored() throws Exception
+    {
+        // Mocks
+        CompiledCSSStore compiledCSSStore = mocker.getInstance(CompiledCSSStore.class);
+        when(compiledCSSStore.isEnabled()).thenReturn(true);
+        when(compiledCSSStore.getKey("Some Velocity-rendered LESS content", "skin2", false)).thenReturn("key");
+        List<String> importNames = Arrays.asList("less/style.less.vm");
+        when(compiledCSSStore.getImports("key")).thenReturn(importNames);
+        Map<String, String> imports = Collections.singletonMap("less/style.less.vm", "@color: red;");
+        when(less4jCompiler.getImports(importNames, "skin2")).thenReturn(imports);
+        when(compiledCSSStore.getKey("key", imports)).thenReturn("csskey");
+        when(compiledCSSStore.get("csskey")).thenReturn("stored output");
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
+        when(xwiki.evaluateVelocity(eq("Some LESS content"), eq("SomeContextDocument"))).
+            thenReturn("Some Velocity-rendered LESS content");
+
+        // Tests
+        assertEquals("stored output", mocker.getComponentUnderTest().compute(resource, false, true, true, "skin2"));
+
+        // Verify that the LESS compiler is never called
+        verify(less4jCompiler, never()).compile(anyString(), anyString(), anyBoolean(),
+            anyMapOf(String.class, String.class));
+    }
+
+    @Test
+    public void computeSkinFileWhenStoredImportsCannotBeRead() throws Exception
+    {
+        // Mocks
+        CompiledCSSStore compiledCSSStore = mocker.getInstance(CompiledCSSStore.class);
+        when(compiledCSSStore.isEnabled()).thenReturn(true);
+        when(compiledCSSStore.getKey("Some LESS content", "skin2", false)).thenReturn("key");
+        List<String> importNames = Arrays.asList("less/removed.less");
+        when(compiledCSSStore.getImports("key")).thenReturn(importNames);
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
+        when(less4jCompiler.compile(eq("Some LESS content"), eq("skin2"), eq(false),
+            anyMapOf(String.class, String.class))).thenReturn("output");
+
+        // Tests
+        assertEquals("output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
+
+        // Verify
+        verify(compiledCSSStore, never()).get(anyString());
+        verify(compiledCSSStore).set(eq("key"), anyMapOf(String.class, String.class), eq("output"));
+    }
+
+    @Test
+    public void computeSkinFileWhenNotStored() throws Exception
+    {
+        // Mocks
+        CompiledCSSStore compiledCSSStore = mocker.getInstance(CompiledCSSStore.class);
+        when(compiledCSSStore.isEnabled()).thenReturn(true);
+        when(compiledCSSStore.getKey("Some LESS content", "skin2", false)).thenReturn("key");
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
+        when(less4jCompiler.compile(eq("Some LESS content"), eq("skin2"), eq(false),
+            anyMapOf(String.class, String.class))).thenReturn("output");
+
+        // Tests
+        assertEquals("output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
+
+        // Verify
+        verify(compiledCSSStore).set(eq("key"), anyMapOf(String.class, String.class), eq("output"));
+    }
+
     @Test
     public void computeSkinFileWithoutVelocity() throws Exception
     {
@@ -119,7 +194,7 @@ public void computeSkinFileWithoutVelocity() throws Exception
         LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
         when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
         when(less4jCompiler.compile(eq("Some LESS content"), eq("skin2"),
-                eq(false))).thenReturn("output");
+                eq(false), anyMapOf(String.class, String.class))).thenReturn("output");
 
         // Tests
         assertEquals("output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
@@ -158,7 +233,7 @@ public void computeSkinFileWithMainStyleIncluded() throws Exception
                         +"Some Velocity-rendered LESS content");
         when(less4jCompiler.compile(eq("@import (reference) \"style.less.vm\";\n"
             +"Some Velocity-rendered LESS content"), eq("skin"),
-                eq(false)))
+                eq(false), anyMapOf(String.class, String.class)))
                 .thenReturn("output");
 
         // Tests
@@ -176,7 +251,7 @@ public void computeSkinFileWhenException() throws Exception
                 thenReturn("Some Velocity-rendered LESS content");
         Less4jException lessCompilerException = mock(Less4jException.class);
         when(less4jCompiler.compile(eq("Some Velocity-rendered LESS content"), eq("skin"),
-                eq(false))).
+                eq(false), anyMapOf(String.class, String.class))).
             thenThrow(lessCompilerException);
 
         // Tests
@@ -126,6 +126,9 @@ public void compileWhenInCache() throws Exception
         // Verify
         verify(cache, never()).set(eq(lessResourceReference), eq(skinReference), eq(colorThemeReference), 
                 eq("cache output"));
+        // Cache hits don't lock
+        verify(cache, never()).getMutex(any(LESSResourceReference.class), any(SkinReference.class),
+                any(ColorThemeReference.class));
     }
 
     @Test
@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -101,4 +102,38 @@
      * @since 6.4RC1
      */
     long getSendWaitTime();
+
+    /**
+     * @return the number of threads sending mails in parallel, each thread using its own connection to the SMTP server
+     * @since 8.2M1
+     */
+    @Unstable
+    default int getSendThreadCount()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of mails that can be sent right away, without waiting {@link #getSendWaitTime()}, after a
+     *         period without any mail being sent. The average delay between mails stays {@link #getSendWaitTime()}.
+     * @since 8.2M1
+     */
+    @Unstable
+    default int getSendBurstSize()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the maximum number of prepared mails handed over in memory to the mail sender threads, or 0 if prepared
+     *         mails must always be persisted before being sent. When positive, a prepared mail is persisted only if it
+     *         fails to be sent (so that it can be resent later) and the preparation waits when that many mails are
+     *         waiting to be sent.
+     * @since 8.2M1
+     */
+    @Unstable
+    default int getPipelineSize()
+    {
+        return 0;
+    }
 }
@@ -21,6 +21,8 @@
 
 import java.util.Iterator;
 
+import org.xwiki.stability.Unstable;
+
 /**
  * Provides status for each mail in the batch of mails that have been sent.
  *
@@ -75,4 +77,26 @@
      * @return the status for all mails matching the passed state
      */
     Iterator<MailStatus> getByState(MailState state);
+
+    /**
+     * @return the average time it took to send a mail of this batch to the SMTP server (connection included), in
+     *         milliseconds, or -1 if no mail has been sent yet
+     * @since 8.2M1
+     */
+    @Unstable
+    default long getAverageSendTime()
+    {
+        return -1;
+    }
+
+    /**
+     * @return the number of mails of this batch processed per second, from the start of the batch till the last
+     *         processed mail, or 0 if not known
+     * @since 8.2M1
+     */
+    @Unstable
+    default double getThroughput()
+    {
+        return 0;
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,9 +35,17 @@ public abstract class AbstractMailStatusResult implements UpdateableMailStatusRe
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractMailStatusResult.class);
 
-    private long totalSize = -1;
+    private volatile long totalSize = -1;
+
+    private final AtomicLong currentSize = new AtomicLong();
+
+    private final AtomicLong sendCount = new AtomicLong();
+
+    private final AtomicLong totalSendTime = new AtomicLong();
+
+    private final long startTime = System.currentTimeMillis();
 
-    private long currentSize;
+    private volatile long lastProcessedTime;
 
     @Override
     public void setTotalSize(long totalSize)
@@ -46,7 +56,15 @@ public void setTotalSize(long totalSize)
     @Override
     public void incrementCurrentSize()
     {
-        this.currentSize++;
+        this.currentSize.incrementAndGet();
+        this.lastProcessedTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addSendTime(long sendTime)
+    {
+        this.totalSendTime.addAndGet(sendTime);
+        this.sendCount.incrementAndGet();
     }
 
     @Override
@@ -58,7 +76,26 @@ public long getTotalMailCount()
     @Override
     public long getProcessedMailCount()
     {
-        return this.currentSize;
+        return this.currentSize.get();
+    }
+
+    @Override
+    public long getAverageSendTime()
+    {
+        long count = this.sendCount.get();
+
+        return count > 0 ? this.totalSendTime.get() / count : -1;
+    }
+
+    @Override
+    public double getThroughput()
+    {
+        long elapsedTime = this.lastProcessedTime - this.startTime;
+        if (this.lastProcessedTime == 0 || elapsedTime <= 0) {
+            return 0;
+        }
+
+        return getProcessedMailCount() * 1000D / elapsedTime;
     }
 
     @Override
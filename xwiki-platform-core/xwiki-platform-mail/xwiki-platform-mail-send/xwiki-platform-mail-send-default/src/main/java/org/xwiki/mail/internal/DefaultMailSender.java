@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -42,6 +44,7 @@
 import org.xwiki.mail.MailListener;
 import org.xwiki.mail.MailResult;
 import org.xwiki.mail.MailSender;
+import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.internal.thread.MailQueueManager;
 import org.xwiki.mail.internal.thread.MailRunnable;
 import org.xwiki.mail.internal.thread.PrepareMailQueueItem;
@@ -87,9 +90,12 @@ public class DefaultMailSender implements MailSender, Initializable, Disposable
     @Inject
     private Copier<ExecutionContext> executionContextCloner;
 
+    @Inject
+    private MailSenderConfiguration configuration;
+
     private Thread prepareMailThread;
 
-    private Thread sendMailThread;
+    private List<Thread> sendMailThreads = new ArrayList<>();
 
     @Override
     public void initialize() throws InitializationException
@@ -100,11 +106,15 @@ public void initialize() throws InitializationException
         this.prepareMailThread.setDaemon(true);
         this.prepareMailThread.start();
 
-        // Step 2: Start the Mail Sender Thread
-        this.sendMailThread = new Thread(this.sendMailRunnable);
-        this.sendMailThread.setName("Mail Sender Thread");
-        this.sendMailThread.setDaemon(true);
-        this.sendMailThread.start();
+        // Step 2: Start the Mail Sender Threads
+        int threadCount = Math.max(this.configuration.getSendThreadCount(), 1);
+        for (int i = 0; i < threadCount; ++i) {
+            Thread sendMailThread = new Thread(this.sendMailRunnable);
+            sendMailThread.setName(threadCount > 1 ? "Mail Sender Thread " + (i + 1) : "Mail Sender Thread");
+            sendMailThread.setDaemon(true);
+            sendMailThread.start();
+            this.sendMailThreads.add(sendMailThread);
+        }
     }
 
     @Override
@@ -145,14 +155,18 @@ public MailResult sendAsynchronously(Iterable<? extends MimeMessage> messages, S
      */
     public void stopMailThreads() throws InterruptedException
     {
-        // Step 1: Stop the Mail Sender Thread
+        // Step 1: Stop the Mail Sender Threads
 
         this.sendMailRunnable.stopProcessing();
-        // Make sure the Thread goes out of sleep if it's sleeping so that it stops immediately.
-        this.sendMailThread.interrupt();
-        // Wait till the thread goes away
-        this.sendMailThread.join();
-        SHUTDOWN_LOGGER.debug(String.format("Mail Prepare Thread has been stopped"));
+        // Make sure the Threads go out of sleep if they're sleeping so that they stop immediately.
+        for (Thread sendMailThread : this.sendMailThreads) {
+            sendMailThread.interrupt();
+        }
+        // Wait till the threads go away
+        for (Thread sendMailThread : this.sendMailThreads) {
+            sendMailThread.join();
+        }
+        SHUTDOWN_LOGGER.debug(String.format("Mail Sender Threads have been stopped"));
 
         // Step 2: Stop the Mail Prepare Thread
 
@@ -161,7 +175,7 @@ public void stopMailThreads() throws InterruptedException
         this.prepareMailThread.interrupt();
         // Wait till the thread goes away
         this.prepareMailThread.join();
-        SHUTDOWN_LOGGER.debug(String.format("Mail Sender Thread has been stopped"));
+        SHUTDOWN_LOGGER.debug(String.format("Mail Prepare Thread has been stopped"));
     }
 
     private MailListener getListener(String hint) throws MessagingException
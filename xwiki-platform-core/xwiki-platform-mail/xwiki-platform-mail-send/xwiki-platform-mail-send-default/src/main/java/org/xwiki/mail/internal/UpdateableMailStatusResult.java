@@ -24,7 +24,8 @@
 /**
  * Extension of {@link MailStatusResult} to make it updateable; more specifically to update the number of mails to
  * send (which can be known only on the Prepare Thread when all mails have been iterated over and prepared) and also
- * to increment the number of mails sent (successfully or not).
+ * to increment the number of mails sent (successfully or not). Note that mails of a same batch can be sent by several
+ * threads in parallel so implementations must be thread safe.
  *
  * @version $Id$
  * @since 7.1M2
@@ -40,4 +41,12 @@ public interface UpdateableMailStatusResult extends MailStatusResult
      * Increment by one the number of mails sent (successfully or not).
      */
     void incrementCurrentSize();
+
+    /**
+     * Record the time it took to send a mail (successfully or not) to the SMTP server.
+     *
+     * @param sendTime the time spent sending the mail, in milliseconds
+     * @since 8.2M1
+     */
+    void addSendTime(long sendTime);
 }
@@ -103,6 +103,9 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PASSWORD_PROPERTY = "password";
     private static final String PROPERTIES_PROPERTY = "properties";
     private static final String SEND_WAIT_TIME = "sendWaitTime";
+    private static final String SEND_THREADS = "sendThreads";
+    private static final String SEND_BURST_SIZE = "sendBurstSize";
+    private static final String PIPELINE_SIZE = "pipelineSize";
 
     @Inject
     private Logger logger;
@@ -318,4 +321,22 @@ public long getSendWaitTime()
 
         return waitTime;
     }
+
+    @Override
+    public int getSendThreadCount()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_THREADS, 1);
+    }
+
+    @Override
+    public int getSendBurstSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_BURST_SIZE, 1);
+    }
+
+    @Override
+    public int getPipelineSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + PIPELINE_SIZE, 0);
+    }
 }
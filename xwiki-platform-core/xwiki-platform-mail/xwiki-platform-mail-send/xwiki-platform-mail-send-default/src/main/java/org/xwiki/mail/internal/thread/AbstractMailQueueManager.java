@@ -19,8 +19,9 @@
  */
 package org.xwiki.mail.internal.thread;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles all operations on the Mail Queues.
@@ -33,14 +34,14 @@
 {
     /**
      * The Mail queue that the mail sender thread will use to send mails. We use a separate thread to allow sending
-     * mail asynchronously.
+     * mail asynchronously. The queue is blocking so that the mail threads can wait for new mails without polling.
      */
-    private Queue<T> mailQueue = new ConcurrentLinkedQueue<>();
+    private BlockingQueue<T> mailQueue = new LinkedBlockingQueue<>();
 
     /**
      * @return the mail queue containing all pending mails to be sent
      */
-    private Queue<T> getMailQueue()
+    private BlockingQueue<T> getMailQueue()
     {
         return this.mailQueue;
     }
@@ -68,4 +69,10 @@ public boolean removeMessageFromQueue(T mailQueueItem)
     {
         return getMailQueue().remove(mailQueueItem);
     }
+
+    @Override
+    public T takeMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return getMailQueue().poll(timeout, unit);
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.concurrent.TimeUnit;
+
 import org.xwiki.component.annotation.Role;
 
 /**
@@ -55,4 +57,15 @@
      * @return true if the removal was successful, false otherwise
      */
     boolean removeMessageFromQueue(T mailQueueItem);
+
+    /**
+     * Removes the next mail on the queue, waiting for one to be available if the queue is empty.
+     *
+     * @param timeout how long to wait for a mail before giving up, in units of {@code unit}
+     * @param unit the unit of the timeout
+     * @return the next mail on the queue or null if no mail has been added to the queue before the timeout
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     * @since 8.2M1
+     */
+    T takeMessage(long timeout, TimeUnit unit) throws InterruptedException;
 }
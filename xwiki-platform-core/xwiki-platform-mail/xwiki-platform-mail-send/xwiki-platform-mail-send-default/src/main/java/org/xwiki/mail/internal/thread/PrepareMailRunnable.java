@@ -62,6 +62,9 @@ public class PrepareMailRunnable extends AbstractMailRunnable
     @Named("filesystem")
     private MailContentStore mailContentStore;
 
+    @Inject
+    private PreparedMailWindow preparedMailWindow;
+
     @Override
     public void run()
     {
@@ -156,7 +159,7 @@ protected void prepareContext(ExecutionContext executionContext) throws Executio
         }
     }
 
-    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item)
+    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item) throws InterruptedException
     {
         MailListener listener = item.getListener();
 
@@ -166,6 +169,11 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
         // Ensure mimeMessage to be extended
         ExtendedMimeMessage message = ExtendedMimeMessage.wrap(mimeMessage);
 
+        if (this.preparedMailWindow.isEnabled()) {
+            prepareSingleMailInMemory(message, item);
+            return;
+        }
+
         // Step 2: Persist the MimeMessage
         // Note: Message identifier is stabilized at this step by the serialization process
         try {
@@ -178,15 +186,48 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
             return;
         }
 
-        // Step 3: Put the MimeMessage id on the Mail Send Queue for sending
+        // Step 3: Notify the user that the MimeMessage is prepared
+        // Note: this must be done before the message is put on the Mail Send Queue since the Mail Sender Threads
+        // expect the prepared status of the message to exist.
+        if (listener != null) {
+            listener.onPrepareMessageSuccess(message, Collections.<String, Object>emptyMap());
+        }
+
+        // Step 4: Put the MimeMessage id on the Mail Send Queue for sending
         this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
             item.getSession(), listener, item.getBatchId()));
+    }
+
+    /**
+     * Hand over the message to the Mail Sender Threads without persisting it. The message is persisted only if it fails
+     * to be sent, so that it can be resent later.
+     */
+    private void prepareSingleMailInMemory(ExtendedMimeMessage message, PrepareMailQueueItem item)
+        throws InterruptedException
+    {
+        MailListener listener = item.getListener();
+
+        // Step 2: Stabilize the message identifier (which is normally done when the message is serialized)
+        try {
+            message.ensureSaved();
+        } catch (Exception e) {
+            // An error occurred, notify the user if a listener has been provided
+            if (listener != null) {
+                listener.onPrepareMessageError(message, e, Collections.<String, Object>emptyMap());
+            }
+            return;
+        }
 
-        // Step 4: Notify the user that the MimeMessage is prepared
+        // Step 3: Notify the user that the MimeMessage is prepared
         if (listener != null) {
             listener.onPrepareMessageSuccess(message, Collections.<String, Object>emptyMap());
         }
 
+        // Step 4: Wait for a place in the window of messages kept in memory and put the MimeMessage on the Mail Send
+        // Queue for sending. The place is freed by the Mail Sender Thread once the message is sent.
+        this.preparedMailWindow.acquire();
+        this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message, item.getSession(), listener,
+            item.getBatchId()));
     }
 
     private void completeMessage(MimeMessage mimeMessage)
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.concurrent.Semaphore;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.mail.MailSenderConfiguration;
+
+/**
+ * Bounds the number of prepared messages kept in memory between the Mail Prepare Thread and the Mail Sender Threads
+ * when pipelining is enabled (see {@link MailSenderConfiguration#getPipelineSize()}). When the window is full the
+ * preparation of new messages waits till some messages have been sent.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = PreparedMailWindow.class)
+@Singleton
+public class PreparedMailWindow implements Initializable
+{
+    @Inject
+    private MailSenderConfiguration configuration;
+
+    private int size;
+
+    private Semaphore permits;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.size = Math.max(this.configuration.getPipelineSize(), 0);
+        this.permits = new Semaphore(this.size);
+    }
+
+    /**
+     * @return true if prepared messages should be handed over to the Mail Sender Threads in memory, false if they
+     *         should go through the {@link org.xwiki.mail.MailContentStore}
+     */
+    public boolean isEnabled()
+    {
+        return this.size > 0;
+    }
+
+    /**
+     * Reserve a place in the window for a new prepared message, waiting till a place is available if needed.
+     *
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     */
+    public void acquire() throws InterruptedException
+    {
+        this.permits.acquire();
+    }
+
+    /**
+     * Free the place of a message which has been sent (successfully or not).
+     */
+    public void release()
+    {
+        this.permits.release();
+    }
+}
@@ -21,6 +21,7 @@
 
 import javax.mail.Session;
 
+import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailListener;
 
 /**
@@ -33,6 +34,8 @@ public class SendMailQueueItem extends AbstractMailQueueItem
 {
     private String uniqueMessageId;
 
+    private ExtendedMimeMessage message;
+
     /**
      * @param uniqueMessageId see {@link #getUniqueMessageId()}
      * @param session see {@link #getSession()}
@@ -45,6 +48,19 @@ public SendMailQueueItem(String uniqueMessageId, Session session, MailListener l
         this.uniqueMessageId = uniqueMessageId;
     }
 
+    /**
+     * @param message see {@link #getMessage()}
+     * @param session see {@link #getSession()}
+     * @param listener see {@link #getListener()}
+     * @param batchId see {@link #getBatchId()}
+     * @since 8.2M1
+     */
+    public SendMailQueueItem(ExtendedMimeMessage message, Session session, MailListener listener, String batchId)
+    {
+        this(message.getUniqueMessageId(), session, listener, batchId);
+        this.message = message;
+    }
+
     /**
      * @return the unique id of the MimeMessage to send
      */
@@ -53,6 +69,16 @@ public String getUniqueMessageId()
         return this.uniqueMessageId;
     }
 
+    /**
+     * @return the prepared message when it has been handed over in memory, or null if it must be loaded from the
+     *         {@link org.xwiki.mail.MailContentStore}
+     * @since 8.2M1
+     */
+    public ExtendedMimeMessage getMessage()
+    {
+        return this.message;
+    }
+
     @Override
     public String toString()
     {
@@ -20,13 +20,11 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.mail.MessagingException;
-import javax.mail.Session;
-import javax.mail.Transport;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.xwiki.component.annotation.Component;
@@ -36,9 +34,13 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailStatusResult;
+import org.xwiki.mail.internal.UpdateableMailStatusResult;
 
 /**
- * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * Runnable that waits for mails on a Queue, and for each mail tries to send it. Several threads can execute this
+ * runnable at the same time (see {@link org.xwiki.mail.MailSenderConfiguration#getSendThreadCount()}), in which case
+ * they share the SMTP connections and the mail throttling.
  *
  * @version $Id$
  * @since 6.4
@@ -48,6 +50,12 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * How long to wait for a new mail before checking if the thread should stop and closing the connections which are
+     * not used anymore, in milliseconds.
+     */
+    private static final long QUEUE_TIMEOUT = 1000L;
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -58,15 +66,17 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private ExecutionContextManager executionContextManager;
 
-    private Transport currentTransport;
+    @Inject
+    private PreparedMailWindow preparedMailWindow;
 
-    private Session currentSession;
+    private final SendMailTransportPool transportPool = new SendMailTransportPool();
 
-    private int count;
+    private final SendRateLimiter rateLimiter = new SendRateLimiter();
 
     @Override
     public void run()
     {
+        this.transportPool.open();
         try {
             // Make sure we initialize an execution context.
             prepareContext();
@@ -76,7 +86,8 @@ public void run()
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            // The last stopped thread closes the SMTP connections
+            this.transportPool.close();
         }
     }
 
@@ -91,24 +102,21 @@ private void runInternal()
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
-                    // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
-                    waitSendWaitTime();
+                // Wait for the next message in the queue
+                SendMailQueueItem mailItem =
+                    this.sendMailQueueManager.takeMessage(QUEUE_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    // Email throttling: wait till the rate limit allows sending a new mail.
+                    // Note: it's important that we wait before sending the mail and not after in order to let users
+                    // know as soon as possible that their mail has been sent (otherwise when sending a synchronous
+                    // mail, the user would have to wait the send wait time!).
+                    this.rateLimiter.acquire(this.configuration.getSendWaitTime(),
+                        this.configuration.getSendBurstSize());
+
+                    sendMail(mailItem);
+                } else {
+                    this.transportPool.closeIdleTransports();
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Sender Thread was forcefully stopped", e);
@@ -126,6 +134,19 @@ private void runInternal()
      * @param item the queue item containing all the data for sending the mail
      */
     protected void sendMail(SendMailQueueItem item)
+    {
+        if (item.getMessage() != null) {
+            try {
+                sendMail(item, item.getMessage());
+            } finally {
+                this.preparedMailWindow.release();
+            }
+        } else {
+            loadAndSendMail(item);
+        }
+    }
+
+    private void loadAndSendMail(SendMailQueueItem item)
     {
         MailListener listener = item.getListener();
 
@@ -140,53 +161,64 @@ protected void sendMail(SendMailQueueItem item)
             return;
         }
 
+        sendMail(item, message);
+    }
+
+    private void sendMail(SendMailQueueItem item, ExtendedMimeMessage message)
+    {
+        MailListener listener = item.getListener();
+
+        long startTime = System.currentTimeMillis();
         try {
-            // Step 2: If the current Session in use is different from the one passed then close
-            // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
-            }
+            // Step 2: Get a connection to the SMTP server for the Session of the mail, reusing an already opened one
+            // when possible.
+            SendMailTransportPool.PooledTransport pooledTransport = this.transportPool.borrow(item.getSession());
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            try {
+                pooledTransport.getTransport().sendMessage(message, message.getAllRecipients());
+            } finally {
+                this.transportPool.release(pooledTransport);
+            }
 
             // Step 4: Notify the user of the success if a listener has been provided
             if (listener != null) {
+                addSendTime(listener, startTime);
                 listener.onSendMessageSuccess(message, Collections.<String, Object>emptyMap());
             }
         } catch (Exception e) {
+            // A message handed over in memory has never been persisted: persist it so that it can be resent later.
+            if (item.getMessage() != null) {
+                saveMailContent(item, message);
+            }
+
             // An error occurred, notify the user if a listener has been provided.
             if (listener != null) {
+                addSendTime(listener, startTime);
                 listener.onSendMessageError(message, e, Collections.<String, Object>emptyMap());
             }
         }
     }
 
-    private void waitSendWaitTime() throws InterruptedException
+    private void saveMailContent(SendMailQueueItem item, ExtendedMimeMessage message)
     {
-        long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        try {
+            this.mailContentStore.save(item.getBatchId(), message);
+        } catch (Exception e) {
+            this.logger.warn("Failed to save message [{}] of batch [{}] which failed to be sent. Reason [{}].",
+                item.getUniqueMessageId(), item.getBatchId(), ExceptionUtils.getRootCauseMessage(e));
+        }
     }
 
-    private void closeTransport()
+    private void addSendTime(MailListener listener, long startTime)
     {
-        if (this.currentTransport != null) {
-            try {
-                this.currentTransport.close();
-            } catch (MessagingException e) {
-                this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
-                    ExceptionUtils.getRootCauseMessage(e));
-            }
+        // Note: the send time must be recorded before notifying the listener since the notification marks the mail as
+        // processed.
+        MailStatusResult result = listener.getMailStatusResult();
+        if (result instanceof UpdateableMailStatusResult) {
+            ((UpdateableMailStatusResult) result).addSendTime(System.currentTimeMillis() - startTime);
         }
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of connected SMTP {@link Transport}s, shared by the mail sender threads. Connections are kept per
+ * {@link Session} (i.e. per SMTP configuration) so that consecutive mails sent with the same Session reuse an already
+ * open connection.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class SendMailTransportPool
+{
+    /**
+     * A connection is closed and a new one is opened after this number of mails, since a lot of SMTP servers limit the
+     * number of mails which can be sent using a single connection.
+     */
+    private static final int MAX_MAILS_PER_CONNECTION = 100;
+
+    /**
+     * Connections which have not been used for that long (in milliseconds) are closed.
+     */
+    private static final long MAX_IDLE_TIME = 60 * 1000L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SendMailTransportPool.class);
+
+    /**
+     * A pooled connection.
+     */
+    public static final class PooledTransport
+    {
+        private final Session session;
+
+        private final Transport transport;
+
+        private int count;
+
+        private long lastUsed;
+
+        private PooledTransport(Session session, Transport transport)
+        {
+            this.session = session;
+            this.transport = transport;
+        }
+
+        /**
+         * @return the connected transport to use to send the mail
+         */
+        public Transport getTransport()
+        {
+            return this.transport;
+        }
+    }
+
+    /**
+     * The idle connections, indexed by Session. Sessions don't override {@link Object#equals(Object)}.
+     */
+    private final Map<Session, Deque<PooledTransport>> idleTransports = new IdentityHashMap<>();
+
+    /**
+     * The number of threads using the pool, the connections are closed when the last one stops using it.
+     */
+    private int users;
+
+    private boolean closed = true;
+
+    /**
+     * Start using the pool. The pool can be used again after having been closed, for example when the mail sender
+     * thread is restarted.
+     */
+    public synchronized void open()
+    {
+        this.users++;
+        this.closed = false;
+    }
+
+    /**
+     * Get a connected transport for the passed Session, reusing an idle connection when there's one.
+     *
+     * @param session the Session to use to send the mail
+     * @return the connected transport, to give back using {@link #release(PooledTransport)}
+     * @throws MessagingException when failing to connect to the SMTP server
+     */
+    public PooledTransport borrow(Session session) throws MessagingException
+    {
+        PooledTransport pooledTransport;
+        synchronized (this) {
+            Deque<PooledTransport> transports = this.idleTransports.get(session);
+            pooledTransport = transports != null ? transports.pollFirst() : null;
+            if (transports != null && transports.isEmpty()) {
+                this.idleTransports.remove(session);
+            }
+        }
+
+        if (pooledTransport == null) {
+            pooledTransport = new PooledTransport(session, session.getTransport("smtp"));
+        }
+
+        if (!pooledTransport.transport.isConnected()) {
+            pooledTransport.transport.connect();
+        }
+
+        return pooledTransport;
+    }
+
+    /**
+     * Give back a transport obtained with {@link #borrow(Session)} once the mail has been sent.
+     *
+     * @param pooledTransport the transport to give back
+     */
+    public void release(PooledTransport pooledTransport)
+    {
+        pooledTransport.count++;
+        pooledTransport.lastUsed = System.currentTimeMillis();
+
+        if (pooledTransport.count < MAX_MAILS_PER_CONNECTION) {
+            synchronized (this) {
+                if (!this.closed) {
+                    Deque<PooledTransport> transports = this.idleTransports.get(pooledTransport.session);
+                    if (transports == null) {
+                        transports = new ArrayDeque<>();
+                        this.idleTransports.put(pooledTransport.session, transports);
+                    }
+                    // Most recently used connections are reused first so that the others can expire
+                    transports.addFirst(pooledTransport);
+
+                    return;
+                }
+            }
+        }
+
+        close(pooledTransport);
+    }
+
+    /**
+     * Close the connections which have not been used for a while.
+     */
+    public void closeIdleTransports()
+    {
+        long minLastUsed = System.currentTimeMillis() - MAX_IDLE_TIME;
+
+        Deque<PooledTransport> expiredTransports = new ArrayDeque<>();
+        synchronized (this) {
+            for (Iterator<Deque<PooledTransport>> it = this.idleTransports.values().iterator(); it.hasNext();) {
+                Deque<PooledTransport> transports = it.next();
+                while (!transports.isEmpty() && transports.peekLast().lastUsed < minLastUsed) {
+                    expiredTransports.add(transports.pollLast());
+                }
+                if (transports.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+
+        for (PooledTransport pooledTransport : expiredTransports) {
+            close(pooledTransport);
+        }
+    }
+
+    /**
+     * Stop using the pool. When there's no other user, all the idle connections are closed and the transports which
+     * are currently used are closed when they are released.
+     */
+    public void close()
+    {
+        Deque<PooledTransport> transports = new ArrayDeque<>();
+        synchronized (this) {
+            if (this.users > 0 && --this.users > 0) {
+                return;
+            }
+
+            this.closed = true;
+            for (Deque<PooledTransport> sessionTransports : this.idleTransports.values()) {
+                transports.addAll(sessionTransports);
+            }
+            this.idleTransports.clear();
+        }
+
+        for (PooledTransport pooledTransport : transports) {
+            close(pooledTransport);
+        }
+    }
+
+    private void close(PooledTransport pooledTransport)
+    {
+        try {
+            pooledTransport.transport.close();
+        } catch (MessagingException e) {
+            LOGGER.warn("Failed to close JavaMail Transport connection. Reason [{}]",
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+}
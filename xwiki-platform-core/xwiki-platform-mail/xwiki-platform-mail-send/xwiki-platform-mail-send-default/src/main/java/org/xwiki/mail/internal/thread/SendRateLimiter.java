@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate at which mails are sent, shared by all the mail sender threads. A token is added to
+ * the bucket every send wait time and the bucket can hold a configurable number of tokens, which allows sending a
+ * short burst of mails after a quiet period while keeping the configured average delay between mails.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class SendRateLimiter
+{
+    /**
+     * The source of time of the limiter.
+     *
+     * @version $Id$
+     */
+    interface Clock
+    {
+        /**
+         * @return the current time in nanoseconds, only meaningful to compute elapsed time
+         */
+        long nanoTime();
+
+        /**
+         * @param nanos the time to wait, in nanoseconds
+         * @throws InterruptedException if the thread has been interrupted while waiting
+         */
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleep(long nanos) throws InterruptedException
+        {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    };
+
+    private final Clock clock;
+
+    /**
+     * The time at which the next token will be available, in nanoseconds, relative to {@link Clock#nanoTime()}.
+     */
+    private long nextTokenTime;
+
+    private boolean started;
+
+    /**
+     * Create a limiter based on the system time.
+     */
+    public SendRateLimiter()
+    {
+        this(SYSTEM_CLOCK);
+    }
+
+    /**
+     * @param clock the source of time of the limiter
+     */
+    SendRateLimiter(Clock clock)
+    {
+        this.clock = clock;
+    }
+
+    /**
+     * Wait till a mail can be sent.
+     *
+     * @param sendWaitTime the average delay between two mails, in milliseconds, 0 or less for no limit
+     * @param burstSize the maximum number of mails that can be sent without waiting
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     */
+    public void acquire(long sendWaitTime, int burstSize) throws InterruptedException
+    {
+        if (sendWaitTime <= 0) {
+            return;
+        }
+
+        long interval = TimeUnit.MILLISECONDS.toNanos(sendWaitTime);
+
+        long waitTime;
+        synchronized (this) {
+            long now = this.clock.nanoTime();
+
+            // The bucket can't hold more than burstSize tokens: tokens which would have been added while the bucket
+            // was full are lost.
+            long fullBucketTime = now - (Math.max(burstSize, 1) - 1) * interval;
+            if (!this.started || this.nextTokenTime - fullBucketTime < 0) {
+                this.nextTokenTime = fullBucketTime;
+                this.started = true;
+            }
+
+            // Reserve the next token
+            waitTime = this.nextTokenTime - now;
+            this.nextTokenTime += interval;
+        }
+
+        if (waitTime > 0) {
+            this.clock.sleep(waitTime);
+        }
+    }
+}
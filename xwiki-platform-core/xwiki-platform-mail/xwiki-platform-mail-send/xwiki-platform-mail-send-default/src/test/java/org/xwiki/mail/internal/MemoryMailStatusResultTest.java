@@ -79,4 +79,21 @@ public void getAllErrorTest() throws Exception
         assertThat(allErrorIds, containsInAnyOrder(UNIQUE_MESSAGE_ID2, UNIQUE_MESSAGE_ID4, UNIQUE_MESSAGE_ID5));
         assertThat(allErrorIds.size(), equalTo(3));
     }
+
+    @Test
+    public void sendStatistics() throws Exception
+    {
+        MemoryMailStatusResult statusResult = new MemoryMailStatusResult();
+        assertThat(statusResult.getAverageSendTime(), equalTo(-1L));
+        assertThat(statusResult.getThroughput(), equalTo(0D));
+
+        statusResult.addSendTime(10);
+        statusResult.addSendTime(30);
+        Thread.sleep(10L);
+        statusResult.incrementCurrentSize();
+        statusResult.incrementCurrentSize();
+
+        assertThat(statusResult.getAverageSendTime(), equalTo(20L));
+        assertThat(statusResult.getThroughput() > 0, equalTo(true));
+    }
 }
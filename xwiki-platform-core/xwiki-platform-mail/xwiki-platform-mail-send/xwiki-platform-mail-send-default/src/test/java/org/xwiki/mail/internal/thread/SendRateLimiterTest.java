@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link SendRateLimiter}.
+ *
+ * @version $Id$
+ */
+public class SendRateLimiterTest
+{
+    /**
+     * Clock which only moves forward when waiting or when explicitly told to.
+     */
+    private static class TestClock implements SendRateLimiter.Clock
+    {
+        long now = 1000L;
+
+        final List<Long> sleeps = new ArrayList<>();
+
+        @Override
+        public long nanoTime()
+        {
+            return this.now;
+        }
+
+        @Override
+        public void sleep(long nanos)
+        {
+            this.sleeps.add(TimeUnit.NANOSECONDS.toMillis(nanos));
+            this.now += nanos;
+        }
+
+        void advance(long millis)
+        {
+            this.now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    private final TestClock clock = new TestClock();
+
+    private final SendRateLimiter limiter = new SendRateLimiter(this.clock);
+
+    @Test
+    public void acquireWithoutLimit() throws Exception
+    {
+        for (int i = 0; i < 100; ++i) {
+            this.limiter.acquire(0, 1);
+        }
+
+        assertEquals(Arrays.asList(), this.clock.sleeps);
+    }
+
+    @Test
+    public void acquireWaitsBetweenMails() throws Exception
+    {
+        // The first mail is sent right away, the 2 next ones after 100ms each
+        for (int i = 0; i < 3; ++i) {
+            this.limiter.acquire(100, 1);
+        }
+
+        assertEquals(Arrays.asList(100L, 100L), this.clock.sleeps);
+    }
+
+    @Test
+    public void acquireOnlyWaitsForTheRemainingTime() throws Exception
+    {
+        this.limiter.acquire(100, 1);
+        this.clock.advance(30);
+        this.limiter.acquire(100, 1);
+        this.clock.advance(150);
+        this.limiter.acquire(100, 1);
+
+        assertEquals(Arrays.asList(70L), this.clock.sleeps);
+    }
+
+    @Test
+    public void acquireAllowsBurst() throws Exception
+    {
+        for (int i = 0; i < 5; ++i) {
+            this.limiter.acquire(10000, 5);
+        }
+
+        // The bucket is empty after the burst
+        this.limiter.acquire(10000, 5);
+
+        assertEquals(Arrays.asList(10000L), this.clock.sleeps);
+    }
+
+    @Test
+    public void acquireDoesNotAccumulateMoreThanTheBurst() throws Exception
+    {
+        this.limiter.acquire(100, 2);
+
+        // A long quiet period only refills the bucket up to the burst size
+        this.clock.advance(10000);
+        for (int i = 0; i < 3; ++i) {
+            this.limiter.acquire(100, 2);
+        }
+
+        assertEquals(Arrays.asList(100L), this.clock.sleeps);
+    }
+
+    @Test
+    public void acquireReservesTokensForConcurrentSenders() throws Exception
+    {
+        // Waiting senders don't move the clock for each others, the tokens they get are still spaced
+        TestClock clock = new TestClock()
+        {
+            @Override
+            public void sleep(long nanos)
+            {
+                this.sleeps.add(TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        };
+        SendRateLimiter limiter = new SendRateLimiter(clock);
+
+        for (int i = 0; i < 4; ++i) {
+            limiter.acquire(100, 1);
+        }
+
+        assertEquals(Arrays.asList(100L, 200L, 300L), clock.sleeps);
+    }
+}
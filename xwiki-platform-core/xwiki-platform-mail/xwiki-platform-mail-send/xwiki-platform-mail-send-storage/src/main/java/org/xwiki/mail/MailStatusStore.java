@@ -19,10 +19,12 @@
  */
 package org.xwiki.mail;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Save, load and search mail results.
@@ -43,6 +45,23 @@
      */
     void save(MailStatus status, Map<String, Object> parameters) throws MailStoreException;
 
+    /**
+     * Saves several mail statuses in the store at once.
+     *
+     * @param statuses the mail statuses to be saved
+     * @param parameters some parameters specifying addition context data (for example the current wiki is stored under
+     *        the {@code wiki} key)
+     * @throws MailStoreException when an error occurs saving the data
+     * @since 8.2M1
+     */
+    @Unstable
+    default void save(Collection<MailStatus> statuses, Map<String, Object> parameters) throws MailStoreException
+    {
+        for (MailStatus status : statuses) {
+            save(status, parameters);
+        }
+    }
+
     /**
      * Load message status for the message matching the given message Id.
      *
@@ -20,6 +20,7 @@
 package org.xwiki.mail;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration for the storage part of the Mail Sender.
@@ -35,4 +36,16 @@
      *         they should be kept (for tracability purpose for example)
      */
     boolean discardSuccessStatuses();
+
+    /**
+     * @return the maximum number of prepared mail statuses to save together in the database, 1 or less to save each
+     *         status as soon as the mail is prepared. Statuses kept in memory are lost if the server stops before they
+     *         are saved, so the mails prepared in the meantime are not resent after a restart
+     * @since 8.2M1
+     */
+    @Unstable
+    default int getStatusBatchSize()
+    {
+        return 1;
+    }
 }
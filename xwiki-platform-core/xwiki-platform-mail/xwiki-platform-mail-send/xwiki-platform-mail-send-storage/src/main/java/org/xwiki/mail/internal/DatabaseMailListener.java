@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -53,6 +55,11 @@
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class DatabaseMailListener extends AbstractMailListener implements Initializable
 {
+    /**
+     * Maximum time during which prepared statuses are kept in memory before being saved, in milliseconds.
+     */
+    private static final long STATUS_FLUSH_INTERVAL = 5000L;
+
     @Inject
     private Execution execution;
 
@@ -69,6 +76,16 @@ public class DatabaseMailListener extends AbstractMailListener implements Initia
 
     private DatabaseMailStatusResult mailStatusResult;
 
+    /**
+     * The prepared statuses which have not been saved yet, indexed by message id. They are saved together when there's
+     * enough of them (see {@link MailStorageConfiguration#getStatusBatchSize()}), and never saved at all when the mail
+     * is sent successfully before that and success statuses are discarded. Accesses are synchronized on the map since
+     * the mails are prepared and sent by different threads.
+     */
+    private final Map<String, MailStatus> pendingStatuses = new LinkedHashMap<>();
+
+    private long lastFlushTime = System.currentTimeMillis();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -90,7 +107,13 @@ public void onPrepareMessageSuccess(ExtendedMimeMessage message, Map<String, Obj
         MailStatus status = new MailStatus(getBatchId(), message, MailState.PREPARE_SUCCESS);
         status.setWiki(
             ((XWikiContext) execution.getContext().getProperty(XWikiContext.EXECUTIONCONTEXT_KEY)).getWikiId());
-        saveStatus(status, parameters);
+
+        int batchSize = this.configuration.getStatusBatchSize();
+        if (batchSize > 1) {
+            addPendingStatus(status, batchSize, parameters);
+        } else {
+            saveStatus(status, parameters);
+        }
     }
 
     @Override
@@ -117,13 +140,27 @@ public void onPrepareFatalError(Exception exception, Map<String, Object> paramet
         logger.error("Failure during preparation phase of thread [" + getBatchId() + "]", exception);
     }
 
+    @Override
+    public void onPrepareEnd(Map<String, Object> parameters)
+    {
+        super.onPrepareEnd(parameters);
+
+        synchronized (this.pendingStatuses) {
+            flushPendingStatuses(parameters);
+        }
+    }
+
     @Override
     public void onSendMessageSuccess(ExtendedMimeMessage message, Map<String, Object> parameters)
     {
         super.onSendMessageSuccess(message, parameters);
 
         String uniqueMessageId = message.getUniqueMessageId();
-        MailStatus status = retrieveExistingMailStatus(uniqueMessageId, MailState.SEND_SUCCESS);
+        MailStatus status = removePendingStatus(uniqueMessageId);
+        boolean saved = status == null;
+        if (status == null) {
+            status = retrieveExistingMailStatus(uniqueMessageId, MailState.SEND_SUCCESS);
+        }
 
         if (status != null) {
             status.setState(MailState.SEND_SUCCESS);
@@ -138,7 +175,9 @@ public void onSendMessageSuccess(ExtendedMimeMessage message, Map<String, Object
 
         // If the user doesn't want to keep success status, we remove the mail status, otherwise we just update it
         if (configuration.discardSuccessStatuses()) {
-            deleteStatus(status, parameters);
+            if (saved) {
+                deleteStatus(status, parameters);
+            }
         } else {
             saveStatus(status, parameters);
         }
@@ -151,7 +190,7 @@ public void onSendMessageFatalError(String uniqueMessageId, Exception exception,
     {
         super.onSendMessageFatalError(uniqueMessageId, exception, parameters);
 
-        MailStatus status = retrieveExistingMailStatus(uniqueMessageId, MailState.SEND_FATAL_ERROR);
+        MailStatus status = retrievePendingOrExistingMailStatus(uniqueMessageId, MailState.SEND_FATAL_ERROR);
 
         if (status != null) {
             status.setState(MailState.SEND_FATAL_ERROR);
@@ -171,7 +210,7 @@ public void onSendMessageError(ExtendedMimeMessage message, Exception exception,
         super.onSendMessageError(message, exception, parameters);
 
         String uniqueMessageId = message.getUniqueMessageId();
-        MailStatus status = retrieveExistingMailStatus(uniqueMessageId, MailState.SEND_ERROR);
+        MailStatus status = retrievePendingOrExistingMailStatus(uniqueMessageId, MailState.SEND_ERROR);
 
         if (status != null) {
             status.setState(MailState.SEND_ERROR);
@@ -186,6 +225,55 @@ public void onSendMessageError(ExtendedMimeMessage message, Exception exception,
         this.mailStatusResult.incrementCurrentSize();
     }
 
+    private MailStatus retrievePendingOrExistingMailStatus(String uniqueMessageId, MailState state)
+    {
+        MailStatus status = removePendingStatus(uniqueMessageId);
+        if (status == null) {
+            status = retrieveExistingMailStatus(uniqueMessageId, state);
+        }
+        return status;
+    }
+
+    private MailStatus removePendingStatus(String uniqueMessageId)
+    {
+        // Note: when the status is being saved by another thread, this waits till it's saved so that it can be found
+        // in the database.
+        synchronized (this.pendingStatuses) {
+            return this.pendingStatuses.remove(uniqueMessageId);
+        }
+    }
+
+    private void addPendingStatus(MailStatus status, int batchSize, Map<String, Object> parameters)
+    {
+        synchronized (this.pendingStatuses) {
+            this.pendingStatuses.put(status.getMessageId(), status);
+
+            if (this.pendingStatuses.size() >= batchSize
+                || System.currentTimeMillis() - this.lastFlushTime >= STATUS_FLUSH_INTERVAL) {
+                flushPendingStatuses(parameters);
+            }
+        }
+    }
+
+    /**
+     * Save the pending statuses. Must be called while holding the lock on {@link #pendingStatuses} so that the send
+     * threads don't miss a status which is neither pending nor saved yet.
+     */
+    private void flushPendingStatuses(Map<String, Object> parameters)
+    {
+        if (!this.pendingStatuses.isEmpty()) {
+            try {
+                this.mailStatusStore.save(new ArrayList<>(this.pendingStatuses.values()), parameters);
+            } catch (MailStoreException e) {
+                // Failed to save the statuses in the DB, we continue but log an error
+                logger.error("Failed to save mail statuses {} to the database", this.pendingStatuses.keySet(), e);
+            }
+            this.pendingStatuses.clear();
+        }
+
+        this.lastFlushTime = System.currentTimeMillis();
+    }
+
     private MailStatus retrieveExistingMailStatus(String uniqueMessageId, MailState state)
     {
         MailStatus status;
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +57,11 @@ public class DatabaseMailStatusStore implements MailStatusStore
 {
     private static final String ID_PARAMETER_NAME = "id";
 
+    /**
+     * The maximum number of values in an IN clause, some databases (e.g. Oracle) don't support more.
+     */
+    private static final int MAX_IN_VALUES = 1000;
+
     @Inject
     private Provider<XWikiContext> contextProvider;
 
@@ -92,6 +99,53 @@ public Object doInHibernate(Session session) throws HibernateException, XWikiExc
         }
     }
 
+    @Override
+    public void save(final Collection<MailStatus> statuses, Map<String, Object> parameters) throws MailStoreException
+    {
+        if (statuses.isEmpty()) {
+            return;
+        }
+
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+
+        XWikiContext xwikiContext = this.contextProvider.get();
+        // Save in the main wiki
+        String currentWiki = xwikiContext.getWikiId();
+        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+
+        final List<String> messageIds = new ArrayList<>(statuses.size());
+        for (MailStatus status : statuses) {
+            messageIds.add(status.getMessageId());
+        }
+
+        try {
+            // Delete any previous state of the messages and save the new ones in a single transaction
+            store.executeWrite(xwikiContext, new XWikiHibernateBaseStore.HibernateCallback<Object>()
+            {
+                @Override
+                public Object doInHibernate(Session session) throws HibernateException, XWikiException
+                {
+                    String queryString =
+                        String.format("delete from %s where mail_id in (:ids)", MailStatus.class.getName());
+                    for (int i = 0; i < messageIds.size(); i += MAX_IN_VALUES) {
+                        List<String> ids = messageIds.subList(i, Math.min(i + MAX_IN_VALUES, messageIds.size()));
+                        session.createQuery(queryString).setParameterList("ids", ids).executeUpdate();
+                    }
+
+                    for (MailStatus status : statuses) {
+                        session.save(status);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            throw new MailStoreException(String.format("Failed to save mail statuses for messages %s to the database.",
+                messageIds), e);
+        } finally {
+            xwikiContext.setWikiId(currentWiki);
+        }
+    }
+
     @Override
     public MailStatus load(String uniqueMessageId) throws MailStoreException
     {
@@ -44,6 +44,10 @@ public class DefaultMailStorageConfiguration implements MailStorageConfiguration
 
     private static final String DISCARD_SUCCESS_STATUSES = "discardSuccessStatuses";
 
+    private static final String STATUS_BATCH_SIZE = "statusBatchSize";
+
+    private static final int DEFAULT_STATUS_BATCH_SIZE = 1;
+
     @Inject
     @Named("mailsend")
     private ConfigurationSource mailConfigSource;
@@ -64,4 +68,10 @@ public boolean discardSuccessStatuses()
 
         return (discardSuccessStatuses == 1);
     }
+
+    @Override
+    public int getStatusBatchSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + STATUS_BATCH_SIZE, DEFAULT_STATUS_BATCH_SIZE);
+    }
 }
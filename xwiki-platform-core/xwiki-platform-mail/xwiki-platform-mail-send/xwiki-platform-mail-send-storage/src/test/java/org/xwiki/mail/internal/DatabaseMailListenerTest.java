@@ -38,6 +38,7 @@
 import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
 import org.xwiki.mail.MailStatusStore;
+import org.xwiki.mail.MailStorageConfiguration;
 import org.xwiki.mail.MailStoreException;
 import org.xwiki.test.AllLogRule;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
@@ -47,9 +48,11 @@
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyCollectionOf;
 import static org.mockito.Mockito.anyMap;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -105,6 +108,37 @@ public void onPrepareSuccess() throws Exception
         verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")), anyMap());
     }
 
+    @Test
+    public void onPrepareSuccessWithStatusBatch() throws Exception
+    {
+        MailStorageConfiguration configuration = this.mocker.getInstance(MailStorageConfiguration.class);
+        when(configuration.getStatusBatchSize()).thenReturn(2);
+        when(configuration.discardSuccessStatuses()).thenReturn(true);
+        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+
+        ExtendedMimeMessage message2 = new ExtendedMimeMessage();
+        message2.setType("type");
+        message2.saveChanges();
+        message2.setHeader("Message-ID", "<2@xwiki.org>");
+
+        MailListener listener = this.mocker.getComponentUnderTest();
+        listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
+        listener.onPrepareMessageSuccess(this.message, Collections.<String, Object>emptyMap());
+
+        // The status is kept in memory and since the mail is sent successfully it's never saved
+        listener.onSendMessageSuccess(this.message, Collections.<String, Object>emptyMap());
+
+        verify(mailStatusStore, never()).load(this.messageId);
+        verify(mailStatusStore, never()).save(any(MailStatus.class), anyMap());
+        verify(mailStatusStore, never()).delete(anyString(), anyMap());
+
+        // The status of the second message is saved at the end of the preparation
+        listener.onPrepareMessageSuccess(message2, Collections.<String, Object>emptyMap());
+        verify(mailStatusStore, never()).save(anyCollectionOf(MailStatus.class), anyMap());
+        listener.onPrepareEnd(Collections.<String, Object>emptyMap());
+        verify(mailStatusStore).save(anyCollectionOf(MailStatus.class), anyMap());
+    }
+
     @Test
     public void onPrepareError() throws Exception
     {
@@ -19,7 +19,10 @@
  */
 package org.xwiki.observation.remote;
 
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Handle all the actual communication with the network.
@@ -39,6 +42,20 @@
      */
     void send(RemoteEventData remoteEvent);
 
+    /**
+     * Send several serializable events to the network, in a single network message if the implementation supports it.
+     *
+     * @param remoteEvents the serializable events to send
+     * @since 8.2M1
+     */
+    @Unstable
+    default void send(List<RemoteEventData> remoteEvents)
+    {
+        for (RemoteEventData remoteEvent : remoteEvents) {
+            send(remoteEvent);
+        }
+    }
+
     /**
      * Stop a running channel.
      *
@@ -19,7 +19,10 @@
  */
 package org.xwiki.observation.remote;
 
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Provide apis to manage the event network interface.
@@ -50,6 +53,20 @@
      */
     void notify(RemoteEventData event);
 
+    /**
+     * Inject several remote events received together in the local {@link org.xwiki.observation.ObservationManager}.
+     *
+     * @param events the events, in the order they were sent
+     * @since 8.2M1
+     */
+    @Unstable
+    default void notify(List<RemoteEventData> events)
+    {
+        for (RemoteEventData event : events) {
+            notify(event);
+        }
+    }
+
     /**
      * Stop a running channel.
      *
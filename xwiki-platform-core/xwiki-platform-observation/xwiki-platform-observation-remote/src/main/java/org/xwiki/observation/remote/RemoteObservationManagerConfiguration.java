@@ -22,6 +22,7 @@
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Provide configuration for remote observation manager.
@@ -46,4 +47,27 @@
      * @return the identifier of the network adapter implementation to use to actually send and receive network messages
      */
     String getNetworkAdapter();
+
+    /**
+     * @return the maximum time in milliseconds during which the events are accumulated (and merged when possible)
+     *         before being sent together in a single network message, 0 to send each event in its own message
+     * @since 8.2M1
+     */
+    @Unstable
+    default long getFlushInterval()
+    {
+        return 0;
+    }
+
+    /**
+     * @return true if the events should be sent in the compact binary format, which allows sending several events in
+     *         a single network message, false to send each event in its own Java serialized message as older versions
+     *         do (all the cluster members need to understand the compact format before enabling it)
+     * @since 8.2M1
+     */
+    @Unstable
+    default boolean isCompactEncoding()
+    {
+        return false;
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Compact binary encoding of some remote events, used instead of the Java serialization when sending the events to the
+ * other cluster members.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataCodec
+{
+    /**
+     * @return the identifier of the codec, written before each event it encodes; between 1 and 255 and unique among
+     *         the codecs
+     */
+    int getId();
+
+    /**
+     * @param remoteEvent the remote event to send
+     * @return true if this codec is able to encode the passed event
+     */
+    boolean canEncode(RemoteEventData remoteEvent);
+
+    /**
+     * @param remoteEvent the remote event to encode
+     * @param output the output where to write the encoded event
+     * @throws IOException when failing to write the event
+     */
+    void encode(RemoteEventData remoteEvent, DataOutput output) throws IOException;
+
+    /**
+     * @param input the input from which to read the encoded event
+     * @return the decoded remote event
+     * @throws IOException when failing to read the event (for example when it was encoded with an unknown version of
+     *             the codec)
+     */
+    RemoteEventData decode(DataInput input) throws IOException;
+}
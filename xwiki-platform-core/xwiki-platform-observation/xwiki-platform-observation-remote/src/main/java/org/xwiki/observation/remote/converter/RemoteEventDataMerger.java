@@ -0,0 +1,53 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Merge remote events waiting to be sent, so that the other cluster members don't process several times the same
+ * change (for example when the same document is saved several times during an import).
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataMerger
+{
+    /**
+     * @param remoteEvent the remote event to send
+     * @return the key of the entity affected by the event (including the type of entity, to not collide with the keys
+     *         of other mergers), or null if this merger does not support the event
+     */
+    Object getKey(RemoteEventData remoteEvent);
+
+    /**
+     * Merge two successive events affecting the same entity (i.e. with the same key). The merged event is sent in
+     * place of the next event, i.e. after the events which happened between the two merged events.
+     *
+     * @param previous the event waiting to be sent
+     * @param next the new event
+     * @return the event to send instead of both events, or null if they can't be merged
+     */
+    RemoteEventData merge(RemoteEventData previous, RemoteEventData next);
+}
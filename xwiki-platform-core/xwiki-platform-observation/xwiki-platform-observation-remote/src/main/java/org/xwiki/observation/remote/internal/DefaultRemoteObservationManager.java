@@ -19,13 +19,24 @@
  */
 package org.xwiki.observation.remote.internal;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.context.Execution;
@@ -41,6 +52,7 @@
 import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 import org.xwiki.observation.remote.converter.EventConverterManager;
+import org.xwiki.observation.remote.converter.RemoteEventDataMerger;
 
 /**
  * JGoups based {@link RemoteObservationManager}. It's also the default implementation for now.
@@ -50,8 +62,13 @@
  */
 @Component
 @Singleton
-public class DefaultRemoteObservationManager implements RemoteObservationManager, Initializable
+public class DefaultRemoteObservationManager implements RemoteObservationManager, Initializable, Disposable
 {
+    /**
+     * The maximum number of events sent in a single message.
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
     /**
      * Access {@link RemoteObservationManager} configuration.
      */
@@ -100,11 +117,37 @@ public class DefaultRemoteObservationManager implements RemoteObservationManager
     @Inject
     private Logger logger;
 
+    /**
+     * Used to merge the events waiting to be sent.
+     */
+    @Inject
+    private List<RemoteEventDataMerger> mergers;
+
     /**
      * The network adapter to use to actually send and receive network messages.
      */
     private NetworkAdapter networkAdapter;
 
+    /**
+     * The events waiting to be sent. The events merged with a following event are replaced by null.
+     */
+    private final List<RemoteEventData> pendingEvents = new ArrayList<>();
+
+    /**
+     * The index in {@link #pendingEvents} of the last event affecting each entity.
+     */
+    private final Map<Object, Integer> pendingEntities = new HashMap<>();
+
+    /**
+     * Held while taking and sending the pending events, so that the batches are sent in the order they were taken.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * Used to send the pending events at the end of the flush interval.
+     */
+    private ScheduledExecutorService flushExecutor;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -139,10 +182,13 @@ public void notify(LocalEventData localEvent)
 
         // if remote event data is not filled it means the message should not be sent to the network
         if (remoteEvent != null) {
-            this.networkAdapter.send(remoteEvent);
+            send(remoteEvent);
         }
 
         if (localEvent.getEvent() instanceof ApplicationStoppedEvent) {
+            // Don't lose the pending events
+            flush();
+
             try {
                 this.networkAdapter.stopAllChannels();
             } catch (RemoteEventException e) {
@@ -151,12 +197,142 @@ public void notify(LocalEventData localEvent)
         }
     }
 
+    private void send(RemoteEventData remoteEvent)
+    {
+        long flushInterval = this.configuration.getFlushInterval();
+        if (flushInterval <= 0) {
+            this.networkAdapter.send(remoteEvent);
+
+            return;
+        }
+
+        boolean full;
+        synchronized (this.pendingEvents) {
+            addPendingEvent(remoteEvent);
+
+            // The first event of a batch schedules the sending of the batch
+            if (this.pendingEvents.size() == 1) {
+                getFlushExecutor().schedule(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        flush();
+                    }
+                }, flushInterval, TimeUnit.MILLISECONDS);
+            }
+
+            full = this.pendingEvents.size() >= MAX_BATCH_SIZE;
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    private void addPendingEvent(RemoteEventData newEvent)
+    {
+        RemoteEventData remoteEvent = newEvent;
+        for (RemoteEventDataMerger merger : this.mergers) {
+            Object key = merger.getKey(remoteEvent);
+            if (key != null) {
+                Integer index = this.pendingEntities.get(key);
+                if (index != null) {
+                    RemoteEventData mergedEvent = merger.merge(this.pendingEvents.get(index), remoteEvent);
+                    if (mergedEvent != null) {
+                        // The merged event takes the place of the new event so that it's not sent before the events
+                        // which happened between the merged events
+                        this.pendingEvents.set(index, null);
+                        remoteEvent = mergedEvent;
+                    }
+                }
+
+                this.pendingEntities.put(key, this.pendingEvents.size());
+
+                break;
+            }
+        }
+
+        this.pendingEvents.add(remoteEvent);
+    }
+
+    private synchronized ScheduledExecutorService getFlushExecutor()
+    {
+        if (this.flushExecutor == null) {
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "XWiki remote events sender");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this.flushExecutor;
+    }
+
+    /**
+     * Send the pending events.
+     */
+    private void flush()
+    {
+        synchronized (this.sendLock) {
+            List<RemoteEventData> remoteEvents = new ArrayList<>();
+            synchronized (this.pendingEvents) {
+                for (RemoteEventData remoteEvent : this.pendingEvents) {
+                    if (remoteEvent != null) {
+                        remoteEvents.add(remoteEvent);
+                    }
+                }
+                this.pendingEvents.clear();
+                this.pendingEntities.clear();
+            }
+
+            if (!remoteEvents.isEmpty()) {
+                this.networkAdapter.send(remoteEvents);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        // Don't lose the pending events
+        flush();
+
+        synchronized (this) {
+            if (this.flushExecutor != null) {
+                this.flushExecutor.shutdownNow();
+                this.flushExecutor = null;
+            }
+        }
+    }
+
     @Override
     public void notify(RemoteEventData remoteEvent)
     {
         // Make sure the Execution context is properly initialized
         initializeContext();
 
+        notifyLocal(remoteEvent);
+    }
+
+    @Override
+    public void notify(List<RemoteEventData> remoteEvents)
+    {
+        // Make sure the Execution context is properly initialized
+        initializeContext();
+
+        for (RemoteEventData remoteEvent : remoteEvents) {
+            notifyLocal(remoteEvent);
+        }
+    }
+
+    private void notifyLocal(RemoteEventData remoteEvent)
+    {
         LocalEventData localEvent = this.eventConverterManager.createLocalEventData(remoteEvent);
 
         // send event
@@ -182,6 +358,9 @@ public void startChannel(String channelId) throws RemoteEventException
     @Override
     public void stopChannel(String channelId) throws RemoteEventException
     {
+        // Don't lose the pending events
+        flush();
+
         this.networkAdapter.stopChannel(channelId);
     }
 
@@ -69,4 +69,16 @@ public String getNetworkAdapter()
     {
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
+
+    @Override
+    public long getFlushInterval()
+    {
+        return this.configurationSource.getProperty("observation.remote.flushInterval", 10L);
+    }
+
+    @Override
+    public boolean isCompactEncoding()
+    {
+        return this.configurationSource.getProperty("observation.remote.compactEncoding", false);
+    }
 }
@@ -19,6 +19,9 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.IOException;
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -60,6 +63,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private Logger logger;
 
+    /**
+     * Used to decode the events.
+     */
+    @Inject
+    private RemoteEventDataMessageCodec messageCodec;
+
     /**
      * @return the RemoteObservationManager
      */
@@ -79,10 +88,26 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        if (this.messageCodec.isEncoded(msg.getRawBuffer(), msg.getOffset(), msg.getLength())) {
+            List<RemoteEventData> remoteEvents;
+            try {
+                remoteEvents = this.messageCodec.decode(msg.getRawBuffer(), msg.getOffset(), msg.getLength());
+            } catch (IOException e) {
+                this.logger.error("Failed to decode JGroups message from [{}]", msg.getSrc(), e);
 
-        this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+                return;
+            }
+
+            this.logger.debug("Received JGroups remote events [{}]", remoteEvents);
+
+            getRemoteObservationManager().notify(remoteEvents);
+        } else {
+            // Message sent by an older version
+            RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
 
-        getRemoteObservationManager().notify(remoteEvent);
+            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+            getRemoteObservationManager().notify(remoteEvent);
+        }
     }
 }
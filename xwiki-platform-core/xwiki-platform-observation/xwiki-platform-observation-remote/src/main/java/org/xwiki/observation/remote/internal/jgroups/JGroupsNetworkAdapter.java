@@ -23,6 +23,8 @@
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +47,7 @@
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
@@ -80,20 +83,64 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * Used to encode the events.
+     */
+    @Inject
+    private RemoteEventDataMessageCodec messageCodec;
+
+    /**
+     * Used to know if the events should be sent in the compact format.
+     */
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
+        if (this.configuration.isCompactEncoding()) {
+            send(Collections.singletonList(remoteEvent));
+        } else {
+            // Send the message to the whole group
+            send(new Message(null, null, remoteEvent), remoteEvent);
+        }
+    }
+
+    @Override
+    public void send(List<RemoteEventData> remoteEvents)
+    {
+        if (!this.configuration.isCompactEncoding()) {
+            // Older versions expect a single event per message
+            for (RemoteEventData remoteEvent : remoteEvents) {
+                send(remoteEvent);
+            }
+
+            return;
+        }
+
         // Send the message to the whole group
-        Message message = new Message(null, null, remoteEvent);
+        Message message;
+        try {
+            message = new Message(null, this.messageCodec.encode(remoteEvents));
+        } catch (IOException e) {
+            this.logger.error("Failed to encode remote events [" + remoteEvents + "]", e);
 
+            return;
+        }
+
+        send(message, remoteEvents);
+    }
+
+    private void send(Message message, Object content)
+    {
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
             } catch (Exception e) {
-                this.logger.error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey()
+                this.logger.error("Failed to send message [" + content + "] to the channel [" + entry.getKey()
                     + "]", e);
             }
         }
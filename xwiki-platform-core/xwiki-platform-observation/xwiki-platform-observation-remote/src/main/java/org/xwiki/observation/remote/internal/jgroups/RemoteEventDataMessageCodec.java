@@ -0,0 +1,247 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+
+/**
+ * Encode a batch of remote events into the content of a single network message. The events are encoded with the
+ * {@link RemoteEventDataCodec} supporting them, or with the Java serialization when no codec supports them.
+ * <p>
+ * Format (version 1): magic bytes, format version, number of events and then, for each event, the identifier of the
+ * codec (0 for Java serialization) followed by the encoded event.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = RemoteEventDataMessageCodec.class)
+@Singleton
+public class RemoteEventDataMessageCodec implements Initializable
+{
+    /**
+     * The bytes at the beginning of each encoded message, used to differentiate them from messages sent by older
+     * versions (which contain a Java serialized {@link RemoteEventData}).
+     */
+    private static final byte[] MAGIC = {'X', 'E'};
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int JAVA_SERIALIZATION = 0;
+
+    private static final int MAX_CODEC_ID = 255;
+
+    @Inject
+    private List<RemoteEventDataCodec> codecList;
+
+    private final Map<Integer, RemoteEventDataCodec> codecs = new HashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        for (RemoteEventDataCodec codec : this.codecList) {
+            int id = codec.getId();
+            if (id <= JAVA_SERIALIZATION || id > MAX_CODEC_ID) {
+                throw new InitializationException(
+                    String.format("Invalid identifier [%s] for remote event codec [%s]", id, codec.getClass()));
+            }
+            if (this.codecs.put(id, codec) != null) {
+                throw new InitializationException(String.format("Duplicated remote event codec identifier [%s]", id));
+            }
+        }
+    }
+
+    /**
+     * @param buffer the content of the message
+     * @param offset the offset of the content in the buffer
+     * @param length the length of the content
+     * @return true if the message was produced by {@link #encode(List)}
+     */
+    public boolean isEncoded(byte[] buffer, int offset, int length)
+    {
+        return buffer != null && length > MAGIC.length && buffer[offset] == MAGIC[0] && buffer[offset + 1] == MAGIC[1];
+    }
+
+    /**
+     * @param remoteEvents the events to send
+     * @return the content of the message
+     * @throws IOException when failing to encode an event
+     */
+    public byte[] encode(List<RemoteEventData> remoteEvents) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        output.write(MAGIC);
+        output.writeByte(FORMAT_VERSION);
+        output.writeInt(remoteEvents.size());
+
+        for (RemoteEventData remoteEvent : remoteEvents) {
+            RemoteEventDataCodec codec = getCodec(remoteEvent);
+            if (codec != null) {
+                output.writeByte(codec.getId());
+                codec.encode(remoteEvent, output);
+            } else {
+                output.writeByte(JAVA_SERIALIZATION);
+                byte[] serialized = serialize(remoteEvent);
+                output.writeInt(serialized.length);
+                output.write(serialized);
+            }
+        }
+
+        output.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param buffer the content of the message
+     * @param offset the offset of the content in the buffer
+     * @param length the length of the content
+     * @return the events contained in the message
+     * @throws IOException when failing to decode an event
+     */
+    public List<RemoteEventData> decode(byte[] buffer, int offset, int length) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+
+        input.skipBytes(MAGIC.length);
+        int version = input.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported remote events message format version [%s]", version));
+        }
+
+        // Each event takes at least one byte (the codec identifier)
+        int size = readSize(input, "events");
+        List<RemoteEventData> remoteEvents = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            int id = input.readUnsignedByte();
+            if (id == JAVA_SERIALIZATION) {
+                byte[] serialized = new byte[readSize(input, "serialized event")];
+                input.readFully(serialized);
+                remoteEvents.add(unserialize(serialized));
+            } else {
+                RemoteEventDataCodec codec = this.codecs.get(id);
+                if (codec == null) {
+                    throw new IOException(String.format("Unknown remote event codec [%s]", id));
+                }
+                remoteEvents.add(codec.decode(input));
+            }
+        }
+
+        return remoteEvents;
+    }
+
+    /**
+     * Read a size from the message and make sure it doesn't exceed the remaining content, so that a corrupted (or
+     * malicious) message can't make us allocate a huge amount of memory.
+     *
+     * @param input the content of the message
+     * @param name the name of what is sized, used in the error message
+     * @return the size
+     * @throws IOException when the size is invalid
+     */
+    private int readSize(DataInputStream input, String name) throws IOException
+    {
+        int size = input.readInt();
+        if (size < 0 || size > input.available()) {
+            throw new IOException(String.format("Invalid %s size [%s] for a remaining message length of [%s]", name,
+                size, input.available()));
+        }
+
+        return size;
+    }
+
+    private RemoteEventDataCodec getCodec(RemoteEventData remoteEvent)
+    {
+        for (RemoteEventDataCodec codec : this.codecs.values()) {
+            if (codec.canEncode(remoteEvent)) {
+                return codec;
+            }
+        }
+
+        return null;
+    }
+
+    private byte[] serialize(RemoteEventData remoteEvent) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(remoteEvent);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private RemoteEventData unserialize(byte[] serialized) throws IOException
+    {
+        try (ObjectInputStream input = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (RemoteEventData) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to unserialize remote event", e);
+        }
+    }
+
+    /**
+     * Resolve the classes with the context class loader, which can see the events coming from installed extensions.
+     */
+    private static class ContextClassLoaderObjectInputStream extends ObjectInputStream
+    {
+        ContextClassLoaderObjectInputStream(InputStream input) throws IOException
+        {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // Fallback on the default resolution
+                }
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.NetworkAdapter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.observation.remote.converter.EventConverterManager;
+import org.xwiki.observation.remote.converter.RemoteEventDataMerger;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the batching of the events sent by {@link DefaultRemoteObservationManager}.
+ *
+ * @version $Id$
+ */
+public class DefaultRemoteObservationManagerTest
+{
+    private DefaultRemoteObservationManager manager = new DefaultRemoteObservationManager();
+
+    private RemoteObservationManagerConfiguration configuration = mock(RemoteObservationManagerConfiguration.class);
+
+    private EventConverterManager eventConverterManager = mock(EventConverterManager.class);
+
+    private NetworkAdapter networkAdapter = mock(NetworkAdapter.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // Merge the events whose source starts with "merge:", keyed by the rest of the source
+        RemoteEventDataMerger merger = mock(RemoteEventDataMerger.class);
+        when(merger.getKey(any(RemoteEventData.class))).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                String source = (String) invocation.getArgumentAt(0, RemoteEventData.class).getSource();
+                return source.startsWith("merge:") ? source : null;
+            }
+        });
+        when(merger.merge(any(RemoteEventData.class), any(RemoteEventData.class))).thenAnswer(
+            new Answer<RemoteEventData>()
+            {
+                @Override
+                public RemoteEventData answer(InvocationOnMock invocation) throws Throwable
+                {
+                    RemoteEventData previous = invocation.getArgumentAt(0, RemoteEventData.class);
+                    RemoteEventData next = invocation.getArgumentAt(1, RemoteEventData.class);
+                    return createRemoteEvent((String) next.getSource(), previous.getData() + "+" + next.getData());
+                }
+            });
+
+        ReflectionUtils.setFieldValue(this.manager, "configuration", this.configuration);
+        ReflectionUtils.setFieldValue(this.manager, "eventConverterManager", this.eventConverterManager);
+        ReflectionUtils.setFieldValue(this.manager, "remoteEventManagerContext",
+            mock(RemoteObservationManagerContext.class));
+        ReflectionUtils.setFieldValue(this.manager, "networkAdapter", this.networkAdapter);
+        ReflectionUtils.setFieldValue(this.manager, "mergers", Arrays.asList(merger));
+    }
+
+    private RemoteEventData createRemoteEvent(String source, String data)
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new TestEvent());
+        remoteEvent.setSource(source);
+        remoteEvent.setData(data);
+
+        return remoteEvent;
+    }
+
+    private RemoteEventData notify(String source, String data)
+    {
+        LocalEventData localEvent = new LocalEventData(new TestEvent(), source, data);
+        RemoteEventData remoteEvent = createRemoteEvent(source, data);
+        when(this.eventConverterManager.createRemoteEventData(localEvent)).thenReturn(remoteEvent);
+
+        this.manager.notify(localEvent);
+
+        return remoteEvent;
+    }
+
+    @Test
+    public void notifyWithoutFlushInterval()
+    {
+        RemoteEventData first = notify("first", "1");
+        RemoteEventData second = notify("second", "2");
+
+        verify(this.networkAdapter).send(first);
+        verify(this.networkAdapter).send(second);
+        verify(this.networkAdapter, never()).send(anyListOf(RemoteEventData.class));
+    }
+
+    @Test
+    public void notifySendsTheEventsTogetherAtTheEndOfTheFlushInterval()
+    {
+        when(this.configuration.getFlushInterval()).thenReturn(500L);
+
+        RemoteEventData first = notify("first", "1");
+        RemoteEventData second = notify("second", "2");
+
+        verify(this.networkAdapter, timeout(5000)).send(Arrays.asList(first, second));
+
+        RemoteEventData third = notify("third", "3");
+
+        verify(this.networkAdapter, timeout(5000)).send(Collections.singletonList(third));
+        verify(this.networkAdapter, never()).send(any(RemoteEventData.class));
+    }
+
+    @Test
+    public void notifyMergesTheEventsAtTheLastPosition() throws Exception
+    {
+        when(this.configuration.getFlushInterval()).thenReturn(60000L);
+
+        notify("merge:document", "1");
+        RemoteEventData other = notify("other", "2");
+        notify("merge:document", "3");
+        RemoteEventData last = notify("last", "4");
+
+        this.manager.dispose();
+
+        ArgumentCaptor<List> remoteEvents = ArgumentCaptor.forClass(List.class);
+        verify(this.networkAdapter).send(remoteEvents.capture());
+        assertEquals(3, remoteEvents.getValue().size());
+        assertSame(other, remoteEvents.getValue().get(0));
+        RemoteEventData mergedEvent = (RemoteEventData) remoteEvents.getValue().get(1);
+        assertEquals("merge:document", mergedEvent.getSource());
+        assertEquals("1+3", mergedEvent.getData());
+        assertSame(last, remoteEvents.getValue().get(2));
+    }
+
+    @Test
+    public void stopChannelSendsThePendingEvents() throws Exception
+    {
+        when(this.configuration.getFlushInterval()).thenReturn(60000L);
+
+        RemoteEventData first = notify("first", "1");
+
+        this.manager.stopChannel("channel");
+
+        verify(this.networkAdapter).send(Collections.singletonList(first));
+        verify(this.networkAdapter).stopChannel("channel");
+    }
+}
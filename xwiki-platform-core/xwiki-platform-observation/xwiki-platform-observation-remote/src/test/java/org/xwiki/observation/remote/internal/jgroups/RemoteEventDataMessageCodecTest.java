@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link RemoteEventDataMessageCodec}.
+ *
+ * @version $Id$
+ */
+public class RemoteEventDataMessageCodecTest
+{
+    /**
+     * The offset of the number of events in an encoded message (after the magic bytes and the format version).
+     */
+    private static final int SIZE_OFFSET = 3;
+
+    private RemoteEventDataMessageCodec codec = new RemoteEventDataMessageCodec();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ReflectionUtils.setFieldValue(this.codec, "codecList", Collections.emptyList());
+        this.codec.initialize();
+    }
+
+    private RemoteEventData createRemoteEvent(String source)
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new TestEvent());
+        remoteEvent.setSource(source);
+        return remoteEvent;
+    }
+
+    private void assertDecodingFails(byte[] message)
+    {
+        try {
+            this.codec.decode(message, 0, message.length);
+            fail("Should have failed to decode the message");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void encodeAndDecode() throws Exception
+    {
+        byte[] message = this.codec.encode(Arrays.asList(createRemoteEvent("first"), createRemoteEvent("second")));
+
+        assertTrue(this.codec.isEncoded(message, 0, message.length));
+
+        List<RemoteEventData> remoteEvents = this.codec.decode(message, 0, message.length);
+        assertEquals(2, remoteEvents.size());
+        assertEquals(new TestEvent(), remoteEvents.get(0).getEvent());
+        assertEquals("first", remoteEvents.get(0).getSource());
+        assertEquals("second", remoteEvents.get(1).getSource());
+    }
+
+    @Test
+    public void isEncodedWithOlderMessage()
+    {
+        byte[] message = {(byte) 0xAC, (byte) 0xED, 0, 5};
+
+        assertFalse(this.codec.isEncoded(message, 0, message.length));
+    }
+
+    @Test
+    public void decodeWithTooManyEvents() throws Exception
+    {
+        byte[] message = this.codec.encode(Arrays.asList(createRemoteEvent("first")));
+        ByteBuffer.wrap(message).putInt(SIZE_OFFSET, Integer.MAX_VALUE);
+
+        assertDecodingFails(message);
+    }
+
+    @Test
+    public void decodeWithNegativeNumberOfEvents() throws Exception
+    {
+        byte[] message = this.codec.encode(Arrays.asList(createRemoteEvent("first")));
+        ByteBuffer.wrap(message).putInt(SIZE_OFFSET, -1);
+
+        assertDecodingFails(message);
+    }
+
+    @Test
+    public void decodeWithTooLongSerializedEvent() throws Exception
+    {
+        byte[] message = this.codec.encode(Arrays.asList(createRemoteEvent("first")));
+        // The serialized event length follows the number of events and the codec identifier
+        ByteBuffer.wrap(message).putInt(SIZE_OFFSET + 5, Integer.MAX_VALUE);
+
+        assertDecodingFails(message);
+    }
+}
@@ -37,12 +37,14 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
@@ -174,6 +176,7 @@
 import com.xpn.xwiki.internal.XWikiCfgConfigurationSource;
 import com.xpn.xwiki.internal.XWikiConfigDelegate;
 import com.xpn.xwiki.internal.XWikiInitializerJob;
+import com.xpn.xwiki.internal.cache.rendering.RenderingDependencies;
 import com.xpn.xwiki.internal.event.XObjectAddedEvent;
 import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectEvent;
@@ -1641,6 +1644,9 @@ public XWikiDocument getDocument(XWikiDocument doc, XWikiContext context) throws
         try {
             context.setWikiId(doc.getDocumentReference().getWikiReference().getName());
 
+            // Cached renderings have to be invalidated when the documents they use are modified
+            RenderingDependencies.add(doc.getDocumentReference(), context);
+
             return getStore().loadXWikiDoc(doc, context);
         } finally {
             context.setWikiId(currentWiki);
@@ -1690,6 +1696,80 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Load several documents at once, which is much cheaper than loading them one by one when many of them are not
+     * already in the document cache.
+     *
+     * @param references the references of the documents to load, possibly located in different wikis
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed references
+     * @throws XWikiException when failing to load the documents
+     * @since 8.2M1
+     */
+    public List<XWikiDocument> getDocuments(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        // A document is loaded only once even if it's referenced several times (a store can't load the same document
+        // twice in the same session)
+        List<XWikiDocument> uniqueDocuments = new ArrayList<>(references.size());
+        Map<DocumentReference, Integer> uniqueIndexes = new HashMap<>();
+        List<Integer> documentIndexes = new ArrayList<>(references.size());
+
+        // Stores load documents from the current wiki so the documents are grouped by wiki
+        Map<String, List<Integer>> indexesByWiki = new LinkedHashMap<>();
+        for (DocumentReference reference : references) {
+            XWikiDocument doc = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, null) : reference,
+                reference.getLocale());
+
+            Integer uniqueIndex = uniqueIndexes.get(doc.getDocumentReferenceWithLocale());
+            if (uniqueIndex == null) {
+                doc.setContentDirty(true);
+
+                uniqueIndex = uniqueDocuments.size();
+                uniqueIndexes.put(doc.getDocumentReferenceWithLocale(), uniqueIndex);
+                uniqueDocuments.add(doc);
+
+                String wiki = reference.getWikiReference().getName();
+                List<Integer> wikiIndexes = indexesByWiki.get(wiki);
+                if (wikiIndexes == null) {
+                    wikiIndexes = new ArrayList<>();
+                    indexesByWiki.put(wiki, wikiIndexes);
+                }
+                wikiIndexes.add(uniqueIndex);
+            }
+            documentIndexes.add(uniqueIndex);
+        }
+
+        RenderingDependencies.addAll(references, context);
+
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<String, List<Integer>> entry : indexesByWiki.entrySet()) {
+                context.setWikiId(entry.getKey());
+
+                List<XWikiDocument> wikiDocuments = new ArrayList<>(entry.getValue().size());
+                for (Integer index : entry.getValue()) {
+                    wikiDocuments.add(uniqueDocuments.get(index));
+                }
+
+                List<XWikiDocument> loadedDocuments = getStore().loadXWikiDocs(wikiDocuments, context);
+                for (int i = 0; i < loadedDocuments.size(); ++i) {
+                    uniqueDocuments.set(entry.getValue().get(i), loadedDocuments.get(i));
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        List<XWikiDocument> documents = new ArrayList<>(documentIndexes.size());
+        for (Integer index : documentIndexes) {
+            documents.add(uniqueDocuments.get(index));
+        }
+
+        return documents;
+    }
+
     /**
      * @deprecated since 2.2M1 use {@link #getDocument(DocumentReference, XWikiContext)} instead
      */
@@ -5384,6 +5464,10 @@ public boolean exists(DocumentReference documentReference, XWikiContext context)
 
             context.setWikiId(documentReference.getWikiReference().getName());
 
+            // Cached renderings (e.g. displaying a wanted link) have to be invalidated when the document is created or
+            // deleted
+            RenderingDependencies.add(doc.getDocumentReference(), context);
+
             return getStore().exists(doc, context);
         } catch (XWikiException e) {
             return false;
@@ -72,11 +72,21 @@ public Element[] getProperties()
         Property[] properties = new Property[coll.size()];
         int i = 0;
         for (BaseProperty prop : coll) {
-            properties[i++] = new Property(prop, getXWikiContext());
+            properties[i++] = newPropertyApi(prop);
         }
         return properties;
     }
 
+    /**
+     * @param property the property to wrap
+     * @return the API of the passed property
+     * @since 8.2M1
+     */
+    Property newPropertyApi(BaseProperty property)
+    {
+        return new Property(property, getXWikiContext());
+    }
+
     public Property getProperty(String name)
     {
         try {
@@ -85,7 +95,7 @@ public Property getProperty(String name)
                 return null;
             }
 
-            return new Property((BaseProperty) prop, getXWikiContext());
+            return newPropertyApi((BaseProperty) prop);
         } catch (Exception e) {
             return null;
         }
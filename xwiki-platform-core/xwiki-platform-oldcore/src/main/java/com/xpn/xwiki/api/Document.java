@@ -89,6 +89,14 @@
  */
 public class Document extends Api
 {
+    /**
+     * The name of the XWiki context entry holding the number of documents cloned through this API during the current
+     * request.
+     *
+     * @since 8.2M1
+     */
+    public static final String CONTEXT_CLONECOUNT = "documentapi.clonecount";
+
     /** Logging helper object. */
     private static final Logger LOGGER = LoggerFactory.getLogger(Document.class);
 
@@ -209,6 +217,13 @@ protected XWikiDocument getDoc()
         if (!this.cloned) {
             this.doc = this.doc.clone();
             this.cloned = true;
+
+            // Cloning is the main cost of modifying a document coming from the cache so it's counted for each request
+            XWikiContext xcontext = getXWikiContext();
+            if (xcontext != null) {
+                Integer count = (Integer) xcontext.get(CONTEXT_CLONECOUNT);
+                xcontext.put(CONTEXT_CLONECOUNT, count != null ? count + 1 : 1);
+            }
         }
 
         return this.doc;
@@ -1035,7 +1050,7 @@ public int getObjectNumbers(String classname)
      */
     public Map<String, Vector<Object>> getxWikiObjects()
     {
-        Map<DocumentReference, List<BaseObject>> map = this.getDoc().getXObjects();
+        Map<DocumentReference, List<BaseObject>> map = this.doc.getXObjects();
         Map<String, Vector<Object>> resultmap = new HashMap<String, Vector<Object>>();
         for (Map.Entry<DocumentReference, List<BaseObject>> entry : map.entrySet()) {
             List<BaseObject> objects = entry.getValue();
@@ -1067,7 +1082,7 @@ protected Vector<Object> getXObjects(List<BaseObject> objects)
      */
     public Vector<Object> getObjects(String className)
     {
-        List<BaseObject> objects = this.getDoc().getXObjects(this.doc.resolveClassReference(className));
+        List<BaseObject> objects = this.doc.getXObjects(this.doc.resolveClassReference(className));
         return getXObjects(objects);
     }
 
@@ -1080,7 +1095,7 @@ public Vector<Object> getObjects(String className)
     public Object getFirstObject(String fieldname)
     {
         try {
-            BaseObject obj = this.getDoc().getFirstObject(fieldname, getXWikiContext());
+            BaseObject obj = this.doc.getFirstObject(fieldname, getXWikiContext());
             if (obj == null) {
                 return null;
             } else {
@@ -1103,7 +1118,7 @@ public Object getFirstObject(String fieldname)
     public Object getObject(String classname, String key, String value, boolean failover)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value, failover);
+            BaseObject obj = this.doc.getObject(classname, key, value, failover);
             if (obj == null) {
                 return null;
             } else {
@@ -1130,7 +1145,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
             return getObjects(classname);
         }
         try {
-            Vector<BaseObject> allObjects = this.getDoc().getObjects(classname);
+            Vector<BaseObject> allObjects = this.doc.getObjects(classname);
             if (allObjects == null || allObjects.size() == 0) {
                 return result;
             } else {
@@ -1163,7 +1178,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
     public Object getObject(String classname, String key, String value)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value);
+            BaseObject obj = this.doc.getObject(classname, key, value);
             if (obj == null) {
                 return null;
             } else {
@@ -1196,7 +1211,8 @@ public Object getObject(String classname)
     public Object getObject(String classname, boolean create)
     {
         try {
-            BaseObject obj = getDoc().getObject(classname, create, getXWikiContext());
+            // Only clone the document when the object might have to be created
+            BaseObject obj = (create ? getDoc() : this.doc).getObject(classname, create, getXWikiContext());
 
             if (obj == null) {
                 return null;
@@ -1218,7 +1234,7 @@ public Object getObject(String classname, boolean create)
     public Object getObject(String classname, int nb)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, nb);
+            BaseObject obj = this.doc.getObject(classname, nb);
             if (obj == null) {
                 return null;
             } else {
@@ -1231,7 +1247,15 @@ public Object getObject(String classname, int nb)
 
     private Object newObjectApi(BaseObject obj, XWikiContext context)
     {
-        return obj.newObjectApi(obj, context);
+        Object object = obj.newObjectApi(obj, context);
+
+        // Objects are read from the document possibly shared with the document cache, they switch to the document
+        // clone only when they are modified
+        if (!this.cloned) {
+            object.setSharedDocument(this);
+        }
+
+        return object;
     }
 
     public String getXMLContent() throws XWikiException
@@ -1314,7 +1338,7 @@ public Vector<Object> getComments()
 
     public Vector<Object> getComments(boolean asc)
     {
-        return getXObjects(this.getDoc().getComments(asc));
+        return getXObjects(this.doc.getComments(asc));
     }
 
     /**
@@ -2051,7 +2075,10 @@ public java.lang.Object getValue(String fieldName)
     {
         Object object;
         if (this.currentObj == null) {
-            object = new Object(this.getDoc().getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
+            object = new Object(this.doc.getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
+            if (!this.cloned) {
+                object.setSharedDocument(this);
+            }
         } else {
             object = this.currentObj;
         }
@@ -2071,8 +2098,19 @@ public java.lang.Object getValue(String fieldName, Object object)
                     }
                 }
                 BaseProperty bp = (BaseProperty) object.getBaseObject().safeget(fieldName);
+                java.lang.Object value = bp.getValue();
+
+                if (Property.isMutable(value) && object.isShared()) {
+                    // The value can be modified in place and then saved so it must come from the document clone and
+                    // not from the object shared with the document cache (copy-on-write)
+                    if (!object.unshare()) {
+                        return Property.copyValue(value);
+                    }
+
+                    value = ((BaseProperty) object.getBaseObject().safeget(fieldName)).getValue();
+                }
 
-                return bp.getValue();
+                return value;
             } catch (NullPointerException e) {
                 return null;
             }
@@ -2703,7 +2741,7 @@ public boolean validate(String[] classNames) throws XWikiException
      */
     public String getValidationScript()
     {
-        return getDoc().getValidationScript();
+        return this.doc.getValidationScript();
     }
 
     /**
@@ -22,16 +22,111 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseObjectReference;
+import com.xpn.xwiki.objects.BaseProperty;
 
 public class Object extends Collection
 {
+    /**
+     * The document API which provided this object while still sharing its {@link XWikiDocument} with the document
+     * cache, {@code null} when the wrapped object can be modified.
+     */
+    private Document sharedDocument;
+
     public Object(BaseObject obj, XWikiContext context)
     {
         super(obj, context);
     }
 
+    /**
+     * @param document the document API which provided this object while still sharing its {@link XWikiDocument} with
+     *            the document cache
+     * @since 8.2M1
+     */
+    void setSharedDocument(Document document)
+    {
+        this.sharedDocument = document;
+    }
+
+    @Override
+    protected BaseCollection getCollection()
+    {
+        // Follow the document when it has been cloned since this object was provided
+        if (this.sharedDocument != null && this.sharedDocument.cloned) {
+            switchToDocumentCopy(false);
+        }
+
+        return super.getCollection();
+    }
+
+    @Override
+    Property newPropertyApi(BaseProperty property)
+    {
+        return new Property(property, this, getXWikiContext());
+    }
+
+    /**
+     * @return {@code true} if the wrapped object is shared with the document cache and must not be modified
+     * @since 8.2M1
+     */
+    boolean isShared()
+    {
+        // Make sure to follow the document if it has been cloned
+        getCollection();
+
+        return this.sharedDocument != null;
+    }
+
+    /**
+     * @return the wrapped object, after making sure it's not shared with the document cache anymore
+     * @since 8.2M1
+     */
+    BaseObject getWritableBaseObject()
+    {
+        if (this.sharedDocument != null) {
+            switchToDocumentCopy(true);
+        }
+
+        return getBaseObject();
+    }
+
+    /**
+     * Stop sharing the wrapped object with the document cache, so that its values can be modified in place.
+     *
+     * @return {@code false} if the object is still shared because it doesn't exist anymore in the document clone
+     * @since 8.2M1
+     */
+    boolean unshare()
+    {
+        if (this.sharedDocument != null) {
+            switchToDocumentCopy(false);
+        }
+
+        return this.sharedDocument == null;
+    }
+
+    /**
+     * Wrap the object of the document clone instead of the object shared with the document cache.
+     *
+     * @param write {@code true} if the object is going to be modified, in which case it must be found in the clone
+     */
+    private void switchToDocumentCopy(boolean write)
+    {
+        BaseObject sharedObject = (BaseObject) this.element;
+        BaseObject copy = sharedObject != null ? this.sharedDocument.getDoc()
+            .getXObject(sharedObject.getXClassReference(), sharedObject.getNumber()) : null;
+        if (copy != null) {
+            this.element = copy;
+            this.sharedDocument = null;
+        } else if (write) {
+            // Never modify the object shared with the document cache
+            throw new IllegalStateException(String.format("The object [%s] does not exist anymore in document [%s]",
+                sharedObject != null ? sharedObject.getReference() : null, this.sharedDocument.getPrefixedFullName()));
+        }
+    }
+
     protected BaseObject getBaseObject()
     {
         return (BaseObject) getCollection();
@@ -40,7 +135,7 @@ protected BaseObject getBaseObject()
     public BaseObject getXWikiObject()
     {
         if (hasProgrammingRights()) {
-            return (BaseObject) getCollection();
+            return getWritableBaseObject();
         } else {
             return null;
         }
@@ -53,7 +148,7 @@ public String getGuid()
 
     public void setGuid(String guid)
     {
-        getBaseObject().setGuid(guid);
+        getWritableBaseObject().setGuid(guid);
     }
 
     /**
@@ -103,7 +198,7 @@ public boolean equals(java.lang.Object arg0)
 
     public void set(String fieldname, java.lang.Object value)
     {
-        getBaseObject().set(fieldname, value, getXWikiContext());
+        getWritableBaseObject().set(fieldname, value, getXWikiContext());
     }
 
     @Override
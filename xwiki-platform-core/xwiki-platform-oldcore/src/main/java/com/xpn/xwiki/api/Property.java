@@ -19,6 +19,10 @@
  */
 package com.xpn.xwiki.api;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.objects.BaseProperty;
 
@@ -29,6 +33,12 @@
  */
 public class Property extends Element
 {
+    /**
+     * The object holding this property while it's shared with the document cache, {@code null} when the property can
+     * be modified.
+     */
+    private Object object;
+
     /**
      * The Constructor.
      *
@@ -40,11 +50,33 @@ public Property(BaseProperty property, XWikiContext context)
         super(property, context);
     }
 
+    /**
+     * @param property the internal {@link com.xpn.xwiki.objects.BaseProperty} to wrap.
+     * @param object the object holding the property, while it's shared with the document cache
+     * @param context the XWikiContext which may be used to get information about the current request.
+     * @since 8.2M1
+     */
+    Property(BaseProperty property, Object object, XWikiContext context)
+    {
+        super(property, context);
+
+        this.object = object;
+    }
+
     /**
      * @return the internal {@link com.xpn.xwiki.objects.BaseProperty} which this Property wraps.
      */
     protected BaseProperty getBaseProperty()
     {
+        // Follow the object when it stopped sharing its document with the document cache
+        if (this.object != null && !this.object.isShared()) {
+            BaseProperty copy = (BaseProperty) this.object.getBaseObject().safeget(this.element.getName());
+            if (copy != null) {
+                this.element = copy;
+            }
+            this.object = null;
+        }
+
         return (BaseProperty) this.element;
     }
 
@@ -54,7 +86,12 @@ protected BaseProperty getBaseProperty()
     public BaseProperty getProperty()
     {
         if (hasProgrammingRights()) {
-            return (BaseProperty) this.element;
+            if (this.object != null) {
+                // The returned property may be modified so it must not be the one shared with the document cache
+                this.object.getWritableBaseObject();
+            }
+
+            return getBaseProperty();
         } else {
             return null;
         }
@@ -71,6 +108,46 @@ public java.lang.Object getValue()
                 getXWikiContext())) {
             return null;
         }
-        return ((BaseProperty) this.element).getValue();
+
+        java.lang.Object value = getBaseProperty().getValue();
+
+        if (this.object != null && isMutable(value)) {
+            // The value can be modified in place and then saved with the document so it must come from the document
+            // clone and not from the object shared with the document cache (copy-on-write)
+            if (!this.object.unshare()) {
+                // The object doesn't exist anymore in the document clone so the modifications can't be saved anyway
+                return copyValue(value);
+            }
+
+            value = getBaseProperty().getValue();
+        }
+
+        return value;
+    }
+
+    /**
+     * @param value a property value
+     * @return {@code true} if the passed value can be modified in place
+     * @since 8.2M1
+     */
+    static boolean isMutable(java.lang.Object value)
+    {
+        return value instanceof List || value instanceof Date;
+    }
+
+    /**
+     * @param value a property value
+     * @return a copy of the passed value when it's mutable, the value itself otherwise
+     * @since 8.2M1
+     */
+    static java.lang.Object copyValue(java.lang.Object value)
+    {
+        if (value instanceof List) {
+            return new ArrayList<java.lang.Object>((List<?>) value);
+        } else if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+
+        return value;
     }
 }
@@ -23,6 +23,8 @@
 import java.util.List;
 import java.util.Map;
 
+import org.xwiki.stability.Unstable;
+
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.criteria.impl.Duration;
 import com.xpn.xwiki.criteria.impl.Period;
@@ -30,6 +32,7 @@
 import com.xpn.xwiki.criteria.impl.Scope;
 import com.xpn.xwiki.stats.api.XWikiStatsService;
 import com.xpn.xwiki.stats.impl.StatsUtil;
+import com.xpn.xwiki.stats.impl.XWikiStatsServiceImpl;
 
 /**
  * Statistics api. The Statistics module needs to be activated (xwiki.stats=1 in xwiki.cfg).
@@ -100,6 +103,38 @@ public boolean isEnabled()
         return StatsUtil.isWikiStatsEnabled(this.context);
     }
 
+    /**
+     * @return the number of statistics waiting to be stored in the database, useful to check that the storing thread
+     *         keeps up with the traffic
+     * @since 8.2M1
+     */
+    @Unstable
+    public int getStoreQueueSize()
+    {
+        XWikiStatsService statsService = getXWikiContext().getWiki().getStatsService(getXWikiContext());
+        if (statsService instanceof XWikiStatsServiceImpl) {
+            return ((XWikiStatsServiceImpl) statsService).getStoreQueueSize();
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the number of statistics lost because the storing queue was full, when the {@code stats.queue.policy}
+     *         configuration is {@code drop}
+     * @since 8.2M1
+     */
+    @Unstable
+    public long getStoreDroppedCount()
+    {
+        XWikiStatsService statsService = getXWikiContext().getWiki().getStatsService(getXWikiContext());
+        if (statsService instanceof XWikiStatsServiceImpl) {
+            return ((XWikiStatsServiceImpl) statsService).getStoreDroppedCount();
+        }
+
+        return 0;
+    }
+
     /**
      * Retrieves document statistics.
      *
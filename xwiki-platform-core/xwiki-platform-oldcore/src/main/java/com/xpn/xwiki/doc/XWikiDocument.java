@@ -154,6 +154,7 @@
 import com.xpn.xwiki.doc.merge.MergeResult;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
 import com.xpn.xwiki.internal.AbstractNotifyOnUpdateList;
+import com.xpn.xwiki.internal.cache.XDOMCache;
 import com.xpn.xwiki.internal.cache.rendering.RenderingCache;
 import com.xpn.xwiki.internal.merge.MergeUtils;
 import com.xpn.xwiki.internal.render.LinkedResourceHelper;
@@ -1184,11 +1185,19 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
                 parameters.setContentTranslated(tdoc != this);
                 parameters.setTargetSyntax(targetSyntax);
 
-                // Execute display
-                XDOM contentXDOM = getDocumentDisplayer().display(this, parameters);
-
-                // Render the result
-                renderedContent = renderXDOM(contentXDOM, targetSyntax);
+                try {
+                    // Execute display
+                    XDOM contentXDOM = getDocumentDisplayer().display(this, parameters);
+
+                    // Render the result
+                    renderedContent = renderXDOM(contentXDOM, targetSyntax);
+                } finally {
+                    if (renderedContent == null) {
+                        // The rendering failed so there's nothing to cache
+                        getRenderingCache().cancelRenderedContent(getDocumentReference(), translatedContent,
+                            xcontext);
+                    }
+                }
 
                 getRenderingCache().setRenderedContent(getDocumentReference(), translatedContent, renderedContent,
                     xcontext);
@@ -3986,6 +3995,11 @@ private XWikiDocument cloneInternal(DocumentReference newDocumentReference, bool
             doc.setSyntax(getSyntax());
             doc.setHidden(isHidden());
 
+            if (keepsIdentity) {
+                // The cached XDOM is never modified (only clones of it are returned) so it can be shared
+                doc.xdomCache = this.xdomCache;
+            }
+
             if (this.xClass != null) {
                 doc.setXClass(this.xClass.clone());
             }
@@ -8656,9 +8670,14 @@ private XDOM parseContent(String content) throws XWikiException
      */
     private static XDOM parseContent(Syntax syntax, String content, DocumentReference source) throws XWikiException
     {
-        ContentParser parser = Utils.getComponent(ContentParser.class);
-
         try {
+            // Reuse the result of a previous parsing of the same content when possible
+            if (Utils.getComponentManager().hasComponent(XDOMCache.class)) {
+                return Utils.getComponent(XDOMCache.class).parse(content, syntax, source);
+            }
+
+            ContentParser parser = Utils.getComponent(ContentParser.class);
+
             return parser.parse(content, syntax, source);
         } catch (MissingParserException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_RENDERING, XWikiException.ERROR_XWIKI_UNKNOWN,
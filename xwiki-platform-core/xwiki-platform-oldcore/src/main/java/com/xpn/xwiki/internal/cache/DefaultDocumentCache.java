@@ -21,8 +21,12 @@
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -33,6 +37,8 @@
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -45,9 +51,8 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
- * Specialized cache component related to documents. It automatically clean the cache when the document is related.
- * <p>
- * TODO: add support for dependencies
+ * Specialized cache component related to documents. It automatically clean the cache when the document is related
+ * or when one of the documents the cached data depends on is modified.
  *
  * @param <C> the type of the data stored in the cache
  * @version $Id$
@@ -90,6 +95,20 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    /**
+     * Used to forget the mappings of the cache entries that are removed or evicted.
+     *
+     * @version $Id$
+     */
+    private class CacheListener extends AbstractCacheEntryListener<C>
+    {
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<C> event)
+        {
+            removeMappings(event.getEntry().getKey());
+        }
+    }
+
     /**
      * The listener used to listen to document modification events.
      */
@@ -119,9 +138,15 @@ public void onEvent(Event event, Object source, Object data)
     private Cache<C> cache;
 
     /**
-     * The cache used to follow multiple cache entries related to the same document.
+     * The keys of the cache entries related to (or depending on) each document. Unlike the cache entries, the mappings
+     * are not evicted on their own: they are removed along with the cache entries they point to.
+     */
+    private final ConcurrentMap<String, Set<String>> mappings = new ConcurrentHashMap<>();
+
+    /**
+     * The documents each cache entry is mapped to, used to clean the mappings when the cache entry is evicted.
      */
-    private Cache<Collection<String>> mappingCache;
+    private final ConcurrentMap<String, Collection<String>> entryDocuments = new ConcurrentHashMap<>();
 
     /**
      * The identifier of the cache and event listener.
@@ -134,11 +159,7 @@ public void create(CacheConfiguration cacheConfiguration) throws CacheException
         this.name = cacheConfiguration.getConfigurationId();
 
         this.cache = this.cacheManager.createNewCache(cacheConfiguration);
-
-        CacheConfiguration mappingCacheConfiguration = (CacheConfiguration) cacheConfiguration.clone();
-        mappingCacheConfiguration.setConfigurationId(cacheConfiguration.getConfigurationId() + ".mapping");
-
-        this.mappingCache = this.cacheManager.createNewCache(mappingCacheConfiguration);
+        this.cache.addCacheEntryListener(new CacheListener());
 
         this.observationManager.addListener(this.listener);
     }
@@ -153,20 +174,77 @@ public C get(DocumentReference documentReference, Object... extensions)
 
     @Override
     public void set(C data, DocumentReference documentReference, Object... extensions)
+    {
+        set(data, Collections.<DocumentReference>emptyList(), documentReference, extensions);
+    }
+
+    @Override
+    public void set(C data, Collection<DocumentReference> dependencies, DocumentReference documentReference,
+        Object... extensions)
     {
         String key = getKey(documentReference, extensions);
-        this.cache.set(key, data);
 
-        String documentReferenceString = this.serializer.serialize(documentReference);
+        Collection<String> documents = new LinkedHashSet<>();
+        documents.add(this.serializer.serialize(documentReference));
+        for (DocumentReference dependency : dependencies) {
+            documents.add(this.serializer.serialize(dependency));
+        }
+
+        // Register the mappings before the cache entry so that they are cleaned if it's evicted right away
+        Collection<String> previousDocuments = this.entryDocuments.put(key, documents);
+        if (previousDocuments != null) {
+            previousDocuments.removeAll(documents);
+            removeMappings(key, previousDocuments);
+        }
+        for (String document : documents) {
+            addMapping(document, key);
+        }
 
-        Collection<String> keys = this.mappingCache.get(documentReferenceString);
+        this.cache.set(key, data);
+    }
 
-        if (keys == null) {
-            keys = new HashSet<String>();
-            this.mappingCache.set(documentReferenceString, keys);
+    /**
+     * Associate a cache key with a document so that the entry is removed when the document is modified.
+     *
+     * @param document the serialized reference of the document
+     * @param key the cache key
+     */
+    private void addMapping(String document, String key)
+    {
+        this.mappings.compute(document, (documentKey, keys) -> {
+            Set<String> newKeys = keys != null ? keys : ConcurrentHashMap.<String>newKeySet();
+            newKeys.add(key);
+            return newKeys;
+        });
+    }
+
+    /**
+     * Forget the documents associated with a cache key.
+     *
+     * @param key the cache key
+     */
+    private void removeMappings(String key)
+    {
+        Collection<String> documents = this.entryDocuments.remove(key);
+        if (documents != null) {
+            removeMappings(key, documents);
         }
+    }
 
-        keys.add(key);
+    /**
+     * Dissociate a cache key from the passed documents.
+     *
+     * @param key the cache key
+     * @param documents the serialized references of the documents
+     */
+    private void removeMappings(String key, Collection<String> documents)
+    {
+        for (String document : documents) {
+            this.mappings.computeIfPresent(document, (documentKey, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
     }
 
     /**
@@ -210,13 +288,7 @@ public void remove(C data, DocumentReference documentReference, Object... extens
         String key = getKey(documentReference, extensions);
         this.cache.remove(key);
 
-        String documentReferenceString = this.serializer.serialize(documentReference);
-
-        Collection<String> keys = this.mappingCache.get(documentReferenceString);
-
-        if (keys != null) {
-            keys.remove(key);
-        }
+        removeMappings(key);
     }
 
     @Override
@@ -225,9 +297,8 @@ public void removeAll()
         if (this.cache != null) {
             this.cache.removeAll();
         }
-        if (this.mappingCache != null) {
-            this.mappingCache.removeAll();
-        }
+        this.mappings.clear();
+        this.entryDocuments.clear();
     }
 
     @Override
@@ -235,14 +306,13 @@ public void removeAll(DocumentReference documentReference)
     {
         String documentReferenceString = this.serializer.serialize(documentReference);
 
-        Collection<String> keys = this.mappingCache.get(documentReferenceString);
+        Set<String> keys = this.mappings.remove(documentReferenceString);
 
         if (keys != null) {
             for (String key : keys) {
                 this.cache.remove(key);
+                removeMappings(key);
             }
-
-            this.mappingCache.remove(documentReferenceString);
         }
     }
 
@@ -250,6 +320,7 @@ public void removeAll(DocumentReference documentReference)
     public void dispose()
     {
         this.cache.dispose();
-        this.mappingCache.dispose();
+        this.mappings.clear();
+        this.entryDocuments.clear();
     }
 }
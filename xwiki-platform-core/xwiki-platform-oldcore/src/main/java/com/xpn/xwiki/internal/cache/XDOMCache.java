@@ -0,0 +1,200 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.parser.ContentParser;
+import org.xwiki.rendering.parser.MissingParserException;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.syntax.Syntax;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Parse contents and keep the result so that the same content is not parsed again, even by different document
+ * instances (clones, translations, documents loaded from different caches, etc.).
+ * <p>
+ * The cached {@link XDOM}s are shared and never exposed: each call returns a copy which can be freely modified and
+ * transformed.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = XDOMCache.class)
+@Singleton
+public class XDOMCache implements Initializable
+{
+    /**
+     * Identifier of the cache.
+     */
+    private static final String NAME = "core.xdomcache";
+
+    /**
+     * Name of the property indicating the maximum number of parsed contents to keep.
+     */
+    private static final String PROPNAME_SIZE = NAME + ".size";
+
+    /**
+     * The default maximum number of parsed contents to keep. The cache is bounded by entry count only, so the size and
+     * the maximum content size are kept low enough for the worst case (all entries close to the maximum content size)
+     * to fit in memory.
+     */
+    private static final int PROPVALUE_SIZE = 200;
+
+    /**
+     * Name of the property indicating the size (in characters) above which a content is not cached.
+     */
+    private static final String PROPNAME_MAXCONTENTSIZE = NAME + ".maxContentSize";
+
+    /**
+     * The default size (in characters) above which a content is not cached.
+     */
+    private static final int PROPVALUE_MAXCONTENTSIZE = 20000;
+
+    /**
+     * Used to actually parse the content.
+     */
+    @Inject
+    private ContentParser parser;
+
+    /**
+     * Used to get the current wiki.
+     */
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * Used to serialize the reference of the parsed content source.
+     */
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * Used to create the cache.
+     */
+    @Inject
+    private CacheManager cacheManager;
+
+    /**
+     * xwiki.properties file configurations.
+     */
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    /**
+     * The parsed contents indexed by wiki, syntax and content hash, {@code null} when the cache is disabled.
+     */
+    private Cache<XDOM> cache;
+
+    /**
+     * The size (in characters) above which a content is not cached.
+     */
+    private int maxContentSize;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getProperty(PROPNAME_SIZE, PROPVALUE_SIZE);
+        this.maxContentSize = this.configuration.getProperty(PROPNAME_MAXCONTENTSIZE, PROPVALUE_MAXCONTENTSIZE);
+
+        if (size > 0) {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration();
+            cacheConfiguration.setConfigurationId(NAME);
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, new LRUEvictionConfiguration(size));
+
+            try {
+                this.cache = this.cacheManager.createNewCache(cacheConfiguration);
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the parsed content cache", e);
+            }
+        }
+    }
+
+    /**
+     * Parse the passed content, or copy the result of a previous parsing of the same content.
+     *
+     * @param content the content to parse
+     * @param syntax the syntax of the content
+     * @param source the reference of where the content comes from (eg document reference), can be {@code null}
+     * @return the XDOM, which can be freely modified
+     * @throws ParseException when failing to parse the content
+     * @throws MissingParserException when no parser exists for the passed syntax
+     */
+    public XDOM parse(String content, Syntax syntax, EntityReference source)
+        throws ParseException, MissingParserException
+    {
+        XDOM xdom;
+
+        if (this.cache != null && content.length() <= this.maxContentSize) {
+            String key = getKey(content, syntax);
+
+            XDOM cachedXDOM = this.cache.get(key);
+            if (cachedXDOM == null) {
+                cachedXDOM = this.parser.parse(content, syntax);
+                this.cache.set(key, cachedXDOM);
+            }
+
+            xdom = cachedXDOM.clone();
+        } else {
+            xdom = this.parser.parse(content, syntax);
+        }
+
+        if (source != null) {
+            xdom.getMetaData().addMetaData(MetaData.SOURCE, this.serializer.serialize(source));
+        }
+
+        return xdom;
+    }
+
+    /**
+     * The parser is looked up in the component manager of the current wiki, which can provide its own parsers, so the
+     * same content and syntax can produce different results in different wikis.
+     *
+     * @param content the content to parse
+     * @param syntax the syntax of the content
+     * @return the cache key
+     */
+    private String getKey(String content, Syntax syntax)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String wiki = xcontext != null ? xcontext.getWikiId() : null;
+
+        return wiki + ':' + syntax.toIdString() + ':' + DigestUtils.sha256Hex(content);
+    }
+}
@@ -19,10 +19,15 @@
  */
 package com.xpn.xwiki.internal.cache.rendering;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+
 /**
  * Cached item including any extensions.
  *
@@ -36,12 +41,26 @@
      */
     public String rendered;
 
+    /**
+     * Blocks generated by a macro.
+     *
+     * @since 8.2M1
+     */
+    public List<Block> blocks;
+
     /**
      * Map containing all extensions used in cached item.
      */
     public Map<RenderingCacheAware, UsedExtension> extensions = new HashMap<RenderingCacheAware,
         CachedItem.UsedExtension>();
 
+    /**
+     * The references of the documents used to produce the rendered content.
+     *
+     * @since 8.2M1
+     */
+    public Set<DocumentReference> dependencies = Collections.emptySet();
+
     /**
      * Extension used in cached item.
      *
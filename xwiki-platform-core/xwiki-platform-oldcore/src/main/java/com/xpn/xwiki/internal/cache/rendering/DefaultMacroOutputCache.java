@@ -0,0 +1,344 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache.rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.match.MetadataBlockMatcher;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.cache.DocumentCache;
+
+/**
+ * {@link MacroOutputCache} caching the blocks generated by the configured macros. A cache entry depends on the macro
+ * parameters and content, the current document, user, locale and request, and is invalidated when any document
+ * loaded while executing the macro is modified.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Singleton
+public class DefaultMacroOutputCache implements MacroOutputCache, Initializable
+{
+    /**
+     * Identifier of the macro output cache.
+     */
+    private static final String NAME = "core.macrooutputcache";
+
+    /**
+     * Name of the property listing the identifiers of the macros to cache.
+     */
+    private static final String PROPNAME_MACROS = NAME + ".macros";
+
+    /**
+     * Name of the property indication the time to live of the elements in the cache.
+     */
+    private static final String PROPNAME_DURATION = NAME + ".duration";
+
+    /**
+     * The default time to live of the elements in the cache.
+     */
+    private static final int PROPVALUE_DURATION = 300;
+
+    /**
+     * Name of the property indication the size of the cache.
+     */
+    private static final String PROPNAME_SIZE = NAME + ".size";
+
+    /**
+     * The default size of the cache.
+     */
+    private static final int PROPVALUE_SIZE = 1000;
+
+    /**
+     * The name of the parameter used to force cache refresh.
+     */
+    private static final String PARAMETER_REFRESH = "refresh";
+
+    /**
+     * Event listened to flush the cache when a macro is (un)registered, for example when a wiki macro is modified.
+     */
+    private static final List<Event> EVENTS = Arrays.<Event>asList(new ComponentDescriptorAddedEvent(Macro.class),
+        new ComponentDescriptorRemovedEvent(Macro.class));
+
+    /**
+     * Used to flush the cache when the available macros change.
+     *
+     * @version $Id$
+     */
+    private class MacroListener implements EventListener
+    {
+        @Override
+        public String getName()
+        {
+            return NAME + ".macros";
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return EVENTS;
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            DefaultMacroOutputCache.this.cache.removeAll();
+        }
+    }
+
+    /**
+     * xwiki.properties file configurations.
+     */
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    /**
+     * Used to access the current user, document and request.
+     */
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * Used to serialize the current user reference.
+     */
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * Used to save and restore the resources required by the cached blocks.
+     */
+    @Inject
+    private RenderingCacheAwareManager renderingCacheAwareManager;
+
+    /**
+     * Actually cache object.
+     */
+    @Inject
+    private DocumentCache<CachedItem> cache;
+
+    /**
+     * Used to register the macros listener.
+     */
+    @Inject
+    private ObservationManager observationManager;
+
+    /**
+     * The identifiers of the macros to cache.
+     */
+    private Set<String> macros;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void initialize() throws InitializationException
+    {
+        List<String> macroList = this.configuration.getProperty(PROPNAME_MACROS, List.class);
+        this.macros = macroList != null ? new HashSet<String>(macroList) : Collections.<String>emptySet();
+
+        if (!this.macros.isEmpty()) {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration();
+            cacheConfiguration.setConfigurationId(NAME);
+            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+            lru.setMaxEntries(this.configuration.getProperty(PROPNAME_SIZE, PROPVALUE_SIZE));
+            lru.setLifespan(this.configuration.getProperty(PROPNAME_DURATION, PROPVALUE_DURATION));
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+
+            try {
+                this.cache.create(cacheConfiguration);
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to initialize macro output cache", e);
+            }
+
+            this.observationManager.addListener(new MacroListener());
+        }
+    }
+
+    @Override
+    public List<Block> get(MacroTransformationContext context)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        DocumentReference documentReference = getDocumentReference(context, xcontext);
+
+        if (documentReference == null) {
+            return null;
+        }
+
+        Object[] key = getKey(context, xcontext);
+
+        String refresh =
+            xcontext.getRequest() != null ? xcontext.getRequest().getParameter(PARAMETER_REFRESH) : null;
+        if (!"1".equals(refresh)) {
+            CachedItem cachedItem = this.cache.get(documentReference, key);
+
+            if (cachedItem != null) {
+                this.renderingCacheAwareManager.restoreResources(cachedItem, xcontext);
+
+                // The content including the macro depends on the same documents
+                RenderingDependencies.addAll(cachedItem.dependencies, xcontext);
+
+                return cloneBlocks(cachedItem.blocks);
+            }
+        }
+
+        // The macro is going to be executed: remember the documents it uses
+        RenderingDependencies.start(Arrays.asList(key), xcontext);
+
+        return null;
+    }
+
+    @Override
+    public void set(List<Block> blocks, MacroTransformationContext context)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        DocumentReference documentReference = getDocumentReference(context, xcontext);
+
+        if (documentReference != null) {
+            Object[] key = getKey(context, xcontext);
+
+            CachedItem cachedItem = new CachedItem();
+            cachedItem.blocks = cloneBlocks(blocks);
+            cachedItem.dependencies = RenderingDependencies.stop(Arrays.asList(key), xcontext);
+            this.renderingCacheAwareManager.saveResources(cachedItem, xcontext);
+
+            this.cache.set(cachedItem, cachedItem.dependencies, documentReference, key);
+        }
+    }
+
+    @Override
+    public void cancel(MacroTransformationContext context)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        if (getDocumentReference(context, xcontext) != null) {
+            // The documents loaded before the failure are still used by the content including the macro
+            RenderingDependencies.stop(Arrays.asList(getKey(context, xcontext)), xcontext);
+        }
+    }
+
+    /**
+     * @param context the context of the macro being executed
+     * @param xcontext the XWiki context
+     * @return the reference of the document containing the macro or {@code null} if the macro should not be cached
+     */
+    private DocumentReference getDocumentReference(MacroTransformationContext context, XWikiContext xcontext)
+    {
+        MacroBlock macroBlock = context.getCurrentMacroBlock();
+
+        if (macroBlock != null && this.macros.contains(macroBlock.getId()) && xcontext != null
+            && xcontext.getDoc() != null) {
+            return xcontext.getDoc().getDocumentReference();
+        }
+
+        return null;
+    }
+
+    /**
+     * @param context the context of the macro being executed
+     * @param xcontext the XWiki context
+     * @return the elements of the cache key
+     */
+    private Object[] getKey(MacroTransformationContext context, XWikiContext xcontext)
+    {
+        MacroBlock macroBlock = context.getCurrentMacroBlock();
+
+        List<Object> key = new ArrayList<>();
+        key.add(macroBlock.getId());
+        key.add(macroBlock.isInline());
+        key.add(macroBlock.getContent() != null ? DigestUtils.sha256Hex(macroBlock.getContent()) : null);
+        key.add(getMetaData(macroBlock, MetaData.SOURCE));
+        key.add(getMetaData(macroBlock, MetaData.BASE));
+        key.add(context.getTransformationContext().getTargetSyntax());
+        key.add(context.getTransformationContext().isRestricted());
+        key.add(xcontext.getUserReference() != null ? this.serializer.serialize(xcontext.getUserReference()) : null);
+        key.add(xcontext.getLocale());
+        key.add(DefaultRenderingCache.getAction(xcontext));
+        key.add(DefaultRenderingCache.getRequestParameters(xcontext));
+
+        // Sort the parameters so that the key does not depend on their order
+        for (Map.Entry<String, String> parameter : new TreeMap<>(macroBlock.getParameters()).entrySet()) {
+            key.add(parameter.getKey());
+            key.add(parameter.getValue());
+        }
+
+        return key.toArray();
+    }
+
+    /**
+     * @param block the block
+     * @param name the name of the meta data
+     * @return the value of the closest meta data with the passed name
+     */
+    private Object getMetaData(Block block, String name)
+    {
+        MetaDataBlock metaDataBlock = block.getFirstBlock(new MetadataBlockMatcher(name), Block.Axes.ANCESTOR);
+
+        return metaDataBlock != null ? metaDataBlock.getMetaData().getMetaData(name) : null;
+    }
+
+    /**
+     * @param blocks the blocks to copy
+     * @return a deep copy of the blocks
+     */
+    private List<Block> cloneBlocks(List<Block> blocks)
+    {
+        List<Block> clones = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            clones.add(block.clone());
+        }
+
+        return clones;
+    }
+}
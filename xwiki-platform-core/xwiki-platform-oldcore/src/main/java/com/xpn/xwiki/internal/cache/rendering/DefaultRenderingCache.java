@@ -21,16 +21,18 @@
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import javax.inject.Inject;
-import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
@@ -38,12 +40,15 @@
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.cache.DocumentCache;
-import com.xpn.xwiki.internal.cache.rendering.CachedItem.UsedExtension;
-import com.xpn.xwiki.plugin.XWikiPluginInterface;
-import com.xpn.xwiki.plugin.XWikiPluginManager;
 
 /**
  * Default implementation of {@link RenderingCache}.
@@ -70,6 +75,51 @@ public class DefaultRenderingCache implements RenderingCache, Initializable
      */
     private static final String PARAMETER_REFRESH = "refresh";
 
+    /**
+     * The class of the objects holding translations. The translations used by a rendered content are not tracked as
+     * dependencies so the whole cache is flushed when a translation document is modified.
+     */
+    private static final EntityReference TRANSLATION_CLASS = new LocalDocumentReference("XWiki",
+        "TranslationDocumentClass");
+
+    /**
+     * Event listened to flush the cache when translations are modified.
+     */
+    private static final List<Event> EVENTS = Arrays.<Event>asList(new DocumentCreatedEvent(),
+        new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+
+    /**
+     * Used to flush the cache when a translation document is modified.
+     *
+     * @version $Id$
+     */
+    private class TranslationListener implements EventListener
+    {
+        @Override
+        public String getName()
+        {
+            return NAME + ".translations";
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return EVENTS;
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            XWikiDocument document = (XWikiDocument) source;
+            XWikiDocument originalDocument = document.getOriginalDocument();
+
+            if (document.getXObject(TRANSLATION_CLASS) != null
+                || (originalDocument != null && originalDocument.getXObject(TRANSLATION_CLASS) != null)) {
+                flushWholeCache();
+            }
+        }
+    }
+
     /**
      * Configuration of the rendering cache.
      */
@@ -77,21 +127,22 @@ public class DefaultRenderingCache implements RenderingCache, Initializable
     private RenderingCacheConfiguration configuration;
 
     /**
-     * Provider of all components implementing RenderingCacheAware.
+     * Used to save and restore the resources required by the cached content.
      */
     @Inject
-    private Provider<List<RenderingCacheAware>> renderingCacheAwareProvider;
+    private RenderingCacheAwareManager renderingCacheAwareManager;
 
     /**
-     * List of legacy plugin components implementing RenderingCacheAware.
+     * Actually cache object.
      */
-    private List<RenderingCacheAware> legacyRenderingCacheAware;
+    @Inject
+    private DocumentCache<CachedItem> cache;
 
     /**
-     * Actually cache object.
+     * Used to register the translations listener.
      */
     @Inject
-    private DocumentCache<CachedItem> cache;
+    private ObservationManager observationManager;
 
     @Override
     public void initialize() throws InitializationException
@@ -109,6 +160,8 @@ public void initialize() throws InitializationException
             } catch (CacheException e) {
                 throw new InitializationException("Failed to initialize core rendering cache", e);
             }
+
+            this.observationManager.addListener(new TranslationListener());
         }
     }
 
@@ -128,8 +181,17 @@ public String getRenderedContent(DocumentReference documentReference, String sou
                         getRequestParameters(context));
                 if (cachedItem != null) {
                     renderedContent = restoreCachedItem(context, cachedItem);
+
+                    // The content including this one depends on the same documents
+                    RenderingDependencies.add(documentReference, context);
+                    RenderingDependencies.addAll(cachedItem.dependencies, context);
                 }
             }
+
+            if (renderedContent == null) {
+                // The content is going to be rendered: remember the documents it uses
+                RenderingDependencies.start(getRenderingId(documentReference, source), context);
+            }
         }
 
         return renderedContent;
@@ -140,11 +202,34 @@ public void setRenderedContent(DocumentReference documentReference, String sourc
         XWikiContext context)
     {
         if (this.configuration.isCached(documentReference)) {
-            this.cache.set(buildCachedItem(context, renderedContent), documentReference, source, getAction(context),
+            CachedItem cachedItem = buildCachedItem(context, renderedContent);
+            cachedItem.dependencies =
+                RenderingDependencies.stop(getRenderingId(documentReference, source), context);
+
+            this.cache.set(cachedItem, cachedItem.dependencies, documentReference, source, getAction(context),
                 context.getLanguage(), getRequestParameters(context));
         }
     }
 
+    @Override
+    public void cancelRenderedContent(DocumentReference documentReference, String source, XWikiContext context)
+    {
+        if (this.configuration.isCached(documentReference)) {
+            // The documents loaded before the failure are still used by the content including this one
+            RenderingDependencies.stop(getRenderingId(documentReference, source), context);
+        }
+    }
+
+    /**
+     * @param documentReference the reference of the rendered document
+     * @param source the rendered source
+     * @return the identifier of the rendering used to record its dependencies
+     */
+    private Object getRenderingId(DocumentReference documentReference, String source)
+    {
+        return Arrays.<Object>asList(documentReference, source);
+    }
+
     /**
      * Create cached item with all dependencies.
      *
@@ -156,26 +241,7 @@ private CachedItem buildCachedItem(XWikiContext context, String renderedContent)
     {
         CachedItem cachedItem = new CachedItem();
 
-        for (RenderingCacheAware component : this.renderingCacheAwareProvider.get()) {
-            cachedItem.extensions.put(component, component.getCacheResources(context));
-        }
-
-        // support for legacy core -> build non-blocking list (lazy)
-        if (this.legacyRenderingCacheAware == null) {
-            this.legacyRenderingCacheAware = new LinkedList<RenderingCacheAware>();
-            XWikiPluginManager pluginManager = context.getWiki().getPluginManager();
-            for (String pluginName : pluginManager.getPlugins()) {
-                XWikiPluginInterface plugin = pluginManager.getPlugin(pluginName);
-
-                if (plugin instanceof RenderingCacheAware) {
-                    this.legacyRenderingCacheAware.add((RenderingCacheAware) plugin);
-                }
-            }
-        }
-
-        for (RenderingCacheAware component : this.legacyRenderingCacheAware) {
-            cachedItem.extensions.put(component, component.getCacheResources(context));
-        }
+        this.renderingCacheAwareManager.saveResources(cachedItem, context);
 
         cachedItem.rendered = renderedContent;
         return cachedItem;
@@ -190,9 +256,7 @@ private CachedItem buildCachedItem(XWikiContext context, String renderedContent)
      */
     private String restoreCachedItem(XWikiContext context, CachedItem cachedItem)
     {
-        for (Map.Entry<RenderingCacheAware, UsedExtension> item : cachedItem.extensions.entrySet()) {
-            item.getKey().restoreCacheResources(context, item.getValue());
-        }
+        this.renderingCacheAwareManager.restoreResources(cachedItem, context);
 
         return cachedItem.rendered;
     }
@@ -203,7 +267,7 @@ private String restoreCachedItem(XWikiContext context, CachedItem cachedItem)
      * @param context the XWiki context
      * @return the current action
      */
-    private String getAction(XWikiContext context)
+    static String getAction(XWikiContext context)
     {
         return context.getAction() != null ? context.getAction() : "view";
     }
@@ -214,7 +278,7 @@ private String getAction(XWikiContext context)
      * @param context the XWiki context
      * @return the current request parameters
      */
-    private String getRequestParameters(XWikiContext context)
+    static String getRequestParameters(XWikiContext context)
     {
         if (context.getRequest() != null) {
             Map<String, String[]> parameters = context.getRequest().getParameterMap();
@@ -236,7 +300,7 @@ private String getRequestParameters(XWikiContext context)
      * @param sortedMap the map representing the Request parameters
      * @return the encoded parameters as a String
      */
-    private String constructRequestString(SortedMap<String, String[]> sortedMap)
+    private static String constructRequestString(SortedMap<String, String[]> sortedMap)
     {
         StringBuilder sb = new StringBuilder();
         // TODO: Create a common class to serialize and encode parameters since this is a common need, and use
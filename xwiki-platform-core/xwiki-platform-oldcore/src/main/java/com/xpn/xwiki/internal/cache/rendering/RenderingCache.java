@@ -54,6 +54,18 @@
     void setRenderedContent(DocumentReference documentReference, String source, String renderedContent,
         XWikiContext context);
 
+    /**
+     * Indicate that the rendering of the provided source failed after a
+     * {@link #getRenderedContent(DocumentReference, String, XWikiContext)} returning {@code null}, so that the
+     * resources allocated to cache its result are released.
+     *
+     * @param documentReference the reference of the document being rendered
+     * @param source the source which failed to be rendered
+     * @param context the XWiki context
+     * @since 8.2M1
+     */
+    void cancelRenderedContent(DocumentReference documentReference, String source, XWikiContext context);
+
     /**
      * Flushes rendering cache (all cached variants) for specified document.
      *
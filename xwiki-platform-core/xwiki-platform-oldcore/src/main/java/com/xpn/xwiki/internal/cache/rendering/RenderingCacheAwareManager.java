@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache.rendering;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.cache.rendering.CachedItem.UsedExtension;
+import com.xpn.xwiki.plugin.XWikiPluginInterface;
+import com.xpn.xwiki.plugin.XWikiPluginManager;
+
+/**
+ * Save and restore the resources (skin extensions, etc.) required by a cached content using the
+ * {@link RenderingCacheAware} components and plugins.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = RenderingCacheAwareManager.class)
+@Singleton
+public class RenderingCacheAwareManager
+{
+    /**
+     * Provider of all components implementing RenderingCacheAware.
+     */
+    @Inject
+    private Provider<List<RenderingCacheAware>> renderingCacheAwareProvider;
+
+    /**
+     * List of legacy plugin components implementing RenderingCacheAware.
+     */
+    private List<RenderingCacheAware> legacyRenderingCacheAware;
+
+    /**
+     * Store in the cached item the resources currently used.
+     *
+     * @param cachedItem the cached item
+     * @param context current xwiki context
+     */
+    public void saveResources(CachedItem cachedItem, XWikiContext context)
+    {
+        for (RenderingCacheAware component : this.renderingCacheAwareProvider.get()) {
+            cachedItem.extensions.put(component, component.getCacheResources(context));
+        }
+
+        // support for legacy core -> build non-blocking list (lazy)
+        if (this.legacyRenderingCacheAware == null) {
+            this.legacyRenderingCacheAware = new LinkedList<RenderingCacheAware>();
+            XWikiPluginManager pluginManager = context.getWiki().getPluginManager();
+            for (String pluginName : pluginManager.getPlugins()) {
+                XWikiPluginInterface plugin = pluginManager.getPlugin(pluginName);
+
+                if (plugin instanceof RenderingCacheAware) {
+                    this.legacyRenderingCacheAware.add((RenderingCacheAware) plugin);
+                }
+            }
+        }
+
+        for (RenderingCacheAware component : this.legacyRenderingCacheAware) {
+            cachedItem.extensions.put(component, component.getCacheResources(context));
+        }
+    }
+
+    /**
+     * Restore the resources stored in the cached item.
+     *
+     * @param cachedItem the cached item
+     * @param context the current xwiki context
+     */
+    public void restoreResources(CachedItem cachedItem, XWikiContext context)
+    {
+        for (Map.Entry<RenderingCacheAware, UsedExtension> item : cachedItem.extensions.entrySet()) {
+            item.getKey().restoreCacheResources(context, item.getValue());
+        }
+    }
+}
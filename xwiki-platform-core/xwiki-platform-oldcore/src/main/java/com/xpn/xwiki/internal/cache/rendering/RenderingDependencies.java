@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache.rendering;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Keep track of the documents loaded while a cached content is being rendered so that the cached result can be
+ * invalidated when any of them is modified.
+ * <p>
+ * The recording state is stored in the {@link XWikiContext} and supports nested renderings: the dependencies of a
+ * nested rendering are also dependencies of the content including it.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public final class RenderingDependencies
+{
+    /**
+     * The name of the context property holding the recording stack.
+     */
+    private static final String CONTEXT_KEY = "renderingcache.dependencies";
+
+    /**
+     * The documents used by a content being rendered.
+     *
+     * @version $Id$
+     */
+    private static final class Frame
+    {
+        /**
+         * Identify the rendering.
+         */
+        private final Object id;
+
+        /**
+         * The references of the loaded documents.
+         */
+        private final Set<DocumentReference> references = new LinkedHashSet<>();
+
+        /**
+         * @param id identify the rendering
+         */
+        private Frame(Object id)
+        {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private RenderingDependencies()
+    {
+    }
+
+    /**
+     * Start recording the documents used by a content being rendered.
+     *
+     * @param id identify the rendering, the same identifier has to be passed to {@link #stop(Object, XWikiContext)}
+     * @param context the XWiki context
+     */
+    public static void start(Object id, XWikiContext context)
+    {
+        Deque<Frame> frames = getFrames(context);
+        if (frames == null) {
+            frames = new ArrayDeque<>();
+            context.put(CONTEXT_KEY, frames);
+        }
+
+        frames.push(new Frame(id));
+    }
+
+    /**
+     * Stop recording the documents used by a content being rendered.
+     * <p>
+     * Renderings started after the passed one and never stopped (because they failed for example) are stopped too.
+     * The returned dependencies are also added to the enclosing rendering, if any.
+     *
+     * @param id identify the rendering, as passed to {@link #start(Object, XWikiContext)}
+     * @param context the XWiki context
+     * @return the references of the documents used by the rendering, empty if the rendering was not being recorded
+     */
+    public static Set<DocumentReference> stop(Object id, XWikiContext context)
+    {
+        Deque<Frame> frames = getFrames(context);
+
+        if (frames == null || !containsFrame(frames, id)) {
+            return Collections.emptySet();
+        }
+
+        Set<DocumentReference> references = new LinkedHashSet<>();
+        Frame frame;
+        do {
+            frame = frames.pop();
+            references.addAll(frame.references);
+        } while (!frame.id.equals(id));
+
+        if (frames.isEmpty()) {
+            context.remove(CONTEXT_KEY);
+        } else {
+            frames.peek().references.addAll(references);
+        }
+
+        return references;
+    }
+
+    /**
+     * Indicate that a document is used by the content being rendered, if any.
+     *
+     * @param reference the reference of the loaded document
+     * @param context the XWiki context
+     */
+    public static void add(DocumentReference reference, XWikiContext context)
+    {
+        Deque<Frame> frames = getFrames(context);
+
+        if (frames != null && !frames.isEmpty()) {
+            frames.peek().references.add(reference);
+        }
+    }
+
+    /**
+     * Indicate that several documents are used by the content being rendered, if any.
+     *
+     * @param references the references of the used documents
+     * @param context the XWiki context
+     */
+    public static void addAll(Collection<DocumentReference> references, XWikiContext context)
+    {
+        Deque<Frame> frames = getFrames(context);
+
+        if (frames != null && !frames.isEmpty()) {
+            frames.peek().references.addAll(references);
+        }
+    }
+
+    /**
+     * @param context the XWiki context
+     * @return the recording stack or {@code null} if nothing is being recorded
+     */
+    @SuppressWarnings("unchecked")
+    private static Deque<Frame> getFrames(XWikiContext context)
+    {
+        return context != null ? (Deque<Frame>) context.get(CONTEXT_KEY) : null;
+    }
+
+    /**
+     * @param frames the recording stack
+     * @param id identify the rendering
+     * @return true if the rendering is being recorded
+     */
+    private static boolean containsFrame(Deque<Frame> frames, Object id)
+    {
+        for (Frame frame : frames) {
+            if (frame.id.equals(id)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiCreatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.event.AbstractCancelableEvent;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.filter.AlwaysMatchingEventFilter;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+
+/**
+ * Compact encoding of the document and wiki events produced by {@link DocumentEventConverter} and
+ * {@link WikiEventConverter}, which are by far the most common remote events.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Singleton
+@Named("xwiki")
+public class XWikiEventCodec implements RemoteEventDataCodec
+{
+    private static final int ID = 1;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The supported events, the index in the list being the identifier written in the encoded event.
+     */
+    private static final List<Class<? extends AbstractFilterableEvent>> EVENTS = Arrays.asList(
+        DocumentCreatedEvent.class, DocumentUpdatedEvent.class, DocumentDeletedEvent.class, WikiCreatedEvent.class,
+        WikiDeletedEvent.class);
+
+    private static final int FIRST_WIKI_EVENT = EVENTS.indexOf(WikiCreatedEvent.class);
+
+    private static final List<String> DOCUMENT_KEYS =
+        Arrays.asList(AbstractXWikiEventConverter.DOC_VERSION, AbstractXWikiEventConverter.DOC_LANGUAGE,
+            AbstractXWikiEventConverter.ORIGDOC_VERSION, AbstractXWikiEventConverter.ORIGDOC_LANGUAGE);
+
+    private static final List<String> CONTEXT_KEYS =
+        Arrays.asList(AbstractXWikiEventConverter.CONTEXT_WIKI, AbstractXWikiEventConverter.CONTEXT_USER);
+
+    private static final int FILTER_ALWAYS_MATCHING = 0;
+
+    private static final int FILTER_FIXED_NAME = 1;
+
+    /**
+     * Make sure the strings don't exceed the maximum size supported by {@link DataOutput#writeUTF(String)}.
+     */
+    private static final int MAX_STRING_LENGTH = 0xFFFF / 3;
+
+    @Override
+    public int getId()
+    {
+        return ID;
+    }
+
+    @Override
+    public boolean canEncode(RemoteEventData remoteEvent)
+    {
+        int type = EVENTS.indexOf(remoteEvent.getEvent().getClass());
+        if (type < 0) {
+            return false;
+        }
+
+        AbstractFilterableEvent event = (AbstractFilterableEvent) remoteEvent.getEvent();
+        if (event instanceof AbstractCancelableEvent && ((AbstractCancelableEvent) event).isCanceled()) {
+            return false;
+        }
+
+        EventFilter filter = event.getEventFilter();
+        if (!(filter instanceof AlwaysMatchingEventFilter)
+            && !(filter instanceof FixedNameEventFilter && isEncodable(filter.getFilter()))) {
+            return false;
+        }
+
+        boolean encodableSource;
+        if (type < FIRST_WIKI_EVENT) {
+            encodableSource = isEncodableDocument(remoteEvent.getSource());
+        } else {
+            encodableSource = isEncodable(remoteEvent.getSource());
+        }
+
+        return encodableSource && isEncodable(remoteEvent.getData(), CONTEXT_KEYS);
+    }
+
+    private boolean isEncodable(Serializable value)
+    {
+        return value == null || (value instanceof String && ((String) value).length() <= MAX_STRING_LENGTH);
+    }
+
+    private boolean isEncodable(Serializable value, List<String> keys)
+    {
+        if (!(value instanceof Map)) {
+            return false;
+        }
+
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if (!keys.contains(entry.getKey()) || !isEncodable((Serializable) entry.getValue())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isEncodableDocument(Serializable source)
+    {
+        if (source instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) source;
+            if (map.get(AbstractXWikiEventConverter.DOC_NAME) instanceof DocumentReference) {
+                Map<Object, Object> documentMap = new HashMap<>(map);
+                documentMap.remove(AbstractXWikiEventConverter.DOC_NAME);
+
+                return isEncodable((Serializable) documentMap, DOCUMENT_KEYS);
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void encode(RemoteEventData remoteEvent, DataOutput output) throws IOException
+    {
+        output.writeByte(VERSION);
+
+        int type = EVENTS.indexOf(remoteEvent.getEvent().getClass());
+        output.writeByte(type);
+
+        EventFilter filter = ((AbstractFilterableEvent) remoteEvent.getEvent()).getEventFilter();
+        if (filter instanceof FixedNameEventFilter) {
+            output.writeByte(FILTER_FIXED_NAME);
+            output.writeUTF(filter.getFilter());
+        } else {
+            output.writeByte(FILTER_ALWAYS_MATCHING);
+        }
+
+        if (type < FIRST_WIKI_EVENT) {
+            Map<?, ?> source = (Map<?, ?>) remoteEvent.getSource();
+            writeDocumentReference((DocumentReference) source.get(AbstractXWikiEventConverter.DOC_NAME), output);
+            writeMap(source, DOCUMENT_KEYS, output);
+        } else {
+            writeString((String) remoteEvent.getSource(), output);
+        }
+
+        writeMap((Map<?, ?>) remoteEvent.getData(), CONTEXT_KEYS, output);
+    }
+
+    @Override
+    public RemoteEventData decode(DataInput input) throws IOException
+    {
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported version [%s] of the XWiki events encoding", version));
+        }
+
+        int type = input.readUnsignedByte();
+        if (type >= EVENTS.size()) {
+            throw new IOException(String.format("Unknown XWiki event type [%s]", type));
+        }
+
+        EventFilter filter;
+        if (input.readUnsignedByte() == FILTER_FIXED_NAME) {
+            filter = new FixedNameEventFilter(input.readUTF());
+        } else {
+            filter = new AlwaysMatchingEventFilter();
+        }
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(createEvent(type, filter));
+
+        if (type < FIRST_WIKI_EVENT) {
+            HashMap<String, Serializable> source = new HashMap<>();
+            source.put(AbstractXWikiEventConverter.DOC_NAME, readDocumentReference(input));
+            readMap(source, DOCUMENT_KEYS, input);
+            remoteEvent.setSource(source);
+        } else {
+            remoteEvent.setSource(readString(input));
+        }
+
+        HashMap<String, Serializable> data = new HashMap<>();
+        readMap(data, CONTEXT_KEYS, input);
+        remoteEvent.setData(data);
+
+        return remoteEvent;
+    }
+
+    private AbstractFilterableEvent createEvent(int type, EventFilter filter)
+    {
+        switch (type) {
+            case 0:
+                return new DocumentCreatedEvent(filter);
+            case 1:
+                return new DocumentUpdatedEvent(filter);
+            case 2:
+                return new DocumentDeletedEvent(filter);
+            case 3:
+                return new WikiCreatedEvent(filter);
+            default:
+                return new WikiDeletedEvent(filter);
+        }
+    }
+
+    private void writeDocumentReference(DocumentReference reference, DataOutput output) throws IOException
+    {
+        List<EntityReference> chain = reference.getReversedReferenceChain();
+
+        // Wiki, spaces and then document
+        output.writeUTF(chain.get(0).getName());
+        output.writeShort(chain.size() - 2);
+        for (EntityReference space : chain.subList(1, chain.size() - 1)) {
+            output.writeUTF(space.getName());
+        }
+        output.writeUTF(reference.getName());
+
+        Locale locale = reference.getLocale();
+        writeString(locale != null ? locale.toString() : null, output);
+    }
+
+    private DocumentReference readDocumentReference(DataInput input) throws IOException
+    {
+        String wiki = input.readUTF();
+        int spaceCount = input.readUnsignedShort();
+        List<String> spaces = new ArrayList<>(spaceCount);
+        for (int i = 0; i < spaceCount; ++i) {
+            spaces.add(input.readUTF());
+        }
+        String name = input.readUTF();
+        String locale = readString(input);
+
+        return new DocumentReference(wiki, spaces, name, locale != null ? LocaleUtils.toLocale(locale) : null);
+    }
+
+    private void writeMap(Map<?, ?> map, List<String> keys, DataOutput output) throws IOException
+    {
+        for (String key : keys) {
+            writeString((String) map.get(key), output);
+        }
+    }
+
+    private void readMap(Map<String, Serializable> map, List<String> keys, DataInput input) throws IOException
+    {
+        for (String key : keys) {
+            String value = readString(input);
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+    }
+
+    private void writeString(String value, DataOutput output) throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInput input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.event.AbstractCancelableEvent;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataMerger;
+
+/**
+ * Merge successive updates of the same document produced by {@link DocumentEventConverter}. Document creations and
+ * deletions are never merged but are taken into account so that an update is never merged with an update which
+ * happened before a deletion or a creation of the same document.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Singleton
+@Named("xwiki")
+public class XWikiEventMerger implements RemoteEventDataMerger
+{
+    private static final String DOCUMENT = "document";
+
+    @Override
+    public Object getKey(RemoteEventData remoteEvent)
+    {
+        Serializable event = remoteEvent.getEvent();
+        if (!(event instanceof DocumentCreatedEvent || event instanceof DocumentUpdatedEvent
+            || event instanceof DocumentDeletedEvent)) {
+            return null;
+        }
+
+        EventFilter filter = ((AbstractFilterableEvent) event).getEventFilter();
+        if (!(filter instanceof FixedNameEventFilter) || !(remoteEvent.getSource() instanceof Map)) {
+            return null;
+        }
+
+        Map<?, ?> source = (Map<?, ?>) remoteEvent.getSource();
+        Object language = source.get(AbstractXWikiEventConverter.DOC_LANGUAGE);
+        if (language == null) {
+            language = source.get(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE);
+        }
+
+        return Arrays.asList(DOCUMENT, filter.getFilter(), language);
+    }
+
+    @Override
+    public RemoteEventData merge(RemoteEventData previous, RemoteEventData next)
+    {
+        if (!isMergeable(previous) || !isMergeable(next) || !(previous.getSource() instanceof Map)
+            || !(next.getSource() instanceof Map)) {
+            return null;
+        }
+
+        Map<?, ?> previousSource = (Map<?, ?>) previous.getSource();
+        HashMap<Object, Object> source = new HashMap<>((Map<?, ?>) next.getSource());
+
+        // The merged event goes from the original document of the first update to the document of the last update
+        copy(AbstractXWikiEventConverter.ORIGDOC_VERSION, previousSource, source);
+        copy(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, previousSource, source);
+
+        RemoteEventData mergedEvent = new RemoteEventData();
+        mergedEvent.setEvent(next.getEvent());
+        mergedEvent.setSource(source);
+        mergedEvent.setData(next.getData());
+
+        return mergedEvent;
+    }
+
+    private boolean isMergeable(RemoteEventData remoteEvent)
+    {
+        Serializable event = remoteEvent.getEvent();
+
+        return event != null && event.getClass() == DocumentUpdatedEvent.class
+            && !((AbstractCancelableEvent) event).isCanceled();
+    }
+
+    private void copy(String key, Map<?, ?> from, Map<Object, Object> to)
+    {
+        Object value = from.get(key);
+        if (value != null) {
+            to.put(key, value);
+        } else {
+            to.remove(key);
+        }
+    }
+}
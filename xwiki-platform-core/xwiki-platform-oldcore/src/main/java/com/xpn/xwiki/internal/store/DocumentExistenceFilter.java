@@ -0,0 +1,185 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact and thread safe Bloom filter indicating which documents might exist in a wiki. A document which is not in the
+ * filter is guaranteed to not exist, a document in the filter might exist or not (deleted documents are never removed
+ * from the filter and false positives are possible).
+ * <p>
+ * The filter is filled with {@link #add(String, String)} and does not lock, neither for reading nor for writing.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class DocumentExistenceFilter
+{
+    /**
+     * The number of bits for each expected document, which gives a false positive probability of about 1%.
+     */
+    private static final int BITS_PER_ENTRY = 10;
+
+    /**
+     * The number of hash functions, optimal for {@link #BITS_PER_ENTRY}.
+     */
+    private static final int HASH_FUNCTIONS = 7;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final char LOCALE_SEPARATOR = '\u0000';
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int capacity;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile boolean ready;
+
+    /**
+     * @param capacity the expected maximum number of entries, the false positive rate increases when it is exceeded
+     */
+    public DocumentExistenceFilter(int capacity)
+    {
+        this.capacity = Math.max(capacity, 1);
+        this.bits = new AtomicLongArray((int) (((long) this.capacity * BITS_PER_ENTRY + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = (long) this.bits.length() * Long.SIZE;
+    }
+
+    /**
+     * Indicate that the filter contains all the existing documents and can be used to answer existence checks.
+     */
+    public void setReady()
+    {
+        this.ready = true;
+    }
+
+    /**
+     * @return true if the filter contains all the existing documents
+     */
+    public boolean isReady()
+    {
+        return this.ready;
+    }
+
+    /**
+     * @return true if more entries than the expected capacity have been added to the filter, in which case it should
+     *         be rebuilt to keep a low false positive rate
+     */
+    public boolean isFull()
+    {
+        return this.size.get() > this.capacity;
+    }
+
+    /**
+     * Add a document to the filter.
+     *
+     * @param fullName the full name of the document
+     * @param language the language of the document, empty or null for the default document
+     */
+    public void add(String fullName, String language)
+    {
+        set(fullName);
+        if (language != null && !language.isEmpty()) {
+            set(fullName + LOCALE_SEPARATOR + language);
+        }
+
+        this.size.incrementAndGet();
+    }
+
+    /**
+     * @param fullName the full name of the document
+     * @param locale the locale of the document, {@link Locale#ROOT} for any locale
+     * @return false if the document does not exist, true if it might exist
+     */
+    public boolean mightContain(String fullName, Locale locale)
+    {
+        if (locale == null || locale.equals(Locale.ROOT)) {
+            return get(fullName);
+        }
+
+        return get(fullName + LOCALE_SEPARATOR + locale.toString());
+    }
+
+    private void set(String key)
+    {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> Integer.SIZE);
+
+        for (int i = 1; i <= HASH_FUNCTIONS; ++i) {
+            long index = bitIndex(hash1 + i * hash2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long value;
+            do {
+                value = this.bits.get(word);
+                if ((value & mask) != 0) {
+                    break;
+                }
+            } while (!this.bits.compareAndSet(word, value, value | mask));
+        }
+    }
+
+    private boolean get(String key)
+    {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> Integer.SIZE);
+
+        for (int i = 1; i <= HASH_FUNCTIONS; ++i) {
+            long index = bitIndex(hash1 + i * hash2);
+            if ((this.bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private long bitIndex(int combinedHash)
+    {
+        return (combinedHash & Integer.MAX_VALUE) % this.bitCount;
+    }
+
+    /**
+     * 64 bits FNV-1a hash of the passed key.
+     */
+    private static long hash(String key)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); ++i) {
+            char c = key.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+}
@@ -117,6 +117,7 @@ public DateProperty clone()
     protected void cloneInternal(BaseProperty clone)
     {
         DateProperty property = (DateProperty) clone;
-        property.setValue(getValue());
+        // Date is mutable so don't share it with the clone
+        property.setValue(this.value != null ? new Date(this.value.getTime()) : null);
     }
 }
@@ -201,7 +201,14 @@ public String content(Document document, Map<String, Object> parameters)
             Syntax outputSyntax = getOutputSyntax(parameters);
             displayerParameters.setTargetSyntax(outputSyntax);
             actualParameters.put(DISPLAYER_PARAMETERS_KEY, displayerParameters);
-            renderedContent = document(document, actualParameters, outputSyntax);
+            try {
+                renderedContent = document(document, actualParameters, outputSyntax);
+            } finally {
+                if (renderedContent == null) {
+                    // The rendering failed so there's nothing to cache
+                    this.renderingCache.cancelRenderedContent(document.getDocumentReference(), content, context);
+                }
+            }
             if (renderedContent != null) {
                 this.renderingCache.setRenderedContent(document.getDocumentReference(), content, renderedContent,
                     context);
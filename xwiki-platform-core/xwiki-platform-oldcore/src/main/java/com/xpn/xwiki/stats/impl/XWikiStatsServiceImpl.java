@@ -124,6 +124,24 @@ public void init(XWikiContext context)
         }
     }
 
+    /**
+     * @return the number of statistics waiting to be stored, 0 if the statistics are disabled
+     * @since 8.2M1
+     */
+    public int getStoreQueueSize()
+    {
+        return this.statsRegister != null ? this.statsRegister.getQueueSize() : 0;
+    }
+
+    /**
+     * @return the number of statistics dropped because the storing queue was full, 0 if the statistics are disabled
+     * @since 8.2M1
+     */
+    public long getStoreDroppedCount()
+    {
+        return this.statsRegister != null ? this.statsRegister.getDroppedCount() : 0;
+    }
+
     @Override
     public Collection<Object> getRecentActions(String action, int size, XWikiContext context)
     {
@@ -96,6 +96,25 @@ public void store(List<XWikiStatsStoreItem> statsList)
         }
     }
 
+    /**
+     * Store provided statistics into the database using the passed context instead of the one of this item, so that
+     * several statistics can be stored in the transaction associated to the context.
+     *
+     * @param statsList the list of statistics item to store.
+     * @param storeContext the XWiki context to use
+     */
+    void store(List<XWikiStatsStoreItem> statsList, XWikiContext storeContext)
+    {
+        XWikiContext itemContext = this.context;
+
+        this.context = storeContext;
+        try {
+            store(statsList);
+        } finally {
+            this.context = itemContext;
+        }
+    }
+
     /**
      * Store provided statistics into the database.
      *
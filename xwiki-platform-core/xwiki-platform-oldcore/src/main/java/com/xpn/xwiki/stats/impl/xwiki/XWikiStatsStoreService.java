@@ -20,23 +20,31 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.stats.impl.StatsUtil;
 import com.xpn.xwiki.stats.impl.VisitStats;
+import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.DownloadAction;
 import com.xpn.xwiki.web.SaveAction;
+import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.ViewAction;
 
 /**
@@ -52,11 +60,49 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
+    /**
+     * The queue policy which drops new statistics when the queue is full instead of waiting for some space.
+     */
+    private static final String POLICY_DROP = "drop";
+
+    /**
+     * Order aggregated statistics by type.
+     */
+    private static final Comparator<List<XWikiStatsStoreItem>> STATS_TYPE_COMPARATOR =
+        new Comparator<List<XWikiStatsStoreItem>>()
+        {
+            @Override
+            public int compare(List<XWikiStatsStoreItem> stats1, List<XWikiStatsStoreItem> stats2)
+            {
+                return stats1.get(0).getClass().getName().compareTo(stats2.get(0).getClass().getName());
+            }
+        };
+
     /**
      * The queue containing the statistics to store.
      */
     private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
 
+    /**
+     * The maximum time in milliseconds during which statistics are aggregated in memory before being stored.
+     */
+    private long flushInterval;
+
+    /**
+     * The maximum number of aggregated statistics stored at once.
+     */
+    private long flushSize;
+
+    /**
+     * True if new statistics are dropped when the queue is full, false to wait for some space in the queue.
+     */
+    private boolean dropWhenFull;
+
+    /**
+     * The number of statistics dropped because the queue was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
     /**
      * The thread on which the storing service is running.
      */
@@ -77,6 +123,28 @@ public XWikiStatsStoreService(XWikiContext context)
         this.xwikiContext = context.clone();
         long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
         this.queue = new ArrayBlockingQueue<XWikiStatsStoreItem>((int) queueSize);
+        this.flushInterval = context.getWiki().ParamAsLong("stats.flush.interval", 1000);
+        this.flushSize = context.getWiki().ParamAsLong("stats.flush.size", 1000);
+        this.dropWhenFull = POLICY_DROP.equals(context.getWiki().Param("stats.queue.policy"));
+    }
+
+    /**
+     * @return the number of statistics waiting in the queue to be aggregated and stored
+     * @since 8.2M1
+     */
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the number of statistics dropped because the queue was full (when the queue policy is
+     *         {@code drop})
+     * @since 8.2M1
+     */
+    public long getDroppedCount()
+    {
+        return this.droppedCount.get();
     }
 
     @Override
@@ -136,6 +204,9 @@ public void runInternal()
 
     /**
      * Store the statistics in the queue.
+     * <p>
+     * The statistics with the same identifier received during the flush interval are aggregated and all the
+     * aggregated statistics of a wiki are stored in the same transaction.
      *
      * @throws InterruptedException thread has been interrupted.
      * @throws StopStatsStoreException service received stop order.
@@ -147,9 +218,13 @@ private void register() throws InterruptedException, StopStatsStoreException
         List<List<XWikiStatsStoreItem>> statsList = new ArrayList<List<XWikiStatsStoreItem>>();
         Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<String, List<XWikiStatsStoreItem>>();
 
+        long flushTime = System.currentTimeMillis() + this.flushInterval;
+        boolean stop = false;
+
         do {
             if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
+                stop = true;
+                break;
             }
 
             String statId = stat.getId();
@@ -165,11 +240,129 @@ private void register() throws InterruptedException, StopStatsStoreException
 
             stats.add(stat);
 
-            stat = this.queue.poll();
+            if (statsList.size() >= this.flushSize) {
+                break;
+            }
+
+            long timeout = flushTime - System.currentTimeMillis();
+            stat = timeout > 0 ? this.queue.poll(timeout, TimeUnit.MILLISECONDS) : this.queue.poll();
         } while (stat != null);
 
+        LOGGER.debug("Storing [{}] aggregated statistics, [{}] statistics waiting in the queue, [{}] dropped so far",
+            statsList.size(), this.queue.size(), this.droppedCount.get());
+
+        store(statsList);
+
+        if (stop) {
+            throw new StopStatsStoreException();
+        }
+    }
+
+    /**
+     * Store the passed aggregated statistics, in one transaction for each wiki.
+     *
+     * @param statsList the aggregated statistics
+     */
+    void store(List<List<XWikiStatsStoreItem>> statsList)
+    {
+        Map<String, List<List<XWikiStatsStoreItem>>> statsByWiki =
+            new LinkedHashMap<String, List<List<XWikiStatsStoreItem>>>();
         for (List<XWikiStatsStoreItem> stats : statsList) {
-            stats.get(0).store(stats);
+            XWikiStatsStoreItem stat = stats.get(0);
+            if (stat instanceof AbstractStatsStoreItem) {
+                String wiki = ((AbstractStatsStoreItem) stat).context.getWikiId();
+                List<List<XWikiStatsStoreItem>> wikiStats = statsByWiki.get(wiki);
+                if (wikiStats == null) {
+                    wikiStats = new ArrayList<List<XWikiStatsStoreItem>>();
+                    statsByWiki.put(wiki, wikiStats);
+                }
+                wikiStats.add(stats);
+            } else {
+                stat.store(stats);
+            }
+        }
+
+        for (List<List<XWikiStatsStoreItem>> wikiStats : statsByWiki.values()) {
+            storeWikiStats(wikiStats);
+        }
+    }
+
+    /**
+     * Store the passed aggregated statistics of a wiki in a single transaction. If that transaction fails, each
+     * aggregated statistic is stored again in its own transaction so that a failing one does not make the others lost.
+     *
+     * @param wikiStats the aggregated statistics of the wiki
+     */
+    private void storeWikiStats(List<List<XWikiStatsStoreItem>> wikiStats)
+    {
+        // The items only use their context to access the store and the database of their wiki, which are the same for
+        // all the items of a wiki. The items are thus stored with the context of the first one, which holds the
+        // Hibernate session of the transaction they have to join.
+        XWikiContext storeContext = ((AbstractStatsStoreItem) wikiStats.get(0).get(0)).context;
+
+        // Hibernate executes the statements when the transaction is committed and, when JDBC batching is enabled in
+        // the Hibernate configuration (jdbc.batch_size), can only send consecutive identical statements in the same
+        // batch, so group the statistics by type
+        Collections.sort(wikiStats, STATS_TYPE_COMPARATOR);
+
+        XWikiHibernateStore store = storeContext.getWiki().getHibernateStore();
+        if (store == null) {
+            return;
+        }
+
+        if (!storeInTransaction(wikiStats, store, storeContext) && wikiStats.size() > 1) {
+            for (List<XWikiStatsStoreItem> stats : wikiStats) {
+                storeInTransaction(Collections.singletonList(stats), store, storeContext);
+            }
+        }
+    }
+
+    /**
+     * Store the passed aggregated statistics of a wiki in a single transaction.
+     *
+     * @param wikiStats the aggregated statistics of the wiki
+     * @param store the store
+     * @param storeContext the XWiki context associated to the transaction
+     * @return true if the transaction has been committed, false if it has been rolled back
+     */
+    private boolean storeInTransaction(List<List<XWikiStatsStoreItem>> wikiStats, XWikiHibernateStore store,
+        XWikiContext storeContext)
+    {
+        ExecutionContext econtext = Utils.getComponent(Execution.class).getContext();
+        Object currentContext = econtext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+
+        boolean bTransaction = false;
+        try {
+            econtext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, storeContext);
+
+            // The statistics items start their own transactions which are ignored since one is already started
+            bTransaction = store.beginTransaction(storeContext);
+
+            for (List<XWikiStatsStoreItem> stats : wikiStats) {
+                ((AbstractStatsStoreItem) stats.get(0)).store(stats, storeContext);
+            }
+
+            if (bTransaction) {
+                bTransaction = false;
+                store.endTransaction(storeContext, true);
+            }
+
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Failed to store [{}] statistics of wiki [{}]", wikiStats.size(), storeContext.getWikiId(),
+                e);
+
+            return false;
+        } finally {
+            if (bTransaction) {
+                try {
+                    store.endTransaction(storeContext, false);
+                } catch (Exception e) {
+                    LOGGER.debug("Failed to rollback the statistics transaction", e);
+                }
+            }
+
+            econtext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, currentContext);
         }
     }
 
@@ -185,7 +378,13 @@ private void register() throws InterruptedException, StopStatsStoreException
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
         try {
-            this.queue.put(statsRegisterItem);
+            if (this.dropWhenFull) {
+                if (!this.queue.offer(statsRegisterItem)) {
+                    this.droppedCount.incrementAndGet();
+                }
+            } else {
+                this.queue.put(statsRegisterItem);
+            }
         } catch (InterruptedException e) {
             LOGGER.error("Statistics storage thread has been interrupted", e);
         }
@@ -19,9 +19,17 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
@@ -32,6 +40,7 @@
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.context.ExecutionContext;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
@@ -44,7 +53,9 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
+import com.xpn.xwiki.internal.store.DocumentExistenceFilter;
 import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.Utils;
 
 /**
@@ -57,6 +68,11 @@ public class XWikiCacheStore implements XWikiCacheStoreInterface, EventListener
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    /**
+     * The number of documents loaded at once when building an existence filter.
+     */
+    private static final int EXISTENCE_FILTER_BATCH_SIZE = 10000;
+
     private XWikiStoreInterface store;
 
     private Cache<XWikiDocument> cache;
@@ -67,6 +83,33 @@ public class XWikiCacheStore implements XWikiCacheStoreInterface, EventListener
 
     private int pageExistCacheCapacity = 10000;
 
+    /**
+     * Indicate if existence filters should be used to answer negative existence checks without asking the store.
+     */
+    private boolean existenceFilterEnabled = true;
+
+    /**
+     * The existence filters indexed by wiki.
+     */
+    private final Map<String, DocumentExistenceFilter> existenceFilters = new ConcurrentHashMap<>();
+
+    /**
+     * The existence filters being built, indexed by wiki. They replace the current ones once they are ready.
+     */
+    private final Map<String, DocumentExistenceFilter> pendingExistenceFilters = new ConcurrentHashMap<>();
+
+    /**
+     * The wikis for which an existence filter build is scheduled or running.
+     */
+    private final Set<String> existenceFilterBuilds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The thread building the existence filters, so that requests never wait for them.
+     */
+    private final ExecutorService existenceFilterExecutor = Executors.newSingleThreadExecutor(
+        new BasicThreadFactory.Builder().namingPattern("XWiki document existence filter builder").daemon(true)
+            .build());
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -118,6 +161,11 @@ public synchronized void initCache(XWikiContext context) throws XWikiException
                 }
             } catch (Exception e) {
             }
+            try {
+                this.existenceFilterEnabled =
+                    !"0".equals(context.getWiki().Param("xwiki.store.cache.existencefilter", "1"));
+            } catch (Exception e) {
+            }
             initCache(this.cacheCapacity, this.pageExistCacheCapacity, context);
         }
     }
@@ -173,6 +221,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext context, boolean bTrans
         // on the cluster are informed about the change
         getCache().remove(key);
         getPageExistCache().remove(key);
+        addToExistenceFilter(doc);
 
         /*
          * We do not want to save the document in the cache at this time. If we did, this would introduce the
@@ -194,11 +243,24 @@ public void flushCache()
             this.pageExistCache.dispose();
             this.pageExistCache = null;
         }
+
+        this.existenceFilters.clear();
+        this.pendingExistenceFilters.clear();
     }
 
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        // Documents can be created without going through this store (for example when the underlying store is used
+        // directly) and a missing document in an existence filter would make it invisible
+        if (event instanceof DocumentCreatedEvent) {
+            addToExistenceFilter((XWikiDocument) source);
+        } else if (event instanceof WikiDeletedEvent) {
+            String wiki = ((WikiDeletedEvent) event).getWikiId();
+            this.existenceFilters.remove(wiki);
+            this.pendingExistenceFilters.remove(wiki);
+        }
+
         // only react to remote events since local actions are already taken into account
         if (this.remoteObservationManagerContext.isRemoteState()) {
             if (event instanceof WikiDeletedEvent) {
@@ -324,6 +386,76 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throw
         return doc;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Documents found in the cache are returned directly, the others are loaded from the persistent storage in a
+     * single call and put in the cache.
+     *
+     * @see com.xpn.xwiki.store.XWikiStoreInterface#loadXWikiDocs(java.util.List, com.xpn.xwiki.XWikiContext)
+     */
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> docs, XWikiContext context) throws XWikiException
+    {
+        // Make sure cache is initialized
+        initCache(context);
+
+        XWikiDocument[] loadedDocuments = new XWikiDocument[docs.size()];
+
+        List<XWikiDocument> missingDocuments = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+
+        for (int i = 0; i < loadedDocuments.length; ++i) {
+            XWikiDocument doc = docs.get(i);
+            String key = doc.getKey();
+
+            XWikiDocument cachedoc;
+            try {
+                cachedoc = getCache().get(key);
+            } catch (Exception e) {
+                LOGGER.error("Failed to get document from the cache", e);
+
+                cachedoc = null;
+            }
+
+            if (cachedoc != null) {
+                cachedoc.setFromCache(true);
+                loadedDocuments[i] = cachedoc;
+            } else if (getPageExistCache().get(key) == Boolean.FALSE) {
+                doc.setStore(this.store);
+                doc.setNew(true);
+                doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+                loadedDocuments[i] = doc;
+            } else {
+                missingDocuments.add(doc);
+                missingIndexes.add(i);
+            }
+        }
+
+        if (!missingDocuments.isEmpty()) {
+            LOGGER.debug("Cache: Trying to get {} docs from persistent storage", missingDocuments.size());
+
+            List<XWikiDocument> storedDocuments = this.store.loadXWikiDocs(missingDocuments, context);
+
+            for (int i = 0; i < storedDocuments.size(); ++i) {
+                XWikiDocument doc = storedDocuments.get(i);
+                doc.setStore(this.store);
+
+                String key = doc.getKey();
+                if (doc.isNew()) {
+                    getPageExistCache().set(key, Boolean.FALSE);
+                } else {
+                    getCache().set(key, doc);
+                    getPageExistCache().set(key, Boolean.TRUE);
+                }
+
+                loadedDocuments[missingIndexes.get(i)] = doc;
+            }
+        }
+
+        return Arrays.asList(loadedDocuments);
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException
     {
@@ -653,12 +785,171 @@ public boolean exists(XWikiDocument doc, XWikiContext context) throws XWikiExcep
         } catch (Exception e) {
         }
 
-        boolean result = this.store.exists(doc, context);
+        boolean result;
+        DocumentExistenceFilter filter = getExistenceFilter(context);
+        if (filter != null && !filter.mightContain(doc.getFullName(), doc.getLocale())) {
+            result = false;
+        } else {
+            result = this.store.exists(doc, context);
+        }
         getPageExistCache().set(key, new Boolean(result));
 
         return result;
     }
 
+    /**
+     * @param context the XWiki context
+     * @return the existence filter of the current wiki, null if it's disabled or not ready yet
+     */
+    private DocumentExistenceFilter getExistenceFilter(XWikiContext context)
+    {
+        if (!this.existenceFilterEnabled) {
+            return null;
+        }
+
+        String wiki = context.getWikiId();
+
+        DocumentExistenceFilter filter = this.existenceFilters.get(wiki);
+        if (filter == null) {
+            // The store is asked until the filter is built
+            scheduleExistenceFilterBuild(wiki, context);
+
+            return null;
+        }
+
+        return filter.isReady() ? filter : null;
+    }
+
+    /**
+     * Build the existence filter of the passed wiki in the background, unless it's already being built. The current
+     * filter, if any, keeps being used until the new one is ready.
+     *
+     * @param wiki the wiki
+     * @param context the XWiki context
+     */
+    private void scheduleExistenceFilterBuild(String wiki, XWikiContext context)
+    {
+        if (this.existenceFilterBuilds.add(wiki)) {
+            XWikiContext buildContext = context.clone();
+            buildContext.setWikiId(wiki);
+            // Don't share the Hibernate session of the current request
+            buildContext.remove("hibsession");
+            buildContext.remove("hibtransaction");
+
+            this.existenceFilterExecutor.execute(new ExistenceFilterBuilder(wiki, buildContext));
+        }
+    }
+
+    private void buildExistenceFilter(String wiki, XWikiContext context)
+    {
+        try {
+            int count = this.store.countDocuments("", context);
+
+            // Leave room for the documents created after the filter is built
+            DocumentExistenceFilter filter = new DocumentExistenceFilter(Math.max(count * 2,
+                this.pageExistCacheCapacity));
+
+            // Register the filter before loading the existing documents so that the documents created in the meantime
+            // are added to it
+            this.pendingExistenceFilters.put(wiki, filter);
+
+            // Keyset pagination on the document identifier, an offset would skip documents when some are deleted
+            // during the build
+            String sql = "select doc.id, doc.fullName, doc.language from XWikiDocument as doc where doc.id > ? "
+                + "order by doc.id";
+            Long lastId = Long.MIN_VALUE;
+            List<Object[]> documents;
+            do {
+                documents = this.store.search(sql, EXISTENCE_FILTER_BATCH_SIZE, 0, Arrays.asList(lastId), context);
+                for (Object[] document : documents) {
+                    filter.add((String) document[1], (String) document[2]);
+                }
+                if (!documents.isEmpty()) {
+                    lastId = (Long) documents.get(documents.size() - 1)[0];
+                }
+            } while (documents.size() == EXISTENCE_FILTER_BATCH_SIZE);
+
+            filter.setReady();
+
+            // Publish the filter before unregistering it so that a document saved in the meantime always reaches it,
+            // either as the pending filter or as the current one (unless the wiki has been deleted during the build)
+            if (this.pendingExistenceFilters.get(wiki) == filter) {
+                this.existenceFilters.put(wiki, filter);
+                this.pendingExistenceFilters.remove(wiki, filter);
+            }
+
+            LOGGER.debug("Built the existence filter of wiki [{}] with [{}] documents", wiki, count);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to build the existence filter of wiki [{}], the store will be asked instead: {}", wiki,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            this.pendingExistenceFilters.remove(wiki);
+
+            // Keep a never ready filter to not try again for each call
+            this.existenceFilters.put(wiki, new DocumentExistenceFilter(1));
+        }
+    }
+
+    private void addToExistenceFilter(XWikiDocument doc)
+    {
+        String wiki = doc.getDocumentReference().getWikiReference().getName();
+
+        // Look at the filter being built first: if it replaces the current one in the meantime, the document is added
+        // to it below
+        DocumentExistenceFilter pendingFilter = this.pendingExistenceFilters.get(wiki);
+        if (pendingFilter != null) {
+            pendingFilter.add(doc.getFullName(), doc.getLanguage());
+        }
+
+        DocumentExistenceFilter filter = this.existenceFilters.get(wiki);
+        if (filter != null && filter != pendingFilter) {
+            filter.add(doc.getFullName(), doc.getLanguage());
+
+            if (filter.isReady() && filter.isFull()) {
+                // The false positive rate is getting too high, rebuild it while still using the current one
+                XWikiContext context = Utils.getContext();
+                if (context != null) {
+                    scheduleExistenceFilterBuild(wiki, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the existence filter of a wiki in its own execution context.
+     *
+     * @version $Id$
+     */
+    private final class ExistenceFilterBuilder extends AbstractXWikiRunnable
+    {
+        private final String wiki;
+
+        private XWikiContext context;
+
+        ExistenceFilterBuilder(String wiki, XWikiContext context)
+        {
+            this.wiki = wiki;
+            this.context = context;
+        }
+
+        @Override
+        protected void declareProperties(ExecutionContext executionContext)
+        {
+            this.context.declareInExecutionContext(executionContext);
+        }
+
+        @Override
+        protected void runInternal()
+        {
+            try {
+                buildExistenceFilter(this.wiki, this.context);
+            } finally {
+                existenceFilterBuilds.remove(this.wiki);
+                this.context = null;
+            }
+        }
+    }
+
     public Cache<XWikiDocument> getCache()
     {
         return this.cache;
@@ -44,6 +44,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.EntityMode;
@@ -115,6 +116,48 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The maximum number of values passed to a single IN clause when loading several documents at once.
+     */
+    private static final int MAX_IN_VALUES = 500;
+
+    /**
+     * Rows fetched at once for a set of documents so that loading each of them does not query the database again.
+     *
+     * @version $Id$
+     */
+    private static class LoadPrefetch
+    {
+        /**
+         * The identifiers of the documents that exist in the database.
+         */
+        private final Set<Long> documentIds = new HashSet<>();
+
+        /**
+         * The objects of the documents, indexed by document full name and ordered by number.
+         */
+        private final Map<String, List<BaseObject>> objects = new HashMap<>();
+
+        /**
+         * The name and type of the properties of the objects, indexed by object identifier.
+         */
+        private final Map<Long, List<Object[]>> properties = new HashMap<>();
+
+        List<BaseObject> getObjects(String documentFullName)
+        {
+            List<BaseObject> documentObjects = this.objects.get(documentFullName);
+
+            return documentObjects != null ? documentObjects : Collections.<BaseObject>emptyList();
+        }
+
+        List<Object[]> getProperties(long objectId)
+        {
+            List<Object[]> objectProperties = this.properties.get(objectId);
+
+            return objectProperties != null ? objectProperties : Collections.<Object[]>emptyList();
+        }
+    }
+
     @Inject
     private Logger logger;
 
@@ -850,6 +893,140 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiEx
 
     @Override
     public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
+    {
+        return loadXWikiDoc(doc, inputxcontext, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The existence of the documents, their objects and the list of properties of these objects are fetched for all
+     * the documents at once with a few IN queries, in a single transaction.
+     *
+     * @see com.xpn.xwiki.store.XWikiStoreInterface#loadXWikiDocs(java.util.List, com.xpn.xwiki.XWikiContext)
+     */
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> docs, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getXWikiContext(inputxcontext);
+
+        List<XWikiDocument> loadedDocuments = new ArrayList<>(docs.size());
+
+        boolean bTransaction = true;
+        MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        try {
+            // Start monitoring timer
+            if (monitor != null) {
+                monitor.startTimer("hibernate");
+            }
+            checkHibernate(context);
+
+            bTransaction = beginTransaction(false, context);
+            Session session = getSession(context);
+            session.setFlushMode(FlushMode.MANUAL);
+
+            LoadPrefetch prefetch = prefetch(docs, session);
+
+            for (XWikiDocument doc : docs) {
+                loadedDocuments.add(loadXWikiDoc(doc, context, prefetch));
+            }
+
+            if (bTransaction) {
+                endTransaction(context, false, false);
+            }
+        } catch (XWikiException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading documents", e);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false, false);
+                }
+            } catch (Exception e) {
+            }
+
+            // End monitoring timer
+            if (monitor != null) {
+                monitor.endTimer("hibernate");
+            }
+        }
+
+        return loadedDocuments;
+    }
+
+    /**
+     * Fetch, with a few IN queries, the rows needed to load the passed documents.
+     *
+     * @param docs the documents to load
+     * @param session the current session
+     * @return the fetched rows
+     */
+    private LoadPrefetch prefetch(List<XWikiDocument> docs, Session session)
+    {
+        LoadPrefetch prefetch = new LoadPrefetch();
+
+        List<Long> documentIds = new ArrayList<>(docs.size());
+        for (XWikiDocument doc : docs) {
+            documentIds.add(doc.getId());
+        }
+        for (List<Long> ids : ListUtils.partition(documentIds, MAX_IN_VALUES)) {
+            Query query = session.createQuery("select doc.id from XWikiDocument as doc where doc.id in (:ids)");
+            query.setParameterList("ids", ids);
+            prefetch.documentIds.addAll((List<Long>) query.list());
+        }
+
+        List<String> documentNames = new ArrayList<>(prefetch.documentIds.size());
+        for (XWikiDocument doc : docs) {
+            if (prefetch.documentIds.contains(doc.getId())) {
+                documentNames.add(doc.getFullName());
+            }
+        }
+        List<Long> objectIds = new ArrayList<>();
+        for (List<String> names : ListUtils.partition(documentNames, MAX_IN_VALUES)) {
+            Query query = session.createQuery(
+                "from BaseObject as bobject where bobject.name in (:names) order by bobject.name, bobject.number");
+            query.setParameterList("names", names);
+            for (BaseObject object : (List<BaseObject>) query.list()) {
+                List<BaseObject> documentObjects = prefetch.objects.get(object.getName());
+                if (documentObjects == null) {
+                    documentObjects = new ArrayList<>();
+                    prefetch.objects.put(object.getName(), documentObjects);
+                }
+                documentObjects.add(object);
+                objectIds.add(object.getId());
+            }
+        }
+
+        for (List<Long> ids : ListUtils.partition(objectIds, MAX_IN_VALUES)) {
+            Query query = session.createQuery(
+                "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)");
+            query.setParameterList("ids", ids);
+            for (Object[] result : (List<Object[]>) query.list()) {
+                Long objectId = (Long) result[0];
+                List<Object[]> objectProperties = prefetch.properties.get(objectId);
+                if (objectProperties == null) {
+                    objectProperties = new ArrayList<>();
+                    prefetch.properties.put(objectId, objectProperties);
+                }
+                objectProperties.add(new Object[] { result[1], result[2] });
+            }
+        }
+
+        return prefetch;
+    }
+
+    /**
+     * @param doc the document to load
+     * @param inputxcontext the XWiki context
+     * @param prefetch the rows already fetched for this document, null to query them
+     * @return the loaded document
+     * @throws XWikiException when failing to load the document
+     */
+    private XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, LoadPrefetch prefetch)
+        throws XWikiException
     {
         XWikiContext context = getXWikiContext(inputxcontext);
 
@@ -870,6 +1047,9 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             session.setFlushMode(FlushMode.MANUAL);
 
             try {
+                if (prefetch != null && !prefetch.documentIds.contains(doc.getId())) {
+                    throw new ObjectNotFoundException(doc.getId(), XWikiDocument.class.getName());
+                }
                 session.load(doc, new Long(doc.getId()));
                 doc.setNew(false);
                 doc.setMostRecent(true);
@@ -906,12 +1086,16 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             context.addBaseClass(bclass);
 
             if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
-                Query query =
-                    session.createQuery("from BaseObject as bobject where bobject.name = :name order by "
-                        + "bobject.number");
-                query.setText("name", doc.getFullName());
-                @SuppressWarnings("unchecked")
-                Iterator<BaseObject> it = query.list().iterator();
+                Iterator<BaseObject> it;
+                if (prefetch != null) {
+                    it = prefetch.getObjects(doc.getFullName()).iterator();
+                } else {
+                    Query query =
+                        session.createQuery("from BaseObject as bobject where bobject.name = :name order by "
+                            + "bobject.number");
+                    query.setText("name", doc.getFullName());
+                    it = query.list().iterator();
+                }
 
                 EntityReference localGroupEntityReference =
                     new EntityReference("XWikiGroups", EntityType.DOCUMENT, new EntityReference("XWiki",
@@ -954,7 +1138,8 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                         // Groups objects are handled differently.
                         hasGroups = true;
                     } else {
-                        loadXWikiCollectionInternal(object, doc, context, false, true);
+                        loadXWikiCollectionInternal(object, doc, context, false, true,
+                            prefetch != null ? prefetch.getProperties(object.getId()) : null);
                     }
                     doc.setXObject(object.getNumber(), object);
                 }
@@ -1293,6 +1478,15 @@ private void loadXWikiCollectionInternal(BaseCollection object, XWikiContext con
 
     private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument doc, XWikiContext inputxcontext,
         boolean bTransaction, boolean alreadyLoaded) throws XWikiException
+    {
+        loadXWikiCollectionInternal(object1, doc, inputxcontext, bTransaction, alreadyLoaded, null);
+    }
+
+    /**
+     * @param prefetchedProperties the name and type of the object properties when already fetched, null to query them
+     */
+    private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument doc, XWikiContext inputxcontext,
+        boolean bTransaction, boolean alreadyLoaded, List<Object[]> prefetchedProperties) throws XWikiException
     {
         XWikiContext context = getXWikiContext(inputxcontext);
 
@@ -1350,11 +1544,16 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
 
                 // Load strings, integers, dates all at once
 
-                Query query =
-                    session
+                List<Object[]> properties;
+                if (prefetchedProperties != null) {
+                    properties = prefetchedProperties;
+                } else {
+                    Query query = session
                         .createQuery("select prop.name, prop.classType from BaseProperty as prop where prop.id.id = :id");
-                query.setLong("id", object.getId());
-                for (Object[] result : (List<Object[]>) query.list()) {
+                    query.setLong("id", object.getId());
+                    properties = query.list();
+                }
+                for (Object[] result : properties) {
                     String name = (String) result[0];
                     // No need to load fields already loaded from
                     // custom mapping
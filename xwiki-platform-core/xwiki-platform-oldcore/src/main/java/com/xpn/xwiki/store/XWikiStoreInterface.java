@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
@@ -41,6 +42,28 @@
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents at once. All the documents must be located in the current wiki.
+     * <p>
+     * The default implementation loads the documents one by one, stores are expected to override it when they can
+     * fetch several documents in fewer requests.
+     *
+     * @param docs the documents to load
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed documents
+     * @throws XWikiException when failing to load the documents
+     * @since 8.2M1
+     */
+    default List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> docs, XWikiContext context) throws XWikiException
+    {
+        List<XWikiDocument> loadedDocuments = new ArrayList<>(docs.size());
+        for (XWikiDocument doc : docs) {
+            loadedDocuments.add(loadXWikiDoc(doc, context));
+        }
+
+        return loadedDocuments;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
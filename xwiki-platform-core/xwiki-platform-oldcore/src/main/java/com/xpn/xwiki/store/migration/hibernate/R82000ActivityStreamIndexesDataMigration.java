@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store.migration.hibernate;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Migration adding the composite indexes used to get the most recent activity stream events of a stream, a space or a
+ * user without sorting all their events.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Named("R82000ActivityStreamIndexes")
+@Singleton
+public class R82000ActivityStreamIndexesDataMigration extends AbstractHibernateDataMigration
+{
+    private static final String TABLE = "activitystream_events";
+
+    private static final String DATE_COLUMN = "ase_date";
+
+    @Override
+    public String getDescription()
+    {
+        return "Add composite indexes to the activity stream events table";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(82000);
+    }
+
+    @Override
+    public void hibernateMigrate() throws DataMigrationException, XWikiException
+    {
+        // Nothing to do here, all the work is done as Liquibase changes
+    }
+
+    @Override
+    public String getPreHibernateLiquibaseChangeLog() throws DataMigrationException
+    {
+        StringBuilder result = new StringBuilder();
+        appendCreateIndex(result, "EVENT_STREAM_DATE", "ase_stream");
+        appendCreateIndex(result, "EVENT_USER_DATE", "ase_user");
+        appendCreateIndex(result, "EVENT_SPACE_DATE", "ase_space");
+        return result.toString();
+    }
+
+    private void appendCreateIndex(StringBuilder result, String indexName, String column)
+    {
+        result.append("  <changeSet id=\"R").append(this.getVersion().getVersion()).append('-').append(indexName)
+            .append("\" author=\"xwikiorg\">\n")
+            .append("    <preConditions onFail=\"CONTINUE\">\n")
+            .append("      <tableExists tableName=\"").append(TABLE).append("\"/>\n")
+            .append("      <not><indexExists tableName=\"").append(TABLE).append("\" indexName=\"").append(indexName)
+            .append("\"/></not>\n")
+            .append("    </preConditions>\n")
+            .append("    <createIndex tableName=\"").append(TABLE).append("\" indexName=\"").append(indexName)
+            .append("\">\n")
+            .append("      <column name=\"").append(column).append("\"/>\n")
+            .append("      <column name=\"").append(DATE_COLUMN).append("\"/>\n")
+            .append("    </createIndex>\n")
+            .append("  </changeSet>\n");
+    }
+}
@@ -78,6 +78,7 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseObject;
@@ -555,6 +556,11 @@ public ActionForward execute(XWikiContext context) throws Exception
                 getProgress().popLevelProgress(this);
             }
         } finally {
+            if (LOGGER.isDebugEnabled() && context.get(Document.CONTEXT_CLONECOUNT) != null) {
+                LOGGER.debug("[{}] documents cloned by the document API while executing action [{}] on [{}]",
+                    context.get(Document.CONTEXT_CLONECOUNT), context.getAction(), docName);
+            }
+
             // End request
             if (monitor != null) {
                 monitor.endRequest();
@@ -20,9 +20,12 @@
 package com.xpn.xwiki;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -62,6 +65,7 @@
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.XWikiCfgConfigurationSource;
+import com.xpn.xwiki.internal.cache.rendering.RenderingDependencies;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.store.AttachmentRecycleBinStore;
 import com.xpn.xwiki.store.XWikiRecycleBinStoreInterface;
@@ -72,6 +76,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
@@ -511,4 +516,127 @@ public String answer(InvocationOnMock invocation) throws Throwable
         assertEquals("pref1value1", this.xwiki.getSpacePreference("pref1", space2Reference, this.context));
         assertEquals("pref2value2", this.xwiki.getSpacePreference("pref2", space2Reference, this.context));
     }
+
+    @Test
+    public void getDocumentsLoadsTheDocumentsOfEachWikiAtOnce() throws Exception
+    {
+        DocumentReference first = new DocumentReference("foo", "Space", "First");
+        DocumentReference second = new DocumentReference("bar", "Space", "Second");
+        DocumentReference third = new DocumentReference("foo", "Space", "Third");
+
+        final List<String> loadedWikis = new ArrayList<>();
+        final List<List<DocumentReference>> loadedReferences = new ArrayList<>();
+        when(this.storeMock.loadXWikiDocs(anyListOf(XWikiDocument.class), same(this.context))).thenAnswer(
+            new Answer<List<XWikiDocument>>()
+            {
+                @Override
+                public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+                {
+                    @SuppressWarnings("unchecked")
+                    List<XWikiDocument> documents = (List<XWikiDocument>) invocation.getArguments()[0];
+
+                    loadedWikis.add(context.getWikiId());
+                    List<DocumentReference> references = new ArrayList<>();
+                    List<XWikiDocument> loadedDocuments = new ArrayList<>();
+                    for (XWikiDocument document : documents) {
+                        references.add(document.getDocumentReference());
+                        XWikiDocument loadedDocument =
+                            new XWikiDocument(document.getDocumentReference(), document.getLocale());
+                        loadedDocument.setNew(Locale.FRENCH.equals(document.getLocale()));
+                        loadedDocuments.add(loadedDocument);
+                    }
+                    loadedReferences.add(references);
+
+                    return loadedDocuments;
+                }
+            });
+
+        this.context.setWikiId("xwiki");
+
+        List<XWikiDocument> documents = this.xwiki.getDocuments(
+            Arrays.asList(first, second, new DocumentReference(third, Locale.FRENCH)), this.context);
+
+        // One call per wiki, in the context of that wiki.
+        assertEquals(Arrays.asList("foo", "bar"), loadedWikis);
+        assertEquals(Arrays.asList(Arrays.asList(first, third), Arrays.asList(second)), loadedReferences);
+        assertEquals("xwiki", this.context.getWikiId());
+
+        // The documents are returned in the requested order, missing ones included.
+        assertEquals(3, documents.size());
+        assertEquals(first, documents.get(0).getDocumentReference());
+        assertEquals(second, documents.get(1).getDocumentReference());
+        assertEquals(third, documents.get(2).getDocumentReference());
+        assertEquals(Locale.FRENCH, documents.get(2).getLocale());
+        Assert.assertFalse(documents.get(0).isNew());
+        Assert.assertTrue(documents.get(2).isNew());
+    }
+
+    @Test
+    public void getDocumentsLoadsDuplicateReferencesOnce() throws Exception
+    {
+        DocumentReference page = new DocumentReference("foo", "Space", "Page");
+        DocumentReference other = new DocumentReference("foo", "Space", "Other");
+
+        final List<List<DocumentReference>> loadedReferences = new ArrayList<>();
+        when(this.storeMock.loadXWikiDocs(anyListOf(XWikiDocument.class), same(this.context))).thenAnswer(
+            new Answer<List<XWikiDocument>>()
+            {
+                @Override
+                public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+                {
+                    @SuppressWarnings("unchecked")
+                    List<XWikiDocument> documents = (List<XWikiDocument>) invocation.getArguments()[0];
+
+                    List<DocumentReference> references = new ArrayList<>();
+                    List<XWikiDocument> loadedDocuments = new ArrayList<>();
+                    for (XWikiDocument document : documents) {
+                        references.add(document.getDocumentReference());
+                        loadedDocuments.add(new XWikiDocument(document.getDocumentReference()));
+                    }
+                    loadedReferences.add(references);
+
+                    return loadedDocuments;
+                }
+            });
+
+        List<XWikiDocument> documents = this.xwiki.getDocuments(
+            Arrays.asList(page, other, new DocumentReference("foo", "Space", "Page")), this.context);
+
+        // Each document is asked to the store only once.
+        assertEquals(Arrays.asList(Arrays.asList(page, other)), loadedReferences);
+
+        // But it's returned for each of its references.
+        assertEquals(3, documents.size());
+        assertEquals(page, documents.get(0).getDocumentReference());
+        assertEquals(other, documents.get(1).getDocumentReference());
+        Assert.assertSame(documents.get(0), documents.get(2));
+    }
+
+    @Test
+    public void existsRecordsTheRenderingDependency() throws Exception
+    {
+        DocumentReference reference = new DocumentReference("foo", "Space", "Page");
+
+        RenderingDependencies.start("rendering", this.context);
+        Assert.assertFalse(this.xwiki.exists(reference, this.context));
+
+        // The rendering has to be invalidated when the document is created.
+        assertEquals(Collections.singleton(reference), RenderingDependencies.stop("rendering", this.context));
+    }
+
+    @Test
+    public void getDocumentsRestoresTheCurrentWikiOnFailure() throws Exception
+    {
+        when(this.storeMock.loadXWikiDocs(anyListOf(XWikiDocument.class), same(this.context))).thenThrow(
+            new XWikiException());
+
+        this.context.setWikiId("xwiki");
+
+        try {
+            this.xwiki.getDocuments(Arrays.asList(new DocumentReference("foo", "Space", "Page")), this.context);
+            Assert.fail("Should have thrown an exception");
+        } catch (XWikiException expected) {
+            assertEquals("xwiki", this.context.getWikiId());
+        }
+    }
 }
@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.api;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import org.junit.Assert;
@@ -110,6 +112,123 @@ public void testRemoveObjectDoesntCauseDataLoss() throws XWikiException
         }
     }
 
+    public void testReadingObjectsDoesntCloneDocument() throws XWikiException
+    {
+        XWikiContext context = new XWikiContext();
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Wiki", "Space", "Page"));
+
+        doc.getXClass().addNumberField("prop", "prop", 5, "long");
+        BaseObject obj = (BaseObject) doc.getXClass().newObject(context);
+        obj.setLongValue("prop", 1);
+        doc.addObject(doc.getFullName(), obj);
+
+        Document adoc = new Document(doc, context);
+        Object aobj = adoc.getObject(adoc.getFullName());
+        assertEquals(1, ((Number) aobj.getValue("prop")).intValue());
+        assertSame(doc, adoc.doc);
+        assertNull(context.get(Document.CONTEXT_CLONECOUNT));
+
+        String guid = obj.getGuid();
+        aobj.setGuid("newguid");
+
+        // The object switched to the clone of the document
+        assertNotSame(doc, adoc.doc);
+        assertEquals(1, context.get(Document.CONTEXT_CLONECOUNT));
+        assertEquals(guid, obj.getGuid());
+        assertEquals("newguid", adoc.doc.getXObject(doc.getDocumentReference()).getGuid());
+        assertEquals("newguid", aobj.getGuid());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testModifyingValuesInPlaceDoesntModifySharedObject() throws XWikiException
+    {
+        XWikiContext context = new XWikiContext();
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Wiki", "Space", "Page"));
+
+        BaseObject obj = (BaseObject) doc.getXClass().newObject(context);
+        obj.setStringListValue("list", Arrays.asList("a", "b"));
+        obj.setDateValue("date", new Date(1000L));
+        doc.addObject(doc.getFullName(), obj);
+
+        Document adoc = new Document(doc, context);
+        Object aobj = adoc.getObject(adoc.getFullName());
+
+        // Reading an immutable value doesn't clone the document
+        assertEquals(obj.getGuid(), aobj.getGuid());
+        assertSame(doc, adoc.doc);
+
+        // The mutable values are taken from the document clone
+        ((List<String>) aobj.getValue("list")).add("c");
+        ((Date) aobj.getProperty("date").getValue()).setTime(2000L);
+
+        // The object shared with the document cache is left untouched
+        assertNotSame(doc, adoc.doc);
+        assertEquals(Arrays.asList("a", "b"), obj.getListValue("list"));
+        assertEquals(new Date(1000L), obj.getDateValue("date"));
+
+        BaseObject copy = adoc.doc.getXObject(doc.getDocumentReference());
+        assertEquals(Arrays.asList("a", "b", "c"), copy.getListValue("list"));
+        assertEquals(new Date(2000L), copy.getDateValue("date"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testModifyingValueInPlaceThenSaving() throws XWikiException
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Wiki", "Space", "Page"));
+        BaseObject obj = (BaseObject) doc.getXClass().newObject(getContext());
+        obj.setStringListValue("list", Arrays.asList("a", "b"));
+        doc.addObject(doc.getFullName(), obj);
+
+        Mock mockRightService = mock(XWikiRightService.class);
+        mockRightService.stubs().method("hasAccessLevel").will(returnValue(true));
+        Mock mockXWiki = mock(XWiki.class);
+        mockXWiki.stubs().method("getRightService").will(returnValue(mockRightService.proxy()));
+        mockXWiki.expects(once()).method("saveDocument").with(ANYTHING, ANYTHING, ANYTHING, ANYTHING)
+            .will(new CustomStub("Make sure the modification made in place is saved")
+            {
+                @Override
+                public java.lang.Object invoke(Invocation invocation) throws Throwable
+                {
+                    XWikiDocument savedDocument = (XWikiDocument) invocation.parameterValues.get(0);
+                    assertEquals(Arrays.asList("a", "b", "c"),
+                        savedDocument.getXObject(savedDocument.getDocumentReference()).getListValue("list"));
+                    return null;
+                }
+            });
+        getContext().setWiki((XWiki) mockXWiki.proxy());
+        getContext().setUser("XWiki.Alice");
+
+        Document adoc = new Document(doc, getContext());
+        ((List<String>) adoc.getObject(adoc.getFullName()).getProperty("list").getValue()).add("c");
+        adoc.save();
+
+        assertEquals(Arrays.asList("a", "b"), obj.getListValue("list"));
+    }
+
+    public void testModifyingAnObjectRemovedFromTheClone() throws XWikiException
+    {
+        XWikiContext context = new XWikiContext();
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Wiki", "Space", "Page"));
+
+        BaseObject obj = (BaseObject) doc.getXClass().newObject(context);
+        doc.addObject(doc.getFullName(), obj);
+        String guid = obj.getGuid();
+
+        Document adoc = new Document(doc, context);
+        Object aobj = adoc.getObject(adoc.getFullName());
+
+        adoc.getDoc().removeXObject(adoc.doc.getXObject(doc.getDocumentReference()));
+
+        try {
+            aobj.setGuid("newguid");
+            fail("Should have failed to modify an object which is not part of the document clone");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        assertEquals(guid, obj.getGuid());
+    }
+
     public void testSaveAsAuthorUsesGuestIfDroppedPermissions() throws XWikiException
     {
         final XWikiDocument xdoc = new XWikiDocument("Space", "Page");
@@ -36,6 +36,10 @@
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.display.internal.DocumentDisplayer;
+import org.xwiki.display.internal.DocumentDisplayerParameters;
+import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -58,6 +62,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.internal.cache.rendering.RenderingCache;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.StringProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
@@ -76,12 +81,14 @@
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -1406,4 +1413,31 @@ public boolean validateDocument(XWikiDocument doc, XWikiContext context)
         assertFalse(this.document.validate(this.oldcore.getXWikiContext()));
         assertFalse(this.baseClass.validateObject(this.baseObject, this.oldcore.getXWikiContext()));
     }
+
+    @Test
+    public void getRenderedContentWhenRenderingFails() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(JobProgressManager.class);
+        RenderingCache renderingCache = this.oldcore.getMocker().registerMockComponent(RenderingCache.class);
+        DocumentDisplayer documentDisplayer =
+            this.oldcore.getMocker().registerMockComponent(DocumentDisplayer.class, "configured");
+        doReturn("").when(this.oldcore.getSpyXWiki()).getLanguagePreference(any(XWikiContext.class));
+
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE);
+        document.setContent("content");
+        when(documentDisplayer.display(any(DocumentModelBridge.class), any(DocumentDisplayerParameters.class)))
+            .thenThrow(new RuntimeException("Failed to render"));
+
+        try {
+            document.getRenderedContent(Syntax.XHTML_1_0, this.oldcore.getXWikiContext());
+            fail("The rendering should have failed");
+        } catch (RuntimeException expected) {
+            assertEquals("Failed to render", expected.getMessage());
+        }
+
+        // The documents used by the failed rendering are not recorded anymore
+        verify(renderingCache).cancelRenderedContent(DOCUMENT_REFERENCE, "content", this.oldcore.getXWikiContext());
+        verify(renderingCache, never()).setRenderedContent(any(DocumentReference.class), anyString(), anyString(),
+            any(XWikiContext.class));
+    }
 }
@@ -19,6 +19,9 @@
  */
 package com.xpn.xwiki.internal.cache;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.junit.Assert;
 
 import org.jmock.Expectations;
@@ -26,6 +29,7 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.ObservationManager;
 
@@ -102,4 +106,40 @@ public void testEventBasedCleanup() throws Exception
         Assert.assertNull(this.cache.get(this.document.getDocumentReference()));
         Assert.assertNull(this.cache.get(this.document.getDocumentReference(), "ext1", "ext2"));
     }
+
+    @Test
+    public void testDependencyBasedCleanup() throws Exception
+    {
+        XWikiDocument dependency = new XWikiDocument(new DocumentReference("wiki", "space", "dependency"));
+        dependency.setOriginalDocument(dependency.clone());
+
+        this.cache.set("data", Arrays.asList(dependency.getDocumentReference()),
+            this.document.getDocumentReference(), "ext1");
+        this.cache.set("data2", this.document.getDocumentReference(), "ext2");
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(dependency.getDocumentReference()), dependency,
+            getContext());
+
+        Assert.assertNull(this.cache.get(this.document.getDocumentReference(), "ext1"));
+        Assert.assertEquals("data2", this.cache.get(this.document.getDocumentReference(), "ext2"));
+    }
+
+    @Test
+    public void testMappingsCleanup() throws Exception
+    {
+        DocumentReference dependency = new DocumentReference("wiki", "space", "dependency");
+
+        this.cache.set("data", Arrays.asList(dependency), this.document.getDocumentReference(), "ext1");
+        this.cache.set("data2", Arrays.asList(dependency), this.document.getDocumentReference(), "ext2");
+
+        Map<?, ?> mappings = (Map<?, ?>) ReflectionUtils.getFieldValue(this.cache, "mappings");
+        Assert.assertEquals(2, mappings.size());
+
+        this.cache.remove("data", this.document.getDocumentReference(), "ext1");
+        this.cache.removeAll(dependency);
+
+        Assert.assertNull(this.cache.get(this.document.getDocumentReference(), "ext2"));
+        Assert.assertTrue(mappings.isEmpty());
+    }
 }
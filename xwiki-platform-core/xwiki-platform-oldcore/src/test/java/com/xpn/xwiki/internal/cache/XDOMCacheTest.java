@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.parser.ContentParser;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XDOMCache}.
+ *
+ * @version $Id$
+ */
+public class XDOMCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<XDOMCache> mocker = new MockitoComponentMockingRule<>(XDOMCache.class);
+
+    private Map<String, XDOM> cacheContent = new HashMap<>();
+
+    private ContentParser parser;
+
+    private DocumentReference source = new DocumentReference("wiki", "space", "page");
+
+    private XWikiContext xcontext;
+
+    @BeforeComponent
+    @SuppressWarnings("unchecked")
+    public void configure() throws Exception
+    {
+        ConfigurationSource configuration =
+            this.mocker.registerMockComponent(ConfigurationSource.class, "xwikiproperties");
+        when(configuration.getProperty("core.xdomcache.size", 200)).thenReturn(200);
+        when(configuration.getProperty("core.xdomcache.maxContentSize", 20000)).thenReturn(10);
+
+        Cache<XDOM> cache = mock(Cache.class);
+        when(cache.get(anyString())).thenAnswer(new Answer<XDOM>()
+        {
+            @Override
+            public XDOM answer(InvocationOnMock invocation) throws Throwable
+            {
+                return cacheContent.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                cacheContent.put((String) invocation.getArguments()[0], (XDOM) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(cache).set(anyString(), any(XDOM.class));
+
+        CacheManager cacheManager = this.mocker.registerMockComponent(CacheManager.class);
+        when(cacheManager.<XDOM>createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.mocker.getInstance(ContentParser.class);
+        when(this.parser.parse(anyString(), any(Syntax.class))).thenAnswer(new Answer<XDOM>()
+        {
+            @Override
+            public XDOM answer(InvocationOnMock invocation) throws Throwable
+            {
+                return new XDOM(Arrays.<Block>asList(new WordBlock((String) invocation.getArguments()[0])));
+            }
+        });
+
+        this.xcontext = mock(XWikiContext.class);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+
+        EntityReferenceSerializer<String> serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(this.source)).thenReturn("wiki:space.page");
+    }
+
+    @Test
+    public void parseSameContentOnce() throws Exception
+    {
+        XDOM xdom1 = this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_1, this.source);
+        XDOM xdom2 = this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_1, null);
+
+        verify(this.parser, times(1)).parse("content", Syntax.XWIKI_2_1);
+
+        assertNotSame(xdom1, xdom2);
+        assertEquals("content", ((WordBlock) xdom2.getChildren().get(0)).getWord());
+        assertEquals("wiki:space.page", xdom1.getMetaData().getMetaData(MetaData.SOURCE));
+        assertEquals(null, xdom2.getMetaData().getMetaData(MetaData.SOURCE));
+
+        // Another syntax
+        this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_0, null);
+
+        verify(this.parser, times(1)).parse("content", Syntax.XWIKI_2_0);
+    }
+
+    @Test
+    public void parseSameContentInDifferentWikis() throws Exception
+    {
+        this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_1, null);
+
+        when(this.xcontext.getWikiId()).thenReturn("otherwiki");
+        this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_1, null);
+        this.mocker.getComponentUnderTest().parse("content", Syntax.XWIKI_2_1, null);
+
+        verify(this.parser, times(2)).parse("content", Syntax.XWIKI_2_1);
+    }
+
+    @Test
+    public void parseLargeContent() throws Exception
+    {
+        this.mocker.getComponentUnderTest().parse("large content", Syntax.XWIKI_2_1, null);
+        this.mocker.getComponentUnderTest().parse("large content", Syntax.XWIKI_2_1, null);
+
+        verify(this.parser, times(2)).parse("large content", Syntax.XWIKI_2_1);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.cache.rendering;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jmock.Expectations;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.plugin.XWikiPluginManager;
+import com.xpn.xwiki.test.AbstractBridgedComponentTestCase;
+
+/**
+ * Unit test for {@link DefaultMacroOutputCache}.
+ * 
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class DefaultMacroOutputCacheTest extends AbstractBridgedComponentTestCase
+{
+    private XWiki mockXWiki;
+
+    private XWikiPluginManager mockPluginManager;
+
+    private XWikiDocument document;
+
+    private MacroOutputCache macroOutputCache;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        this.document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        getContext().setDoc(this.document);
+
+        this.mockXWiki = getMockery().mock(XWiki.class);
+        getContext().setWiki(this.mockXWiki);
+
+        this.mockPluginManager = getMockery().mock(XWikiPluginManager.class);
+
+        this.macroOutputCache = getComponentManager().getInstance(MacroOutputCache.class);
+
+        // @formatter:off
+        getMockery().checking(new Expectations() {{
+            allowing(mockXWiki).getPluginManager(); will(returnValue(mockPluginManager));
+            allowing(mockPluginManager).getPlugins();
+        }});
+        //@formatter:on
+    }
+
+    @Override
+    protected void registerComponents() throws Exception
+    {
+        super.registerComponents();
+
+        getConfigurationSource().setProperty("core.macrooutputcache.macros", Arrays.asList("include"));
+    }
+
+    private MacroTransformationContext createContext(String macroId, String reference)
+    {
+        MacroTransformationContext context = new MacroTransformationContext();
+        context.setCurrentMacroBlock(
+            new MacroBlock(macroId, Collections.singletonMap("reference", reference), false));
+
+        return context;
+    }
+
+    @Test
+    public void testGetSet() throws Exception
+    {
+        XWikiDocument included = new XWikiDocument(new DocumentReference("wiki", "space", "included"));
+        included.setOriginalDocument(included.clone());
+
+        MacroTransformationContext context = createContext("include", "included");
+
+        Assert.assertNull(this.macroOutputCache.get(context));
+        RenderingDependencies.add(included.getDocumentReference(), getContext());
+        this.macroOutputCache.set(Arrays.<Block>asList(new WordBlock("word")), context);
+
+        List<Block> blocks = this.macroOutputCache.get(context);
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals("word", ((WordBlock) blocks.get(0)).getWord());
+
+        // Different parameters
+        Assert.assertNull(this.macroOutputCache.get(createContext("include", "other")));
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(included.getDocumentReference()), included, getContext());
+
+        Assert.assertNull(this.macroOutputCache.get(context));
+    }
+
+    @Test
+    public void testNotCachedMacro() throws Exception
+    {
+        MacroTransformationContext context = createContext("display", "included");
+
+        Assert.assertNull(this.macroOutputCache.get(context));
+        this.macroOutputCache.set(Arrays.<Block>asList(new WordBlock("word")), context);
+
+        Assert.assertNull(this.macroOutputCache.get(context));
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        DocumentReference included = new DocumentReference("wiki", "space", "included");
+        MacroTransformationContext context = createContext("include", "included");
+
+        RenderingDependencies.start("outer", getContext());
+
+        Assert.assertNull(this.macroOutputCache.get(context));
+        RenderingDependencies.add(included, getContext());
+        this.macroOutputCache.cancel(context);
+
+        // The macro frame is closed and its dependencies go to the including content
+        Assert.assertEquals(Collections.singleton(included), RenderingDependencies.stop("outer", getContext()));
+        Assert.assertNull(getContext().get("renderingcache.dependencies"));
+    }
+}
@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.internal.cache.rendering;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,6 +29,7 @@
 import org.jmock.Expectations;
 import org.junit.Assert;
 import org.junit.Test;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.ObservationManager;
@@ -137,6 +139,105 @@ public void testGetSetRenderedContent() throws Exception
             getContext()));
     }
 
+    @Test
+    public void testDependencies() throws Exception
+    {
+        MockConfigurationSource source = getConfigurationSource();
+
+        source.setProperty("core.renderingcache.documents",
+            Collections.singletonList(this.document.getPrefixedFullName()));
+
+        XWikiDocument included = new XWikiDocument(new DocumentReference("wiki", "space", "included"));
+        included.setOriginalDocument(included.clone());
+
+        // Render the document while loading another one
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+        RenderingDependencies.add(included.getDocumentReference(), getContext());
+        this.renderingCache.setRenderedContent(this.document.getDocumentReference(), "source", "renderedContent",
+            getContext());
+
+        Assert.assertEquals("renderedContent",
+            this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext()));
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(included.getDocumentReference()), included,
+            getContext());
+
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+    }
+
+
+    @Test
+    public void testDependencyCreated() throws Exception
+    {
+        MockConfigurationSource source = getConfigurationSource();
+
+        source.setProperty("core.renderingcache.documents",
+            Collections.singletonList(this.document.getPrefixedFullName()));
+
+        XWikiDocument linked = new XWikiDocument(new DocumentReference("wiki", "space", "linked"));
+
+        // Render the document while checking if another one exists (e.g. to display a wanted link)
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+        RenderingDependencies.add(linked.getDocumentReference(), getContext());
+        this.renderingCache.setRenderedContent(this.document.getDocumentReference(), "source", "wantedLink",
+            getContext());
+
+        Assert.assertEquals("wantedLink",
+            this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext()));
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentCreatedEvent(linked.getDocumentReference()), linked, getContext());
+
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+    }
+
+    @Test
+    public void testRenderingFailure() throws Exception
+    {
+        MockConfigurationSource source = getConfigurationSource();
+
+        XWikiDocument included = new XWikiDocument(new DocumentReference("wiki", "space", "included"));
+        XWikiDocument used = new XWikiDocument(new DocumentReference("wiki", "space", "used"));
+        used.setOriginalDocument(used.clone());
+
+        source.setProperty("core.renderingcache.documents",
+            Arrays.asList(this.document.getPrefixedFullName(), included.getPrefixedFullName()));
+
+        // Render the document while including another one which fails to render
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+        Assert.assertNull(this.renderingCache.getRenderedContent(included.getDocumentReference(), "included",
+            getContext()));
+        RenderingDependencies.add(used.getDocumentReference(), getContext());
+        this.renderingCache.cancelRenderedContent(included.getDocumentReference(), "included", getContext());
+        this.renderingCache.setRenderedContent(this.document.getDocumentReference(), "source", "renderedContent",
+            getContext());
+
+        // Nothing is being recorded anymore
+        Assert.assertNull(getContext().get("renderingcache.dependencies"));
+
+        Assert.assertEquals("renderedContent",
+            this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source", getContext()));
+
+        // The documents loaded before the failure are still dependencies of the including document
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(used.getDocumentReference()), used, getContext());
+
+        Assert.assertNull(this.renderingCache.getRenderedContent(this.document.getDocumentReference(), "source",
+            getContext()));
+        this.renderingCache.cancelRenderedContent(this.document.getDocumentReference(), "source", getContext());
+
+        // The failed rendering has not been cached
+        Assert.assertNull(this.renderingCache.getRenderedContent(included.getDocumentReference(), "included",
+            getContext()));
+        this.renderingCache.cancelRenderedContent(included.getDocumentReference(), "included", getContext());
+        Assert.assertNull(getContext().get("renderingcache.dependencies"));
+    }
 
     private static class TestRenderingCacheAware extends XWikiDefaultPlugin implements RenderingCacheAware {
         public TestRenderingCacheAware(String name, String className, XWikiContext context) {
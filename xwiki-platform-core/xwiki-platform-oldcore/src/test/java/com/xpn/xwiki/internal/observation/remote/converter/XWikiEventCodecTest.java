@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+import org.xwiki.observation.remote.converter.EventConverterManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.AbstractBridgedComponentTestCase;
+
+/**
+ * Validate {@link XWikiEventCodec}.
+ * 
+ * @version $Id$
+ */
+public class XWikiEventCodecTest extends AbstractBridgedComponentTestCase
+{
+    private RemoteEventData encodeDecode(RemoteEventData remoteEvent) throws Exception
+    {
+        RemoteEventDataCodec codec = getComponentManager().getInstance(RemoteEventDataCodec.class, "xwiki");
+
+        Assert.assertTrue(codec.canEncode(remoteEvent));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.encode(remoteEvent, new DataOutputStream(bytes));
+
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void documentEvent() throws Exception
+    {
+        EventConverterManager eventConverterManager = getComponentManager().getInstance(EventConverterManager.class);
+
+        DocumentReference documentReference = new DocumentReference("wiki", Arrays.asList("space1", "space2"), "page");
+        LocalEventData localEvent = new LocalEventData();
+        localEvent.setEvent(new DocumentUpdatedEvent(documentReference));
+        localEvent.setSource(new XWikiDocument(documentReference));
+        localEvent.setData(getContext());
+
+        RemoteEventData remoteEvent = encodeDecode(eventConverterManager.createRemoteEventData(localEvent));
+
+        Assert.assertTrue(remoteEvent.getEvent() instanceof DocumentUpdatedEvent);
+        Assert.assertTrue(new DocumentUpdatedEvent(documentReference).matches(remoteEvent.getEvent()));
+        Assert.assertFalse(new DocumentUpdatedEvent(new DocumentReference("wiki", "space", "other"))
+            .matches(remoteEvent.getEvent()));
+
+        LocalEventData localEvent2 = eventConverterManager.createLocalEventData(remoteEvent);
+
+        Assert.assertTrue(localEvent2.getData() instanceof XWikiContext);
+        Assert.assertEquals(documentReference, ((XWikiDocument) localEvent2.getSource()).getDocumentReference());
+        Assert.assertTrue(((XWikiDocument) localEvent2.getSource()).getOriginalDocument().isNew());
+    }
+
+    @Test
+    public void wikiEvent() throws Exception
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new WikiDeletedEvent("wiki"));
+        remoteEvent.setSource("wiki");
+        HashMap<String, Serializable> data = new HashMap<>();
+        data.put(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki");
+        data.put(AbstractXWikiEventConverter.CONTEXT_USER, "XWiki.Admin");
+        remoteEvent.setData(data);
+
+        RemoteEventData remoteEvent2 = encodeDecode(remoteEvent);
+
+        Assert.assertEquals("wiki", ((WikiDeletedEvent) remoteEvent2.getEvent()).getWikiId());
+        Assert.assertEquals("wiki", remoteEvent2.getSource());
+        Assert.assertEquals(remoteEvent.getData(), remoteEvent2.getData());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Validate {@link XWikiEventMerger}.
+ * 
+ * @version $Id$
+ */
+public class XWikiEventMergerTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "space", "page");
+
+    private XWikiEventMerger merger = new XWikiEventMerger();
+
+    private RemoteEventData createEvent(Event event, String language, String version, String origVersion)
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent((Serializable) event);
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(AbstractXWikiEventConverter.DOC_NAME, DOCUMENT);
+        source.put(AbstractXWikiEventConverter.DOC_LANGUAGE, language);
+        source.put(AbstractXWikiEventConverter.DOC_VERSION, version);
+        source.put(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, language);
+        source.put(AbstractXWikiEventConverter.ORIGDOC_VERSION, origVersion);
+        remoteEvent.setSource(source);
+        remoteEvent.setData(new HashMap<String, Serializable>());
+
+        return remoteEvent;
+    }
+
+    @Test
+    public void mergeUpdates()
+    {
+        RemoteEventData event1 = createEvent(new DocumentUpdatedEvent(DOCUMENT), "", "1.2", "1.1");
+        RemoteEventData event2 = createEvent(new DocumentUpdatedEvent(DOCUMENT), "", "1.3", "1.2");
+
+        Assert.assertEquals(this.merger.getKey(event1), this.merger.getKey(event2));
+
+        RemoteEventData merged = this.merger.merge(event1, event2);
+
+        Map<?, ?> source = (Map<?, ?>) merged.getSource();
+        Assert.assertSame(event2.getEvent(), merged.getEvent());
+        Assert.assertEquals("1.3", source.get(AbstractXWikiEventConverter.DOC_VERSION));
+        Assert.assertEquals("1.1", source.get(AbstractXWikiEventConverter.ORIGDOC_VERSION));
+    }
+
+    @Test
+    public void dontMergeOtherEvents()
+    {
+        RemoteEventData update = createEvent(new DocumentUpdatedEvent(DOCUMENT), "", "1.2", "1.1");
+        RemoteEventData deletion = createEvent(new DocumentDeletedEvent(DOCUMENT), "", "1.2", "1.2");
+        RemoteEventData translation = createEvent(new DocumentUpdatedEvent(DOCUMENT), "fr", "1.2", "1.1");
+
+        Assert.assertEquals(this.merger.getKey(update), this.merger.getKey(deletion));
+        Assert.assertNull(this.merger.merge(deletion, update));
+        Assert.assertNull(this.merger.merge(update, deletion));
+        Assert.assertFalse(this.merger.getKey(update).equals(this.merger.getKey(translation)));
+
+        RemoteEventData other = new RemoteEventData();
+        other.setEvent("event");
+        Assert.assertNull(this.merger.getKey(other));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link DocumentExistenceFilter}.
+ *
+ * @version $Id$
+ */
+public class DocumentExistenceFilterTest
+{
+    @Test
+    public void addAndCheck()
+    {
+        DocumentExistenceFilter filter = new DocumentExistenceFilter(1000);
+
+        filter.add("Space.Page", "");
+        filter.add("Space.Other", "fr");
+
+        assertTrue(filter.mightContain("Space.Page", Locale.ROOT));
+        assertFalse(filter.mightContain("Space.Page", Locale.FRENCH));
+        assertTrue(filter.mightContain("Space.Other", Locale.ROOT));
+        assertTrue(filter.mightContain("Space.Other", Locale.FRENCH));
+        assertFalse(filter.mightContain("Space.Missing", Locale.ROOT));
+    }
+
+    @Test
+    public void noFalseNegative()
+    {
+        DocumentExistenceFilter filter = new DocumentExistenceFilter(10000);
+
+        for (int i = 0; i < 10000; ++i) {
+            filter.add("Space.Page" + i, null);
+        }
+
+        for (int i = 0; i < 10000; ++i) {
+            assertTrue(filter.mightContain("Space.Page" + i, Locale.ROOT));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; ++i) {
+            if (filter.mightContain("Other.Page" + i, Locale.ROOT)) {
+                ++falsePositives;
+            }
+        }
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 500);
+        assertFalse(filter.isFull());
+    }
+
+    @Test
+    public void isFull()
+    {
+        DocumentExistenceFilter filter = new DocumentExistenceFilter(2);
+
+        filter.add("Space.Page1", null);
+        filter.add("Space.Page2", null);
+        assertFalse(filter.isFull());
+
+        filter.add("Space.Page3", null);
+        assertTrue(filter.isFull());
+    }
+}
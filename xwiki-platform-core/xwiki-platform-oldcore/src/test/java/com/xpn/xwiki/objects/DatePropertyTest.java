@@ -87,4 +87,16 @@ public void setValueWithNullDate()
         property.setValue(null);
         assertNull(property.getValue());
     }
+
+    @Test
+    public void cloneDoesntShareTheDate()
+    {
+        DateProperty property = new DateProperty();
+        property.setValue(new Date(1000L));
+
+        DateProperty clone = property.clone();
+        ((Date) clone.getValue()).setTime(2000L);
+
+        assertEquals(new Date(1000L), property.getValue());
+    }
 }
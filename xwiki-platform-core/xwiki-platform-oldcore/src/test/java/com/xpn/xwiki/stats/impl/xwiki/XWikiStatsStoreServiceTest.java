@@ -0,0 +1,154 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ */
+public class XWikiStatsStoreServiceTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private XWikiStatsStoreService service;
+
+    /**
+     * The statistics stored in the current transaction.
+     */
+    private final List<String> transaction = new ArrayList<>();
+
+    /**
+     * The statistics of the committed transactions.
+     */
+    private final List<List<String>> committed = new ArrayList<>();
+
+    /**
+     * The number of transactions the service tried to commit.
+     */
+    private int commitCount;
+
+    private class TestStatsStoreItem extends AbstractStatsStoreItem
+    {
+        TestStatsStoreItem(String name)
+        {
+            super(name, new Date(), PeriodType.MONTH, oldcore.getXWikiContext());
+        }
+
+        @Override
+        public String getId()
+        {
+            return this.name;
+        }
+
+        @Override
+        protected void storeInternal(List<XWikiStatsStoreItem> statsList)
+        {
+            transaction.add(this.name);
+        }
+    }
+
+    @Before
+    public void before() throws Exception
+    {
+        XWikiHibernateStore store = (XWikiHibernateStore) this.oldcore.getMockStore();
+        when(store.beginTransaction(anyXWikiContext())).thenReturn(true);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                try {
+                    if (invocation.getArgumentAt(1, Boolean.class)) {
+                        ++commitCount;
+
+                        // Simulate a statistic which can't be stored, making its transaction fail
+                        if (transaction.contains("failing")) {
+                            throw new HibernateException("Failed to commit");
+                        }
+
+                        committed.add(new ArrayList<>(transaction));
+                    }
+                } finally {
+                    transaction.clear();
+                }
+
+                return null;
+            }
+        }).when(store).endTransaction(anyXWikiContext(), anyBoolean());
+
+        this.service = new XWikiStatsStoreService(this.oldcore.getXWikiContext());
+    }
+
+    private List<List<XWikiStatsStoreItem>> stats(String... names)
+    {
+        List<List<XWikiStatsStoreItem>> stats = new ArrayList<>();
+        for (String name : names) {
+            stats.add(Collections.<XWikiStatsStoreItem>singletonList(new TestStatsStoreItem(name)));
+        }
+
+        return stats;
+    }
+
+    @Test
+    public void storeWikiStatsInOneTransaction()
+    {
+        this.service.store(stats("first", "second", "third"));
+
+        assertEquals(Arrays.asList(Arrays.asList("first", "second", "third")), this.committed);
+        assertEquals(1, this.commitCount);
+    }
+
+    @Test
+    public void storeWikiStatsOneByOneWhenTheTransactionFails()
+    {
+        this.service.store(stats("first", "failing", "third"));
+
+        // The other statistics are not lost
+        assertEquals(Arrays.asList(Arrays.asList("first"), Arrays.asList("third")), this.committed);
+        // The batch transaction then one transaction for each statistic
+        assertEquals(4, this.commitCount);
+    }
+}
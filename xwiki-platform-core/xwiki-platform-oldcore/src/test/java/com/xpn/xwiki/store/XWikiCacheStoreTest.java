@@ -19,27 +19,42 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.model.internal.reference.UidStringEntityReferenceSerializer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 import org.xwiki.test.annotation.ComponentList;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -112,4 +127,127 @@ public void testLoadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.cache);
         verifyNoMoreInteractions(this.existCache);
     }
+
+    @Test
+    public void testLoadXWikiDocs() throws Exception
+    {
+        final XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        // Save a document
+        DocumentReference existingReference = new DocumentReference("wiki", "space", "existing");
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(existingReference), xcontext);
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), xcontext);
+
+        // A document in the cache
+        XWikiDocument cachedDocument = new XWikiDocument(new DocumentReference("wiki", "space", "cached"));
+        when(this.cache.get(cachedDocument.getKey())).thenReturn(cachedDocument);
+
+        // A document known to not exist
+        XWikiDocument knownMissingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "knownmissing"));
+        when(this.existCache.get(knownMissingDocument.getKey())).thenReturn(Boolean.FALSE);
+
+        XWikiDocument existingDocument = new XWikiDocument(existingReference);
+        XWikiDocument missingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "missing"));
+
+        final List<List<XWikiDocument>> storedDocuments = new ArrayList<>();
+        when(this.oldcore.getMockStore().loadXWikiDocs(anyListOf(XWikiDocument.class), anyXWikiContext())).then(
+            new Answer<List<XWikiDocument>>()
+            {
+                @Override
+                public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+                {
+                    List<XWikiDocument> documents = (List<XWikiDocument>) invocation.getArguments()[0];
+                    storedDocuments.add(new ArrayList<>(documents));
+
+                    List<XWikiDocument> result = new ArrayList<>(documents.size());
+                    for (XWikiDocument document : documents) {
+                        result.add(oldcore.getMockStore().loadXWikiDoc(document, xcontext));
+                    }
+
+                    return result;
+                }
+            });
+
+        List<XWikiDocument> documents = store.loadXWikiDocs(
+            Arrays.asList(missingDocument, cachedDocument, existingDocument, knownMissingDocument), xcontext);
+
+        // Only the documents which are not cached are asked to the store, in a single call
+        assertEquals(Arrays.asList(Arrays.asList(missingDocument, existingDocument)), storedDocuments);
+
+        // The documents are returned in the requested order
+        assertEquals(4, documents.size());
+        assertEquals(missingDocument.getDocumentReference(), documents.get(0).getDocumentReference());
+        assertTrue(documents.get(0).isNew());
+        assertSame(cachedDocument, documents.get(1));
+        assertTrue(documents.get(1).isFromCache());
+        assertEquals(existingReference, documents.get(2).getDocumentReference());
+        assertFalse(documents.get(2).isNew());
+        assertSame(knownMissingDocument, documents.get(3));
+        assertTrue(documents.get(3).isNew());
+
+        // Only the existing document loaded from the store is put in the cache
+        verify(this.cache).set(eq(existingDocument.getKey()), any(XWikiDocument.class));
+        verify(this.cache, never()).set(eq(missingDocument.getKey()), any(XWikiDocument.class));
+        verify(this.existCache).set(existingDocument.getKey(), Boolean.TRUE);
+        verify(this.existCache).set(missingDocument.getKey(), Boolean.FALSE);
+        verify(this.existCache, never()).set(eq(cachedDocument.getKey()), any(Boolean.class));
+        verify(this.existCache, never()).set(eq(knownMissingDocument.getKey()), any(Boolean.class));
+    }
+
+    @Test
+    public void testLoadXWikiDocsWhenAllCached() throws Exception
+    {
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument cachedDocument = new XWikiDocument(new DocumentReference("wiki", "space", "cached"));
+        when(this.cache.get(cachedDocument.getKey())).thenReturn(cachedDocument);
+
+        List<XWikiDocument> documents =
+            store.loadXWikiDocs(Arrays.asList(cachedDocument), this.oldcore.getXWikiContext());
+
+        assertEquals(Arrays.asList(cachedDocument), documents);
+        verify(this.oldcore.getMockStore(), never()).loadXWikiDocs(anyListOf(XWikiDocument.class),
+            anyXWikiContext());
+    }
+
+    @Test
+    public void testExistsWhenDocumentSavedDuringExistenceFilterBuild() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+
+        final XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setWikiId("wiki");
+
+        final XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), xcontext);
+
+        final XWikiDocument savedDocument = new XWikiDocument(new DocumentReference("wiki", "space", "saved"));
+        XWikiDocument missingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "missing"));
+
+        // The underlying store says that every document exists, only the existence filter can say otherwise
+        when(this.oldcore.getMockStore().exists(any(XWikiDocument.class), anyXWikiContext())).thenReturn(true);
+
+        // Save a document while the existence filter is being built
+        when(this.oldcore.getMockStore().search(anyString(), anyInt(), anyInt(), anyListOf(Object.class),
+            anyXWikiContext())).then(new Answer<List<Object[]>>()
+            {
+                @Override
+                public List<Object[]> answer(InvocationOnMock invocation) throws Throwable
+                {
+                    store.saveXWikiDoc(savedDocument, (XWikiContext) invocation.getArguments()[4]);
+
+                    return new ArrayList<>();
+                }
+            });
+
+        // Trigger the build of the existence filter and wait for it to be used
+        long timeout = System.currentTimeMillis() + 10000;
+        while (store.exists(missingDocument, xcontext)) {
+            assertTrue("The existence filter has not been built in time", System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+
+        verify(this.oldcore.getMockStore()).saveXWikiDoc(same(savedDocument), anyXWikiContext(), eq(true));
+        assertTrue(store.exists(new XWikiDocument(savedDocument.getDocumentReference()), xcontext));
+    }
 }
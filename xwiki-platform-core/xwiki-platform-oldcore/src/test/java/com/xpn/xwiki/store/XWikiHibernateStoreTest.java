@@ -23,6 +23,7 @@
 import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -358,4 +359,48 @@ public void getTranslationList() throws Exception
         verify(query).bindValue("space", "Path.To");
         verify(query).bindValue("name", documentReference.getName());
     }
+
+    @Test
+    public void loadXWikiDocs() throws Exception
+    {
+        Date date = new Date();
+        XWikiDocument existing = mock(XWikiDocument.class);
+        when(existing.getId()).thenReturn(1L);
+        when(existing.getFullName()).thenReturn("Space.Existing");
+        when(existing.getDocumentReference()).thenReturn(new DocumentReference("wiki", "Space", "Existing"));
+        when(existing.getDate()).thenReturn(date);
+        when(existing.getCreationDate()).thenReturn(date);
+        when(existing.getContentUpdateDate()).thenReturn(date);
+
+        XWikiDocument missing = mock(XWikiDocument.class);
+        when(missing.getId()).thenReturn(2L);
+        when(missing.getFullName()).thenReturn("Space.Missing");
+        when(missing.getDocumentReference()).thenReturn(new DocumentReference("wiki", "Space", "Missing"));
+
+        Query documentsQuery = mock(Query.class);
+        when(session.createQuery("select doc.id from XWikiDocument as doc where doc.id in (:ids)")).thenReturn(
+            documentsQuery);
+        when(documentsQuery.list()).thenReturn(Arrays.asList(1L));
+
+        Query objectsQuery = mock(Query.class);
+        when(session.createQuery(
+            "from BaseObject as bobject where bobject.name in (:names) order by bobject.name, bobject.number"))
+            .thenReturn(objectsQuery);
+        when(objectsQuery.list()).thenReturn(Collections.emptyList());
+
+        List<XWikiDocument> documents = store.loadXWikiDocs(Arrays.asList(missing, existing), context);
+
+        // The documents are returned in the requested order
+        assertEquals(Arrays.asList(missing, existing), documents);
+
+        // The existence and the objects of all the documents are fetched at once
+        verify(documentsQuery).setParameterList("ids", Arrays.asList(2L, 1L));
+        verify(objectsQuery).setParameterList("names", Arrays.asList("Space.Existing"));
+
+        // Only the existing document is loaded
+        verify(session).load(existing, 1L);
+        verify(session, never()).load(same(missing), anyLong());
+        verify(existing).setNew(false);
+        verify(missing).setNew(true);
+    }
 }
@@ -46,6 +46,7 @@
 import org.xwiki.rendering.macro.include.IncludeMacroParameters;
 import org.xwiki.rendering.macro.include.IncludeMacroParameters.Context;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
 
 /**
  * @version $Id$
@@ -89,6 +90,12 @@ public class IncludeMacro extends AbstractMacro<IncludeMacroParameters>
     @Named("configured")
     private DocumentDisplayer documentDisplayer;
 
+    /**
+     * Used to reuse the result of a previous display of the same document in the same conditions.
+     */
+    @Inject
+    private MacroOutputCache macroOutputCache;
+
     /**
      * A stack of all currently executing include macros with context=new for catching recursive inclusion.
      */
@@ -154,6 +161,36 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
                 this.defaultEntityReferenceSerializer.serialize(includedReference)));
         }
 
+        // The rights are checked before looking at the cache since they are not tracked as dependencies
+        List<Block> blocks = this.macroOutputCache.get(context);
+        if (blocks == null) {
+            try {
+                blocks = include(includedReference, parameters, context);
+            } finally {
+                if (blocks == null) {
+                    // The execution failed so there's nothing to cache
+                    this.macroOutputCache.cancel(context);
+                }
+            }
+
+            this.macroOutputCache.set(blocks, context);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Load and display the included document.
+     *
+     * @param includedReference the reference of the included document
+     * @param parameters the macro parameters
+     * @param context the macro execution context
+     * @return the blocks generated by the macro
+     * @throws MacroExecutionException if the document cannot be loaded or displayed
+     */
+    private List<Block> include(DocumentReference includedReference, IncludeMacroParameters parameters,
+        MacroTransformationContext context) throws MacroExecutionException
+    {
         Context parametersContext = parameters.getContext();
 
         // Step 2: Retrieve the included document.
@@ -210,7 +247,7 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
             metadata.getMetaData().addMetaData(MetaData.BASE, source);
         }
 
-        return Arrays.<Block> asList(metadata);
+        return Arrays.<Block>asList(metadata);
     }
 
     /**
@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.util.List;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
+
+/**
+ * Default {@link MacroOutputCache} which does not cache anything. Overwritten by implementations able to track what
+ * the macros output depend on.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Singleton
+public class VoidMacroOutputCache implements MacroOutputCache
+{
+    @Override
+    public List<Block> get(MacroTransformationContext context)
+    {
+        return null;
+    }
+
+    @Override
+    public void set(List<Block> blocks, MacroTransformationContext context)
+    {
+        // Nothing is cached
+    }
+
+    @Override
+    public void cancel(MacroTransformationContext context)
+    {
+        // Nothing is cached
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation.macro;
+
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Cache the blocks generated by the execution of a macro so that executing the same macro again in the same
+ * conditions does not have to produce them again.
+ * <p>
+ * A macro asks the cache with {@link #get(MacroTransformationContext)} before generating its result and stores it
+ * with {@link #set(List, MacroTransformationContext)}, or calls {@link #cancel(MacroTransformationContext)} if it
+ * fails to generate it. The implementation decides which macros are cached and when
+ * the cached blocks become invalid.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Role
+@Unstable
+public interface MacroOutputCache
+{
+    /**
+     * @param context the context of the macro being executed
+     * @return a copy of the cached blocks generated by the current macro, or {@code null} if there is none
+     */
+    List<Block> get(MacroTransformationContext context);
+
+    /**
+     * Remember the blocks generated by the current macro.
+     *
+     * @param blocks the blocks generated by the current macro
+     * @param context the context of the macro being executed
+     */
+    void set(List<Block> blocks, MacroTransformationContext context);
+
+    /**
+     * Indicate that the current macro failed to generate its result after a {@link #get(MacroTransformationContext)}
+     * returning {@code null}, so that the resources allocated to cache it are released.
+     *
+     * @param context the context of the macro being executed
+     */
+    void cancel(MacroTransformationContext context);
+}
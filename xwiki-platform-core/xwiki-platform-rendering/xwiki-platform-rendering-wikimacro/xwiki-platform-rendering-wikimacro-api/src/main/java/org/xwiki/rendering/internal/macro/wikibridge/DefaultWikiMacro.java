@@ -52,6 +52,7 @@
 import org.xwiki.rendering.transformation.RenderingContext;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.macro.MacroOutputCache;
 
 /**
  * Default implementation of {@link WikiMacro}.
@@ -136,6 +137,12 @@ public class DefaultWikiMacro implements WikiMacro, NestedScriptMacroEnabled
      */
     private ComponentManager componentManager;
 
+    /**
+     * Used to reuse the result of a previous execution of the macro in the same conditions, {@code null} if there's no
+     * cache available.
+     */
+    private MacroOutputCache macroOutputCache;
+
     /**
      * Constructs a new {@link DefaultWikiMacro}.
      * 
@@ -159,6 +166,12 @@ public DefaultWikiMacro(DocumentReference macroDocumentReference, DocumentRefere
         this.content = macroContent;
         this.syntax = syntax;
         this.componentManager = componentManager;
+
+        try {
+            this.macroOutputCache = componentManager.getInstance(MacroOutputCache.class);
+        } catch (ComponentLookupException e) {
+            // No cache available
+        }
     }
 
     @Override
@@ -167,6 +180,40 @@ public List<Block> execute(WikiMacroParameters parameters, String macroContent,
     {
         validate(parameters, macroContent);
 
+        if (this.macroOutputCache == null) {
+            return executeMacro(parameters, macroContent, context);
+        }
+
+        List<Block> result = this.macroOutputCache.get(context);
+
+        if (result == null) {
+            try {
+                result = executeMacro(parameters, macroContent, context);
+            } finally {
+                if (result == null) {
+                    // The execution failed so there's nothing to cache
+                    this.macroOutputCache.cancel(context);
+                }
+            }
+
+            this.macroOutputCache.set(result, context);
+        }
+
+        return result;
+    }
+
+    /**
+     * Actually execute the wiki macro.
+     * 
+     * @param parameters the macro parameters
+     * @param macroContent the macro content
+     * @param context the macro execution context
+     * @return the result of the macro execution
+     * @throws MacroExecutionException error when executing the macro
+     */
+    private List<Block> executeMacro(WikiMacroParameters parameters, String macroContent,
+        MacroTransformationContext context) throws MacroExecutionException
+    {
         // Parse the wiki macro content.
         XDOM xdom = prepareWikiMacroContent(context);
 
@@ -29,6 +29,9 @@
 import org.xwiki.rest.model.jaxb.Objects;
 
 /**
+ * List the objects of a class. When no order is specified the objects can be walked through with keyset pagination:
+ * the {@code after} parameter is the cursor returned in the link to the next page.
+ *
  * @version $Id$
  */
 @Path("/wikis/{wikiName}/classes/{className}/objects")
@@ -40,6 +43,7 @@
             @QueryParam("start") @DefaultValue("0") Integer start,
             @QueryParam("number") @DefaultValue("-1") Integer number,
             @QueryParam("order") String order,
+            @QueryParam("after") Long after,
             @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames
     ) throws XWikiRestException;
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.rest;
 
+import org.xwiki.stability.Unstable;
+
 /**
  * <p> This class contains the constants defining the relation types that can be specified for links in the
  * representations. <p>
@@ -162,6 +164,14 @@
      */
     public static final String SYNTAXES = "http://www.xwiki.org/rel/syntaxes";
 
+    /**
+     * Relation for links pointing to the next page of a paginated collection.
+     *
+     * @since 8.2M1
+     */
+    @Unstable
+    public static final String NEXT = "next";
+
     /**
      * Avoid instantiation.
      */
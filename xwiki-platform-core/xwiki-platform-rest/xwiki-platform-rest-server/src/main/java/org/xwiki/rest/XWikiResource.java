@@ -20,6 +20,7 @@
 package org.xwiki.rest;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
@@ -33,9 +34,13 @@
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentManager;
@@ -44,9 +49,13 @@
 import org.xwiki.localization.LocaleUtils;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
+import org.xwiki.rest.internal.Constants;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -69,6 +78,15 @@ public class XWikiResource implements XWikiRestComponent, Initializable
     @Context
     protected UriInfo uriInfo;
 
+    /**
+     * The current JAX-RS request, used to evaluate the preconditions (e.g. {@code If-None-Match}) sent by the client.
+     *
+     * @since 8.2M1
+     */
+    @Context
+    @Unstable
+    protected Request request;
+
     /**
      * The logger to be used to output log messages.
      * @deprecated since 7.3M1, use {@link #slf4Jlogger} instead
@@ -191,6 +209,101 @@ public SpaceReference getSpaceReference(String spaceSegments, String wikiName) t
     {
         return Utils.getSpaceReference(parseSpaceSegments(spaceSegments), wikiName);
     }
+
+    /**
+     * Evaluate the conditional request headers ({@code If-None-Match}, {@code If-Modified-Since}) against the current
+     * version of the specified document. The version and date of the document (and of its translations) are retrieved
+     * with a lightweight query so that the document doesn't have to be loaded when the client already has the latest
+     * representation. The computed entity tag and modification date are also set on the returned representation.
+     * <p>
+     * The versions of the classes of the document objects are taken into account since the object representations
+     * list the class properties. Pretty names are resolved from other documents (e.g. user profiles) which are not
+     * tracked, so nothing is checked when they are requested.
+     *
+     * @param wikiName the wiki name
+     * @param spaces the space hierarchy
+     * @param pageName the page name
+     * @param withPrettyNames whether the representation includes pretty names
+     * @throws WebApplicationException NOT_MODIFIED if the representation held by the client is still up to date
+     * @throws XWikiRestException if the version of the document cannot be retrieved
+     * @since 8.2M1
+     */
+    @Unstable
+    protected void checkNotModified(String wikiName, List<String> spaces, String pageName, Boolean withPrettyNames)
+        throws XWikiRestException
+    {
+        // Don't disclose anything about a document the current user is not allowed to view.
+        if (Boolean.TRUE.equals(withPrettyNames) || !Utils.getXWikiApi(componentManager).hasAccessLevel("view",
+            Utils.getXWikiUser(componentManager), Utils.getPageId(wikiName, spaces, pageName))) {
+            return;
+        }
+
+        String spaceId = Utils.getLocalSpaceId(spaces);
+        List<Object[]> versions;
+        try {
+            versions = queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version, doc.date"
+                + " from XWikiDocument doc where (doc.space = :space and doc.name = :name) or doc.fullName in"
+                + " (select obj.className from BaseObject obj, XWikiDocument owner where owner.space = :space"
+                + " and owner.name = :name and obj.name = owner.fullName)"
+                + " order by doc.space, doc.name, doc.language", Query.HQL)
+                .bindValue("space", spaceId).bindValue("name", pageName).setWiki(wikiName).execute();
+        } catch (QueryException e) {
+            throw new XWikiRestException(e);
+        }
+
+        if (!containsDocument(versions, spaceId, pageName)) {
+            // Let the resource decide what to do with a missing document.
+            return;
+        }
+
+        // The representation depends on the version of the document, of its translations and of its classes, but also
+        // on the requested variant (query parameters, media type), on the base URI used in links and on the current
+        // user.
+        StringBuilder variant = new StringBuilder();
+        Date lastModified = null;
+        for (Object[] fields : versions) {
+            variant.append(fields[0]).append(':').append(fields[1]).append(':').append(fields[2]).append(':');
+            variant.append(fields[3]).append(';');
+            Date date = (Date) fields[4];
+            if (lastModified == null || date.after(lastModified)) {
+                lastModified = date;
+            }
+        }
+        org.restlet.Request restletRequest = org.restlet.Request.getCurrent();
+        variant.append(uriInfo.getRequestUri().getRawQuery()).append(';');
+        variant.append(restletRequest.getClientInfo().getAcceptedMediaTypes()).append(';');
+        variant.append(uriInfo.getBaseUri()).append(';');
+        variant.append(Utils.getXWikiUser(componentManager));
+
+        EntityTag entityTag = new EntityTag(DigestUtils.md5Hex(variant.toString()));
+        // HTTP dates have a precision of one second.
+        lastModified = new Date(lastModified.getTime() / 1000 * 1000);
+
+        restletRequest.getAttributes().put(Constants.ENTITY_TAG_ATTRIBUTE_NAME, entityTag.getValue());
+        restletRequest.getAttributes().put(Constants.ENTITY_MODIFICATION_DATE_ATTRIBUTE_NAME, lastModified);
+
+        ResponseBuilder builder = request.evaluatePreconditions(lastModified, entityTag);
+        if (builder != null) {
+            throw new WebApplicationException(builder.tag(entityTag).lastModified(lastModified).build());
+        }
+    }
+
+    /**
+     * @param versions the space, name, language, version and date of the documents
+     * @param spaceId the local space id of the document
+     * @param pageName the page name of the document
+     * @return {@code true} if the passed versions contain the document
+     */
+    private boolean containsDocument(List<Object[]> versions, String spaceId, String pageName)
+    {
+        for (Object[] fields : versions) {
+            if (spaceId.equals(fields[0]) && pageName.equals(fields[1])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
     
     /**
      * Retrieve a document. This method never returns null. If something goes wrong with respect to some
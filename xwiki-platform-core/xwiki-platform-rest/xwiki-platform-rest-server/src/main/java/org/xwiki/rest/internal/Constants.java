@@ -43,4 +43,20 @@ public class Constants extends org.xwiki.rest.Constants
      *      com.xpn.xwiki.api.XWiki, Boolean)
      */
     public static final String ALLOWED_VALUES_ATTRIBUTE_NAME = "allowedValues";
+
+    /**
+     * The key used to store, in the current Restlet request attributes, the entity tag of the representation being
+     * returned. The tag is set on the response entity once the JAX-RS resource has been handled.
+     *
+     * @since 8.2M1
+     */
+    public static final String ENTITY_TAG_ATTRIBUTE_NAME = "rest.entityTag";
+
+    /**
+     * The key used to store, in the current Restlet request attributes, the modification date of the representation
+     * being returned.
+     *
+     * @since 8.2M1
+     */
+    public static final String ENTITY_MODIFICATION_DATE_ATTRIBUTE_NAME = "rest.entityModificationDate";
 }
@@ -20,6 +20,7 @@
 package org.xwiki.rest.internal;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -27,6 +28,7 @@
 
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.Tag;
 import org.restlet.ext.servlet.ServletUtils;
 import org.restlet.routing.Filter;
 import org.xwiki.component.manager.ComponentLifecycleException;
@@ -84,6 +86,14 @@ protected void afterHandle(Request request, Response response)
                 response.setEntity(null);
             }
         }
+
+        // Expose the version of the returned representation so that clients can make conditional requests.
+        String entityTag = (String) request.getAttributes().get(Constants.ENTITY_TAG_ATTRIBUTE_NAME);
+        if (entityTag != null && response.getStatus().isSuccess() && response.getEntity() != null) {
+            response.getEntity().setTag(new Tag(entityTag, false));
+            response.getEntity().setModificationDate(
+                (Date) request.getAttributes().get(Constants.ENTITY_MODIFICATION_DATE_ATTRIBUTE_NAME));
+        }
     }
 
     /**
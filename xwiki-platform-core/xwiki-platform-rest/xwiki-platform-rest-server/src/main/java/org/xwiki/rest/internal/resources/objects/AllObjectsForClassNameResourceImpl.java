@@ -19,20 +19,29 @@
  */
 package org.xwiki.rest.internal.resources.objects;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.query.Query;
+import org.xwiki.rest.Relations;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.model.jaxb.Link;
 import org.xwiki.rest.model.jaxb.ObjectSummary;
 import org.xwiki.rest.model.jaxb.Objects;
 import org.xwiki.rest.resources.objects.AllObjectsForClassNameResource;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
@@ -44,49 +53,91 @@
 @Named("org.xwiki.rest.internal.resources.objects.AllObjectsForClassNameResourceImpl")
 public class AllObjectsForClassNameResourceImpl extends XWikiResource implements AllObjectsForClassNameResource
 {
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
     @Override
     public Objects getObjects(String wikiName, String className, Integer start, Integer number, String order,
-            Boolean withPrettyNames) throws XWikiRestException
+            Long after, Boolean withPrettyNames) throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
+        XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+        String database = xcontext.getWikiId();
 
         try {
             Objects objects = new Objects();
 
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
+            xcontext.setWikiId(wikiName);
+
+            boolean orderByDate = "date".equals(order);
+
+            // Only select the objects identifiers, the documents of the returned page are then loaded in bulk
+            StringBuilder statement = new StringBuilder("select obj.id, obj.name, obj.number"
+                + " from BaseObject as obj, XWikiDocument as doc where obj.name=doc.fullName"
+                + " and obj.className=:className");
+            if (orderByDate) {
+                statement.append(" order by doc.date desc");
+            } else {
+                // Keyset pagination: continue after the last object of the previous page
+                if (after != null) {
+                    statement.append(" and obj.id > :after");
+                }
+                statement.append(" order by obj.id");
+            }
+
+            Query query = queryManager.createQuery(statement.toString(), Query.XWQL)
+                .bindValue("className", className).setLimit(number);
+            if (!orderByDate && after != null) {
+                // The cursor replaces the offset (the next link doesn't have it but a client might keep it)
+                query.bindValue("after", after);
+            } else {
+                query.setOffset(start);
+            }
+
+            List<Object[]> rows = query.execute();
 
-            String query =
-                    "select doc, obj from BaseObject as obj, XWikiDocument as doc where obj.name=doc.fullName and obj.className=:className";
-            if ("date".equals(order)) {
-                query += " order by doc.date desc";
+            // Load each document once, even when it holds several objects of the returned page
+            Map<String, Integer> documentIndexes = new HashMap<String, Integer>();
+            List<DocumentReference> documentReferences = new ArrayList<DocumentReference>(rows.size());
+            for (Object[] row : rows) {
+                String documentName = (String) row[1];
+                if (!documentIndexes.containsKey(documentName)) {
+                    documentIndexes.put(documentName, documentReferences.size());
+                    documentReferences.add(this.currentDocumentReferenceResolver.resolve(documentName));
+                }
             }
+            List<XWikiDocument> documents = xcontext.getWiki().getDocuments(documentReferences, xcontext);
 
-            List<Object> queryResult = null;
-            queryResult =
-                    queryManager.createQuery(query, Query.XWQL).bindValue("className", className).setLimit(number)
-                            .setOffset(start).execute();
+            DocumentReference classReference = this.currentDocumentReferenceResolver.resolve(className);
+            for (Object[] row : rows) {
+                XWikiDocument xwikiDocument = documents.get(documentIndexes.get(row[1]));
+                BaseObject xwikiObject = xwikiDocument.getXObject(classReference, (Integer) row[2]);
 
-            for (Object object : queryResult) {
-                Object[] fields = (Object[]) object;
+                // The object might have been deleted since the query was executed
+                if (xwikiObject != null) {
+                    Document doc = xwikiDocument.newDocument(xcontext);
 
-                XWikiDocument xwikiDocument = (XWikiDocument) fields[0];
-                xwikiDocument.setDatabase(wikiName);
-                Document doc = new Document(xwikiDocument, Utils.getXWikiContext(componentManager));
-                BaseObject xwikiObject = (BaseObject) fields[1];
+                    ObjectSummary objectSummary = DomainObjectFactory
+                            .createObjectSummary(objectFactory, uriInfo.getBaseUri(), xcontext, doc, xwikiObject,
+                                false, Utils.getXWikiApi(componentManager), withPrettyNames);
 
-                ObjectSummary objectSummary = DomainObjectFactory
-                        .createObjectSummary(objectFactory, uriInfo.getBaseUri(), Utils.getXWikiContext(
-                                componentManager), doc, xwikiObject, false, Utils.getXWikiApi(componentManager),
-                                withPrettyNames);
+                    objects.getObjectSummaries().add(objectSummary);
+                }
+            }
 
-                objects.getObjectSummaries().add(objectSummary);
+            if (!orderByDate && number > 0 && rows.size() == number) {
+                Link nextLink = objectFactory.createLink();
+                nextLink.setHref(uriInfo.getRequestUriBuilder().replaceQueryParam("start")
+                    .replaceQueryParam("after", rows.get(rows.size() - 1)[0]).build().toString());
+                nextLink.setRel(Relations.NEXT);
+                objects.getLinks().add(nextLink);
             }
 
             return objects;
         } catch (Exception e) {
             throw new XWikiRestException(e);
         } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
+            xcontext.setWikiId(database);
         }
     }
 }
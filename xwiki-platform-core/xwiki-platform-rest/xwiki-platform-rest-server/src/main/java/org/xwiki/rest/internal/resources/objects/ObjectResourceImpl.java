@@ -19,6 +19,8 @@
  */
 package org.xwiki.rest.internal.resources.objects;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.WebApplicationException;
@@ -50,8 +52,11 @@ public class ObjectResourceImpl extends BaseObjectsResource implements ObjectRes
     public Object getObject(String wikiName, String spaceName, String pageName, String className, Integer objectNumber,
         Boolean withPrettyNames) throws XWikiRestException
     {
+        List<String> spaces = parseSpaceSegments(spaceName);
+        checkNotModified(wikiName, spaces, pageName, withPrettyNames);
+
         try {
-            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaceName, pageName, null, null, true, false);
+            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaces, pageName, null, null, true, false);
 
             Document doc = documentInfo.getDocument();
 
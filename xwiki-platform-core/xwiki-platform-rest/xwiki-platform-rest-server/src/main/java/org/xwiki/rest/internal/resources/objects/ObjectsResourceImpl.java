@@ -54,8 +54,11 @@ public class ObjectsResourceImpl extends BaseObjectsResource implements ObjectsR
     public Objects getObjects(String wikiName, String spaceName, String pageName, Integer start, Integer number,
         Boolean withPrettyNames) throws XWikiRestException
     {
+        List<String> spaces = parseSpaceSegments(spaceName);
+        checkNotModified(wikiName, spaces, pageName, withPrettyNames);
+
         try {
-            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaceName, pageName, null, null, true, false);
+            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaces, pageName, null, null, true, false);
 
             Document doc = documentInfo.getDocument();
 
@@ -20,6 +20,7 @@
 package org.xwiki.rest.internal.resources.pages;
 
 import java.net.URI;
+import java.util.List;
 
 import javax.inject.Named;
 import javax.ws.rs.core.Response;
@@ -43,8 +44,11 @@ public class PageResourceImpl extends ModifiablePageResource implements PageReso
     public Page getPage(String wikiName, String spaceName, String pageName, Boolean withPrettyNames,
         Boolean withObjects, Boolean withXClass, Boolean withAttachments) throws XWikiRestException
     {
+        List<String> spaces = parseSpaceSegments(spaceName);
+        checkNotModified(wikiName, spaces, pageName, withPrettyNames);
+
         try {
-            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaceName, pageName, null, null, true, false);
+            DocumentInfo documentInfo = getDocumentInfo(wikiName, spaces, pageName, null, null, true, false);
 
             Document doc = documentInfo.getDocument();
 
@@ -19,11 +19,13 @@
  */
 package org.xwiki.rest.internal.resources.spaces;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
@@ -32,8 +34,10 @@
 import org.xwiki.rest.model.jaxb.Spaces;
 import org.xwiki.rest.resources.spaces.SpacesResource;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.api.XWiki;
+import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
  * @version $Id$
@@ -53,20 +57,30 @@ public Spaces getSpaces(String wikiName, Integer start, Integer number)
                     componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden")).setOffset(start)
                     .setLimit(number).setWiki(wikiName).execute();
 
+            // Only keep the spaces the current user can view
+            XWiki xwikiApi = Utils.getXWikiApi(componentManager);
+            List<List<String>> viewableSpaces = new ArrayList<List<String>>(spaceNames.size());
+            List<DocumentReference> homeReferences = new ArrayList<DocumentReference>(spaceNames.size());
             for (String spaceName : spaceNames) {
                 List<String> spaceList = Utils.getSpacesFromSpaceId(spaceName);
-                String homeId = Utils.getPageId(wikiName, spaceList, "WebHome");
-                Document home = null;
-
-                XWiki xwikiApi = Utils.getXWikiApi(componentManager);
-                if (xwikiApi.hasAccessLevel("view", homeId)) {
-                    if (xwikiApi.exists(homeId)) {
-                        home = Utils.getXWikiApi(componentManager).getDocument(homeId);
-                    }
-                    spaces.getSpaces().add(DomainObjectFactory
-                            .createSpace(objectFactory, uriInfo.getBaseUri(), wikiName, spaceList, home));
+                if (xwikiApi.hasAccessLevel("view", Utils.getPageId(wikiName, spaceList, "WebHome"))) {
+                    viewableSpaces.add(spaceList);
+                    homeReferences.add(new DocumentReference(wikiName, spaceList, "WebHome"));
                 }
             }
+
+            // Load all the space home pages at once
+            XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+            List<XWikiDocument> homes = xcontext.getWiki().getDocuments(homeReferences, xcontext);
+
+            for (int i = 0; i < viewableSpaces.size(); ++i) {
+                XWikiDocument home = homes.get(i);
+                Document homeDocument = home.isNew() ? null : home.newDocument(xcontext);
+
+                spaces.getSpaces().add(DomainObjectFactory
+                        .createSpace(objectFactory, uriInfo.getBaseUri(), wikiName, viewableSpaces.get(i),
+                            homeDocument));
+            }
         } catch (Exception e) {
             throw new XWikiRestException(e);
         }
@@ -22,58 +22,59 @@
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
-import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.tags.PagesForTagsResource;
 
-import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.api.XWiki;
+import com.xpn.xwiki.doc.XWikiDocument;
 
 @Component
 @Named("org.xwiki.rest.internal.resources.tags.PagesForTagsResourceImpl")
 public class PagesForTagsResourceImpl extends XWikiResource implements PagesForTagsResource
 {
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
     @Override
     public Pages getTags(String wikiName, String tagNames, Integer start, Integer number, Boolean withPrettyNames)
             throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
+        XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+        String database = xcontext.getWikiId();
 
         try {
             Pages pages = objectFactory.createPages();
 
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
-
-            String[] tagNamesArray = tagNames.split(",");
+            xcontext.setWikiId(wikiName);
 
-            List<String> documentNames = new ArrayList<String>();
-            for (String tagName : tagNamesArray) {
-                List<String> documentNamesForTag = getDocumentsWithTag(tagName);
+            List<String> documentNames = getDocumentsWithTags(tagNames.split(","), start, number);
 
-                /* Avoid duplicates */
-                for (String documentName : documentNamesForTag) {
-                    if (!documentNames.contains(documentName)) {
-                        documentNames.add(documentName);
-                    }
-                }
+            // Load the documents of the requested page at once
+            List<DocumentReference> documentReferences = new ArrayList<DocumentReference>(documentNames.size());
+            for (String documentName : documentNames) {
+                documentReferences.add(this.currentDocumentReferenceResolver.resolve(documentName));
             }
+            List<XWikiDocument> documents = xcontext.getWiki().getDocuments(documentReferences, xcontext);
 
-            RangeIterable<String> ri = new RangeIterable<String>(documentNames, start, number);
-
-            for (String documentName : ri) {
-                Document doc = Utils.getXWikiApi(componentManager).getDocument(documentName);
-                if (doc != null) {
-                    pages.getPageSummaries().add(DomainObjectFactory
-                            .createPageSummary(objectFactory, uriInfo.getBaseUri(), doc, Utils.getXWikiApi(
-                                    componentManager), withPrettyNames));
+            XWiki xwikiApi = Utils.getXWikiApi(componentManager);
+            for (XWikiDocument document : documents) {
+                if (!document.isNew() && xwikiApi.hasAccessLevel("view", document.getPrefixedFullName())) {
+                    pages.getPageSummaries().add(DomainObjectFactory.createPageSummary(objectFactory,
+                        uriInfo.getBaseUri(), document.newDocument(xcontext), xwikiApi, withPrettyNames));
                 }
             }
 
@@ -81,19 +82,49 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
         } catch (Exception e) {
             throw new XWikiRestException(e);
         } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
+            xcontext.setWikiId(database);
         }
     }
 
-    private List<String> getDocumentsWithTag(String tag) throws QueryException
+    /**
+     * The tagged documents are sorted by name, like the documents of a single tag always were. The documents of several
+     * tags are merged in this order, instead of listing the documents of each tag one after the other, so that the
+     * pagination can be done by the database.
+     *
+     * @param tags the tags to look for
+     * @param start the index of the first document to return
+     * @param number the maximum number of documents to return
+     * @return the full names of the documents having at least one of the tags
+     * @throws QueryException if the query fails
+     */
+    private List<String> getDocumentsWithTags(String[] tags, Integer start, Integer number) throws QueryException
     {
-        String query =
-                "select doc.fullName from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop "
+        // The sorted columns have to be selected to be able to remove the duplicates
+        StringBuilder statement = new StringBuilder("select distinct doc.name, doc.fullName"
+                        + " from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop "
                         + "where obj.name=doc.fullName and obj.className='XWiki.TagClass' and obj.id=prop.id.id "
-                        + "and prop.id.name='tags' and :tag in elements(prop.list) order by doc.name asc";
+                        + "and prop.id.name='tags' and (");
+        for (int i = 0; i < tags.length; ++i) {
+            if (i > 0) {
+                statement.append(" or ");
+            }
+            statement.append(":tag").append(i).append(" in elements(prop.list)");
+        }
+        // The full name makes the order stable between the pages when several documents have the same name
+        statement.append(") order by doc.name asc, doc.fullName asc");
+
+        // Paginate in the database instead of loading all the tagged documents
+        Query query = queryManager.createQuery(statement.toString(), Query.HQL).setOffset(start).setLimit(number);
+        for (int i = 0; i < tags.length; ++i) {
+            query.bindValue("tag" + i, tags[i]);
+        }
 
-        List<String> documentsWithTag = queryManager.createQuery(query, Query.HQL).bindValue("tag", tag).execute();
+        List<Object[]> results = query.execute();
+        List<String> documentNames = new ArrayList<String>(results.size());
+        for (Object[] result : results) {
+            documentNames.add((String) result[1]);
+        }
 
-        return documentsWithTag;
+        return documentNames;
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.internal.Constants;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.user.api.XWikiRightService;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XWikiResource}.
+ *
+ * @version $Id$
+ */
+public class XWikiResourceTest
+{
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private XWikiResource resource = new XWikiResource();
+
+    private QueryManager queryManager = mock(QueryManager.class);
+
+    private Query query = mock(Query.class);
+
+    private Request request = mock(Request.class);
+
+    private org.restlet.Request restletRequest = new org.restlet.Request();
+
+    private List<String> spaces = Arrays.asList("Space");
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Utils.setComponentManager(this.mocker);
+
+        EntityReferenceSerializer<String> serializer =
+            this.mocker.registerMockComponent(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(new DocumentReference("wiki", "Space", "Page"))).thenReturn("wiki:Space.Page");
+        EntityReferenceSerializer<String> localSerializer =
+            this.mocker.registerMockComponent(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localSerializer.serialize(any(SpaceReference.class))).thenReturn("Space");
+
+        XWiki xwiki = mock(XWiki.class);
+        XWikiContext xcontext = new XWikiContext();
+        xcontext.setWiki(xwiki);
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", xcontext);
+        Execution execution = this.mocker.registerMockComponent(Execution.class);
+        when(execution.getContext()).thenReturn(executionContext);
+
+        XWikiRightService rightService = mock(XWikiRightService.class);
+        when(xwiki.getRightService()).thenReturn(rightService);
+        when(rightService.hasAccessLevel("view", "XWiki.Guest", "wiki:Space.Page", xcontext)).thenReturn(true);
+
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(this.query);
+        when(this.query.bindValue(anyString(), any())).thenReturn(this.query);
+        when(this.query.setWiki("wiki")).thenReturn(this.query);
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getRequestUri()).thenReturn(new URI("http://host/xwiki/rest/wikis/wiki/spaces/Space/pages/Page"));
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://host/xwiki/rest"));
+
+        ReflectionUtils.setFieldValue(this.resource, "componentManager", this.mocker);
+        ReflectionUtils.setFieldValue(this.resource, "queryManager", this.queryManager);
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+        ReflectionUtils.setFieldValue(this.resource, "request", this.request);
+
+        org.restlet.Response.setCurrent(new org.restlet.Response(this.restletRequest));
+    }
+
+    private void mockVersions(Object[]... versions) throws Exception
+    {
+        List<Object> result = Arrays.<Object>asList(versions);
+        when(this.query.<Object>execute()).thenReturn(result);
+    }
+
+    private String getEntityTag()
+    {
+        return (String) this.restletRequest.getAttributes().get(Constants.ENTITY_TAG_ATTRIBUTE_NAME);
+    }
+
+    @Test
+    public void checkNotModifiedWhenUpToDate() throws Exception
+    {
+        mockVersions(new Object[] {"Space", "Page", "", "1.1", new Date(10500)});
+
+        // First request: the client gets the entity tag
+        this.resource.checkNotModified("wiki", this.spaces, "Page", false);
+        EntityTag entityTag = new EntityTag(getEntityTag());
+
+        ResponseBuilder builder = mock(ResponseBuilder.class);
+        when(builder.tag(any(EntityTag.class))).thenReturn(builder);
+        when(builder.lastModified(any(Date.class))).thenReturn(builder);
+        Response notModified = mock(Response.class);
+        when(builder.build()).thenReturn(notModified);
+        when(this.request.evaluatePreconditions(new Date(10000), entityTag)).thenReturn(builder);
+
+        try {
+            this.resource.checkNotModified("wiki", this.spaces, "Page", false);
+            fail();
+        } catch (WebApplicationException expected) {
+            assertSame(notModified, expected.getResponse());
+        }
+
+        verify(builder).tag(entityTag);
+        verify(builder).lastModified(new Date(10000));
+        assertEquals(new Date(10000),
+            this.restletRequest.getAttributes().get(Constants.ENTITY_MODIFICATION_DATE_ATTRIBUTE_NAME));
+    }
+
+    @Test
+    public void checkNotModifiedWithModifiedClass() throws Exception
+    {
+        mockVersions(new Object[] {"Space", "Page", "", "1.1", new Date(10000)},
+            new Object[] {"XWiki", "Class", "", "2.1", new Date(5000)});
+        this.resource.checkNotModified("wiki", this.spaces, "Page", false);
+        String entityTag = getEntityTag();
+
+        mockVersions(new Object[] {"Space", "Page", "", "1.1", new Date(10000)},
+            new Object[] {"XWiki", "Class", "", "2.2", new Date(20000)});
+        this.resource.checkNotModified("wiki", this.spaces, "Page", false);
+
+        assertNotEquals(entityTag, getEntityTag());
+        assertEquals(new Date(20000),
+            this.restletRequest.getAttributes().get(Constants.ENTITY_MODIFICATION_DATE_ATTRIBUTE_NAME));
+    }
+
+    @Test
+    public void checkNotModifiedWithMissingDocument() throws Exception
+    {
+        mockVersions();
+
+        this.resource.checkNotModified("wiki", this.spaces, "Page", false);
+
+        assertNull(getEntityTag());
+        verifyZeroInteractions(this.request);
+    }
+
+    @Test
+    public void checkNotModifiedWithPrettyNames() throws Exception
+    {
+        this.resource.checkNotModified("wiki", this.spaces, "Page", true);
+
+        assertNull(getEntityTag());
+        verifyZeroInteractions(this.queryManager, this.request);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.objects;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.ModelFactory;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.ObjectSummary;
+import org.xwiki.rest.model.jaxb.Objects;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AllObjectsForClassNameResourceImpl}.
+ *
+ * @version $Id$
+ */
+public class AllObjectsForClassNameResourceImplTest
+{
+    private static final String CLASS_NAME = "Space.Class";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private AllObjectsForClassNameResourceImpl resource = new AllObjectsForClassNameResourceImpl();
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private XWikiContext xcontext = new XWikiContext();
+
+    private QueryManager queryManager = mock(QueryManager.class);
+
+    private Query query = mock(Query.class);
+
+    private UriBuilder uriBuilder = mock(UriBuilder.class);
+
+    private DocumentReferenceResolver<String> resolver = mock(DocumentReferenceResolver.class);
+
+    private DocumentReference classReference = new DocumentReference("wiki", "Space", "Class");
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Utils.setComponentManager(this.mocker);
+
+        this.xcontext.setWiki(this.xwiki);
+        this.xcontext.setWikiId("xwiki");
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = this.mocker.registerMockComponent(Execution.class);
+        when(execution.getContext()).thenReturn(executionContext);
+
+        ModelFactory modelFactory = this.mocker.registerMockComponent(ModelFactory.class);
+        when(modelFactory.toRestObjectSummary(any(URI.class), any(Document.class), any(BaseObject.class),
+            anyBoolean(), any(Boolean.class))).thenReturn(new ObjectSummary());
+
+        when(this.queryManager.createQuery(anyString(), eq(Query.XWQL))).thenReturn(this.query);
+        when(this.query.bindValue(anyString(), any())).thenReturn(this.query);
+        when(this.query.setLimit(anyInt())).thenReturn(this.query);
+        when(this.query.setOffset(anyInt())).thenReturn(this.query);
+
+        when(this.resolver.resolve(CLASS_NAME)).thenReturn(this.classReference);
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://host/xwiki/rest"));
+        when(uriInfo.getRequestUriBuilder()).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.replaceQueryParam(anyString(), Matchers.<Object>anyVararg())).thenReturn(this.uriBuilder);
+        when(this.uriBuilder.build(Matchers.<Object>anyVararg())).thenReturn(new URI("http://host/next"));
+
+        ReflectionUtils.setFieldValue(this.resource, "componentManager", this.mocker);
+        ReflectionUtils.setFieldValue(this.resource, "queryManager", this.queryManager);
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+        ReflectionUtils.setFieldValue(this.resource, "objectFactory", new ObjectFactory());
+        ReflectionUtils.setFieldValue(this.resource, "currentDocumentReferenceResolver", this.resolver);
+    }
+
+    private XWikiDocument mockDocument(String documentName, Integer... numbers)
+    {
+        DocumentReference reference = new DocumentReference("wiki", "Space", documentName);
+        when(this.resolver.resolve("Space." + documentName)).thenReturn(reference);
+
+        XWikiDocument document = mock(XWikiDocument.class, documentName);
+        when(document.newDocument(this.xcontext)).thenReturn(mock(Document.class));
+        for (Integer number : numbers) {
+            when(document.getXObject(this.classReference, number)).thenReturn(mock(BaseObject.class));
+        }
+
+        return document;
+    }
+
+    @Test
+    public void getObjectsAfterCursorIgnoresTheOffset() throws Exception
+    {
+        List<Object[]> rows =
+            Arrays.asList(new Object[] {11L, "Space.First", 0}, new Object[] {12L, "Space.Second", 0});
+        when(this.query.<Object[]>execute()).thenReturn(rows);
+
+        XWikiDocument first = mockDocument("First", 0);
+        XWikiDocument second = mockDocument("Second", 0);
+        when(this.xwiki.getDocuments(Arrays.asList(new DocumentReference("wiki", "Space", "First"),
+            new DocumentReference("wiki", "Space", "Second")), this.xcontext)).thenReturn(Arrays.asList(first, second));
+
+        Objects objects = this.resource.getObjects("wiki", CLASS_NAME, 20, 2, null, 10L, false);
+
+        verify(this.queryManager).createQuery(Matchers.contains("obj.id > :after"), eq(Query.XWQL));
+        verify(this.query).bindValue("after", 10L);
+        verify(this.query, never()).setOffset(anyInt());
+        verify(this.query).setLimit(2);
+
+        assertEquals(2, objects.getObjectSummaries().size());
+
+        // The next page continues after the last returned object, without offset
+        assertEquals(1, objects.getLinks().size());
+        assertEquals(Relations.NEXT, objects.getLinks().get(0).getRel());
+        verify(this.uriBuilder).replaceQueryParam("start");
+        verify(this.uriBuilder).replaceQueryParam("after", 12L);
+
+        // The current wiki is restored
+        assertEquals("xwiki", this.xcontext.getWikiId());
+    }
+
+    @Test
+    public void getObjectsWithoutCursorUsesTheOffset() throws Exception
+    {
+        when(this.query.<Object[]>execute()).thenReturn(Arrays.<Object[]>asList());
+        when(this.xwiki.getDocuments(Arrays.<DocumentReference>asList(), this.xcontext))
+            .thenReturn(Arrays.<XWikiDocument>asList());
+
+        Objects objects = this.resource.getObjects("wiki", CLASS_NAME, 20, 2, null, null, false);
+
+        verify(this.query).setOffset(20);
+        verify(this.query, never()).bindValue(eq("after"), any());
+        assertTrue(objects.getObjectSummaries().isEmpty());
+        assertTrue(objects.getLinks().isEmpty());
+    }
+
+    @Test
+    public void getObjectsLoadsEachDocumentOnce() throws Exception
+    {
+        List<Object[]> rows = Arrays.asList(new Object[] {11L, "Space.Page", 0}, new Object[] {12L, "Space.Page", 1},
+            new Object[] {13L, "Space.Other", 0});
+        when(this.query.<Object[]>execute()).thenReturn(rows);
+
+        XWikiDocument page = mockDocument("Page", 0, 1);
+        XWikiDocument other = mockDocument("Other", 0);
+        when(this.xwiki.getDocuments(Arrays.asList(new DocumentReference("wiki", "Space", "Page"),
+            new DocumentReference("wiki", "Space", "Other")), this.xcontext)).thenReturn(Arrays.asList(page, other));
+
+        Objects objects = this.resource.getObjects("wiki", CLASS_NAME, 0, 10, null, null, false);
+
+        assertEquals(3, objects.getObjectSummaries().size());
+        verify(page).getXObject(this.classReference, 0);
+        verify(page).getXObject(this.classReference, 1);
+        verify(other).getXObject(this.classReference, 0);
+        verify(this.xwiki).getDocuments(any(List.class), same(this.xcontext));
+    }
+}
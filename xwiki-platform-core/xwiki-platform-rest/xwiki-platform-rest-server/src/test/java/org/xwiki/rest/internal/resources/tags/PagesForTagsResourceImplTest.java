@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.tags;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.internal.ModelFactory;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.PageSummary;
+import org.xwiki.rest.model.jaxb.Pages;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.user.api.XWikiRightService;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link PagesForTagsResourceImpl}.
+ *
+ * @version $Id$
+ */
+public class PagesForTagsResourceImplTest
+{
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private PagesForTagsResourceImpl resource = new PagesForTagsResourceImpl();
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private XWikiContext xcontext = new XWikiContext();
+
+    private XWikiRightService rightService = mock(XWikiRightService.class);
+
+    private QueryManager queryManager = mock(QueryManager.class);
+
+    private Query query = mock(Query.class);
+
+    private ModelFactory modelFactory;
+
+    private DocumentReferenceResolver<String> resolver = mock(DocumentReferenceResolver.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Utils.setComponentManager(this.mocker);
+
+        this.xcontext.setWiki(this.xwiki);
+        this.xcontext.setWikiId("xwiki");
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = this.mocker.registerMockComponent(Execution.class);
+        when(execution.getContext()).thenReturn(executionContext);
+
+        when(this.xwiki.getRightService()).thenReturn(this.rightService);
+
+        this.modelFactory = this.mocker.registerMockComponent(ModelFactory.class);
+
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(this.query);
+        when(this.query.bindValue(anyString(), any())).thenReturn(this.query);
+        when(this.query.setLimit(anyInt())).thenReturn(this.query);
+        when(this.query.setOffset(anyInt())).thenReturn(this.query);
+
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getBaseUri()).thenReturn(new URI("http://host/xwiki/rest"));
+
+        ReflectionUtils.setFieldValue(this.resource, "componentManager", this.mocker);
+        ReflectionUtils.setFieldValue(this.resource, "queryManager", this.queryManager);
+        ReflectionUtils.setFieldValue(this.resource, "uriInfo", uriInfo);
+        ReflectionUtils.setFieldValue(this.resource, "objectFactory", new ObjectFactory());
+        ReflectionUtils.setFieldValue(this.resource, "currentDocumentReferenceResolver", this.resolver);
+    }
+
+    private XWikiDocument mockDocument(String name, boolean isNew, boolean viewable) throws Exception
+    {
+        DocumentReference reference = new DocumentReference("wiki", "Space", name);
+        when(this.resolver.resolve("Space." + name)).thenReturn(reference);
+
+        XWikiDocument document = mock(XWikiDocument.class, name);
+        when(document.isNew()).thenReturn(isNew);
+        when(document.getPrefixedFullName()).thenReturn("wiki:Space." + name);
+        when(this.rightService.hasAccessLevel("view", "XWiki.Guest", "wiki:Space." + name, this.xcontext))
+            .thenReturn(viewable);
+
+        Document apiDocument = mock(Document.class, name);
+        when(document.newDocument(this.xcontext)).thenReturn(apiDocument);
+        PageSummary pageSummary = new PageSummary();
+        pageSummary.setName(name);
+        when(this.modelFactory.toRestPageSummary(any(URI.class), same(apiDocument), any(Boolean.class)))
+            .thenReturn(pageSummary);
+
+        return document;
+    }
+
+    @Test
+    public void getTagsPaginatesInTheDatabaseAndKeepsOnlyTheViewableDocuments() throws Exception
+    {
+        when(this.query.<Object[]>execute()).thenReturn(Arrays.asList(new Object[] {"A", "Space.A"},
+            new Object[] {"B", "Space.B"}, new Object[] {"C", "Space.C"}, new Object[] {"D", "Space.D"}));
+
+        XWikiDocument a = mockDocument("A", false, true);
+        XWikiDocument b = mockDocument("B", false, false);
+        XWikiDocument c = mockDocument("C", true, true);
+        XWikiDocument d = mockDocument("D", false, true);
+        when(this.xwiki.getDocuments(
+            Arrays.asList(new DocumentReference("wiki", "Space", "A"), new DocumentReference("wiki", "Space", "B"),
+                new DocumentReference("wiki", "Space", "C"), new DocumentReference("wiki", "Space", "D")),
+            this.xcontext)).thenReturn(Arrays.asList(a, b, c, d));
+
+        Pages pages = this.resource.getTags("wiki", "tag1,tag2", 10, 4, false);
+
+        // The tagged documents of all the tags are sorted by name and paginated by the query
+        verify(this.queryManager).createQuery(Matchers.endsWith("order by doc.name asc, doc.fullName asc"),
+            eq(Query.HQL));
+        verify(this.query).bindValue("tag0", "tag1");
+        verify(this.query).bindValue("tag1", "tag2");
+        verify(this.query).setOffset(10);
+        verify(this.query).setLimit(4);
+
+        // The deleted documents and the documents the user can't view are skipped, the others keep the query order
+        assertEquals(2, pages.getPageSummaries().size());
+        assertEquals("A", pages.getPageSummaries().get(0).getName());
+        assertEquals("D", pages.getPageSummaries().get(1).getName());
+
+        assertEquals("xwiki", this.xcontext.getWikiId());
+    }
+
+    @Test
+    public void getTagsSortsTheDocumentsByName() throws Exception
+    {
+        // Documents with the same name in different spaces
+        when(this.query.<Object[]>execute()).thenReturn(Arrays.asList(new Object[] {"A", "Other.A"},
+            new Object[] {"A", "Space.A"}));
+
+        when(this.resolver.resolve("Other.A")).thenReturn(new DocumentReference("wiki", "Other", "A"));
+        XWikiDocument otherA = mockDocument("A", false, true);
+        XWikiDocument a = mockDocument("A", false, true);
+        when(this.xwiki.getDocuments(
+            Arrays.asList(new DocumentReference("wiki", "Other", "A"), new DocumentReference("wiki", "Space", "A")),
+            this.xcontext)).thenReturn(Arrays.asList(otherA, a));
+
+        Pages pages = this.resource.getTags("wiki", "tag", 0, 10, false);
+
+        // Same order as before the pagination in the database when a single tag is requested
+        verify(this.queryManager).createQuery(Matchers.startsWith("select distinct doc.name, doc.fullName "),
+            eq(Query.HQL));
+        verify(this.queryManager).createQuery(Matchers.endsWith("order by doc.name asc, doc.fullName asc"),
+            eq(Query.HQL));
+        verify(this.query).bindValue("tag0", "tag");
+
+        assertEquals(2, pages.getPageSummaries().size());
+    }
+}
@@ -104,6 +104,20 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final int SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT = 100000;
 
+    /**
+     * The name of the configuration property containing the number of metadata extractor threads.
+     * 
+     * @since 8.2M1
+     */
+    public static final String SOLR_INDEXER_EXTRACTOR_THREADS_PROPERTY = "solr.indexer.extractor.threads";
+
+    /**
+     * The default number of metadata extractor threads.
+     * 
+     * @since 8.2M1
+     */
+    public static final int SOLR_INDEXER_EXTRACTOR_THREADS_DEFAULT = 1;
+
     /**
      * The name of the configuration property indicating if a synchronization should be run at startup.
      */
@@ -114,6 +128,20 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final boolean SOLR_SYNCHRONIZE_AT_STARTUP_DEFAULT = true;
 
+    /**
+     * The name of the configuration property indicating if the synchronization run at startup should be incremental.
+     * 
+     * @since 8.2M1
+     */
+    public static final String SOLR_SYNCHRONIZE_INCREMENTALLY = "solr.synchronizeIncrementally";
+
+    /**
+     * Indicate if the synchronization run at startup should be incremental by default.
+     * 
+     * @since 8.2M1
+     */
+    public static final boolean SOLR_SYNCHRONIZE_INCREMENTALLY_DEFAULT = false;
+
     /**
      * The Solr configuration source.
      */
@@ -160,9 +188,22 @@ public int getIndexerQueueCapacity()
             .getProperty(SOLR_INDEXER_QUEUE_CAPACITY_PROPERTY, SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getIndexerExtractorThreads()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_EXTRACTOR_THREADS_PROPERTY,
+            SOLR_INDEXER_EXTRACTOR_THREADS_DEFAULT);
+    }
+
     @Override
     public boolean synchronizeAtStartup()
     {
         return this.configuration.getProperty(SOLR_SYNCHRONIZE_AT_STARTUP, SOLR_SYNCHRONIZE_AT_STARTUP_DEFAULT);
     }
+
+    @Override
+    public boolean synchronizeIncrementally()
+    {
+        return this.configuration.getProperty(SOLR_SYNCHRONIZE_INCREMENTALLY, SOLR_SYNCHRONIZE_INCREMENTALLY_DEFAULT);
+    }
 }
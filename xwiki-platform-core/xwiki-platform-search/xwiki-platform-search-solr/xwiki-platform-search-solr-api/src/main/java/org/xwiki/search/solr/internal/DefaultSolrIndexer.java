@@ -19,11 +19,19 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -65,6 +73,10 @@
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
  * processes the queue.
+ * <p/>
+ * When several extractor threads are configured, the metadata of consecutive entities to index are extracted in
+ * parallel but the resulting documents (and the delete operations) are still sent to the Solr server in the order of
+ * the queue, so that the operations on a given entity are always applied in the order they were received.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -99,6 +111,20 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the operations queued before have been committed, for the flush operation.
+         */
+        public CompletableFuture<Void> flushed;
+
+        /**
+         * @param flushed the future to complete once the operations queued before have been committed
+         */
+        public IndexQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -131,6 +157,9 @@ public String toString()
                 case DELETE:
                     str = "DELETE " + this.deleteQuery;
                     break;
+                case FLUSH:
+                    str = "FLUSH";
+                    break;
                 case STOP:
                     str = "STOP";
                     break;
@@ -143,6 +172,34 @@ public String toString()
         }
     }
 
+    /**
+     * Metadata extraction started in an extractor thread and not yet sent to the Solr server.
+     * 
+     * @version $Id$
+     */
+    private static class PendingExtraction
+    {
+        /**
+         * The index queue entry being extracted.
+         */
+        public IndexQueueEntry entry;
+
+        /**
+         * The extracted document.
+         */
+        public Future<LengthSolrInputDocument> document;
+
+        /**
+         * @param entry the index queue entry being extracted
+         * @param document the extracted document
+         */
+        public PendingExtraction(IndexQueueEntry entry, Future<LengthSolrInputDocument> document)
+        {
+            this.entry = entry;
+            this.document = document;
+        }
+    }
+
     /**
      * Resolve queue entry.
      * 
@@ -165,6 +222,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the operations queued before have been committed, for the flush operation.
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -176,6 +238,15 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param flushed the future to complete once the operations queued before have been committed
+         */
+        public ResolveQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
     }
 
     /**
@@ -201,13 +272,17 @@ public void runInternal()
 
                 if (queueEntry == RESOLVE_QUEUE_ENTRY_STOP) {
                     // Stop the index thread: clear the queue and send the stop signal without blocking.
-                    indexQueue.clear();
+                    clearIndexQueue();
                     indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+                    // Nobody will flush what's left in the resolve queue
+                    clearResolveQueue();
                     break;
                 }
 
                 try {
-                    if (queueEntry.operation == IndexOperation.INDEX) {
+                    if (queueEntry.operation == IndexOperation.FLUSH) {
+                        indexQueue.put(new IndexQueueEntry(queueEntry.flushed));
+                    } else if (queueEntry.operation == IndexOperation.INDEX) {
                         Iterable<EntityReference> references;
                         if (queueEntry.recurse) {
                             references = solrRefereceResolver.getReferences(queueEntry.reference);
@@ -310,16 +385,42 @@ public void runInternal()
      */
     private Thread resolveThread;
 
+    /**
+     * Threads in which the metadata of the entities to index are extracted, null if they are extracted in the index
+     * thread.
+     */
+    private ExecutorService extractorExecutor;
+
+    /**
+     * The maximum number of extractions started in advance by the index thread.
+     */
+    private int maxPendingExtractions;
+
     /**
      * Indicate of the component has been disposed.
      */
-    private boolean disposed;
+    private volatile boolean disposed;
 
     /**
      * The size of the not yet sent batch.
      */
     private volatile int batchSize;
 
+    /**
+     * The number of extractions started and not yet sent.
+     */
+    private volatile int pendingSize;
+
+    /**
+     * The number of operations sent to the Solr server.
+     */
+    private final AtomicLong processedCount = new AtomicLong();
+
+    /**
+     * The time spent extracting metadata, in milliseconds.
+     */
+    private final AtomicLong extractionTime = new AtomicLong();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -334,6 +435,17 @@ public void initialize() throws InitializationException
         this.resolveThread.start();
         this.resolveThread.setPriority(Thread.NORM_PRIORITY - 1);
 
+        // Setup the metadata extractor threads
+        int extractorThreads = this.configuration.getIndexerExtractorThreads();
+        if (extractorThreads > 1) {
+            BasicThreadFactory extractorFactory =
+                new BasicThreadFactory.Builder().namingPattern("XWiki Solr extractor thread %d").daemon(true)
+                    .priority(Thread.NORM_PRIORITY - 1).build();
+            this.extractorExecutor = Executors.newFixedThreadPool(extractorThreads, extractorFactory);
+            // Keep the extractor threads busy while the index thread is sending documents
+            this.maxPendingExtractions = extractorThreads * 2;
+        }
+
         // Launch the index thread
         this.indexThread = new Thread(this);
         this.indexThread.setName("XWiki Solr index thread");
@@ -359,17 +471,51 @@ public void dispose() throws ComponentLifecycleException
 
         // Stop the resolve thread. Clear the queue and send the stop signal without blocking. We know that the resolve
         // queue will remain empty after the clear call because we set the disposed flag above.
-        this.resolveQueue.clear();
+        clearResolveQueue();
         this.resolveQueue.offer(RESOLVE_QUEUE_ENTRY_STOP);
 
         // Stop the index thread. Clear the queue and send the stop signal without blocking. There should be enough
         // space in the index queue before the special stop entry is added as long the the index queue capacity is
         // greater than 1. In the worse case, the clear call will unblock the resolve thread (which was waiting because
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
-        this.indexQueue.clear();
+        clearIndexQueue();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
     }
 
+    /**
+     * Clear the resolve queue, cancelling the flush operations it contains so that nobody waits for them forever.
+     */
+    private void clearResolveQueue()
+    {
+        List<ResolveQueueEntry> entries = new ArrayList<>();
+        this.resolveQueue.drainTo(entries);
+        for (ResolveQueueEntry entry : entries) {
+            cancelFlush(entry.flushed);
+        }
+    }
+
+    /**
+     * Clear the index queue, cancelling the flush operations it contains so that nobody waits for them forever.
+     */
+    private void clearIndexQueue()
+    {
+        List<IndexQueueEntry> entries = new ArrayList<>();
+        this.indexQueue.drainTo(entries);
+        for (IndexQueueEntry entry : entries) {
+            cancelFlush(entry.flushed);
+        }
+    }
+
+    /**
+     * @param flushed the future of a flush operation that won't be executed, null if the operation is not a flush
+     */
+    private void cancelFlush(CompletableFuture<Void> flushed)
+    {
+        if (flushed != null) {
+            flushed.cancel(false);
+        }
+    }
+
     @Override
     public void run()
     {
@@ -393,6 +539,13 @@ public void run()
             }
         }
 
+        if (this.extractorExecutor != null) {
+            this.extractorExecutor.shutdownNow();
+        }
+
+        // The operations left in the queue won't be executed
+        clearIndexQueue();
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -407,50 +560,53 @@ private boolean processBatch(IndexQueueEntry queueEntry)
     {
         SolrInstance solrInstance = this.solrInstanceProvider.get();
 
+        Deque<PendingExtraction> pendingExtractions = new ArrayDeque<>();
+
         int length = 0;
 
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
-                // Discard the current batch and stop the indexing thread.
+                // Discard the current batch and the remaining operations and stop the indexing thread.
+                cancelExtractions(pendingExtractions);
+                clearIndexQueue();
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
-
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
-
-                    ++this.batchSize;
+            if (this.extractorExecutor != null && IndexOperation.INDEX.equals(batchEntry.operation)) {
+                final EntityReference reference = batchEntry.reference;
+                pendingExtractions.add(new PendingExtraction(batchEntry,
+                    this.extractorExecutor.submit(() -> extractSolrDocument(reference))));
+                this.pendingSize = pendingExtractions.size();
+
+                // Only send the oldest extractions to keep the window full instead of draining it at once
+                length = sendExtractions(solrInstance, pendingExtractions, this.maxPendingExtractions - 1, length);
+            } else if (IndexOperation.FLUSH.equals(batchEntry.operation)) {
+                length = sendExtractions(solrInstance, pendingExtractions, 0, length);
+                if (this.batchSize > 0) {
+                    commit();
+                    length = 0;
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+                batchEntry.flushed.complete(null);
+            } else {
+                // Operations have to be sent in the order of the queue
+                length = sendExtractions(solrInstance, pendingExtractions, 0, length);
+                length = processEntry(solrInstance, batchEntry, length);
             }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+            if (Thread.currentThread().isInterrupted()) {
+                // Stop the indexing thread
+                cancelExtractions(pendingExtractions);
+
+                return false;
             }
         }
 
+        length = sendExtractions(solrInstance, pendingExtractions, 0, length);
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+
         // Commit what's left
         if (this.batchSize > 0) {
             commit();
@@ -459,6 +615,150 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Apply an operation in the index thread.
+     * 
+     * @param solrInstance the Solr instance
+     * @param batchEntry the operation to apply
+     * @param length the length of the current batch
+     * @return the new length of the current batch
+     */
+    private int processEntry(SolrInstance solrInstance, IndexQueueEntry batchEntry, int length)
+    {
+        int newLength = length;
+
+        IndexOperation operation = batchEntry.operation;
+
+        // For the current contiguous operations queue, group the changes
+        try {
+            if (IndexOperation.INDEX.equals(operation)) {
+                newLength = addDocument(solrInstance, extractSolrDocument(batchEntry.reference), newLength);
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                delete(solrInstance, batchEntry);
+            }
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        }
+
+        return commitIfNeeded(newLength);
+    }
+
+    /**
+     * Send the documents extracted in the extractor threads, waiting for them in the order of the queue.
+     * 
+     * @param solrInstance the Solr instance
+     * @param pendingExtractions the extractions to send
+     * @param maxRemaining the maximum number of extractions to leave pending
+     * @param length the length of the current batch
+     * @return the new length of the current batch
+     */
+    private int sendExtractions(SolrInstance solrInstance, Deque<PendingExtraction> pendingExtractions,
+        int maxRemaining, int length)
+    {
+        int newLength = length;
+
+        while (pendingExtractions.size() > maxRemaining) {
+            PendingExtraction pendingExtraction = pendingExtractions.poll();
+            try {
+                newLength = addDocument(solrInstance, pendingExtraction.document.get(), newLength);
+            } catch (InterruptedException e) {
+                this.logger.warn("Interrupted while waiting for entry [{}]", pendingExtraction.entry, e);
+
+                // Give up the pending extractions and let the indexing thread stop
+                cancelExtractions(pendingExtractions);
+                Thread.currentThread().interrupt();
+
+                break;
+            } catch (ExecutionException e) {
+                this.logger.error("Failed to process entry [{}]", pendingExtraction.entry, e.getCause());
+            } catch (Throwable e) {
+                this.logger.error("Failed to process entry [{}]", pendingExtraction.entry, e);
+            }
+
+            this.pendingSize = pendingExtractions.size();
+
+            newLength = commitIfNeeded(newLength);
+        }
+
+        return newLength;
+    }
+
+    /**
+     * Cancel the extractions that have not been sent yet.
+     * 
+     * @param pendingExtractions the extractions to cancel
+     */
+    private void cancelExtractions(Deque<PendingExtraction> pendingExtractions)
+    {
+        for (PendingExtraction pendingExtraction : pendingExtractions) {
+            pendingExtraction.document.cancel(true);
+        }
+        pendingExtractions.clear();
+        this.pendingSize = 0;
+    }
+
+    /**
+     * @param solrInstance the Solr instance
+     * @param batchEntry the delete operation to apply
+     * @throws Exception when failing to delete
+     */
+    private void delete(SolrInstance solrInstance, IndexQueueEntry batchEntry) throws Exception
+    {
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (batchEntry.reference == null) {
+                solrInstance.deleteByQuery(batchEntry.deleteQuery);
+            } else {
+                solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
+            }
+        } finally {
+            this.execution.removeContext();
+        }
+
+        ++this.batchSize;
+        this.processedCount.incrementAndGet();
+    }
+
+    /**
+     * @param solrInstance the Solr instance
+     * @param solrDocument the document to add, ignored if null
+     * @param length the length of the current batch
+     * @return the new length of the current batch
+     * @throws Exception when failing to send the document
+     */
+    private int addDocument(SolrInstance solrInstance, LengthSolrInputDocument solrDocument, int length)
+        throws Exception
+    {
+        if (solrDocument != null) {
+            solrInstance.add(solrDocument);
+            ++this.batchSize;
+            this.processedCount.incrementAndGet();
+
+            return length + solrDocument.getLength();
+        }
+
+        return length;
+    }
+
+    /**
+     * Commit the index changes so that they become available to queries. This is a costly operation and that is the
+     * reason why we perform it only when the batch is big enough.
+     * 
+     * @param length the length of the current batch
+     * @return the new length of the current batch
+     */
+    private int commitIfNeeded(int length)
+    {
+        if (shouldCommit(length, this.batchSize)) {
+            commit();
+
+            return 0;
+        }
+
+        return length;
+    }
+
     /**
      * Commit.
      */
@@ -500,6 +800,29 @@ private boolean shouldCommit(int length, int size)
         return size >= this.configuration.getIndexerBatchSize();
     }
 
+    /**
+     * Extract the metadata of the passed reference in a dedicated execution context.
+     * 
+     * @param reference the reference to extract metadata from.
+     * @return the {@link SolrInputDocument} containing extracted metadata from the passed reference; {@code null} if
+     *         the reference type is not supported.
+     * @throws Exception if problems occur.
+     */
+    private LengthSolrInputDocument extractSolrDocument(EntityReference reference) throws Exception
+    {
+        long start = System.currentTimeMillis();
+
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            return getSolrDocument(reference);
+        } finally {
+            this.execution.removeContext();
+
+            this.extractionTime.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
     /**
      * @param reference the reference to extract metadata from.
      * @return the {@link SolrInputDocument} containing extracted metadata from the passed reference; {@code null} if
@@ -564,10 +887,42 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
         }
     }
 
+    @Override
+    public Future<Void> flush()
+    {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        if (this.disposed) {
+            flushed.cancel(false);
+        } else {
+            this.resolveQueue.offer(new ResolveQueueEntry(flushed));
+
+            // The component might have been disposed while the flush was queued, in which case nobody will complete it
+            // (does nothing if the flush has already been completed)
+            if (this.disposed) {
+                flushed.cancel(false);
+            }
+        }
+
+        return flushed;
+    }
+
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingSize + this.batchSize;
+    }
+
+    @Override
+    public long getProcessedCount()
+    {
+        return this.processedCount.get();
+    }
+
+    @Override
+    public long getExtractionTime()
+    {
+        return this.extractionTime.get();
     }
 
     @Override
@@ -37,6 +37,13 @@
      */
     DELETE,
 
+    /**
+     * Commit the operations queued before and notify the thread waiting for them.
+     * 
+     * @since 8.2M1
+     */
+    FLUSH,
+
     // General operations
 
     /**
@@ -73,9 +73,23 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index in parallel, 1 or less
+     *         means the metadata are extracted in the index thread
+     * @since 8.2M1
+     */
+    int getIndexerExtractorThreads();
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
      */
     boolean synchronizeAtStartup();
+
+    /**
+     * @return true if the synchronization run at startup should only index the documents modified or deleted since
+     *         the previous synchronization instead of comparing the whole database with the SOLR index
+     * @since 8.2M1
+     */
+    boolean synchronizeIncrementally();
 }
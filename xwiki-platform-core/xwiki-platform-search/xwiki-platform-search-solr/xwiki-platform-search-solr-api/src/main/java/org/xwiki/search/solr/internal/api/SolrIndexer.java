@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.api;
 
+import java.util.concurrent.Future;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.job.IndexerJob;
@@ -55,11 +57,33 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Commit the operations queued before this call.
+     * 
+     * @return a future completed once all the index/delete operations queued before this call have been sent to the
+     *         Solr server and committed, or cancelled if the indexer is stopped in the meantime
+     * @since 8.2M1
+     */
+    Future<Void> flush();
+
     /**
      * @return the number of element in the index/delete queue
      */
     int getQueueSize();
 
+    /**
+     * @return the number of index/delete operations sent to the Solr server since the indexer was started
+     * @since 8.2M1
+     */
+    long getProcessedCount();
+
+    /**
+     * @return the total time spent extracting metadata of the indexed entities, in milliseconds, summed over all the
+     *         extractor threads
+     * @since 8.2M1
+     */
+    long getExtractionTime();
+
     /**
      * Start an indexing with specific criteria.
      * 
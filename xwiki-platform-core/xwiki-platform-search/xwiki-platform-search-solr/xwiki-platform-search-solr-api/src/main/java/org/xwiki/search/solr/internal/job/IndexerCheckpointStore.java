@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+
+/**
+ * Store, in the permanent directory, the position reached by the incremental {@link IndexerJob} in each wiki so that
+ * an interrupted or time-sliced synchronization can resume where it stopped, even after a restart.
+ * <p>
+ * The position is made of the modification date and the database identifier of the last document committed by the
+ * indexer, documents being processed in this order. The deleted documents of a wiki are processed in deletion date
+ * order and have their own position, stored with the {@code <wiki>#deleted} key.
+ * 
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = IndexerCheckpointStore.class)
+@Singleton
+public class IndexerCheckpointStore
+{
+    /**
+     * A position in the list of documents of a wiki, ordered by modification date and identifier.
+     * 
+     * @version $Id$
+     */
+    public static class Checkpoint
+    {
+        private final Date date;
+
+        private final long id;
+
+        /**
+         * @param date the modification date of the last processed document
+         * @param id the identifier of the last processed document
+         */
+        public Checkpoint(Date date, long id)
+        {
+            this.date = date;
+            this.id = id;
+        }
+
+        /**
+         * @return the modification date of the last processed document
+         */
+        public Date getDate()
+        {
+            return this.date;
+        }
+
+        /**
+         * @return the identifier of the last processed document
+         */
+        public long getId()
+        {
+            return this.id;
+        }
+    }
+
+    /**
+     * The path of the file containing the checkpoints, relative to the permanent directory.
+     */
+    private static final String CHECKPOINTS_FILE = "solr-indexer/checkpoints.properties";
+
+    private static final String SEPARATOR = ":";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private Properties checkpoints;
+
+    /**
+     * @param wiki the wiki identifier, or the key of the position reached in its deleted documents
+     * @return the position reached in the passed wiki, null if the wiki was never synchronized incrementally
+     */
+    public synchronized Checkpoint get(String wiki)
+    {
+        String value = getCheckpoints().getProperty(wiki);
+        if (value != null) {
+            try {
+                return new Checkpoint(new Date(Long.parseLong(StringUtils.substringBefore(value, SEPARATOR))),
+                    Long.parseLong(StringUtils.substringAfter(value, SEPARATOR)));
+            } catch (NumberFormatException e) {
+                this.logger.warn("Ignoring invalid Solr indexer checkpoint [{}] for wiki [{}]", value, wiki);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remember the position reached in a wiki.
+     * 
+     * @param wiki the wiki identifier, or the key of the position reached in its deleted documents
+     * @param checkpoint the position reached in the wiki
+     */
+    public synchronized void set(String wiki, Checkpoint checkpoint)
+    {
+        getCheckpoints().setProperty(wiki,
+            String.valueOf(checkpoint.getDate().getTime()) + SEPARATOR + checkpoint.getId());
+
+        save();
+    }
+
+    private File getFile()
+    {
+        return new File(this.environment.getPermanentDirectory(), CHECKPOINTS_FILE);
+    }
+
+    private Properties getCheckpoints()
+    {
+        if (this.checkpoints == null) {
+            this.checkpoints = new Properties();
+
+            File file = getFile();
+            if (file.exists()) {
+                try (InputStream stream = new FileInputStream(file)) {
+                    this.checkpoints.load(stream);
+                } catch (IOException e) {
+                    this.logger.error("Failed to load the Solr indexer checkpoints from [{}]", file, e);
+                }
+            }
+        }
+
+        return this.checkpoints;
+    }
+
+    private void save()
+    {
+        File file = getFile();
+        file.getParentFile().mkdirs();
+
+        try (OutputStream stream = new FileOutputStream(file)) {
+            this.checkpoints.store(stream, "Solr indexer checkpoints (modification date:document id)");
+        } catch (IOException e) {
+            this.logger.error("Failed to save the Solr indexer checkpoints in [{}]", file, e);
+        }
+    }
+}
@@ -19,9 +19,25 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -29,10 +45,21 @@
 import org.xwiki.job.AbstractJob;
 import org.xwiki.job.DefaultJobStatus;
 import org.xwiki.job.Request;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.search.solr.internal.job.IndexerCheckpointStore.Checkpoint;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -50,6 +77,36 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
      */
     public static final String JOBTYPE = "solr.indexer";
 
+    /**
+     * The maximum number of modified documents to query at once.
+     */
+    private static final int LIMIT = 100;
+
+    private static final String DATE = "date";
+
+    private static final String ID = "id";
+
+    private static final String SPACE = "space";
+
+    private static final String SPACE_PREFIX = "spacePrefix";
+
+    private static final String NAME = "name";
+
+    /**
+     * The suffix of the key used to store the position reached in the deleted documents of a wiki.
+     */
+    private static final String DELETED_KEY_SUFFIX = "#deleted";
+
+    /**
+     * The escape character used in the LIKE patterns.
+     */
+    private static final char LIKE_ESCAPE = '!';
+
+    /**
+     * The maximum time to wait, in minutes, for the indexer to commit a page of documents.
+     */
+    private static final long FLUSH_TIMEOUT = 10;
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -64,6 +121,23 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     @Named("solr")
     private transient DocumentIterator<String> solrIterator;
 
+    @Inject
+    private transient IndexerCheckpointStore checkpointStore;
+
+    @Inject
+    private transient QueryManager queryManager;
+
+    @Inject
+    private transient WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    @Named("explicit")
+    private transient EntityReferenceResolver<String> explicitEntityReferenceResolver;
+
+    @Inject
+    @Named("local")
+    private transient EntityReferenceSerializer<String> localEntityReferenceSerializer;
+
     @Override
     public String getType()
     {
@@ -90,11 +164,412 @@ protected void runInternal() throws Exception
             EntityReference rootReference = getRequest().getRootReference();
             this.logger.info("Index documents in [{}].", rootReference);
             this.indexer.index(rootReference, true);
+        } else if (getRequest().isIncremental() || getRequest().getModifiedSince() != null) {
+            indexModifiedDocuments();
         } else {
             updateSolrIndex();
         }
     }
 
+    /**
+     * Index the documents modified since the requested date or the saved checkpoint of each wiki.
+     * 
+     * @throws QueryException when failing to query the modified documents
+     * @throws WikiManagerException when failing to get the list of wikis
+     * @throws InterruptedException when interrupted while waiting for the indexer
+     */
+    private void indexModifiedDocuments() throws QueryException, WikiManagerException, InterruptedException
+    {
+        List<String> wikis = getWikis();
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            int maxDocuments = getRequest().getMaxDocuments();
+            int remaining = maxDocuments > 0 ? maxDocuments : Integer.MAX_VALUE;
+
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                remaining -= deleteDocuments(wiki, remaining);
+                if (remaining > 0) {
+                    remaining -= indexModifiedDocuments(wiki, remaining);
+                }
+
+                if (remaining <= 0) {
+                    this.logger.info("Stopped the synchronization of the Solr index after [{}] documents.",
+                        maxDocuments);
+                    break;
+                }
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    /**
+     * Index the documents of a wiki in modification date order, starting from the requested date or the saved
+     * checkpoint.
+     * 
+     * @param wiki the wiki
+     * @param max the maximum number of documents to index
+     * @return the number of documents sent to the indexer
+     * @throws QueryException when failing to query the modified documents
+     * @throws InterruptedException when interrupted while waiting for the indexer
+     */
+    private int indexModifiedDocuments(String wiki, int max) throws QueryException, InterruptedException
+    {
+        CheckpointWriter writer = new CheckpointWriter(wiki);
+
+        Checkpoint checkpoint = getStartCheckpoint(wiki);
+
+        Query query = createModifiedDocumentsQuery(wiki);
+
+        int count = 0;
+        int limit;
+        List<Object[]> results;
+        do {
+            // Keyset pagination: documents modified during the synchronization are moved after the current position
+            // and will be processed later instead of shifting the pages
+            limit = Math.min(LIMIT, max - count);
+            results = query.bindValue(DATE, checkpoint.getDate()).bindValue(ID, checkpoint.getId()).setLimit(limit)
+                .<Object[]>execute();
+
+            // Indexing a document recursively also indexes its translations
+            Set<DocumentReference> recursiveDocuments = new HashSet<>();
+            for (Object[] result : results) {
+                DocumentReference documentReference = getDocumentReference(wiki, result);
+                if (documentReference.getLocale() == null) {
+                    recursiveDocuments.add(documentReference);
+                }
+            }
+
+            for (Object[] result : results) {
+                DocumentReference documentReference = getDocumentReference(wiki, result);
+                if (documentReference.getLocale() == null) {
+                    this.indexer.index(documentReference, true);
+                } else if (!recursiveDocuments.contains(new DocumentReference(documentReference, (Locale) null))) {
+                    // Objects and attachments are not translated so there's nothing else to index
+                    this.indexer.index(documentReference, false);
+                }
+
+                checkpoint = new Checkpoint((Date) result[3], (Long) result[4]);
+                ++count;
+            }
+
+            if (!results.isEmpty()) {
+                writer.reached(checkpoint);
+            }
+        } while (results.size() == limit && count < max);
+
+        writer.close();
+
+        this.logger.info("{} modified documents of wiki [{}] sent to the Solr indexer.", count, wiki);
+
+        return count;
+    }
+
+    /**
+     * Remove from the index the documents of a wiki that have been moved to the recycle bin since the requested date
+     * or the saved checkpoint. Documents deleted while the recycle bin is disabled can only be removed by a full
+     * synchronization.
+     * 
+     * @param wiki the wiki
+     * @param max the maximum number of documents to delete
+     * @return the number of documents sent to the indexer
+     * @throws QueryException when failing to query the deleted documents
+     * @throws InterruptedException when interrupted while waiting for the indexer
+     */
+    private int deleteDocuments(String wiki, int max) throws QueryException, InterruptedException
+    {
+        String key = wiki + DELETED_KEY_SUFFIX;
+        CheckpointWriter writer = new CheckpointWriter(key);
+
+        Checkpoint checkpoint = getStartCheckpoint(key);
+
+        Query query = createDeletedDocumentsQuery(wiki);
+        Query languagesQuery = this.queryManager.createQuery(
+            "select doc.language from XWikiDocument doc where doc.fullName = :fullName", Query.HQL).setWiki(wiki);
+
+        int count = 0;
+        int limit;
+        List<Object[]> results;
+        do {
+            limit = Math.min(LIMIT, max - count);
+            results = query.bindValue(DATE, checkpoint.getDate()).bindValue(ID, checkpoint.getId()).setLimit(limit)
+                .<Object[]>execute();
+
+            for (Object[] result : results) {
+                String fullName = (String) result[0];
+                String language = StringUtils.defaultString((String) result[1]);
+
+                // The document may have been restored or created again since then, in which case it is indexed with
+                // the modified documents
+                if (!exists(languagesQuery.bindValue("fullName", fullName).<String>execute(), language)) {
+                    this.indexer.delete(getDeletedDocumentReference(wiki, fullName, language), true);
+                    ++count;
+                }
+
+                checkpoint = new Checkpoint((Date) result[2], (Long) result[3]);
+            }
+
+            if (!results.isEmpty()) {
+                writer.reached(checkpoint);
+            }
+        } while (results.size() == limit && count < max);
+
+        writer.close();
+
+        this.logger.info("{} deleted documents of wiki [{}] removed from the Solr index.", count, wiki);
+
+        return count;
+    }
+
+    /**
+     * Save, in incremental mode, the position reached in a wiki once the indexer has actually committed the
+     * documents sent up to that position. The indexer is flushed after each page of documents but the job only waits
+     * for the previous page to be committed, to keep the indexer busy.
+     * 
+     * @version $Id$
+     */
+    private final class CheckpointWriter
+    {
+        private final String key;
+
+        private Future<Void> flushed;
+
+        private Checkpoint flushedCheckpoint;
+
+        CheckpointWriter(String key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * @param checkpoint the position reached by the documents sent to the indexer
+         * @throws InterruptedException when interrupted while waiting for the indexer
+         */
+        void reached(Checkpoint checkpoint) throws InterruptedException
+        {
+            if (getRequest().isIncremental()) {
+                Future<Void> pageFlushed = indexer.flush();
+                save();
+                this.flushed = pageFlushed;
+                this.flushedCheckpoint = checkpoint;
+            }
+        }
+
+        /**
+         * Wait for the last page to be committed.
+         * 
+         * @throws InterruptedException when interrupted while waiting for the indexer
+         */
+        void close() throws InterruptedException
+        {
+            save();
+            this.flushed = null;
+        }
+
+        private void save() throws InterruptedException
+        {
+            if (this.flushed != null) {
+                try {
+                    this.flushed.get(FLUSH_TIMEOUT, TimeUnit.MINUTES);
+
+                    checkpointStore.set(this.key, this.flushedCheckpoint);
+                } catch (ExecutionException | CancellationException e) {
+                    logger.warn("The Solr indexer stopped before reaching the position [{}] of [{}].",
+                        this.flushedCheckpoint.getDate(), this.key);
+                } catch (TimeoutException e) {
+                    // Don't block the job forever, the position will be saved with the next page if the indexer
+                    // catches up
+                    logger.warn("The Solr indexer did not reach the position [{}] of [{}] after [{}] minutes.",
+                        this.flushedCheckpoint.getDate(), this.key, FLUSH_TIMEOUT);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key the key of the position
+     * @return the position from which to start indexing modified documents in the passed wiki
+     */
+    private Checkpoint getStartCheckpoint(String key)
+    {
+        Date since = getRequest().getModifiedSince();
+
+        if (getRequest().isIncremental()) {
+            Checkpoint checkpoint = this.checkpointStore.get(key);
+            if (checkpoint != null && (since == null || !checkpoint.getDate().before(since))) {
+                this.logger.info("Resume the synchronization of [{}] from [{}].", key, checkpoint.getDate());
+
+                return checkpoint;
+            }
+        }
+
+        return new Checkpoint(since != null ? since : new Date(0), Long.MIN_VALUE);
+    }
+
+    /**
+     * @param wiki the wiki
+     * @return the query used to fetch the documents of the wiki in modification date order
+     * @throws QueryException if creating the query fails
+     */
+    private Query createModifiedDocumentsQuery(String wiki) throws QueryException
+    {
+        StringBuilder statement = new StringBuilder(
+            "select doc.space, doc.name, doc.language, doc.date, doc.id from XWikiDocument doc"
+                + " where (doc.date > :date or (doc.date = :date and doc.id > :id))");
+
+        EntityReference rootReference = getRequest().getRootReference();
+        EntityReference spaceReference = null;
+        EntityReference documentReference = null;
+        if (rootReference != null) {
+            spaceReference = rootReference.extractReference(EntityType.SPACE);
+            documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+        }
+        if (documentReference != null) {
+            statement.append(" and doc.space = :space and doc.name = :name");
+        } else if (spaceReference != null) {
+            // Include the documents of the nested spaces
+            statement.append(" and (doc.space = :space or doc.space like :spacePrefix escape '")
+                .append(LIKE_ESCAPE).append("')");
+        }
+
+        statement.append(" order by doc.date, doc.id");
+
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL).setWiki(wiki);
+
+        if (spaceReference != null) {
+            String localSpaceReference = this.localEntityReferenceSerializer.serialize(spaceReference);
+            query.bindValue(SPACE, localSpaceReference);
+            if (documentReference != null) {
+                query.bindValue(NAME, documentReference.getName());
+            } else {
+                query.bindValue(SPACE_PREFIX, escapeLike(localSpaceReference) + ".%");
+            }
+        }
+
+        return query;
+    }
+
+    /**
+     * @param wiki the wiki
+     * @return the query used to fetch the documents of the wiki moved to the recycle bin, in deletion date order
+     * @throws QueryException if creating the query fails
+     */
+    private Query createDeletedDocumentsQuery(String wiki) throws QueryException
+    {
+        StringBuilder statement = new StringBuilder(
+            "select ddoc.fullName, ddoc.language, ddoc.date, ddoc.id from XWikiDeletedDocument ddoc"
+                + " where (ddoc.date > :date or (ddoc.date = :date and ddoc.id > :id))");
+
+        EntityReference rootReference = getRequest().getRootReference();
+        EntityReference spaceReference = null;
+        EntityReference documentReference = null;
+        if (rootReference != null) {
+            spaceReference = rootReference.extractReference(EntityType.SPACE);
+            documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+        }
+        if (documentReference != null) {
+            statement.append(" and ddoc.fullName = :name");
+        } else if (spaceReference != null) {
+            // The full name of the documents of the space and of its nested spaces starts with the space
+            statement.append(" and ddoc.fullName like :spacePrefix escape '").append(LIKE_ESCAPE).append('\'');
+        }
+
+        statement.append(" order by ddoc.date, ddoc.id");
+
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL).setWiki(wiki);
+
+        if (documentReference != null) {
+            query.bindValue(NAME, this.localEntityReferenceSerializer.serialize(documentReference));
+        } else if (spaceReference != null) {
+            query.bindValue(SPACE_PREFIX,
+                escapeLike(this.localEntityReferenceSerializer.serialize(spaceReference)) + ".%");
+        }
+
+        return query;
+    }
+
+    /**
+     * @param languages the languages of the existing translations of a document
+     * @param language the language of the deleted document
+     * @return {@code true} if the deleted document exists again
+     */
+    private boolean exists(List<String> languages, String language)
+    {
+        for (String existingLanguage : languages) {
+            // Note that Oracle treats empty strings as null
+            if (StringUtils.defaultString(existingLanguage).equals(language)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private String escapeLike(String value)
+    {
+        String escape = String.valueOf(LIKE_ESCAPE);
+
+        return value.replace(escape, escape + escape).replace("%", escape + '%').replace("_", escape + '_');
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param fullName the local full name of the deleted document
+     * @param locale the locale of the deleted document
+     * @return the reference of the deleted document
+     */
+    private DocumentReference getDeletedDocumentReference(String wiki, String fullName, String locale)
+    {
+        DocumentReference documentReference = new DocumentReference(
+            this.explicitEntityReferenceResolver.resolve(fullName, EntityType.DOCUMENT, new WikiReference(wiki)));
+        if (!StringUtils.isEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+        }
+
+        return documentReference;
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param result the result row
+     * @return the reference of the document
+     */
+    private DocumentReference getDocumentReference(String wiki, Object[] result)
+    {
+        String localSpaceReference = (String) result[0];
+        String name = (String) result[1];
+        String locale = (String) result[2];
+        SpaceReference spaceReference = new SpaceReference(this.explicitEntityReferenceResolver
+            .resolve(localSpaceReference, EntityType.SPACE, new WikiReference(wiki)));
+        DocumentReference documentReference = new DocumentReference(name, spaceReference);
+        if (!StringUtils.isEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+        }
+
+        return documentReference;
+    }
+
+    /**
+     * @return the wikis to synchronize, in alphabetical order
+     * @throws WikiManagerException when failing to get the list of wikis
+     */
+    private List<String> getWikis() throws WikiManagerException
+    {
+        EntityReference rootReference = getRequest().getRootReference();
+        if (rootReference != null) {
+            return Arrays.asList(rootReference.extractReference(EntityType.WIKI).getName());
+        }
+
+        List<String> wikis = new ArrayList<>(this.wikiDescriptorManager.getAllIds());
+        Collections.sort(wikis);
+
+        return wikis;
+    }
+
     /**
      * Update the Solr index to match the current state of the database.
      */
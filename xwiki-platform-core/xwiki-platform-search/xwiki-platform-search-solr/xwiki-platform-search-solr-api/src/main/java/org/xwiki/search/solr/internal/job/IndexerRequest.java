@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
 import org.xwiki.job.AbstractRequest;
 import org.xwiki.job.Request;
 import org.xwiki.model.reference.EntityReference;
@@ -51,6 +53,21 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #getModifiedSince()
+     */
+    private Date modifiedSince;
+
+    /**
+     * @see #isIncremental()
+     */
+    private boolean incremental;
+
+    /**
+     * @see #getMaxDocuments()
+     */
+    private int maxDocuments;
+
     /**
      * The default constructor.
      */
@@ -115,4 +132,67 @@ public void setRemoveMissing(boolean removeMissing)
     {
         this.removeMissing = removeMissing;
     }
+
+    /**
+     * @return if not null only the documents modified since this date are indexed, without comparing the database
+     *         with the Solr index
+     * @since 8.2M1
+     */
+    public Date getModifiedSince()
+    {
+        return this.modifiedSince;
+    }
+
+    /**
+     * @param modifiedSince if not null only the documents modified since this date are indexed, without comparing
+     *            the database with the Solr index
+     * @since 8.2M1
+     */
+    public void setModifiedSince(Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+    }
+
+    /**
+     * @return if true the documents are indexed in modification date order starting from the position reached by
+     *         the previous incremental synchronization of each wiki, and the reached position is saved as the
+     *         synchronization progresses so that it can be resumed after an interruption or a restart
+     * @since 8.2M1
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+
+    /**
+     * @param incremental if true the documents are indexed in modification date order starting from the position
+     *            reached by the previous incremental synchronization of each wiki, and the reached position is saved
+     *            as the synchronization progresses so that it can be resumed after an interruption or a restart
+     * @since 8.2M1
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return the maximum number of documents to index during an incremental or modified since synchronization, 0 or
+     *         less for no limit; used to run a long synchronization as several bounded chunks
+     * @since 8.2M1
+     */
+    public int getMaxDocuments()
+    {
+        return this.maxDocuments;
+    }
+
+    /**
+     * @param maxDocuments the maximum number of documents to index during an incremental or modified since
+     *            synchronization, 0 or less for no limit; used to run a long synchronization as several bounded
+     *            chunks
+     * @since 8.2M1
+     */
+    public void setMaxDocuments(int maxDocuments)
+    {
+        this.maxDocuments = maxDocuments;
+    }
 }
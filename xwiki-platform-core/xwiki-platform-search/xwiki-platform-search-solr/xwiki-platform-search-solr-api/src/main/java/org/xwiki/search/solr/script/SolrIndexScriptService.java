@@ -190,6 +190,26 @@ public int getQueueSize()
         return this.solrIndexer.getQueueSize();
     }
 
+    /**
+     * @return the number of index/delete operations sent to the Solr server since the indexer was started, which can
+     *         be sampled to compute the indexing throughput
+     * @since 8.2M1
+     */
+    public long getProcessedCount()
+    {
+        return this.solrIndexer.getProcessedCount();
+    }
+
+    /**
+     * @return the total time spent extracting metadata of the indexed entities, in milliseconds, summed over all the
+     *         extractor threads
+     * @since 8.2M1
+     */
+    public long getExtractionTime()
+    {
+        return this.solrIndexer.getExtractionTime();
+    }
+
     /**
      * Extract a {@link DocumentReference} from the given {@link SolrDocument} (e.g. search result).
      * 
@@ -20,19 +20,41 @@
 package org.xwiki.search.solr.internal;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.context.internal.DefaultExecution;
 import org.xwiki.model.internal.DefaultModelConfiguration;
 import org.xwiki.model.internal.DefaultModelContext;
 import org.xwiki.model.internal.reference.DefaultEntityReferenceProvider;
 import org.xwiki.model.internal.reference.LocalStringEntityReferenceSerializer;
 import org.xwiki.model.internal.reference.RelativeStringEntityReferenceResolver;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
@@ -46,9 +68,13 @@
 import com.xpn.xwiki.internal.model.reference.CurrentReferenceEntityReferenceResolver;
 import com.xpn.xwiki.web.Utils;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -73,6 +99,15 @@
 
     private SolrConfiguration mockConfig;
 
+    private SolrMetadataExtractor extractor;
+
+    private SolrInstance solrInstance;
+
+    /**
+     * The operations sent to the Solr instance, in the order they were sent.
+     */
+    private final List<String> operations = Collections.synchronizedList(new ArrayList<String>());
+
     @Before
     public void configure() throws Exception
     {
@@ -94,6 +129,63 @@ public void configure() throws Exception
         this.mockConfig = this.mocker.getInstance(SolrConfiguration.class);
         when(this.mockConfig.getInstanceConfiguration(eq(EmbeddedSolrInstance.TYPE), eq("home"), anyString()))
             .thenReturn(url.getPath());
+        when(this.mockConfig.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.mockConfig.getIndexerBatchSize()).thenReturn(1000);
+        when(this.mockConfig.getIndexerBatchMaxLengh()).thenReturn(Integer.MAX_VALUE);
+
+        // Execution context
+        final Execution execution = this.mocker.getInstance(Execution.class);
+        ExecutionContextManager ecm = this.mocker.getInstance(ExecutionContextManager.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                execution.setContext(invocation.getArgumentAt(0, ExecutionContext.class));
+                return null;
+            }
+        }).when(ecm).initialize(any(ExecutionContext.class));
+
+        // Solr instance recording the operations
+        this.solrInstance = this.mocker.getInstance(SolrInstance.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                operations.add("add " + invocation.getArgumentAt(0, SolrInputDocument.class).getFieldValue("id"));
+                return null;
+            }
+        }).when(this.solrInstance).add(any(SolrInputDocument.class));
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                operations.add("delete " + invocation.getArgumentAt(0, String.class));
+                return null;
+            }
+        }).when(this.solrInstance).delete(anyString());
+
+        SolrReferenceResolver referenceResolver = this.mocker.getInstance(SolrReferenceResolver.class);
+        when(referenceResolver.getId(any(EntityReference.class))).then(new Answer<String>()
+        {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable
+            {
+                return invocation.getArgumentAt(0, EntityReference.class).getName();
+            }
+        });
+
+        this.extractor = this.mocker.registerMockComponent(SolrMetadataExtractor.class, "document");
+    }
+
+    private LengthSolrInputDocument createSolrDocument(EntityReference reference)
+    {
+        LengthSolrInputDocument document = new LengthSolrInputDocument();
+        document.setField("id", reference.getName());
+
+        return document;
     }
 
     @Test
@@ -107,4 +199,87 @@ public void testIndexEmptyWiki() throws Exception
 
         // index.index(wikiReference);
     }
+
+    @Test
+    public void indexWithSeveralExtractorThreads() throws Exception
+    {
+        when(this.mockConfig.getIndexerExtractorThreads()).thenReturn(4);
+
+        // The first documents take longer to extract so that the extractions complete out of order
+        when(this.extractor.getSolrDocument(any(EntityReference.class))).then(new Answer<LengthSolrInputDocument>()
+        {
+            @Override
+            public LengthSolrInputDocument answer(InvocationOnMock invocation) throws Throwable
+            {
+                EntityReference reference = invocation.getArgumentAt(0, EntityReference.class);
+                Thread.sleep(10 * (10 - Integer.parseInt(reference.getName())));
+                return createSolrDocument(reference);
+            }
+        });
+
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            DocumentReference reference = new DocumentReference("wiki", "Space", String.valueOf(i));
+            if (i == 5) {
+                indexer.delete(reference, false);
+                expected.add("delete " + i);
+            } else {
+                indexer.index(reference, false);
+                expected.add("add " + i);
+            }
+        }
+
+        indexer.flush().get(10, TimeUnit.SECONDS);
+
+        // The operations are sent in the order they were queued, and committed before the flush is completed
+        Assert.assertEquals(expected, this.operations);
+        verify(this.solrInstance, atLeastOnce()).commit();
+        Assert.assertEquals(0, indexer.getQueueSize());
+        Assert.assertEquals(10, indexer.getProcessedCount());
+    }
+
+    @Test
+    public void flushIsNotLeftPendingOnDispose() throws Exception
+    {
+        when(this.mockConfig.getIndexerExtractorThreads()).thenReturn(1);
+
+        final CountDownLatch extracting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(this.extractor.getSolrDocument(any(EntityReference.class))).then(new Answer<LengthSolrInputDocument>()
+        {
+            @Override
+            public LengthSolrInputDocument answer(InvocationOnMock invocation) throws Throwable
+            {
+                extracting.countDown();
+                release.await();
+                return createSolrDocument(invocation.getArgumentAt(0, EntityReference.class));
+            }
+        });
+
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        // Block the index thread while the flushes are queued
+        indexer.index(new DocumentReference("wiki", "Space", "blocking"), false);
+        Assert.assertTrue(extracting.await(10, TimeUnit.SECONDS));
+        Future<Void> firstFlush = indexer.flush();
+        indexer.index(new DocumentReference("wiki", "Space", "other"), false);
+        List<Future<Void>> flushes = Arrays.asList(firstFlush, indexer.flush());
+
+        ((Disposable) indexer).dispose();
+        release.countDown();
+
+        // The flushes are either executed or cancelled, but nobody waits for them forever
+        for (Future<Void> flush : flushes) {
+            try {
+                flush.get(10, TimeUnit.SECONDS);
+            } catch (CancellationException e) {
+                // Expected when the flush was still queued
+            }
+        }
+
+        // Flushing a disposed indexer does nothing
+        Assert.assertTrue(indexer.flush().isCancelled());
+    }
 }
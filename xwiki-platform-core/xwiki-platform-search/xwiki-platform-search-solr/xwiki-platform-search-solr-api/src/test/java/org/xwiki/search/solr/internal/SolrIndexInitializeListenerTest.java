@@ -0,0 +1,103 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.Arrays;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.observation.EventListener;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.job.IndexerRequest;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link SolrIndexInitializeListener}.
+ * 
+ * @version $Id$
+ */
+public class SolrIndexInitializeListenerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<EventListener> mocker = new MockitoComponentMockingRule<EventListener>(
+        SolrIndexInitializeListener.class);
+
+    private SolrConfiguration configuration;
+
+    private SolrIndexer indexer = mock(SolrIndexer.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(SolrConfiguration.class);
+
+        Provider<SolrIndexer> indexerProvider =
+            this.mocker.getInstance(new DefaultParameterizedType(null, Provider.class, SolrIndexer.class));
+        when(indexerProvider.get()).thenReturn(this.indexer);
+    }
+
+    private IndexerRequest startSynchronization() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new ApplicationReadyEvent(), null, null);
+
+        ArgumentCaptor<IndexerRequest> requestCaptor = ArgumentCaptor.forClass(IndexerRequest.class);
+        verify(this.indexer).startIndex(requestCaptor.capture());
+        return requestCaptor.getValue();
+    }
+
+    @Test
+    public void fullSynchronizationAtStartup() throws Exception
+    {
+        when(this.configuration.synchronizeAtStartup()).thenReturn(true);
+
+        IndexerRequest request = startSynchronization();
+
+        assertEquals(Arrays.asList("solr", "indexer"), request.getId());
+        assertFalse(request.isIncremental());
+    }
+
+    @Test
+    public void incrementalSynchronizationAtStartup() throws Exception
+    {
+        when(this.configuration.synchronizeAtStartup()).thenReturn(true);
+        when(this.configuration.synchronizeIncrementally()).thenReturn(true);
+
+        assertTrue(startSynchronization().isIncremental());
+    }
+
+    @Test
+    public void noSynchronizationAtStartup() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new ApplicationReadyEvent(), null, null);
+
+        verify(this.indexer, never()).startIndex(any(IndexerRequest.class));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.util.Date;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.search.solr.internal.job.IndexerCheckpointStore.Checkpoint;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link IndexerCheckpointStore}.
+ * 
+ * @version $Id$
+ */
+public class IndexerCheckpointStoreTest
+{
+    @Rule
+    public MockitoComponentMockingRule<IndexerCheckpointStore> mocker =
+        new MockitoComponentMockingRule<IndexerCheckpointStore>(IndexerCheckpointStore.class);
+
+    private File permanentDirectory = new File("target/test-" + getClass().getSimpleName());
+
+    @Before
+    public void configure() throws Exception
+    {
+        FileUtils.deleteDirectory(this.permanentDirectory);
+
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        FileUtils.deleteDirectory(this.permanentDirectory);
+    }
+
+    @Test
+    public void setAndGet() throws Exception
+    {
+        IndexerCheckpointStore store = this.mocker.getComponentUnderTest();
+
+        assertNull(store.get("wiki"));
+
+        Date date = new Date(1234567890L);
+        store.set("wiki", new Checkpoint(date, 42L));
+
+        Checkpoint checkpoint = store.get("wiki");
+        assertEquals(date, checkpoint.getDate());
+        assertEquals(42L, checkpoint.getId());
+        assertNull(store.get("otherwiki"));
+
+        File file = new File(this.permanentDirectory, "solr-indexer/checkpoints.properties");
+        assertTrue(FileUtils.readFileToString(file).contains("wiki=1234567890\\:42"));
+    }
+}
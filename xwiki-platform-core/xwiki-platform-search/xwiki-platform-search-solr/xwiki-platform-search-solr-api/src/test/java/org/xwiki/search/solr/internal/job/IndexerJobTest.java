@@ -0,0 +1,276 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.job.Job;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.job.IndexerCheckpointStore.Checkpoint;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the incremental mode of {@link IndexerJob}.
+ * 
+ * @version $Id$
+ */
+public class IndexerJobTest
+{
+    @Rule
+    public MockitoComponentMockingRule<Job> mocker = new MockitoComponentMockingRule<Job>(IndexerJob.class);
+
+    private SolrIndexer indexer;
+
+    private IndexerCheckpointStore checkpointStore;
+
+    private EntityReferenceResolver<String> explicitEntityReferenceResolver;
+
+    private Query modifiedQuery = mockQuery();
+
+    private Query deletedQuery = mockQuery();
+
+    private Query languagesQuery = mockQuery();
+
+    private WikiReference wikiReference = new WikiReference("wiki");
+
+    @Before
+    public void configure() throws Exception
+    {
+        this.indexer = this.mocker.getInstance(SolrIndexer.class);
+        this.checkpointStore = this.mocker.getInstance(IndexerCheckpointStore.class);
+        this.explicitEntityReferenceResolver = this.mocker.getInstance(EntityReferenceResolver.TYPE_STRING, "explicit");
+
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getAllIds()).thenReturn(Arrays.asList("wiki"));
+
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery(startsWith("select doc.space, doc.name"), eq(Query.HQL))).thenReturn(
+            this.modifiedQuery);
+        when(queryManager.createQuery(startsWith("select ddoc."), eq(Query.HQL))).thenReturn(this.deletedQuery);
+        when(queryManager.createQuery(startsWith("select doc.language"), eq(Query.HQL))).thenReturn(
+            this.languagesQuery);
+
+        when(this.explicitEntityReferenceResolver.resolve("Space", EntityType.SPACE, this.wikiReference)).thenReturn(
+            new SpaceReference("Space", this.wikiReference));
+        when(this.explicitEntityReferenceResolver.resolve("Space.Deleted", EntityType.DOCUMENT, this.wikiReference))
+            .thenReturn(new DocumentReference("wiki", "Space", "Deleted"));
+        when(this.explicitEntityReferenceResolver.resolve("Space.Restored", EntityType.DOCUMENT, this.wikiReference))
+            .thenReturn(new DocumentReference("wiki", "Space", "Restored"));
+
+        when(this.indexer.flush()).thenReturn(CompletableFuture.<Void>completedFuture(null));
+    }
+
+    private Query mockQuery()
+    {
+        Query query = mock(Query.class);
+        when(query.setWiki(anyString())).thenReturn(query);
+        when(query.setLimit(anyInt())).thenReturn(query);
+        when(query.bindValue(anyString(), any())).thenReturn(query);
+        return query;
+    }
+
+    private void run(IndexerRequest request) throws Exception
+    {
+        Job job = this.mocker.getComponentUnderTest();
+        job.initialize(request);
+        job.run();
+    }
+
+    private IndexerRequest createIncrementalRequest()
+    {
+        IndexerRequest request = new IndexerRequest();
+        request.setIncremental(true);
+        return request;
+    }
+
+    @Test
+    public void incrementalSynchronization() throws Exception
+    {
+        Date lastModified = new Date(1000L);
+        when(this.checkpointStore.get("wiki")).thenReturn(new Checkpoint(lastModified, 10L));
+
+        Date deletionDate = new Date(2000L);
+        Date modificationDate = new Date(3000L);
+        when(this.deletedQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"Space.Deleted", "", deletionDate, 5L},
+            new Object[] {"Space.Restored", "", deletionDate, 6L}));
+        when(this.languagesQuery.execute()).thenReturn(Collections.emptyList(), Arrays.<Object>asList(""));
+        when(this.modifiedQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"Space", "Page", "", modificationDate, 11L}));
+
+        run(createIncrementalRequest());
+
+        // The modified documents are fetched after the saved position.
+        verify(this.modifiedQuery).bindValue("date", lastModified);
+        verify(this.modifiedQuery).bindValue("id", 10L);
+
+        // Only the documents that don't exist anymore are removed from the index.
+        verify(this.indexer).delete(new DocumentReference("wiki", "Space", "Deleted"), true);
+        verify(this.indexer, never()).delete(new DocumentReference("wiki", "Space", "Restored"), true);
+        verify(this.indexer).index(new DocumentReference("wiki", "Space", "Page"), true);
+
+        // The positions are saved once the indexer has committed the documents.
+        InOrder inOrder = inOrder(this.indexer, this.checkpointStore);
+        ArgumentCaptor<Checkpoint> checkpointCaptor = ArgumentCaptor.forClass(Checkpoint.class);
+        inOrder.verify(this.indexer).delete(new DocumentReference("wiki", "Space", "Deleted"), true);
+        inOrder.verify(this.indexer).flush();
+        inOrder.verify(this.checkpointStore).set(eq("wiki#deleted"), checkpointCaptor.capture());
+        assertEquals(deletionDate, checkpointCaptor.getValue().getDate());
+        assertEquals(6L, checkpointCaptor.getValue().getId());
+
+        inOrder.verify(this.indexer).index(new DocumentReference("wiki", "Space", "Page"), true);
+        inOrder.verify(this.indexer).flush();
+        inOrder.verify(this.checkpointStore).set(eq("wiki"), checkpointCaptor.capture());
+        assertEquals(modificationDate, checkpointCaptor.getValue().getDate());
+        assertEquals(11L, checkpointCaptor.getValue().getId());
+    }
+
+    @Test
+    public void unchangedDocumentsSkipped() throws Exception
+    {
+        Date lastModified = new Date(1000L);
+        when(this.checkpointStore.get("wiki")).thenReturn(new Checkpoint(lastModified, 10L));
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+        when(this.modifiedQuery.execute()).thenReturn(Collections.emptyList());
+
+        run(createIncrementalRequest());
+
+        verify(this.modifiedQuery).bindValue("date", lastModified);
+        verify(this.modifiedQuery).bindValue("id", 10L);
+
+        // Nothing changed since the saved position so the database is not compared with the index.
+        DefaultParameterizedType iteratorType =
+            new DefaultParameterizedType(null, DocumentIterator.class, String.class);
+        verifyZeroInteractions(this.mocker.getInstance(iteratorType, "database"),
+            this.mocker.getInstance(iteratorType, "solr"));
+        verify(this.indexer, never()).index(any(EntityReference.class), anyBoolean());
+        verify(this.indexer, never()).delete(any(EntityReference.class), anyBoolean());
+        verify(this.checkpointStore, never()).set(anyString(), any(Checkpoint.class));
+    }
+
+    @Test
+    public void checkpointNotSavedWhenTheIndexerStops() throws Exception
+    {
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+        when(this.modifiedQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"Space", "Page", "", new Date(3000L), 11L}));
+
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        flushed.cancel(false);
+        when(this.indexer.flush()).thenReturn(flushed);
+
+        run(createIncrementalRequest());
+
+        verify(this.indexer).index(new DocumentReference("wiki", "Space", "Page"), true);
+        verify(this.checkpointStore, never()).set(anyString(), any(Checkpoint.class));
+    }
+
+    @Test
+    public void checkpointNotSavedWhenTheIndexerTimesOut() throws Exception
+    {
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+        when(this.modifiedQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"Space", "Page", "", new Date(3000L), 11L}));
+
+        @SuppressWarnings("unchecked")
+        Future<Void> flushed = mock(Future.class);
+        when(flushed.get(anyLong(), any(TimeUnit.class))).thenThrow(new TimeoutException());
+        when(this.indexer.flush()).thenReturn(flushed);
+
+        run(createIncrementalRequest());
+
+        verify(flushed).get(10, TimeUnit.MINUTES);
+        verify(this.checkpointStore, never()).set(anyString(), any(Checkpoint.class));
+    }
+
+    @Test
+    public void translationsIndexedOnce() throws Exception
+    {
+        Date date = new Date(3000L);
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+        when(this.modifiedQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"Space", "Page", "fr", date, 11L},
+            new Object[] {"Space", "Page", "", date, 12L},
+            new Object[] {"Space", "Page", "de", date, 13L},
+            new Object[] {"Space", "Other", "fr", date, 14L}));
+
+        run(createIncrementalRequest());
+
+        // The translations are indexed along with the modified original document
+        verify(this.indexer).index(new DocumentReference("wiki", "Space", "Page"), true);
+        verify(this.indexer, never()).index(eq(new DocumentReference("wiki", "Space", "Page", Locale.FRENCH)),
+            anyBoolean());
+        verify(this.indexer, never()).index(eq(new DocumentReference("wiki", "Space", "Page", Locale.GERMAN)),
+            anyBoolean());
+
+        // A translation modified alone is indexed alone
+        verify(this.indexer).index(new DocumentReference("wiki", "Space", "Other", Locale.FRENCH), false);
+        verify(this.indexer, never()).index(new DocumentReference("wiki", "Space", "Other"), true);
+    }
+
+    @Test
+    public void synchronizeNestedSpaces() throws Exception
+    {
+        when(this.deletedQuery.execute()).thenReturn(Collections.emptyList());
+        when(this.modifiedQuery.execute()).thenReturn(Collections.emptyList());
+
+        EntityReference spaceReference = new SpaceReference("Space", this.wikiReference);
+        EntityReferenceSerializer<String> localEntityReferenceSerializer =
+            this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localEntityReferenceSerializer.serialize(spaceReference)).thenReturn("Space");
+
+        IndexerRequest request = createIncrementalRequest();
+        request.setRootReference(spaceReference);
+        run(request);
+
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        verify(queryManager).createQuery(contains("doc.space like :spacePrefix"), eq(Query.HQL));
+        verify(queryManager).createQuery(contains("ddoc.fullName like :spacePrefix"), eq(Query.HQL));
+        verify(this.modifiedQuery).bindValue("spacePrefix", "Space.%");
+        verify(this.deletedQuery).bindValue("spacePrefix", "Space.%");
+    }
+}
@@ -19,9 +19,14 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of any users on any XWiki entities. It replaces
@@ -73,6 +78,33 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on each of
+     * the entities identified by {@code entityReferences}. This is equivalent to calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations are free to
+     * share the work needed for entities having common ancestors, which make it the preferred way to filter large
+     * lists of entities (query results, listings, etc.).
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return a map associating each provided entity, in iteration order, to {@code true} if the user has the
+     *         specified right on that entity, {@code false} otherwise
+     * @since 8.2M1
+     */
+    @Unstable
+    default Map<EntityReference, Boolean> hasAccess(Right right, DocumentReference userReference,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> result = new LinkedHashMap<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            result.put(entityReference, hasAccess(right, userReference, entityReference));
+        }
+
+        return result;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
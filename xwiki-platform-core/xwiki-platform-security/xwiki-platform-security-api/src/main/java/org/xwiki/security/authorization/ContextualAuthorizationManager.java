@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of current user in the current context. It replaces
@@ -80,4 +85,28 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Verifies if access identified by {@code right} on each of the given entities would be allowed in the current
+     * context. This is equivalent to calling {@link #hasAccess(Right, EntityReference)} for each entity, but
+     * implementations are free to share the work needed for entities having common ancestors.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return a map associating each provided entity, in iteration order, to {@code true} if the user has the
+     *         specified right on that entity, {@code false} otherwise
+     * @since 8.2M1
+     */
+    @Unstable
+    default Map<EntityReference, Boolean> hasAccess(Right right,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> result = new LinkedHashMap<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            result.put(entityReference, hasAccess(right, entityReference));
+        }
+
+        return result;
+    }
 }
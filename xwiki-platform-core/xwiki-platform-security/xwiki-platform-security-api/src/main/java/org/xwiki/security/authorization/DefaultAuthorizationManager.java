@@ -19,6 +19,11 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -115,23 +120,71 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public Map<EntityReference, Boolean> hasAccess(Right right, DocumentReference userReference,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> result = new LinkedHashMap<>(entityReferences.size());
+
+        // Conditions not depending on the entity are evaluated only once for the whole collection
+        Boolean globalAccess = checkPreconditions(right, userReference, null, false);
+        if (globalAccess != null) {
+            for (EntityReference entityReference : entityReferences) {
+                result.put(entityReference, globalAccess);
+            }
+
+            return result;
+        }
+
+        UserSecurityReference user = this.securityReferenceFactory.newUserReference(userReference);
+
+        // Load the missing rule entries of all the entities at once instead of one entity at a time
+        Map<EntityReference, SecurityReference> securityReferences = new LinkedHashMap<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            securityReferences.put(entityReference, this.securityReferenceFactory.newEntityReference(entityReference));
+        }
+        try {
+            this.securityCacheLoader.loadRules(securityReferences.values());
+        } catch (Exception e) {
+            // The rules will be loaded one entity at a time
+            this.logger.debug("Failed to load the rules of several entities at once", e);
+        }
+
+        // Access resolved on a given ancestor is shared by all its descendants having no rules of their own
+        Map<SecurityReference, SecurityAccess> resolvedAccesses = new HashMap<>();
+
+        for (EntityReference entityReference : entityReferences) {
+            if (result.containsKey(entityReference)) {
+                continue;
+            }
+            try {
+                SecurityAccess securityAccess =
+                    getAccess(user, securityReferences.get(entityReference), resolvedAccesses);
+                RuleState access = securityAccess.get(right);
+                logAccess(access, userReference, entityReference, right, "bulk access inquiry", true);
+                result.put(entityReference, access == RuleState.ALLOW);
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+                result.put(entityReference, false);
+            }
+        }
+
+        return result;
+    }
+
     /**
-     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
-     * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
-     * provided entity if such right is not enabled at lowest hierarchy level provided.
-     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     * Evaluate the access conditions that do not depend on the rules of the entity being checked.
      *
-     * @param right the right to check .
+     * @param right the right to check
      * @param userReference the user to check the right for
-     * @param entityReference the entity on which to check the right
-     * @param check if true logging of denied access are made through {@link #logDeny} (at info level), and all
-     *              access logging are marked as security checkpoint.
-     * @return {@code true} if the user has the specified right on the entity.
-     * @throws AuthorizationException if an error occurs.
+     * @param entityReference the entity on which to check the right, only used for logging
+     * @param check if true denied access because of an unknown right is logged through {@link #logDeny}
+     * @return the access if it could be decided without looking at the rules, {@code null} otherwise
      */
-    private boolean hasSecurityAccess(Right right, DocumentReference userReference, EntityReference entityReference,
-        boolean check)
-        throws AuthorizationException
+    private Boolean checkPreconditions(Right right, DocumentReference userReference,
+        EntityReference entityReference, boolean check)
     {
         if (isSuperAdmin(userReference)) {
             return true;
@@ -149,6 +202,32 @@ private boolean hasSecurityAccess(Right right, DocumentReference userReference,
             return false;
         }
 
+        return null;
+    }
+
+    /**
+     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
+     * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
+     * provided entity if such right is not enabled at lowest hierarchy level provided.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check .
+     * @param userReference the user to check the right for
+     * @param entityReference the entity on which to check the right
+     * @param check if true logging of denied access are made through {@link #logDeny} (at info level), and all
+     *              access logging are marked as security checkpoint.
+     * @return {@code true} if the user has the specified right on the entity.
+     * @throws AuthorizationException if an error occurs.
+     */
+    private boolean hasSecurityAccess(Right right, DocumentReference userReference, EntityReference entityReference,
+        boolean check)
+        throws AuthorizationException
+    {
+        Boolean access = checkPreconditions(right, userReference, entityReference, check);
+        if (access != null) {
+            return access;
+        }
+
         return evaluateSecurityAccess(right, userReference, entityReference, check);
     }
 
@@ -198,15 +277,41 @@ public Right register(RightDescription rightDescription) throws UnableToRegister
      */
     private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException
+    {
+        return getAccess(user, entity, null);
+    }
+
+    /**
+     * Obtain the access for the user on the given entity and load it into the cache if unavailable.
+     *
+     * @param user The user identity.
+     * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param resolvedAccesses the accesses already resolved for this user on ancestors of other entities, used to
+     *            share work between entities having common ancestors and filled with the access resolved on the
+     *            ancestor, or null if not needed.
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> resolvedAccesses) throws AuthorizationException
     {
         for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
             }
+            if (resolvedAccesses != null && ref != entity) {
+                SecurityAccess access = resolvedAccesses.get(ref);
+                if (access != null) {
+                    logger.debug("0. Got entry for user {} on {} from ancestor {}: [{}]", user, entity, ref, access);
+
+                    return access;
+                }
+            }
             SecurityRuleEntry entry = securityCache.get(ref);
             if (entry == null) {
                 SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
+                addResolvedAccess(resolvedAccesses, ref, entity, access);
 
                 this.logger.debug("1. Loaded a new entry for user {} on {} into cache: [{}]", user, entity, access);
 
@@ -216,12 +321,14 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
                 SecurityAccessEntry accessEntry = securityCache.get(user, ref);
                 if (accessEntry == null) {
                     SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
+                    addResolvedAccess(resolvedAccesses, ref, entity, access);
 
                     logger.debug("2. Loaded a new entry for user {} on {} into cache: [{}]", user, entity, access);
 
                     return access;
                 } else {
                     SecurityAccess access = accessEntry.getAccess();
+                    addResolvedAccess(resolvedAccesses, ref, entity, access);
 
                     logger.debug("3. Got entry for user {} on {} from cache: [{}]", user, entity, access);
 
@@ -237,6 +344,23 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
         return access;
     }
 
+    /**
+     * Remember the access resolved on an ancestor for the other entities sharing it. The levels between the entity and
+     * the ancestor have no rules, so the access of the entity is the access on the ancestor.
+     *
+     * @param resolvedAccesses the accesses already resolved on ancestors, or null if not needed
+     * @param ref the ancestor holding the closest rules of the entity
+     * @param entity the entity
+     * @param access the access resolved for the entity
+     */
+    private void addResolvedAccess(Map<SecurityReference, SecurityAccess> resolvedAccesses, SecurityReference ref,
+        SecurityReference entity, SecurityAccess access)
+    {
+        if (resolvedAccesses != null && ref != entity) {
+            resolvedAccesses.put(ref, access);
+        }
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
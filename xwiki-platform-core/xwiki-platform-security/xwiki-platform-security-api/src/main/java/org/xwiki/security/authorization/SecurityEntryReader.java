@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.security.SecurityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * A security rules reader reads rules attached to a given entity.
@@ -41,4 +46,25 @@
      * @throws AuthorizationException on error.
      */
     SecurityRuleEntry read(SecurityReference entityReference) throws AuthorizationException;
+
+    /**
+     * Read the collections of rules attached to several entities. Implementations should read them in bulk, the
+     * default implementation reads them one by one.
+     *
+     * @param entityReferences references to the entities
+     * @return the access rules read from the given references, in the same order
+     * @throws AuthorizationException on error.
+     * @since 8.2M1
+     */
+    @Unstable
+    default List<SecurityRuleEntry> read(Collection<SecurityReference> entityReferences)
+        throws AuthorizationException
+    {
+        List<SecurityRuleEntry> entries = new ArrayList<>(entityReferences.size());
+        for (SecurityReference entityReference : entityReferences) {
+            entries.add(read(entityReference));
+        }
+
+        return entries;
+    }
 }
@@ -19,11 +19,14 @@
  */
 package org.xwiki.security.authorization.cache;
 
+import java.util.Collection;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.stability.Unstable;
 
 /**
  * Loads access and rule entries into the security cache.
@@ -49,4 +52,19 @@
      */
     SecurityAccessEntry load(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException;
+
+    /**
+     * Load into the cache, at once, the rule entries missing for several entities and their ancestors, so that
+     * checking the access on each of them does not have to read their rules one by one. The default implementation
+     * does nothing, the rules being then loaded by {@link #load(UserSecurityReference, SecurityReference)}.
+     *
+     * @param entities the entities to check access to
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs.
+     * @since 8.2M1
+     */
+    @Unstable
+    default void loadRules(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        // Rules are loaded by #load()
+    }
 }
@@ -26,8 +26,7 @@
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -55,6 +54,11 @@
 
 /**
  * Default implementation of the security cache.
+ * <p>
+ * Reads are lock-free: the underlying {@link Cache} is thread safe and the links between cached entries are only
+ * published once fully built, so a reader either sees an entry with its complete set of parents or does not see it
+ * at all. Modifications of the entry graph (insertion, removal and the resulting recursive disposal) are serialized
+ * by a single non-fair lock, which keeps invalidation exact without making readers wait behind writers.
  *
  * @version $Id$
  * @since 4.0M2 
@@ -73,14 +77,8 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /** Lock serializing the modifications of the entry graph, readers never acquire it. */
+    private final Lock writeLock = new ReentrantLock();
 
     /** The keys in the cache are generated from instances of {@link org.xwiki.model.reference.EntityReference}. */
     @Inject
@@ -128,22 +126,23 @@ public void initialize() throws InitializationException
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. The collection is never modified once assigned, so it can be safely read
+         * without locking.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
-         * Children of this cached entry.
+         * Children of this cached entry. Only accessed while holding the write lock.
          */
         private Collection<SecurityCacheEntry> children;
 
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -261,16 +260,17 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             this.entry = entry;
             int parentSize = groups.size() + ((parentReference == null) ? 0 : 1);
             if (parentSize > 0) {
-                this.parents = new ArrayList<SecurityCacheEntry>(parentSize);
+                Collection<SecurityCacheEntry> newParents = new ArrayList<SecurityCacheEntry>(parentSize);
                 if (parentReference != null) {
                     SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
                     if (parent == null) {
                         throw new ParentEntryEvictedException();
                     }
-                    this.parents.add(parent);
+                    newParents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(newParents, groups, parentReference);
+                this.parents = newParents;
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -281,12 +281,14 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parent collection being built, published only once complete.
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups,
-            SecurityReference parentReference) throws ParentEntryEvictedException
+        private void addParentGroups(Collection<SecurityCacheEntry> newParents,
+            Collection<GroupSecurityReference> groups, SecurityReference parentReference)
+            throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
                 if (group.equals(parentReference)) {
@@ -299,7 +301,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups,
                 if (parent == null) {
                     throw new ParentEntryEvictedException();
                 }
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -318,15 +320,18 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups)
             }
 
             if (groups != null && !groups.isEmpty()) {
-                if (this.parents == null) {
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size());
-                    addParentGroups(groups, null);
+                Collection<SecurityCacheEntry> currentParents = this.parents;
+                Collection<SecurityCacheEntry> newParents;
+                if (currentParents == null) {
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
-                    SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    SecurityCacheEntry parent = currentParents.iterator().next();
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -376,8 +381,8 @@ String getKey()
 
         /**
          * Dispose this entry from the cache, removing all children relation in its parents, and removing
-         * all its children recursively. This method is not thread safe in regards to the cache, proper
-         * locking should be done externally.
+         * all its children recursively. This method is not thread safe in regards to the cache, the write
+         * lock should be held by the caller.
          * @return false if the entry was already disposed, true in all other cases.
          */
         boolean dispose()
@@ -385,11 +390,13 @@ boolean dispose()
             if (disposed) {
                 return false;
             }
-            if (parents != null) {
-                for (SecurityCacheEntry parent : parents) {
+            disposed = true;
+            Collection<SecurityCacheEntry> currentParents = parents;
+            if (currentParents != null) {
+                parents = null;
+                for (SecurityCacheEntry parent : currentParents) {
                     parent.removeChild(this);
                 }
-                parents = null;
             }
             if (children != null) {
                 Collection<SecurityCacheEntry> childrenToClean = children;
@@ -400,7 +407,6 @@ boolean dispose()
                     }
                 }
             }
-            disposed = true;
             return true;
         }
 
@@ -411,7 +417,8 @@ boolean dispose()
         private void addChild(SecurityCacheEntry entry)
         {
             if (this.children == null) {
-                this.children = new ArrayList<SecurityCacheEntry>();
+                // Entries do not override equals(), so this is an identity set with constant time removal
+                this.children = new HashSet<SecurityCacheEntry>();
             }
             this.children.add(entry);
         }
@@ -519,12 +526,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return cache.get(getEntryKey(reference));
     }
 
     /**
@@ -535,12 +537,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return cache.get(getEntryKey(userReference, reference));
     }
 
     /**
@@ -551,12 +548,7 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return cache.get(getShadowEntryKey(userReference, wiki));
     }
 
     /**
@@ -831,11 +823,18 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         // We are going to get the parents of the security cache entry recursively, that is why we use a stack
         // (instead of using the execution stack which would be more costly).
         Deque<SecurityCacheEntry> entriesToExplore = new ArrayDeque<>();
-        
+
+        // The entries whose parents have been read, to detect a concurrent removal
+        Collection<SecurityCacheEntry> exploredEntries = new ArrayList<>();
+        exploredEntries.add(userEntry);
+
         // Special case if the user is a shadow.
         if (entityWiki != null) {
             // We start with the parents of the original entry, and the parent of this shadow (excluding the original)
-            addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore);
+            if (!addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore, exploredEntries)) {
+                // The original entry has been evicted concurrently, the ancestors are no more fully loaded
+                return null;
+            }
         } else {
             // We start with the current user
             entriesToExplore.add(userEntry);
@@ -844,6 +843,7 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         // Let's go
         while (!entriesToExplore.isEmpty()) {
             SecurityCacheEntry entry = entriesToExplore.pop();
+            exploredEntries.add(entry);
             
             // We add the parents of the current entry
             addParentsToTheListOfEntriesToExplore(entry.parents, groups, entriesToExplore);
@@ -854,25 +854,51 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
                 if (entryRef.isGlobal()) {
                     SecurityCacheEntry shadow = getShadowEntry(entryRef, entityWiki);
                     if (shadow != null) {
+                        exploredEntries.add(shadow);
                         addParentsToTheListOfEntriesToExplore(shadow.parents, groups, entriesToExplore, entry);
                     }
                 }
             }
         }
+
+        // An entry disposed while we were reading it may have lost its parents before we read them, in which case the
+        // collected groups are incomplete. The disposal flag is set before the parents are cleared so it is visible
+        // to us at this point.
+        for (SecurityCacheEntry entry : exploredEntries) {
+            if (entry.disposed) {
+                return null;
+            }
+        }
         
         return groups;
     }
     
-    private void addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
+    /**
+     * Add the parents of a shadow entry, and of its original entry, to the list of entries to explore.
+     *
+     * @param shadow the shadow entry
+     * @param user the user of the shadow entry
+     * @param groups the collection where we store the found groups
+     * @param entriesToExplore the collection holding the entries we still have to explore
+     * @param exploredEntries the collection holding the entries whose parents have been read
+     * @return false if the original entry is not available in the cache
+     */
+    private boolean addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
             Collection<GroupSecurityReference> groups,
-            Deque<SecurityCacheEntry> entriesToExplore)
+            Deque<SecurityCacheEntry> entriesToExplore, Collection<SecurityCacheEntry> exploredEntries)
     {
         SecurityCacheEntry originalEntry = getEntry(user);
+        if (originalEntry == null) {
+            return false;
+        }
+        exploredEntries.add(originalEntry);
 
         // We add the parents of the original (but not the original, otherwise we could have the same group twice)
         addParentsToTheListOfEntriesToExplore(originalEntry.parents, groups, entriesToExplore);
         // And we add the parent groups of the shadow
         addParentsToTheListOfEntriesToExplore(shadow.parents, groups, entriesToExplore, originalEntry);
+
+        return true;
     }
 
     /**
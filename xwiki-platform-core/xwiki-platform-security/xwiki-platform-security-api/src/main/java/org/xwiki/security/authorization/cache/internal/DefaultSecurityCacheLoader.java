@@ -23,9 +23,13 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -166,6 +170,42 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
         }
     }
 
+    @Override
+    public void loadRules(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        rulesInvalidator.suspend();
+
+        try {
+            // Collect the missing entries, parents first
+            Set<SecurityReference> missingReferences = new LinkedHashSet<>();
+            for (SecurityReference entity : entities) {
+                for (SecurityReference ref : entity.getReversedSecurityReferenceChain()) {
+                    if (!Right.getEnabledRights(ref.getType()).isEmpty() && securityCache.get(ref) == null) {
+                        missingReferences.add(ref);
+                    }
+                }
+            }
+
+            if (missingReferences.isEmpty()) {
+                return;
+            }
+
+            Map<SecurityReference, SecurityRuleEntry> entries = new HashMap<>();
+            for (SecurityRuleEntry entry : securityEntryReader.read(missingReferences)) {
+                entries.put(entry.getReference(), entry);
+            }
+
+            for (SecurityReference entity : entities) {
+                getRules(entity, entries);
+            }
+        } catch (ParentEntryEvictedException | ConflictingInsertionException e) {
+            // The remaining rules will be loaded one entity at a time
+            this.logger.debug("Failed to load the rules of several entities at once: {}", e.getMessage());
+        } finally {
+            rulesInvalidator.resume();
+        }
+    }
+
     /**
      * Load entity entries, group entries, and user entries required to settle the access, settle it,
      * add this decision into the cache and return the access.
@@ -404,6 +444,26 @@ private void loadUserEntry(UserSecurityReference user, Collection<GroupSecurityR
      */
     private Deque<SecurityRuleEntry> getRules(SecurityReference entity)
         throws AuthorizationException, ParentEntryEvictedException, ConflictingInsertionException
+    {
+        return getRules(entity, Collections.<SecurityReference, SecurityRuleEntry>emptyMap());
+    }
+
+    /**
+     * Retrieve rules for all hierarchy levels of the provided reference.
+     * Rules may be read from the cache, from the passed entries already read, or from the entities and fill the cache.
+     *
+     * @param entity The entity for which rules should be loaded and retrieve.
+     * @param readEntries The rule entries already read from the entities but not yet added to the cache.
+     * @return A collection of security rule entry, once for each level of the hierarchy.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     * @exception ParentEntryEvictedException if any parent entry is
+     * evicted before the operation completes.
+     * @throws ConflictingInsertionException When different threads
+     * have inserted conflicting entries into the cache.
+     */
+    private Deque<SecurityRuleEntry> getRules(SecurityReference entity,
+        Map<SecurityReference, SecurityRuleEntry> readEntries)
+        throws AuthorizationException, ParentEntryEvictedException, ConflictingInsertionException
     {
         Deque<SecurityRuleEntry> rules = new LinkedList<SecurityRuleEntry>();
         List<SecurityRuleEntry> emptyRuleEntryTail = new ArrayList<SecurityRuleEntry>();
@@ -415,7 +475,10 @@ private Deque<SecurityRuleEntry> getRules(SecurityReference entity)
                     entry = new EmptySecurityRuleEntry(ref);
                     emptyRuleEntryTail.add(entry);
                 } else {
-                    entry = securityEntryReader.read(ref);
+                    entry = readEntries.get(ref);
+                    if (entry == null) {
+                        entry = securityEntryReader.read(ref);
+                    }
                     if (!emptyRuleEntryTail.isEmpty()) {
                         // Add intermediate empty rules sets to the cache to hold this significant one
                         for (SecurityRuleEntry emptyRuleEntry : emptyRuleEntryTail) {
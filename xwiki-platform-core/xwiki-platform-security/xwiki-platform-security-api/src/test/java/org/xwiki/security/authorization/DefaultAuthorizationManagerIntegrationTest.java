@@ -21,8 +21,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -70,6 +73,7 @@
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -736,4 +740,35 @@ public void testLoadUserInAnotherWikiAfterUserDoc() throws Exception
             securityReferenceFactory.newEntityReference(getDoc("any document", "any space", "subwiki"))),
             nullValue());
     }
+
+    @Test
+    public void testBulkHasAccess() throws Exception
+    {
+        initialiseWikiMock("inheritancePolicyForGlobalFullWikiAccess");
+
+        List<EntityReference> entities = Arrays.<EntityReference>asList(
+            getXDoc("any document", "any space"),
+            getXDoc("any document", "spaceAllowA"),
+            getXDoc("docDenyA", "spaceAllowA"),
+            getXDoc("docAllowA", "any space"),
+            getDoc("any document", "any space", "wikiNoRules"),
+            getDoc("any document", "spaceAllowA", "wikiNoRules"),
+            getDoc("any document", "any space", "wikiAllowA"),
+            getDoc("docDenyA", "any space", "wikiAllowA"));
+
+        for (Right right : Arrays.asList(VIEW, EDIT, ADMIN, PROGRAM)) {
+            Map<EntityReference, Boolean> access =
+                authorizationManager.hasAccess(right, getXUser("userA"), entities);
+
+            assertEquals(entities, new ArrayList<>(access.keySet()));
+            for (EntityReference entity : entities) {
+                assertEquals(String.format("Bulk [%s] access differs on [%s].", right, getEntityReadableName(entity)),
+                    authorizationManager.hasAccess(right, getXUser("userA"), entity), access.get(entity));
+            }
+        }
+
+        // Superadmin short-circuits any entity check
+        assertEquals(Collections.singletonMap(entities.get(0), true),
+            authorizationManager.hasAccess(PROGRAM, SUPERADMIN, entities.subList(0, 1)));
+    }
 }
@@ -20,16 +20,24 @@
 
 package org.xwiki.security.authorization.cache.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.security.DefaultSecurityReferenceFactory;
@@ -51,8 +59,13 @@
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentManagerRule;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -139,4 +152,70 @@ public void loadWithConflictingInsertionException() throws Exception
                 + "access to [wiki:Space.Document] for user [wiki:Users.mflorea]", e.getMessage());
         }
     }
+
+    @Test
+    public void loadRulesReadsMissingEntriesAtOnce() throws Exception
+    {
+        SecurityReference document1 =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Space", "Document1"));
+        SecurityReference document2 =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Space", "Document2"));
+        SecurityReference space = document1.getParentSecurityReference();
+        SecurityReference wiki = space.getParentSecurityReference();
+
+        final Map<SecurityReference, SecurityRuleEntry> cached = new HashMap<>();
+        SecurityCache securityCache = mocker.getInstance(SecurityCache.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                SecurityRuleEntry entry = invocation.getArgumentAt(0, SecurityRuleEntry.class);
+                cached.put(entry.getReference(), entry);
+                return null;
+            }
+        }).when(securityCache).add(any(SecurityRuleEntry.class));
+        when(securityCache.get(any(SecurityReference.class))).then(new Answer<SecurityRuleEntry>()
+        {
+            @Override
+            public SecurityRuleEntry answer(InvocationOnMock invocation) throws Throwable
+            {
+                return cached.get(invocation.getArgumentAt(0, SecurityReference.class));
+            }
+        });
+
+        // The wiki entry is already cached
+        SecurityRuleEntry wikiEntry = mock(SecurityRuleEntry.class, "wiki");
+        when(wikiEntry.getReference()).thenReturn(wiki);
+        cached.put(wiki, wikiEntry);
+
+        final List<SecurityRuleEntry> readEntries = Arrays.asList(mockEntry(space, "space"),
+            mockEntry(document1, "document1"), mockEntry(document2, "document2"));
+        SecurityEntryReader securityEntryReader = mocker.getInstance(SecurityEntryReader.class);
+        when(securityEntryReader.read(any(Collection.class))).thenReturn(readEntries);
+
+        securityCacheLoader.loadRules(Arrays.asList(document1, document2));
+
+        ArgumentCaptor<Collection> readReferences = ArgumentCaptor.forClass(Collection.class);
+        verify(securityEntryReader).read(readReferences.capture());
+        Assert.assertEquals(Arrays.asList(space, document1, document2),
+            new ArrayList<SecurityReference>(readReferences.getValue()));
+        verify(securityEntryReader, never()).read(any(SecurityReference.class));
+        verify(securityCache, times(3)).add(any(SecurityRuleEntry.class));
+        for (SecurityRuleEntry entry : readEntries) {
+            Assert.assertSame(entry, cached.get(entry.getReference()));
+        }
+
+        SecurityCacheRulesInvalidator rulesInvalidator = mocker.getInstance(SecurityCacheRulesInvalidator.class);
+        verify(rulesInvalidator).suspend();
+        verify(rulesInvalidator).resume();
+    }
+
+    private SecurityRuleEntry mockEntry(SecurityReference reference, String name)
+    {
+        SecurityRuleEntry entry = mock(SecurityRuleEntry.class, name);
+        when(entry.getReference()).thenReturn(reference);
+
+        return entry;
+    }
 }
@@ -23,9 +23,12 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -56,6 +59,7 @@
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
@@ -809,4 +813,66 @@ public boolean keepAccess(SecurityAccessEntry entry) {
             }
         });
     }
+
+    @Test
+    public void testGetGroupsForDuringConcurrentGroupRemoval() throws Exception
+    {
+        InsertUsersWithouShadow();
+
+        final UserSecurityReference user = bothGroupUserRef;
+        final Collection<GroupSecurityReference> expectedGroups = securityCache.getGroupsFor(user, null);
+        assertThat(new HashSet<GroupSecurityReference>(expectedGroups),
+            equalTo(new HashSet<GroupSecurityReference>(Arrays.asList(groupRef, anotherGroupRef))));
+
+        final SecurityRuleEntry groupEntry = securityCache.get(groupRef);
+        final SecurityRuleEntry userEntry = securityCache.get(user);
+        final SecurityAccessEntry accessEntry = mockSecurityAccessEntry(user, user);
+
+        final List<Collection<GroupSecurityReference>> partialResults =
+            new CopyOnWriteArrayList<Collection<GroupSecurityReference>>();
+        final AtomicBoolean removing = new AtomicBoolean(true);
+
+        // Read the groups of the user and cache an access entry based on them, like the cache loader does
+        Thread reader = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                // Bounded since the mocked entries record each call
+                for (int i = 0; i < 20000 && removing.get(); i++) {
+                    Collection<GroupSecurityReference> groups = securityCache.getGroupsFor(user, null);
+                    if (groups != null) {
+                        if (!groups.equals(expectedGroups)) {
+                            partialResults.add(groups);
+                        } else if (securityCache.get(user) != null) {
+                            try {
+                                securityCache.add(accessEntry);
+                            } catch (ParentEntryEvictedException | ConflictingInsertionException e) {
+                                // The user has been removed concurrently, the loader would retry
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        try {
+            for (int i = 0; i < 2000; i++) {
+                securityCache.remove(groupRef);
+                securityCache.add(groupEntry);
+                securityCache.add(userEntry, Arrays.asList(groupRef, anotherGroupRef));
+            }
+            securityCache.remove(groupRef);
+        } finally {
+            removing.set(false);
+            reader.join();
+        }
+
+        assertThat(partialResults.isEmpty(), is(true));
+        // The removal of the group cascades to the user and to the access entries computed from its groups
+        assertThat(securityCache.get(user), nullValue());
+        assertThat(securityCache.get(user, user), nullValue());
+        assertThat(securityCache.getGroupsFor(user, null), nullValue());
+    }
 }
@@ -19,8 +19,14 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -131,6 +137,39 @@ public boolean hasAccess(Right right, EntityReference entity)
         return hasAccess(right, user, entity);
     }
 
+    @Override
+    public Map<EntityReference, Boolean> hasAccess(Right right,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> result = new LinkedHashMap<>(entityReferences.size());
+
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user depends on the entity (content author), so each entity has to be checked on its own
+            for (EntityReference entity : entityReferences) {
+                result.put(entity, hasAccess(right, entity));
+            }
+        } else if (!checkPreAccess(right)) {
+            for (EntityReference entity : entityReferences) {
+                result.put(entity, false);
+            }
+        } else {
+            List<EntityReference> fullReferences = new ArrayList<>(entityReferences.size());
+            for (EntityReference entity : entityReferences) {
+                fullReferences.add(getFullReference(entity));
+            }
+
+            Map<EntityReference, Boolean> access = this.authorizationManager.hasAccess(right,
+                this.xcontextProvider.get().getUserReference(), fullReferences);
+
+            Iterator<EntityReference> fullReferenceIterator = fullReferences.iterator();
+            for (EntityReference entity : entityReferences) {
+                result.put(entity, Boolean.TRUE.equals(access.get(fullReferenceIterator.next())));
+            }
+        }
+
+        return result;
+    }
+
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
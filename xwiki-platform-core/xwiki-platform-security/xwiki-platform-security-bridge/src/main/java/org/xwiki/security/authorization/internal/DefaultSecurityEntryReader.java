@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -151,35 +152,70 @@ public SecurityRuleEntry read(SecurityReference entity) throws AuthorizationExce
             return new InternalSecurityRuleEntry(entity, Collections.<SecurityRule>emptyList());
         }
 
-        DocumentReference documentReference;
-        DocumentReference classReference;
-        WikiReference wikiReference;
+        DocumentReference documentReference = getRulesDocumentReference(entity);
+        WikiReference wikiReference = new WikiReference(entity.extractReference(EntityType.WIKI));
+        DocumentReference classReference = new DocumentReference(
+            entity.getType() == EntityType.DOCUMENT ? XWikiConstants.LOCAL_CLASSNAME : XWikiConstants.GLOBAL_CLASSNAME,
+            new SpaceReference(XWikiConstants.XWIKI_SPACE, wikiReference));
 
+        return new InternalSecurityRuleEntry(entity,
+            getSecurityRules(documentReference, classReference, wikiReference));
+    }
+
+    /**
+     * Load at once the documents holding the rules of the given entities, then read their rules from the (now
+     * cached) documents.
+     *
+     * @param entities the entities to read the rules of
+     * @return the access rules that could be loaded into the cache, in the same order as the passed entities
+     * @throws AuthorizationException if an issue arise while reading these rules from the wiki.
+     */
+    @Override
+    public List<SecurityRuleEntry> read(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        Set<DocumentReference> documentReferences = new LinkedHashSet<>();
+        for (SecurityReference entity : entities) {
+            if (entity != null && entity.getOriginalReference() != null) {
+                documentReferences.add(getRulesDocumentReference(entity));
+            }
+        }
+
+        if (documentReferences.size() > 1) {
+            XWikiContext context = getXWikiContext();
+            try {
+                context.getWiki().getDocuments(documentReferences, context);
+            } catch (XWikiException e) {
+                throw new AuthorizationException("Could not retrieve the documents to check security access", e);
+            }
+        }
+
+        List<SecurityRuleEntry> entries = new ArrayList<>(entities.size());
+        for (SecurityReference entity : entities) {
+            entries.add(read(entity));
+        }
+
+        return entries;
+    }
+
+    /**
+     * @param entity a WIKI, a SPACE or a DOCUMENT entity
+     * @return the reference of the document holding the rules of the passed entity
+     * @throws EntityTypeNotSupportedException if the entity type is not supported
+     */
+    private DocumentReference getRulesDocumentReference(SecurityReference entity)
+        throws EntityTypeNotSupportedException
+    {
         switch (entity.getType()) {
             case WIKI:
-                wikiReference = new WikiReference(entity);
-                SpaceReference wikiSpace = new SpaceReference(XWikiConstants.XWIKI_SPACE, wikiReference);
-                documentReference = new DocumentReference(XWikiConstants.WIKI_DOC, wikiSpace);
-                classReference = new DocumentReference(XWikiConstants.GLOBAL_CLASSNAME, wikiSpace);
-                break;
+                return new DocumentReference(XWikiConstants.WIKI_DOC,
+                    new SpaceReference(XWikiConstants.XWIKI_SPACE, new WikiReference(entity)));
             case SPACE:
-                wikiReference = new WikiReference(entity.extractReference(EntityType.WIKI));
-                documentReference = new DocumentReference(XWikiConstants.SPACE_DOC, new SpaceReference(entity));
-                classReference = new DocumentReference(XWikiConstants.GLOBAL_CLASSNAME,
-                    new SpaceReference(XWikiConstants.XWIKI_SPACE, wikiReference));
-                break;
+                return new DocumentReference(XWikiConstants.SPACE_DOC, new SpaceReference(entity));
             case DOCUMENT:
-                wikiReference = new WikiReference(entity.extractReference(EntityType.WIKI));
-                documentReference = new DocumentReference(entity);
-                classReference = new DocumentReference(XWikiConstants.LOCAL_CLASSNAME,
-                    new SpaceReference(XWikiConstants.XWIKI_SPACE, wikiReference));
-                break;
+                return new DocumentReference(entity);
             default:
                 throw new EntityTypeNotSupportedException(entity.getType(), this);
         }
-
-        return new InternalSecurityRuleEntry(entity,
-            getSecurityRules(documentReference, classReference, wikiReference));
     }
 
     /**
@@ -28,6 +28,7 @@
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,11 +71,29 @@ public abstract class AbstractDocumentSkinExtensionPlugin extends AbstractSkinEx
      */
     protected static final Logger LOGGER = LoggerFactory.getLogger(AbstractDocumentSkinExtensionPlugin.class);
 
+    /**
+     * The name of the preference (in the configuration file) specifying if the document skin extensions used in a page
+     * should be requested all at once with a single URL instead of one URL per extension.
+     *
+     * @since 8.2M1
+     */
+    public static final String BUNDLE_PARAM = "xwiki.plugins.skinx.bundle";
+
     /**
      * The name of the field that indicates whether an extension should always be used, or only when explicitly pulled.
      */
     private static final String USE_FIELDNAME = "use";
 
+    /**
+     * The name of the URL parameter listing the documents of a bundle.
+     */
+    private static final String BUNDLE_REQUEST_PARAMETER = "bundle";
+
+    /**
+     * The separator of the URL parameters.
+     */
+    private static final String QUERY_STRING_SEPARATOR = "&amp;";
+
     /**
      * A Map with wiki/database name as keys and sets of extensions to use always for this wiki as values.
      */
@@ -117,6 +136,23 @@ public List<Event> getEvents()
      */
     protected abstract String getExtensionClassName();
 
+    /**
+     * Return the link to a bundle of extensions, i.e. a single URL returning the content of several extensions.
+     * <p>
+     * Bundling is not supported by default: this implementation returns {@code null}, in which case the bundled
+     * extensions are linked one by one.
+     *
+     * @param url the URL of the bundle
+     * @param context the current request context
+     * @return the linking element that should be printed in the generated HTML, or {@code null} if this type of
+     *         extension can't be bundled
+     * @since 8.2M1
+     */
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        return null;
+    }
+
     /**
      * A user-friendly name for this type of resource, used in the auto-generated class document.
      * 
@@ -269,6 +305,89 @@ public void use(String resource, Map<String, Object> parameters, XWikiContext co
         getParametersMap(context).put(canonicalResource, parameters);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When bundling is enabled (see {@link #BUNDLE_PARAM}) each run of consecutive extensions pulled without parameters
+     * is requested with a single URL. The extensions pulled with parameters are still requested separately since the
+     * parameters can change their content, and they split the bundles so that the extensions keep their order.
+     * </p>
+     */
+    @Override
+    public String getImportString(XWikiContext context)
+    {
+        if (!"1".equals(context.getWiki().Param(BUNDLE_PARAM, "0"))) {
+            return super.getImportString(context);
+        }
+
+        StringBuilder result = new StringBuilder();
+        List<DocumentReference> bundle = new ArrayList<>();
+        for (String documentName : getImportedExtensions(context)) {
+            if (getParametersForResource(documentName, context).isEmpty()) {
+                DocumentReference documentReference = getCurrentDocumentReferenceResolver().resolve(documentName);
+                // Don't make the whole bundle fail because of an extension the current user can't view
+                if (isAccessible(documentReference, context)) {
+                    bundle.add(documentReference);
+                }
+            } else {
+                appendBundleLink(bundle, result, context);
+                result.append(getLink(documentName, context));
+            }
+        }
+        appendBundleLink(bundle, result, context);
+
+        return result.toString();
+    }
+
+    /**
+     * Append the link to the passed bundle of extensions, and empty the bundle.
+     *
+     * @param bundle the references of the documents holding the extensions to bundle
+     * @param result where to append the link
+     * @param context the XWiki Context
+     */
+    private void appendBundleLink(List<DocumentReference> bundle, StringBuilder result, XWikiContext context)
+    {
+        String bundleLink = bundle.size() > 1 ? getBundleLink(getBundleURL(bundle, context), context) : null;
+        if (bundleLink != null) {
+            result.append(bundleLink);
+        } else {
+            for (DocumentReference documentReference : bundle) {
+                result.append(getLink(getDefaultEntityReferenceSerializer().serialize(documentReference), context));
+            }
+        }
+        bundle.clear();
+    }
+
+    /**
+     * Return the URL to a bundle of document skin extensions. The URL targets the first document of the bundle and
+     * lists all the documents of the bundle, along with a hash of their versions so that the browsers don't use an
+     * outdated bundle from their cache.
+     *
+     * @param bundle the references of the documents holding the extensions to bundle
+     * @param context the XWiki Context
+     * @return the URL to the bundle
+     */
+    private String getBundleURL(List<DocumentReference> bundle, XWikiContext context)
+    {
+        StringBuilder queryString = new StringBuilder(getLanguageQueryString(context));
+        StringBuilder versions = new StringBuilder();
+        for (DocumentReference documentReference : bundle) {
+            String documentName = getDefaultEntityReferenceSerializer().serialize(documentReference);
+            queryString.append(QUERY_STRING_SEPARATOR).append(BUNDLE_REQUEST_PARAMETER).append('=');
+            queryString.append(sanitize(documentName));
+            versions.append(documentName).append('@').append(getDocumentVersion(documentReference, context));
+            versions.append('\n');
+        }
+        queryString.append(QUERY_STRING_SEPARATOR).append("hash=").append(DigestUtils.sha1Hex(versions.toString()));
+        // If the main page is requested unminified, also send unminified extensions
+        if ("false".equals(context.getRequest().getParameter("minify"))) {
+            queryString.append(QUERY_STRING_SEPARATOR).append("minify=false");
+        }
+
+        return context.getWiki().getURL(bundle.get(0), getName(), queryString.toString(), "", context);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
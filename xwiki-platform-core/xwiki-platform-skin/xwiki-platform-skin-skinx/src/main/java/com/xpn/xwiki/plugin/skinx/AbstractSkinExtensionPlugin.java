@@ -229,6 +229,20 @@ protected void initializeRequestListIfNeeded(XWikiContext context)
     public String getImportString(XWikiContext context)
     {
         StringBuilder result = new StringBuilder();
+        for (String documentName : getImportedExtensions(context)) {
+            result.append(getLink(documentName, context));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param context The current request context.
+     * @return the extensions to import in the current request, in the order they should be imported
+     * @see #getImportString(XWikiContext)
+     * @since 8.2M1
+     */
+    protected Set<String> getImportedExtensions(XWikiContext context)
+    {
         // Using LinkedHashSet to preserve the extensions order.
         Set<String> extensions = new LinkedHashSet<String>();
         // First, we add to the import string the extensions that should always be used.
@@ -249,10 +263,7 @@ public String getImportString(XWikiContext context)
             extensions.add(serializedCurrentDocumentName);
         }
 
-        for (String documentName : extensions) {
-            result.append(getLink(documentName, context));
-        }
-        return result.toString();
+        return extensions;
     }
 
     /**
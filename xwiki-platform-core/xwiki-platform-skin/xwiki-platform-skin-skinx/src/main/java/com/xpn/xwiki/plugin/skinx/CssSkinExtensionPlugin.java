@@ -83,8 +83,14 @@ public String getLink(String documentName, XWikiContext context)
             return "";
         }
 
-        return String.format("<link rel=\"stylesheet\" type=\"text/css\" href=\"%s\" />",
-                getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context));
+        return getBundleLink(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context),
+            context);
+    }
+
+    @Override
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        return String.format("<link rel=\"stylesheet\" type=\"text/css\" href=\"%s\" />", url);
     }
 
     @Override
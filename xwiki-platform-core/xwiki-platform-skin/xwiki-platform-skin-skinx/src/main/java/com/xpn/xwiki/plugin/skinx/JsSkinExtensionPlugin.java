@@ -91,12 +91,31 @@ public String getLink(String documentName, XWikiContext context)
             return "";
         }
 
-        StringBuilder result = new StringBuilder("<script type='text/javascript' src='");
-        result.append(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context));
         // check if js should be deferred, defaults to the preference configured in the cfg file, which defaults to true
+        boolean defer = BooleanUtils.toBooleanDefaultIfNull((Boolean) getParameter("defer", documentName, context),
+            isDeferredByDefault(context));
+
+        return getScriptTag(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context), defer);
+    }
+
+    @Override
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        // The extensions of a bundle are pulled without parameters so they use the default defer
+        return getScriptTag(url, isDeferredByDefault(context));
+    }
+
+    private boolean isDeferredByDefault(XWikiContext context)
+    {
         String defaultDeferString = context.getWiki().Param(DEFER_DEFAULT_PARAM);
-        Boolean defaultDefer = (!StringUtils.isEmpty(defaultDeferString)) ? Boolean.valueOf(defaultDeferString) : true;
-        if (BooleanUtils.toBooleanDefaultIfNull((Boolean) getParameter("defer", documentName, context), defaultDefer)) {
+        return StringUtils.isEmpty(defaultDeferString) || Boolean.valueOf(defaultDeferString);
+    }
+
+    private String getScriptTag(String url, boolean defer)
+    {
+        StringBuilder result = new StringBuilder("<script type='text/javascript' src='");
+        result.append(url);
+        if (defer) {
             result.append("' defer='defer");
         }
         result.append("'></script>\n");
@@ -20,16 +20,22 @@
 package com.xpn.xwiki.web.sx;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skinx.internal.SxCompressedContentCache;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiAction;
 import com.xpn.xwiki.web.XWikiRequest;
 import com.xpn.xwiki.web.XWikiResponse;
@@ -59,12 +65,27 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to specify the version of the content. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** What http header parameter is used by the browser to send the version of the content it has. */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    /** What http header parameter is used by the browser to list the content encodings it supports. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /** The gzip content encoding. */
+    private static final String GZIP_ENCODING = "gzip";
+
+    /** The double quotes surrounding an ETag. */
+    private static final String ETAG_QUOTE = "\"";
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
+    /** If the user passes this parameter in the URL, we will concatenate the extensions of all the listed documents. */
+    private static final String BUNDLE_REQUEST_PARAMETER = "bundle";
+
     /** If the user specifies this url parameter equals false, we will send uncompressed script content. */
     private static final String COMPRESS_SCRIPT_REQUEST_PARAMETER = "minify";
 
@@ -109,18 +130,81 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (BooleanUtils.toBoolean(StringUtils.defaultIfEmpty(
-            request.get(COMPRESS_SCRIPT_REQUEST_PARAMETER), "true"))) {
-            extensionContent = sxType.getCompressor().compress(extensionContent);
+        boolean compress =
+            BooleanUtils.toBoolean(StringUtils.defaultIfEmpty(request.get(COMPRESS_SCRIPT_REQUEST_PARAMETER), "true"));
+
+        // The compressed content is cached using a hash of the content to compress as key
+        SxCompressedContentCache cache = Utils.getComponent(SxCompressedContentCache.class);
+        String key = cache.getKey(sxType.getClassName(), compress, extensionContent);
+        SxCompressedContentCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            entry = new SxCompressedContentCache.Entry(key,
+                compress ? sxType.getCompressor().compress(extensionContent) : extensionContent);
+            cache.set(entry, getDocumentReferences(sxSource));
+        }
+
+        sendEntry(entry, request, response);
+    }
+
+    private List<DocumentReference> getDocumentReferences(SxSource sxSource)
+    {
+        List<SxDocumentSource> documentSources;
+        if (sxSource instanceof SxBundleSource) {
+            documentSources = ((SxBundleSource) sxSource).getSources();
+        } else if (sxSource instanceof SxDocumentSource) {
+            documentSources = Collections.singletonList((SxDocumentSource) sxSource);
+        } else {
+            documentSources = Collections.emptyList();
+        }
+
+        List<DocumentReference> documentReferences = new ArrayList<>(documentSources.size());
+        for (SxDocumentSource documentSource : documentSources) {
+            documentReferences.add(documentSource.getDocument().getDocumentReference());
+        }
+        return documentReferences;
+    }
+
+    private void sendEntry(SxCompressedContentCache.Entry entry, XWikiRequest request, XWikiResponse response)
+    {
+        // Send the gzipped content when the browser supports it
+        byte[] content = entry.getContent();
+        String etag = ETAG_QUOTE + entry.getKey() + ETAG_QUOTE;
+        response.setHeader("Vary", ACCEPT_ENCODING_HEADER);
+        if (entry.getGzippedContent() != null
+            && StringUtils.containsIgnoreCase(request.getHeader(ACCEPT_ENCODING_HEADER), GZIP_ENCODING)) {
+            content = entry.getGzippedContent();
+            // Each encoding of the content needs its own strong ETag
+            etag = ETAG_QUOTE + entry.getKey() + '-' + GZIP_ENCODING + ETAG_QUOTE;
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
+        }
+        response.setHeader(ETAG_HEADER, etag);
+
+        // Don't send the content when the browser already has it
+        if (matchesETag(request.getHeader(IF_NONE_MATCH_HEADER), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
+    }
+
+    private boolean matchesETag(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch != null) {
+            for (String requestETag : StringUtils.split(ifNoneMatch, ',')) {
+                String trimmedETag = requestETag.trim();
+                if ("*".equals(trimmedETag) || trimmedETag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
 
+        return false;
     }
 
     @Override
@@ -130,6 +214,11 @@ public String render(XWikiContext context) throws XWikiException
 
         if (context.getRequest().getParameter(JAR_RESOURCE_REQUEST_PARAMETER) != null) {
             sxSource = new SxResourceSource(context.getRequest().getParameter(JAR_RESOURCE_REQUEST_PARAMETER));
+        } else if (context.getRequest().getParameterValues(BUNDLE_REQUEST_PARAMETER) != null) {
+            // The bundle skips the missing documents, including the one targeted by the URL, so that a deleted
+            // extension doesn't break the other extensions of the bundle
+            sxSource = new SxBundleSource(context.getRequest().getParameterValues(BUNDLE_REQUEST_PARAMETER), context,
+                getExtensionType());
         } else {
             if (context.getDoc().isNew()) {
                 context.getResponse().setStatus(HttpServletResponse.SC_NOT_FOUND);
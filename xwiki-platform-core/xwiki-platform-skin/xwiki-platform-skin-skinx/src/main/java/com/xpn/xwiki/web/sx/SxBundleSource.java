@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.web.Utils;
+
+/**
+ * Source concatenating the skin extensions of several wiki documents, so that all the extensions used in a page can be
+ * requested at once. Each document is checked for view right as if it was requested alone and is set as the context
+ * document while its extensions are parsed.
+ * 
+ * @version $Id$
+ * @since 8.2M1
+ */
+public class SxBundleSource implements SxSource
+{
+    /** Logging helper. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SxBundleSource.class);
+
+    /** The current XWikiContext. */
+    private XWikiContext context;
+
+    /** The sources of the documents of the bundle. */
+    private List<SxDocumentSource> sources = new ArrayList<>();
+
+    /**
+     * Constructor for this extension source.
+     * 
+     * @param documentNames the names of the documents holding the extensions, in the order the extensions should be
+     *            concatenated
+     * @param context The XWikiContext
+     * @param extension The Extension type
+     */
+    public SxBundleSource(String[] documentNames, XWikiContext context, Extension extension)
+    {
+        this.context = context;
+
+        DocumentReferenceResolver<String> resolver = Utils.getComponent(DocumentReferenceResolver.TYPE_STRING,
+            "current");
+        ContextualAuthorizationManager authorization = Utils.getComponent(ContextualAuthorizationManager.class);
+        for (String documentName : documentNames) {
+            DocumentReference documentReference = resolver.resolve(documentName);
+            if (authorization.hasAccess(Right.VIEW, documentReference)) {
+                try {
+                    XWikiDocument document = context.getWiki().getDocument(documentReference, context);
+                    if (!document.isNew()) {
+                        this.sources.add(new SxDocumentSource(document, context, extension));
+                    }
+                } catch (XWikiException e) {
+                    LOGGER.error("Failed to load skin extension document [{}].", documentReference, e);
+                }
+            } else {
+                LOGGER.debug("The current user [{}] does not have 'view' rights on the Skin Extension document [{}]",
+                    context.getUserReference(), documentReference);
+            }
+        }
+    }
+
+    /**
+     * @return the sources of the documents of the bundle which the current user can view
+     */
+    public List<SxDocumentSource> getSources()
+    {
+        return this.sources;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy()
+    {
+        CachePolicy finalCache = CachePolicy.LONG;
+        for (SxDocumentSource source : this.sources) {
+            CachePolicy cache = source.getCachePolicy();
+            if (cache.compareTo(finalCache) > 0) {
+                finalCache = cache;
+            }
+        }
+        return finalCache;
+    }
+
+    @Override
+    public String getContent()
+    {
+        StringBuilder resultBuilder = new StringBuilder();
+
+        XWikiDocument currentDocument = this.context.getDoc();
+        try {
+            for (SxDocumentSource source : this.sources) {
+                // Parse the extensions as if the document was requested alone
+                source.getDocument().setAsContextDoc(this.context);
+                resultBuilder.append(source.getContent());
+            }
+        } finally {
+            currentDocument.setAsContextDoc(this.context);
+        }
+
+        return resultBuilder.toString();
+    }
+
+    @Override
+    public long getLastModifiedDate()
+    {
+        long lastModifiedDate = 0;
+        for (SxDocumentSource source : this.sources) {
+            lastModifiedDate = Math.max(lastModifiedDate, source.getLastModifiedDate());
+        }
+        return lastModifiedDate;
+    }
+}
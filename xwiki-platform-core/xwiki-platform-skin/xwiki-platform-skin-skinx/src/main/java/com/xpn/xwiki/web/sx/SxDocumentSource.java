@@ -84,12 +84,34 @@ public class SxDocumentSource implements SxSource
      * @param extension The Extension type
      */
     public SxDocumentSource(XWikiContext context, Extension extension)
+    {
+        this(context.getDoc(), context, extension);
+    }
+
+    /**
+     * Constructor for an extension source which is not the context document.
+     * 
+     * @param document the document containing the extension
+     * @param context The XWikiContext
+     * @param extension The Extension type
+     * @since 8.2M1
+     */
+    public SxDocumentSource(XWikiDocument document, XWikiContext context, Extension extension)
     {
         this.context = context;
-        this.document = context.getDoc();
+        this.document = document;
         this.extension = extension;
     }
 
+    /**
+     * @return the document containing the extension
+     * @since 8.2M1
+     */
+    public XWikiDocument getDocument()
+    {
+        return this.document;
+    }
+
     @Override
     public CachePolicy getCachePolicy()
     {
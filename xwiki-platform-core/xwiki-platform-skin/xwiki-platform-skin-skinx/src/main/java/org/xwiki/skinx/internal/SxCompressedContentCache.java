@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+
+/**
+ * Keep the compressed (and gzipped) content of the skin extensions, to avoid running the compressor each time a skin
+ * extension is requested. The entries are indexed by a hash of the content to compress so that a modified skin
+ * extension never gets an outdated entry.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component(roles = SxCompressedContentCache.class)
+@Singleton
+public class SxCompressedContentCache implements Initializable
+{
+    /**
+     * The compressed content of a skin extension.
+     *
+     * @version $Id$
+     */
+    public static class Entry
+    {
+        private final String key;
+
+        private final byte[] content;
+
+        private final byte[] gzippedContent;
+
+        private volatile Collection<DocumentReference> documentReferences = Collections.emptyList();
+
+        /**
+         * @param key the key of the entry, a hash of the content before compression
+         * @param content the compressed content
+         */
+        public Entry(String key, String content)
+        {
+            this.key = key;
+            this.content = content.getBytes(StandardCharsets.UTF_8);
+            this.gzippedContent = gzip(this.content);
+        }
+
+        /**
+         * @return the key of the entry, a hash of the content before compression
+         */
+        public String getKey()
+        {
+            return this.key;
+        }
+
+        /**
+         * @return the UTF-8 bytes of the compressed content
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the gzipped UTF-8 bytes of the compressed content, or null if gzip does not make it smaller
+         */
+        public byte[] getGzippedContent()
+        {
+            return this.gzippedContent;
+        }
+
+        private static byte[] gzip(byte[] bytes)
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+                gzip.write(bytes);
+            } catch (IOException e) {
+                // Can't happen with a memory output stream
+                return null;
+            }
+
+            return output.size() < bytes.length ? output.toByteArray() : null;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache<Entry> cache;
+
+    /**
+     * The keys of the entries produced from each document, to free them when the document is modified. The keys are
+     * removed when the entries are evicted from the cache so that this map doesn't outlive the cache content.
+     */
+    private final Map<DocumentReference, Set<String>> documentKeys = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.compressed", 500));
+            this.cache.addCacheEntryListener(new Listener());
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize the compressed skin extensions cache", e);
+        }
+    }
+
+    /**
+     * @param extensionClassName the class of the extension (JavaScript or StyleSheet)
+     * @param compress true if the content is compressed
+     * @param content the content of the skin extension before compression
+     * @return the key of the compressed content
+     */
+    public String getKey(String extensionClassName, boolean compress, String content)
+    {
+        return DigestUtils.sha1Hex(extensionClassName + '\n' + compress + '\n' + content);
+    }
+
+    /**
+     * @param key the key computed with {@link #getKey(String, boolean, String)}
+     * @return the cached entry or null if there's none
+     */
+    public Entry get(String key)
+    {
+        return this.cache.get(key);
+    }
+
+    /**
+     * @param entry the entry to cache
+     * @param documentReferences the documents holding the skin extensions, empty if they are not document skin
+     *            extensions
+     */
+    public void set(Entry entry, Collection<DocumentReference> documentReferences)
+    {
+        entry.documentReferences = new ArrayList<>(documentReferences);
+
+        for (DocumentReference documentReference : entry.documentReferences) {
+            this.documentKeys.compute(documentReference, (reference, keys) -> {
+                Set<String> newKeys = keys != null ? keys : ConcurrentHashMap.<String>newKeySet();
+                newKeys.add(entry.getKey());
+                return newKeys;
+            });
+        }
+
+        this.cache.set(entry.getKey(), entry);
+    }
+
+    /**
+     * Remove the entries produced from the skin extensions of the passed document.
+     *
+     * @param documentReference the reference of the modified document
+     */
+    public void remove(DocumentReference documentReference)
+    {
+        Set<String> keys = this.documentKeys.remove(documentReference);
+        if (keys != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    private void removeKey(String key, Collection<DocumentReference> documentReferences)
+    {
+        for (DocumentReference documentReference : documentReferences) {
+            this.documentKeys.computeIfPresent(documentReference, (reference, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Forget the keys of the entries removed or evicted from the cache.
+     */
+    private class Listener extends AbstractCacheEntryListener<Entry>
+    {
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<Entry> event)
+        {
+            Entry entry = event.getEntry().getValue();
+            if (entry != null) {
+                removeKey(event.getEntry().getKey(), entry.documentReferences);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.RegexEntityReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectAddedEvent;
+import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
+import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+
+/**
+ * Free the compressed content of the skin extensions of a document when they are modified.
+ *
+ * @version $Id$
+ * @since 8.2M1
+ */
+@Component
+@Named(SxCompressedContentCacheListener.NAME)
+@Singleton
+public class SxCompressedContentCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "SxCompressedContentCacheListener";
+
+    /**
+     * The reference to match the skin extension objects on whatever wiki.
+     */
+    private static final RegexEntityReference SX_REFERENCE = new RegexEntityReference(
+        Pattern.compile(".*:XWiki\\.(JavaScriptExtension|StyleSheetExtension)\\[\\d*\\]"), EntityType.OBJECT);
+
+    @Inject
+    private SxCompressedContentCache cache;
+
+    /**
+     * Default constructor.
+     */
+    public SxCompressedContentCacheListener()
+    {
+        super(NAME, new XObjectAddedEvent(SX_REFERENCE), new XObjectDeletedEvent(SX_REFERENCE),
+            new XObjectUpdatedEvent(SX_REFERENCE));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.cache.remove(((XWikiDocument) source).getDocumentReference());
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.skinx;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.web.XWikiRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the bundling of the document skin extensions, through {@link CssSkinExtensionPlugin}.
+ *
+ * @version $Id$
+ */
+public class CssSkinExtensionPluginTest
+{
+    private XWikiContext context = new XWikiContext();
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private DocumentReferenceResolver<String> resolver = mock(DocumentReferenceResolver.class);
+
+    private EntityReferenceSerializer<String> serializer = mock(EntityReferenceSerializer.class);
+
+    private CssSkinExtensionPlugin plugin = new CssSkinExtensionPlugin("ssx", "", this.context)
+    {
+        @Override
+        public Set<String> getAlwaysUsedExtensions(XWikiContext context)
+        {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean hasPageExtensions(XWikiContext context)
+        {
+            return false;
+        }
+
+        @Override
+        protected boolean isAccessible(DocumentReference documentReference, XWikiContext context)
+        {
+            return !"Hidden".equals(documentReference.getName());
+        }
+
+        @Override
+        protected DocumentReferenceResolver<String> getCurrentDocumentReferenceResolver()
+        {
+            return resolver;
+        }
+
+        @Override
+        protected EntityReferenceSerializer<String> getDefaultEntityReferenceSerializer()
+        {
+            return serializer;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.context.setWiki(this.xwiki);
+        this.context.setRequest(mock(XWikiRequest.class));
+        when(this.xwiki.Param(AbstractDocumentSkinExtensionPlugin.BUNDLE_PARAM, "0")).thenReturn("1");
+
+        when(this.resolver.resolve(anyString())).thenAnswer(new Answer<DocumentReference>()
+        {
+            @Override
+            public DocumentReference answer(InvocationOnMock invocation) throws Throwable
+            {
+                String documentName = invocation.getArgumentAt(0, String.class);
+                return new DocumentReference("wiki", "XWiki", documentName.substring("XWiki.".length()));
+            }
+        });
+        when(this.serializer.serialize(any(EntityReference.class))).thenAnswer(new Answer<String>()
+        {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable
+            {
+                return "XWiki." + invocation.getArgumentAt(0, EntityReference.class).getName();
+            }
+        });
+
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getVersion()).thenReturn("1.1");
+        when(this.xwiki.getDocument(any(DocumentReference.class), same(this.context))).thenReturn(document);
+        when(this.xwiki.getURL(any(DocumentReference.class), eq("ssx"), anyString(), eq(""), same(this.context)))
+            .thenAnswer(new Answer<String>()
+            {
+                @Override
+                public String answer(InvocationOnMock invocation) throws Throwable
+                {
+                    return '/' + invocation.getArgumentAt(0, DocumentReference.class).getName() + '?'
+                        + invocation.getArgumentAt(2, String.class);
+                }
+            });
+    }
+
+    private void pull(String name, String color)
+    {
+        this.plugin.getPulledResources(this.context).add("XWiki." + name);
+        if (color != null) {
+            this.plugin.getParametersMap(this.context).put("XWiki." + name,
+                Collections.<String, Object>singletonMap("color", color));
+        }
+    }
+
+    private String link(String url)
+    {
+        return String.format("<link rel=\"stylesheet\" type=\"text/css\" href=\"%s\" />", url);
+    }
+
+    private String singleURL(String name, String parameters)
+    {
+        return '/' + name + "?&amp;docVersion=1.1" + parameters;
+    }
+
+    private String bundleURL(String... names)
+    {
+        StringBuilder url = new StringBuilder('/' + names[0] + '?');
+        StringBuilder versions = new StringBuilder();
+        for (String name : names) {
+            url.append("&amp;bundle=XWiki.").append(name);
+            versions.append("XWiki.").append(name).append("@1.1\n");
+        }
+        return url.append("&amp;hash=").append(DigestUtils.sha1Hex(versions.toString())).toString();
+    }
+
+    @Test
+    public void getImportStringBundlesAllTheExtensions()
+    {
+        pull("A", null);
+        pull("B", null);
+        pull("C", null);
+
+        assertEquals(link(bundleURL("A", "B", "C")), this.plugin.getImportString(this.context));
+    }
+
+    @Test
+    public void getImportStringKeepsTheOrderOfTheExtensionsWithParameters()
+    {
+        pull("A", null);
+        pull("B", null);
+        pull("C", "red");
+        pull("D", null);
+        pull("E", null);
+        pull("F", "blue");
+
+        assertEquals(link(bundleURL("A", "B")) + link(singleURL("C", "&amp;color=red")) + link(bundleURL("D", "E"))
+            + link(singleURL("F", "&amp;color=blue")), this.plugin.getImportString(this.context));
+    }
+
+    @Test
+    public void getImportStringDoesNotBundleASingleExtension()
+    {
+        pull("A", "red");
+        pull("B", null);
+        pull("Hidden", null);
+
+        assertEquals(link(singleURL("A", "&amp;color=red")) + link(singleURL("B", "")),
+            this.plugin.getImportString(this.context));
+    }
+
+    @Test
+    public void getImportStringWhenBundlingIsDisabled()
+    {
+        when(this.xwiki.Param(AbstractDocumentSkinExtensionPlugin.BUNDLE_PARAM, "0")).thenReturn("0");
+
+        pull("A", null);
+        pull("B", null);
+
+        assertEquals(link(singleURL("A", "")) + link(singleURL("B", "")), this.plugin.getImportString(this.context));
+    }
+
+    @Test
+    public void getImportStringWhenTheExtensionTypeDoesNotSupportBundles()
+    {
+        // An extension type which doesn't provide a bundle link
+        AbstractDocumentSkinExtensionPlugin plugin = new AbstractDocumentSkinExtensionPlugin("tsx", "", this.context)
+        {
+            @Override
+            public String getLink(String documentName, XWikiContext context)
+            {
+                return '[' + documentName + ']';
+            }
+
+            @Override
+            public Set<String> getAlwaysUsedExtensions(XWikiContext context)
+            {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public boolean hasPageExtensions(XWikiContext context)
+            {
+                return false;
+            }
+
+            @Override
+            protected String getExtensionClassName()
+            {
+                return "XWiki.TestExtension";
+            }
+
+            @Override
+            protected String getExtensionName()
+            {
+                return "Test";
+            }
+
+            @Override
+            protected boolean isAccessible(DocumentReference documentReference, XWikiContext context)
+            {
+                return true;
+            }
+
+            @Override
+            protected DocumentReferenceResolver<String> getCurrentDocumentReferenceResolver()
+            {
+                return resolver;
+            }
+
+            @Override
+            protected EntityReferenceSerializer<String> getDefaultEntityReferenceSerializer()
+            {
+                return serializer;
+            }
+        };
+
+        plugin.getPulledResources(this.context).add("XWiki.A");
+        plugin.getPulledResources(this.context).add("XWiki.B");
+
+        assertEquals("[XWiki.A][XWiki.B]", plugin.getImportString(this.context));
+    }
+}
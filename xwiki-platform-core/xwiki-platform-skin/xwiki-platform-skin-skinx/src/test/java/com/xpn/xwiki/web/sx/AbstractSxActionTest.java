@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skinx.internal.SxCompressedContentCache;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+public class AbstractSxActionTest
+{
+    private static final String KEY = "key";
+
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private SxCompressedContentCache cache;
+
+    private XWikiContext context = new XWikiContext();
+
+    private XWikiRequest request = mock(XWikiRequest.class);
+
+    private XWikiResponse response = mock(XWikiResponse.class);
+
+    private ServletOutputStream outputStream = mock(ServletOutputStream.class);
+
+    private SxSource source = mock(SxSource.class);
+
+    private Extension extension = mock(Extension.class);
+
+    private SxCompressor compressor = mock(SxCompressor.class);
+
+    private AbstractSxAction action = new AbstractSxAction()
+    {
+        @Override
+        protected Logger getLogger()
+        {
+            return mock(Logger.class);
+        }
+
+        @Override
+        public Extension getExtensionType()
+        {
+            return extension;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.cache = this.mocker.registerMockComponent(SxCompressedContentCache.class);
+        Utils.setComponentManager(this.mocker);
+
+        this.context.setRequest(this.request);
+        this.context.setResponse(this.response);
+        when(this.response.getOutputStream()).thenReturn(this.outputStream);
+
+        when(this.source.getContent()).thenReturn("content");
+        when(this.source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+
+        when(this.extension.getClassName()).thenReturn("XWiki.JavaScriptExtension");
+        when(this.extension.getContentType()).thenReturn("text/javascript");
+        when(this.extension.getCompressor()).thenReturn(this.compressor);
+        when(this.compressor.compress("content")).thenReturn("compressed");
+
+        when(this.cache.getKey("XWiki.JavaScriptExtension", true, "content")).thenReturn(KEY);
+    }
+
+    private static byte[] bytes(String content)
+    {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String content)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            builder.append(content);
+        }
+
+        return builder.toString();
+    }
+
+    @Test
+    public void renderExtensionWhenNotCached() throws Exception
+    {
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        // The content is compressed and cached
+        verify(this.cache).set(any(SxCompressedContentCache.Entry.class),
+            eq(Collections.<DocumentReference>emptyList()));
+        verify(this.response).setHeader("ETag", "\"key\"");
+        verify(this.response).setContentLength(10);
+        verify(this.outputStream).write(bytes("compressed"));
+    }
+
+    @Test
+    public void renderExtensionWhenCached() throws Exception
+    {
+        when(this.cache.get(KEY)).thenReturn(new SxCompressedContentCache.Entry(KEY, "cached"));
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        // The content is not compressed again
+        verify(this.compressor, never()).compress(anyString());
+        verify(this.cache, never()).set(any(SxCompressedContentCache.Entry.class), any(Collection.class));
+        verify(this.outputStream).write(bytes("cached"));
+    }
+
+    @Test
+    public void renderExtensionWhenTheBrowserHasTheContent() throws Exception
+    {
+        when(this.cache.get(KEY)).thenReturn(new SxCompressedContentCache.Entry(KEY, "cached"));
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", \"key\"");
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response, never()).getOutputStream();
+    }
+
+    @Test
+    public void renderExtensionWhenTheBrowserHasAnotherVersion() throws Exception
+    {
+        when(this.cache.get(KEY)).thenReturn(new SxCompressedContentCache.Entry(KEY, "cached"));
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"old\"");
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.outputStream).write(bytes("cached"));
+    }
+
+    @Test
+    public void renderExtensionGzippedWhenAccepted() throws Exception
+    {
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry(KEY, repeat("var a = 1;"));
+        assertNotNull(entry.getGzippedContent());
+        when(this.cache.get(KEY)).thenReturn(entry);
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("deflate, GZIP");
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        verify(this.response).setHeader("Content-Encoding", "gzip");
+        verify(this.response).setHeader("ETag", "\"key-gzip\"");
+        verify(this.response).setHeader("Vary", "Accept-Encoding");
+        verify(this.outputStream).write(entry.getGzippedContent());
+    }
+
+    @Test
+    public void renderExtensionNotGzippedWhenNotAccepted() throws Exception
+    {
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry(KEY, repeat("var a = 1;"));
+        when(this.cache.get(KEY)).thenReturn(entry);
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("deflate");
+
+        this.action.renderExtension(this.source, this.extension, this.context);
+
+        verify(this.response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(this.response).setHeader("ETag", "\"key\"");
+        verify(this.outputStream).write(entry.getContent());
+        assertEquals(1000, entry.getContent().length);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxBundleSource}.
+ *
+ * @version $Id$
+ */
+public class SxBundleSourceTest
+{
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    private XWikiContext context = new XWikiContext();
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private DocumentReferenceResolver<String> resolver;
+
+    private ContextualAuthorizationManager authorization;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.resolver = this.mocker.registerMockComponent(DocumentReferenceResolver.TYPE_STRING, "current");
+        this.authorization = this.mocker.registerMockComponent(ContextualAuthorizationManager.class);
+        Utils.setComponentManager(this.mocker);
+
+        this.context.setWiki(this.xwiki);
+    }
+
+    private XWikiDocument mockDocument(String name, boolean isNew, boolean viewable) throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "XWiki", name);
+        when(this.resolver.resolve("XWiki." + name)).thenReturn(documentReference);
+        when(this.authorization.hasAccess(Right.VIEW, documentReference)).thenReturn(viewable);
+
+        XWikiDocument document = mock(XWikiDocument.class, name);
+        when(document.isNew()).thenReturn(isNew);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        when(this.xwiki.getDocument(documentReference, this.context)).thenReturn(document);
+
+        return document;
+    }
+
+    @Test
+    public void getSourcesSkipsTheMissingAndHiddenDocuments() throws Exception
+    {
+        mockDocument("Missing", true, true);
+        XWikiDocument first = mockDocument("First", false, true);
+        mockDocument("Hidden", false, false);
+        XWikiDocument second = mockDocument("Second", false, true);
+
+        SxBundleSource source = new SxBundleSource(
+            new String[] {"XWiki.Missing", "XWiki.First", "XWiki.Hidden", "XWiki.Second"}, this.context,
+            new JsExtension());
+
+        List<XWikiDocument> documents = new ArrayList<>();
+        for (SxDocumentSource documentSource : source.getSources()) {
+            documents.add(documentSource.getDocument());
+        }
+        assertEquals(Arrays.asList(first, second), documents);
+    }
+}
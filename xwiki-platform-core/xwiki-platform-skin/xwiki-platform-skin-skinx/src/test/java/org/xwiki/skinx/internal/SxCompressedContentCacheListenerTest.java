@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxCompressedContentCacheListener}.
+ *
+ * @version $Id$
+ */
+public class SxCompressedContentCacheListenerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<SxCompressedContentCacheListener> mocker =
+        new MockitoComponentMockingRule<>(SxCompressedContentCacheListener.class);
+
+    @Test
+    public void onEventRemovesTheEntriesOfTheModifiedDocument() throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+
+        this.mocker.getComponentUnderTest().onEvent(new XObjectUpdatedEvent(new ObjectReference(
+            "XWiki.JavaScriptExtension[0]", documentReference)), document, null);
+
+        verify(this.mocker.<SxCompressedContentCache>getInstance(SxCompressedContentCache.class))
+            .remove(documentReference);
+    }
+}
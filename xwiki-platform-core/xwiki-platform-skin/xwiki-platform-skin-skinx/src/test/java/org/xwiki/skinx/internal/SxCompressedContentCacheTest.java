@@ -0,0 +1,156 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntry;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxCompressedContentCache}.
+ *
+ * @version $Id$
+ */
+public class SxCompressedContentCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<SxCompressedContentCache> mocker =
+        new MockitoComponentMockingRule<>(SxCompressedContentCache.class);
+
+    private Cache<SxCompressedContentCache.Entry> cache;
+
+    private DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.cache = mock(Cache.class);
+        CacheManager cacheManager = this.mocker.getInstance(CacheManager.class);
+        when(cacheManager.<SxCompressedContentCache.Entry>createNewCache(any(CacheConfiguration.class)))
+            .thenReturn(this.cache);
+    }
+
+    @Test
+    public void getWhenCached() throws Exception
+    {
+        SxCompressedContentCache compressedCache = this.mocker.getComponentUnderTest();
+        String key = compressedCache.getKey("XWiki.JavaScriptExtension", true, "content");
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry(key, "compressed");
+
+        compressedCache.set(entry, Arrays.asList(this.documentReference));
+        verify(this.cache).set(key, entry);
+
+        when(this.cache.get(key)).thenReturn(entry);
+        assertSame(entry, compressedCache.get(key));
+    }
+
+    @Test
+    public void getWhenNotCached() throws Exception
+    {
+        SxCompressedContentCache compressedCache = this.mocker.getComponentUnderTest();
+
+        assertNull(compressedCache.get(compressedCache.getKey("XWiki.JavaScriptExtension", true, "content")));
+    }
+
+    @Test
+    public void getKeyDependsOnTheContentToCompress() throws Exception
+    {
+        SxCompressedContentCache compressedCache = this.mocker.getComponentUnderTest();
+        String key = compressedCache.getKey("XWiki.JavaScriptExtension", true, "content");
+
+        assertNotEquals(key, compressedCache.getKey("XWiki.JavaScriptExtension", true, "modified content"));
+        assertNotEquals(key, compressedCache.getKey("XWiki.JavaScriptExtension", false, "content"));
+        assertNotEquals(key, compressedCache.getKey("XWiki.StyleSheetExtension", true, "content"));
+    }
+
+    @Test
+    public void removeTheEntriesOfAModifiedDocument() throws Exception
+    {
+        SxCompressedContentCache compressedCache = this.mocker.getComponentUnderTest();
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry("key", "compressed");
+        compressedCache.set(entry, Arrays.asList(this.documentReference));
+        SxCompressedContentCache.Entry otherEntry = new SxCompressedContentCache.Entry("other", "compressed");
+        compressedCache.set(otherEntry, Arrays.asList(new DocumentReference("wiki", "Space", "Other")));
+
+        compressedCache.remove(this.documentReference);
+
+        verify(this.cache).remove("key");
+        verify(this.cache, never()).remove("other");
+    }
+
+    @Test
+    public void forgetTheKeysOfTheEvictedEntries() throws Exception
+    {
+        SxCompressedContentCache compressedCache = this.mocker.getComponentUnderTest();
+        ArgumentCaptor<CacheEntryListener> listenerCaptor = ArgumentCaptor.forClass(CacheEntryListener.class);
+        verify(this.cache).addCacheEntryListener(listenerCaptor.capture());
+
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry("key", "compressed");
+        compressedCache.set(entry, Collections.singletonList(this.documentReference));
+
+        // The cache evicts the entry
+        CacheEntry<SxCompressedContentCache.Entry> cacheEntry = mock(CacheEntry.class);
+        when(cacheEntry.getKey()).thenReturn("key");
+        when(cacheEntry.getValue()).thenReturn(entry);
+        CacheEntryEvent<SxCompressedContentCache.Entry> event = mock(CacheEntryEvent.class);
+        when(event.getEntry()).thenReturn(cacheEntry);
+        listenerCaptor.getValue().cacheEntryRemoved(event);
+
+        // The evicted entry is not removed again when the document is modified
+        compressedCache.remove(this.documentReference);
+        verify(this.cache, never()).remove("key");
+    }
+
+    @Test
+    public void gzippedContentOnlyWhenSmaller() throws Exception
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            content.append("var a = 1;");
+        }
+
+        SxCompressedContentCache.Entry entry = new SxCompressedContentCache.Entry("key", content.toString());
+        assertNotNull(entry.getGzippedContent());
+
+        assertNull(new SxCompressedContentCache.Entry("key", "a").getGzippedContent());
+    }
+}